@@ -35,6 +35,7 @@ import icy.roi.ROI2D;
 import icy.sequence.DimensionId;
 import icy.sequence.Sequence;
 import icy.sequence.SequenceEvent.SequenceEventType;
+import icy.system.thread.Processor;
 import icy.system.thread.SingleProcessor;
 import icy.system.thread.ThreadUtil;
 import icy.util.EventUtil;
@@ -650,6 +651,34 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
 
         public class ImageCache implements Runnable
         {
+            /**
+             * Rendered frame prepared in advance
+             */
+            private class PreparedFrame
+            {
+                final IcyBufferedImage source;
+                final int channel;
+                final BufferedImage image;
+
+                PreparedFrame(IcyBufferedImage source, int channel, BufferedImage image)
+                {
+                    super();
+
+                    this.source = source;
+                    this.channel = channel;
+                    this.image = image;
+                }
+            }
+
+            /**
+             * maximum number of prepared frames we keep
+             */
+            private static final int PREFETCH_SIZE = 6;
+            /**
+             * maximum memory (in bytes) retained by prepared frames and recycled buffers
+             */
+            private static final long PREFETCH_MAX_MEMORY = 64L * 1024L * 1024L;
+
             /**
              * image cache
              */
@@ -659,10 +688,30 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
              * processor
              */
             private final SingleProcessor processor;
+            private final Processor prefetchProcessor;
             /**
              * internals
              */
             private boolean needRebuild;
+            private boolean fullRebuild;
+            private Rectangle dirtyRegion;
+            /**
+             * last rendered source plane and channel (channel images are new wrappers on each
+             * call so the source plane identity is used)
+             */
+            private IcyBufferedImage lastSource;
+            private int lastC;
+            /**
+             * prefetch internals (ring buffer of prepared frames and recycled buffers)
+             */
+            private final PreparedFrame[] prepared;
+            private int preparedIndex;
+            private final List<BufferedImage> freeBuffers;
+            private BufferedImage retiredBuffer;
+            private long prefetchMemory;
+            private int generation;
+            private int hitCount;
+            private int missCount;
 
             public ImageCache()
             {
@@ -671,16 +720,272 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
                 processor = new SingleProcessor(true, "Canvas2D renderer");
                 // we want the processor to stay alive for sometime
                 processor.setKeepAliveTime(3, TimeUnit.SECONDS);
+                // ARGB building is serialized so one thread is enough here
+                prefetchProcessor = new Processor(PREFETCH_SIZE * 2, 1, Processor.MIN_PRIORITY);
+                prefetchProcessor.setDefaultThreadName("Canvas2D prefetch");
 
                 imageCache = null;
                 needRebuild = true;
+                fullRebuild = true;
+                dirtyRegion = null;
+                lastSource = null;
+                lastC = -1;
+                prepared = new PreparedFrame[PREFETCH_SIZE];
+                preparedIndex = 0;
+                freeBuffers = new ArrayList<BufferedImage>();
+                retiredBuffer = null;
+                prefetchMemory = 0L;
+                generation = 0;
+                hitCount = 0;
+                missCount = 0;
                 // build cache
                 processor.addTask(this);
             }
 
-            public void invalidCache()
+            /**
+             * Request the image at position (t, z) to be rendered in background.
+             */
+            public void prefetch(int t, int z)
+            {
+                final IcyBufferedImage source = Canvas2D.this.getImage(t, z);
+                final int c = getPositionC();
+                final int gen;
+
+                // a single frame doesn't fit in the prefetch memory
+                if ((source == null) || (getMemorySize(source.getWidth(), source.getHeight()) > PREFETCH_MAX_MEMORY))
+                    return;
+
+                synchronized (this)
+                {
+                    // already prepared
+                    if (getPreparedIndex(source, c) != -1)
+                        return;
+
+                    gen = generation;
+                }
+
+                // keyed on source image so repeated requests are coalesced
+                prefetchProcessor.submitTask(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        prepare(source, c, gen);
+                    }
+                }, false, 0, source, Processor.DEFAULT_TASK_PRIORITY);
+            }
+
+            /**
+             * Cancel all pending prefetch requests.
+             */
+            public void cancelPrefetch()
+            {
+                prefetchProcessor.removeAllWaitingTasks();
+            }
+
+            /**
+             * Discard all prepared frames (LUT or data changed).
+             */
+            public synchronized void invalidPrefetch()
+            {
+                generation++;
+
+                for (int i = 0; i < prepared.length; i++)
+                {
+                    if (prepared[i] != null)
+                    {
+                        final BufferedImage image = prepared[i].image;
+
+                        prepared[i] = null;
+                        prefetchMemory -= getMemorySize(image);
+                        recycle(image);
+                    }
+                }
+            }
+
+            public synchronized int getHitCount()
+            {
+                return hitCount;
+            }
+
+            public synchronized int getMissCount()
+            {
+                return missCount;
+            }
+
+            /**
+             * Returns the memory (in bytes) retained by prepared frames and recycled buffers.
+             */
+            public synchronized long getPrefetchMemory()
+            {
+                return prefetchMemory;
+            }
+
+            private long getMemorySize(int width, int height)
+            {
+                // ARGB int pixels
+                return (long) width * (long) height * 4L;
+            }
+
+            private long getMemorySize(BufferedImage image)
+            {
+                return getMemorySize(image.getWidth(), image.getHeight());
+            }
+
+            void prepare(IcyBufferedImage source, int c, int gen)
+            {
+                final BufferedImage dest;
+
+                synchronized (this)
+                {
+                    // obsolete or already done
+                    if ((gen != generation) || (getPreparedIndex(source, c) != -1))
+                        return;
+
+                    dest = freeBuffers.isEmpty() ? null : freeBuffers.remove(freeBuffers.size() - 1);
+                    if (dest != null)
+                        prefetchMemory -= getMemorySize(dest);
+                }
+
+                final IcyBufferedImage img = (c == -1) ? source : source.getImage(c);
+                final BufferedImage result = IcyBufferedImageUtil.getARGBImage(img, getLut(), dest);
+
+                synchronized (this)
+                {
+                    // LUT or data changed in the meantime
+                    if (gen != generation)
+                    {
+                        recycle(result);
+                        return;
+                    }
+
+                    final long size = getMemorySize(result);
+
+                    // replace oldest frame
+                    if (prepared[preparedIndex] != null)
+                    {
+                        prefetchMemory -= getMemorySize(prepared[preparedIndex].image);
+                        prepared[preparedIndex] = null;
+                    }
+
+                    // make room: release recycled buffers first then oldest frames
+                    while ((prefetchMemory + size) > PREFETCH_MAX_MEMORY)
+                    {
+                        if (!freeBuffers.isEmpty())
+                            prefetchMemory -= getMemorySize(freeBuffers.remove(freeBuffers.size() - 1));
+                        else if (!discardOldest())
+                            break;
+                    }
+
+                    prepared[preparedIndex] = new PreparedFrame(source, c, result);
+                    preparedIndex = (preparedIndex + 1) % prepared.length;
+                    prefetchMemory += size;
+                }
+            }
+
+            /**
+             * Discard the oldest prepared frame (should be called inside synchronized (this)).
+             */
+            private boolean discardOldest()
+            {
+                for (int i = 0; i < prepared.length; i++)
+                {
+                    final int index = (preparedIndex + i) % prepared.length;
+
+                    if (prepared[index] != null)
+                    {
+                        prefetchMemory -= getMemorySize(prepared[index].image);
+                        prepared[index] = null;
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
+            private int getPreparedIndex(IcyBufferedImage source, int c)
+            {
+                for (int i = 0; i < prepared.length; i++)
+                {
+                    final PreparedFrame frame = prepared[i];
+
+                    if ((frame != null) && (frame.source == source) && (frame.channel == c))
+                        return i;
+                }
+
+                return -1;
+            }
+
+            /**
+             * Take the prepared frame for the specified image (null if not available).
+             */
+            private synchronized BufferedImage takePrepared(IcyBufferedImage source, int c)
+            {
+                final int index = getPreparedIndex(source, c);
+
+                if (index == -1)
+                    return null;
+
+                final BufferedImage result = prepared[index].image;
+                prepared[index] = null;
+                prefetchMemory -= getMemorySize(result);
+
+                return result;
+            }
+
+            /**
+             * Keep the buffer for reuse if it fits in the prefetch memory (should be called inside
+             * synchronized (this)).
+             */
+            private void recycle(BufferedImage image)
+            {
+                if (image == null)
+                    return;
+
+                final long size = getMemorySize(image);
+
+                if ((freeBuffers.size() < PREFETCH_SIZE) && ((prefetchMemory + size) <= PREFETCH_MAX_MEMORY))
+                {
+                    freeBuffers.add(image);
+                    prefetchMemory += size;
+                }
+            }
+
+            void shutDown()
+            {
+                prefetchProcessor.removeAllWaitingTasks();
+                prefetchProcessor.shutdown();
+                invalidPrefetch();
+
+                synchronized (this)
+                {
+                    freeBuffers.clear();
+                    retiredBuffer = null;
+                    prefetchMemory = 0L;
+                }
+            }
+
+            public synchronized void invalidCache()
+            {
+                needRebuild = true;
+                fullRebuild = true;
+                dirtyRegion = null;
+            }
+
+            /**
+             * Invalid only the specified region of the current image.
+             */
+            public synchronized void invalidCache(Rectangle region)
             {
                 needRebuild = true;
+
+                if (!fullRebuild)
+                {
+                    if (dirtyRegion == null)
+                        dirtyRegion = new Rectangle(region);
+                    else
+                        dirtyRegion.add(region);
+                }
             }
 
             public boolean isValid()
@@ -711,16 +1016,64 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
             @Override
             public void run()
             {
-                // important to set it to false at beginning
-                needRebuild = false;
+                final Rectangle region;
+
+                synchronized (this)
+                {
+                    // important to set it to false at beginning
+                    needRebuild = false;
+                    region = fullRebuild ? null : dirtyRegion;
+                    fullRebuild = false;
+                    dirtyRegion = null;
+                }
+
+                final IcyBufferedImage source = Canvas2D.this.getImage(getPositionT(), getPositionZ());
+                final int c = getPositionC();
+                final IcyBufferedImage img = ((source == null) || (c == -1)) ? source : source.getImage(c);
 
-                final IcyBufferedImage img = Canvas2D.this.getCurrentImage();
+                final boolean sameImage = (source == lastSource) && (c == lastC);
 
                 if (img != null)
-                    imageCache = IcyBufferedImageUtil.getARGBImage(img, getLut(), imageCache);
+                {
+                    // same image --> only rebuild modified part
+                    if (sameImage && (region != null))
+                        imageCache = IcyBufferedImageUtil.getARGBImage(img, getLut(), imageCache, region);
+                    else
+                    {
+                        final BufferedImage frame = takePrepared(source, c);
+
+                        if (frame != null)
+                        {
+                            synchronized (this)
+                            {
+                                // swap buffers, previous front buffer is reused once the new one is painted
+                                recycle(retiredBuffer);
+                                retiredBuffer = imageCache;
+                                hitCount++;
+                            }
+
+                            imageCache = frame;
+                        }
+                        else
+                        {
+                            imageCache = IcyBufferedImageUtil.getARGBImage(img, getLut(), imageCache);
+                            // only count actual frame changes (not data or LUT refresh)
+                            if (!sameImage)
+                            {
+                                synchronized (this)
+                                {
+                                    missCount++;
+                                }
+                            }
+                        }
+                    }
+                }
                 else
                     imageCache = null;
 
+                lastSource = source;
+                lastC = c;
+
                 // repaint now
                 CanvasView.this.repaint();
             }
@@ -861,6 +1214,9 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
          */
         void shutDown()
         {
+            // stop background rendering
+            imageCache.shutDown();
+
             // stop timer and movers
             refreshTimer.stop();
             zoomInfoTimer.stop();
@@ -1648,6 +2004,14 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
             imageCache.invalidCache();
         }
 
+        /**
+         * Specified region of the current image changed.
+         */
+        public void imageChanged(Rectangle region)
+        {
+            imageCache.invalidCache(region);
+        }
+
         public void layersChanged()
         {
 
@@ -3239,6 +3603,38 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
         }
     }
 
+    @Override
+    public void prefetchImage(int t, int z)
+    {
+        if (canvasView != null)
+            canvasView.imageCache.prefetch(t, z);
+    }
+
+    @Override
+    public void cancelPrefetch()
+    {
+        if (canvasView != null)
+            canvasView.imageCache.cancelPrefetch();
+    }
+
+    @Override
+    public int getPrefetchHitCount()
+    {
+        if (canvasView != null)
+            return canvasView.imageCache.getHitCount();
+
+        return 0;
+    }
+
+    @Override
+    public int getPrefetchMissCount()
+    {
+        if (canvasView != null)
+            return canvasView.imageCache.getMissCount();
+
+        return 0;
+    }
+
     @Override
     protected void lutChanged(int component)
     {
@@ -3247,6 +3643,7 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
         // refresh image
         if (canvasView != null)
         {
+            canvasView.imageCache.invalidPrefetch();
             canvasView.imageChanged();
             canvasView.refresh();
         }
@@ -3283,14 +3680,20 @@ public class Canvas2D extends IcyCanvas2D implements ToolRibbonTaskListener
     }
 
     @Override
-    protected void sequenceDataChanged(IcyBufferedImage image, SequenceEventType type)
+    protected void sequenceDataChanged(IcyBufferedImage image, SequenceEventType type, Rectangle region)
     {
-        super.sequenceDataChanged(image, type);
+        super.sequenceDataChanged(image, type, region);
 
         // refresh image
         if (canvasView != null)
         {
-            canvasView.imageChanged();
+            // prepared frames may be obsolete now
+            canvasView.imageCache.invalidPrefetch();
+            // only a part of the displayed image changed (event image is the whole source plane)
+            if ((region != null) && (image != null) && (image == getImage(getPositionT(), getPositionZ())))
+                canvasView.imageChanged(region);
+            else
+                canvasView.imageChanged();
             canvasView.refresh();
         }
     }
@@ -57,14 +57,19 @@ import icy.util.OMEUtil;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JPanel;
 import javax.swing.JToolBar;
@@ -209,6 +214,11 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
      * There are representing sequence painters with some visualization properties
      */
     protected final ArrayList<Layer> layers;
+    /**
+     * Painter to layer map (identity based) for fast layer retrieval, synchronized on
+     * <code>layers</code>
+     */
+    private final Map<Painter, Layer> layerMap;
 
     /**
      * internal updater
@@ -256,6 +266,7 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
 
         layersVisible = true;
         layers = new ArrayList<Layer>();
+        layerMap = new IdentityHashMap<Painter, Layer>();
         syncId = 0;
         synchHeader = false;
         updater = new UpdateEventHandler(this, false);
@@ -286,6 +297,32 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
                 setPositionT(tNav.getValue());
             }
         });
+        tNav.setFramePrefetcher(new TNavigationPanel.FramePrefetcher()
+        {
+            @Override
+            public void prefetchFrame(int t)
+            {
+                prefetchImage(t, getPositionZ());
+            }
+
+            @Override
+            public void cancelPrefetch()
+            {
+                IcyCanvas.this.cancelPrefetch();
+            }
+
+            @Override
+            public int getPrefetchHitCount()
+            {
+                return IcyCanvas.this.getPrefetchHitCount();
+            }
+
+            @Override
+            public int getPrefetchMissCount()
+            {
+                return IcyCanvas.this.getPrefetchMissCount();
+            }
+        });
 
         // mouse info panel
         mouseInfPanel = new MouseImageInfosPanel();
@@ -312,8 +349,7 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
             if (sequence != null)
             {
                 // then add sequence painters to layer list
-                for (Painter painter : sequence.getPainters())
-                    addLayer(painter);
+                addLayers(sequence.getPainters());
             }
             else
                 System.err.println("Sequence null when canvas created");
@@ -339,7 +375,9 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
      */
     public void shutDown()
     {
-        // remove navigation panel listener
+        // stop playback and remove navigation panel listener
+        tNav.stopPlay();
+        tNav.setFramePrefetcher(null);
         zNav.removeAllChangeListener();
         tNav.removeAllChangeListener();
 
@@ -352,16 +390,7 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
         viewer.removeListener(this);
 
         // remove all layers
-        beginUpdate();
-        try
-        {
-            for (Layer layer : getLayers())
-                removeLayer(layer);
-        }
-        finally
-        {
-            endUpdate();
-        }
+        removeLayers(getLayers());
 
         // remove all IcyCanvas listeners
         final IcyCanvasListener[] canvasListenters = listenerList.getListeners(IcyCanvasListener.class);
@@ -3018,6 +3047,41 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
         return getImage(getPositionT(), getPositionZ(), getPositionC());
     }
 
+    /**
+     * Request the image at position (t, z) to be prepared in background so it can be displayed
+     * without delay later (used by T/Z playback).<br>
+     * Default implementation does nothing.
+     */
+    public void prefetchImage(int t, int z)
+    {
+        // nothing by default
+    }
+
+    /**
+     * Cancel all pending image prefetch requests.
+     */
+    public void cancelPrefetch()
+    {
+        // nothing by default
+    }
+
+    /**
+     * Returns the number of displayed images which were already prepared by
+     * {@link #prefetchImage(int, int)}.
+     */
+    public int getPrefetchHitCount()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns the number of displayed images which had to be prepared on demand.
+     */
+    public int getPrefetchMissCount()
+    {
+        return 0;
+    }
+
     /**
      * @deprecated use {@link #getRenderedImage(int, int, int, boolean)} instead
      */
@@ -3301,11 +3365,10 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
 
     public Layer getLayer(Painter painter)
     {
-        for (Layer layer : getLayers())
-            if (layer.getPainter() == painter)
-                return layer;
-
-        return null;
+        synchronized (layers)
+        {
+            return layerMap.get(painter);
+        }
     }
 
     public Layer getLayer(ROI roi)
@@ -3320,31 +3383,65 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
 
     public boolean hasLayer(Layer layer)
     {
+        if (layer == null)
+            return false;
+
         synchronized (layers)
         {
-            return layers.contains(layer);
+            return layerMap.get(layer.getPainter()) == layer;
         }
     }
 
     public void addLayer(Painter painter)
     {
-        if (!hasLayer(painter))
-        {
-            final Layer layer = new Layer(painter);
+        addLayers(Collections.singletonList(painter));
+    }
 
-            // listen layer
-            layer.addListener(this);
+    /**
+     * Add a layer for each of the specified painters (painters which already have a layer are
+     * ignored).<br>
+     * Layers are added in one pass and listeners are notified with a single event.
+     */
+    public void addLayers(Collection<? extends Painter> painters)
+    {
+        final ArrayList<Layer> added = new ArrayList<Layer>();
 
-            // add to list
-            synchronized (layers)
+        synchronized (layers)
+        {
+            for (Painter painter : painters)
             {
-                layers.add(layer);
-                if (Layer.DEFAULT_NAME.equals(layer))
-                    layer.setName("layer " + layers.size());
+                if ((painter != null) && !layerMap.containsKey(painter))
+                {
+                    final Layer layer = new Layer(painter);
+
+                    // add to list
+                    layers.add(layer);
+                    layerMap.put(painter, layer);
+                    if (Layer.DEFAULT_NAME.equals(layer))
+                        layer.setName("layer " + layers.size());
+
+                    added.add(layer);
+                }
             }
+        }
+
+        if (added.isEmpty())
+            return;
 
-            // added
-            layerAdded(layer);
+        beginUpdate();
+        try
+        {
+            for (Layer layer : added)
+            {
+                // listen layer
+                layer.addListener(this);
+                // added
+                layerAdded(layer);
+            }
+        }
+        finally
+        {
+            endUpdate();
         }
     }
 
@@ -3355,20 +3452,80 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
 
     public void removeLayer(Layer layer)
     {
-        boolean result;
+        removeLayers(Collections.singletonList(layer));
+    }
 
-        // stop listening layer
-        layer.removeListener(this);
+    /**
+     * Remove the specified layers from the canvas.<br>
+     * Layers are removed in one pass and listeners are notified with a single event.
+     */
+    public void removeLayers(Collection<Layer> layerList)
+    {
+        final Set<Layer> removed = Collections.newSetFromMap(new IdentityHashMap<Layer, Boolean>());
 
-        // remove from list
         synchronized (layers)
         {
-            result = layers.remove(layer);
+            for (Layer layer : layerList)
+            {
+                if ((layer != null) && (layerMap.get(layer.getPainter()) == layer))
+                {
+                    layerMap.remove(layer.getPainter());
+                    removed.add(layer);
+                }
+            }
+
+            if (!removed.isEmpty())
+            {
+                final ArrayList<Layer> kept = new ArrayList<Layer>(Math.max(0, layers.size() - removed.size()));
+
+                // rebuild list in one pass
+                for (Layer layer : layers)
+                    if (!removed.contains(layer))
+                        kept.add(layer);
+
+                layers.clear();
+                layers.addAll(kept);
+            }
         }
 
-        // removed
-        if (result)
-            layerRemoved(layer);
+        if (removed.isEmpty())
+            return;
+
+        beginUpdate();
+        try
+        {
+            for (Layer layer : removed)
+            {
+                // stop listening layer
+                layer.removeListener(this);
+                // removed
+                layerRemoved(layer);
+            }
+        }
+        finally
+        {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Remove layers whose painter is not anymore attached to the specified sequence.
+     */
+    private void removeObsoleteLayers(Sequence sequence)
+    {
+        final Set<Painter> seqPainters = Collections.newSetFromMap(new IdentityHashMap<Painter, Boolean>());
+        final ArrayList<Layer> obsoletes = new ArrayList<Layer>();
+
+        seqPainters.addAll(sequence.getPainters());
+
+        synchronized (layers)
+        {
+            for (Layer layer : layers)
+                if ((layer != imageLayer) && !seqPainters.contains(layer.getPainter()))
+                    obsoletes.add(layer);
+        }
+
+        removeLayers(obsoletes);
     }
 
     /**
@@ -3645,6 +3802,21 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
 
     }
 
+    /**
+     * sequence data has changed
+     * 
+     * @param image
+     *        image which has changed (null if global data changed)
+     * @param type
+     *        event type
+     * @param region
+     *        modified region of the image (null if the whole image changed)
+     */
+    protected void sequenceDataChanged(IcyBufferedImage image, SequenceEventType type, Rectangle region)
+    {
+        sequenceDataChanged(image, type);
+    }
+
     /**
      * sequence data has changed
      * 
@@ -3711,23 +3883,9 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
                 // handle special case of multiple adds
                 if (painter == null)
                 {
+                    // add layers which are present in sequence and not in canvas
                     if (sequence != null)
-                    {
-                        final ArrayList<Painter> layersPainter = getLayersPainter();
-
-                        beginUpdate();
-                        try
-                        {
-                            // add layers which are present in sequence and not in canvas
-                            for (Painter seqPainter : sequence.getPainters())
-                                if (!layersPainter.contains(seqPainter))
-                                    addLayer(seqPainter);
-                        }
-                        finally
-                        {
-                            endUpdate();
-                        }
-                    }
+                        addLayers(sequence.getPainters());
                 }
                 else
                     addLayer(painter);
@@ -3737,23 +3895,9 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
                 // handle special case of multiple removes
                 if (painter == null)
                 {
+                    // remove layers which are not anymore present in sequence
                     if (sequence != null)
-                    {
-                        final ArrayList<Painter> seqPainters = sequence.getPainters();
-
-                        beginUpdate();
-                        try
-                        {
-                            // remove layers which are not anymore present in sequence
-                            for (Layer layer : getLayers())
-                                if ((layer != imageLayer) && !seqPainters.contains(layer.getPainter()))
-                                    removeLayer(layer);
-                        }
-                        finally
-                        {
-                            endUpdate();
-                        }
-                    }
+                        removeObsoleteLayers(sequence);
                 }
                 else
                     removeLayer(painter);
@@ -3765,20 +3909,13 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
                 {
                     if (sequence != null)
                     {
-                        final ArrayList<Painter> layersPainter = getLayersPainter();
-                        final ArrayList<Painter> seqPainters = sequence.getPainters();
-
                         beginUpdate();
                         try
                         {
                             // add layers which are present in sequence and not in canvas
-                            for (Painter seqPainter : sequence.getPainters())
-                                if (!layersPainter.contains(seqPainter))
-                                    addLayer(seqPainter);
+                            addLayers(sequence.getPainters());
                             // remove layers which are not anymore present in sequence
-                            for (Layer layer : getLayers())
-                                if ((layer != imageLayer) && !seqPainters.contains(layer.getPainter()))
-                                    removeLayer(layer);
+                            removeObsoleteLayers(sequence);
                         }
                         finally
                         {
@@ -3852,7 +3989,7 @@ public abstract class IcyCanvas extends JPanel implements KeyListener, ViewerLis
                 break;
 
             case SEQUENCE_DATA:
-                sequenceDataChanged((IcyBufferedImage) event.getSource(), event.getType());
+                sequenceDataChanged((IcyBufferedImage) event.getSource(), event.getType(), event.getRegion());
                 break;
 
             case SEQUENCE_PAINTER:
@@ -19,6 +19,8 @@
 package icy.common;
 
 import icy.common.listener.ChangeListener;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
 import icy.system.thread.ThreadUtil;
 
 import java.util.ArrayList;
@@ -29,6 +31,8 @@ import java.util.List;
  */
 public class UpdateEventHandler
 {
+    private static final TimerMetric dispatchTimer = MetricsRegistry.getTimer("UpdateEventHandler.dispatch");
+
     ChangeListener parent;
 
     /**
@@ -161,20 +165,28 @@ public class UpdateEventHandler
     protected void dispatchOnChanged(EventHierarchicalChecker include)
     {
         final EventHierarchicalChecker event = include;
+        final long start = dispatchTimer.start();
 
-        if (awtDispatch)
+        try
         {
-            // dispatch on AWT Dispatch Thread now
-            ThreadUtil.invokeNow(new Runnable()
+            if (awtDispatch)
             {
-                @Override
-                public void run()
+                // dispatch on AWT Dispatch Thread now
+                ThreadUtil.invokeNow(new Runnable()
                 {
-                    parent.onChanged(event);
-                }
-            });
+                    @Override
+                    public void run()
+                    {
+                        parent.onChanged(event);
+                    }
+                });
+            }
+            else
+                parent.onChanged(event);
+        }
+        finally
+        {
+            dispatchTimer.stop(start);
         }
-        else
-            parent.onChanged(event);
     }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.file;
+
+import icy.util.StringUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded on-disk cache directory with least recently used eviction.<br>
+ * Each entry is a single file named from its key, the file content is left to the user of the
+ * cache. An entry is written in a unique temporary file (see {@link #createTempFile(String)}) then
+ * renamed (see {@link #commit(String, File)}) so concurrent writers (threads or Icy instances)
+ * never see a partial entry.<br>
+ * The LRU order is kept across sessions through the last modification date of entry files.
+ *
+ * @author Stephane
+ */
+public class DiskCache
+{
+    public static final String TEMP_EXTENSION = ".tmp";
+    /**
+     * Temporary files older than this (in ms) are remaining of an interrupted write
+     */
+    public static final long TEMP_MAX_AGE = 60L * 60L * 1000L;
+
+    /**
+     * Returns a key (hexadecimal MD5 digest) usable as file name for the specified identifier.
+     */
+    public static String getKey(String id)
+    {
+        try
+        {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(id.getBytes("UTF-8"));
+            final StringBuilder result = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest)
+                result.append(StringUtil.toHexaString(b & 0xFF, 2));
+
+            return result.toString();
+        }
+        catch (Exception e)
+        {
+            return StringUtil.toHexaString(id.hashCode(), 8) + StringUtil.toHexaString(id.length(), 4);
+        }
+    }
+
+    private final String extension;
+    /**
+     * cache index (key --> entry file size) in LRU order
+     */
+    private final LinkedHashMap<String, Long> index;
+    private File directory;
+    private long totalSize;
+    private long maxSize;
+    private boolean initialized;
+
+    /**
+     * @param directory
+     *        directory containing the entry files
+     * @param extension
+     *        extension of entry files (ex: ".thumb")
+     * @param maxSize
+     *        maximum size (in bytes) of the cache
+     */
+    public DiskCache(File directory, String extension, long maxSize)
+    {
+        super();
+
+        this.directory = directory;
+        this.extension = extension;
+        this.maxSize = Math.max(0L, maxSize);
+        index = new LinkedHashMap<String, Long>(64, 0.75f, true);
+        totalSize = 0L;
+        initialized = false;
+    }
+
+    /**
+     * Returns the directory containing cache entries.
+     */
+    public synchronized File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Sets the directory containing cache entries.<br>
+     * The index is rebuilt from the new directory content on next access.
+     */
+    public synchronized void setDirectory(File value)
+    {
+        directory = value;
+        index.clear();
+        totalSize = 0L;
+        initialized = false;
+    }
+
+    /**
+     * Returns the current size (in bytes) of the cache.
+     */
+    public synchronized long getSize()
+    {
+        init();
+
+        return totalSize;
+    }
+
+    /**
+     * Returns the maximum size (in bytes) of the cache.
+     */
+    public synchronized long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum size (in bytes) of the cache, least recently used entries are evicted if
+     * needed.
+     */
+    public synchronized void setMaxSize(long value)
+    {
+        maxSize = Math.max(0L, value);
+        init();
+        evict();
+    }
+
+    /**
+     * Returns the file of the specified entry and makes it the most recently used one.<br>
+     * Returns null if the entry is not (or no more) cached.
+     */
+    public synchronized File get(String key)
+    {
+        init();
+
+        // get() (and not containsKey()) so the entry is moved at the end of the LRU order
+        if (index.get(key) == null)
+            return null;
+
+        final File result = getFile(key);
+
+        // keep LRU order persistent
+        result.setLastModified(System.currentTimeMillis());
+
+        return result;
+    }
+
+    /**
+     * Creates a new (unique) temporary file in the cache directory to write the specified entry
+     * in. The file should then be given to {@link #commit(String, File)}.
+     */
+    public File createTempFile(String key) throws IOException
+    {
+        final File dir = getDirectory();
+
+        if (!dir.exists())
+            dir.mkdirs();
+
+        // File.createTempFile requires a prefix of at least 3 characters
+        return File.createTempFile(key + "___", TEMP_EXTENSION, dir);
+    }
+
+    /**
+     * Makes the specified temporary file (see {@link #createTempFile(String)}) the new content of
+     * the entry, least recently used entries are evicted if needed.<br>
+     * The temporary file is deleted if an error occurred.
+     */
+    public synchronized void commit(String key, File tmp) throws IOException
+    {
+        final File file = getFile(key);
+
+        try
+        {
+            file.delete();
+            if (!tmp.renameTo(file))
+                throw new IOException("Cannot rename " + tmp + " to " + file);
+        }
+        catch (IOException e)
+        {
+            tmp.delete();
+            throw e;
+        }
+
+        init();
+
+        final Long old = index.put(key, Long.valueOf(file.length()));
+        if (old != null)
+            totalSize -= old.longValue();
+        totalSize += file.length();
+
+        evict();
+    }
+
+    /**
+     * Removes the specified entry from the cache.
+     */
+    public synchronized void remove(String key)
+    {
+        final Long size = index.remove(key);
+
+        if (size != null)
+            totalSize -= size.longValue();
+
+        getFile(key).delete();
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear()
+    {
+        init();
+
+        for (String key : index.keySet())
+            getFile(key).delete();
+
+        index.clear();
+        totalSize = 0L;
+    }
+
+    private File getFile(String key)
+    {
+        return new File(directory, key + extension);
+    }
+
+    /**
+     * Build index from existing cache files (oldest accessed first).
+     */
+    private void init()
+    {
+        if (initialized)
+            return;
+
+        initialized = true;
+
+        final File[] files = directory.listFiles();
+
+        if (files == null)
+            return;
+
+        Arrays.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File f1, File f2)
+            {
+                final long t1 = f1.lastModified();
+                final long t2 = f2.lastModified();
+
+                return (t1 < t2) ? -1 : ((t1 == t2) ? 0 : 1);
+            }
+        });
+
+        for (File file : files)
+        {
+            final String name = file.getName();
+
+            if (name.endsWith(extension))
+            {
+                index.put(name.substring(0, name.length() - extension.length()), Long.valueOf(file.length()));
+                totalSize += file.length();
+            }
+            // remaining of an interrupted write (recent ones can be in progress)
+            else if (name.endsWith(TEMP_EXTENSION)
+                    && ((System.currentTimeMillis() - file.lastModified()) > TEMP_MAX_AGE))
+                file.delete();
+        }
+
+        evict();
+    }
+
+    /**
+     * Evict least recently used entries until cache size fit the maximum size.
+     */
+    private void evict()
+    {
+        final Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+
+        while ((totalSize > maxSize) && it.hasNext())
+        {
+            final Map.Entry<String, Long> eldest = it.next();
+
+            totalSize -= eldest.getValue().longValue();
+            getFile(eldest.getKey()).delete();
+            it.remove();
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package icy.file;
 
 import icy.gui.dialog.SeriesSelectionDialog;
+import icy.gui.frame.TiledImageFrame;
 import icy.gui.frame.progress.AnnounceFrame;
 import icy.gui.frame.progress.FailedAnnounceFrame;
 import icy.gui.frame.progress.FileFrame;
@@ -26,20 +27,36 @@ import icy.gui.menu.ApplicationMenu;
 import icy.image.BandPosition;
 import icy.image.IcyBufferedImage;
 import icy.image.ImagePosition;
+import icy.image.TiledImage;
 import icy.main.Icy;
+import icy.plugin.PluginDescriptor;
+import icy.plugin.PluginLoader;
+import icy.plugin.PluginLoader.PluginLoaderEvent;
+import icy.plugin.PluginLoader.PluginLoaderListener;
+import icy.plugin.interface_.PluginFileImporter;
 import icy.preferences.GeneralPreferences;
 import icy.sequence.MetaDataUtil;
 import icy.sequence.Sequence;
 import icy.system.IcyExceptionHandler;
+import icy.system.SystemUtil;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
+import icy.system.thread.Processor;
 import icy.system.thread.ThreadUtil;
+import icy.type.DataType;
 import icy.type.collection.CollectionUtil;
 import icy.util.StringUtil;
 
+import java.awt.Rectangle;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import loci.formats.FormatException;
 import loci.formats.IFormatReader;
@@ -54,6 +71,189 @@ import loci.formats.ome.OMEXMLMetadataImpl;
  */
 public class Loader
 {
+    private static final TimerMetric openTimer = MetricsRegistry.getTimer("Loader.open");
+    private static final TimerMetric loadImageTimer = MetricsRegistry.getTimer("Loader.loadImage");
+
+    /**
+     * Maximum number of additional readers used to read planes ahead (thread safe importers only)
+     */
+    private static final int MAX_READ_AHEAD_READERS = 4;
+
+    /**
+     * Plane read ahead processor (reads are blocking I/O)
+     */
+    private static final Processor readProcessor = new Processor(Processor.DEFAULT_MAX_WAITING,
+            MAX_READ_AHEAD_READERS * 2);
+
+    static
+    {
+        readProcessor.setDefaultThreadName("Plane reader");
+    }
+
+    /**
+     * Reads the planes of a series ahead with several readers of a thread safe importer.<br>
+     * Planes are returned in T then Z order by {@link #next()}.
+     */
+    private static class PlaneReadAhead
+    {
+        final LinkedBlockingQueue<IFormatReader> readers;
+        final List<IFormatReader> allReaders;
+        final List<FutureTask<IcyBufferedImage>> pending;
+        final int sizeZ;
+        final int numPlanes;
+        final int window;
+        int submitted;
+
+        PlaneReadAhead(PluginFileImporter importer, String path, int serie, int sizeZ, int sizeT)
+                throws FormatException, IOException
+        {
+            super();
+
+            this.sizeZ = sizeZ;
+            numPlanes = sizeZ * sizeT;
+            readers = new LinkedBlockingQueue<IFormatReader>();
+            allReaders = new ArrayList<IFormatReader>();
+            pending = new ArrayList<FutureTask<IcyBufferedImage>>();
+
+            final int numReaders = Math.min(MAX_READ_AHEAD_READERS, numPlanes);
+
+            try
+            {
+                for (int i = 0; i < numReaders; i++)
+                {
+                    final IFormatReader reader = importer.getReaderClass().newInstance();
+
+                    allReaders.add(reader);
+                    readers.add(reader);
+                    reader.setId(path);
+                    reader.setSeries(serie);
+                }
+            }
+            catch (InstantiationException e)
+            {
+                close();
+                throw new FormatException(e);
+            }
+            catch (IllegalAccessException e)
+            {
+                close();
+                throw new FormatException(e);
+            }
+            catch (FormatException e)
+            {
+                close();
+                throw e;
+            }
+            catch (IOException e)
+            {
+                close();
+                throw e;
+            }
+
+            window = numReaders * 2;
+            submitted = 0;
+        }
+
+        private void submit()
+        {
+            final int z = submitted % sizeZ;
+            final int t = submitted / sizeZ;
+            final FutureTask<IcyBufferedImage> task = new FutureTask<IcyBufferedImage>(
+                    new Callable<IcyBufferedImage>()
+                    {
+                        @Override
+                        public IcyBufferedImage call() throws Exception
+                        {
+                            final IFormatReader reader = readers.take();
+
+                            try
+                            {
+                                return IcyBufferedImage.createFrom(reader, z, t);
+                            }
+                            finally
+                            {
+                                readers.add(reader);
+                            }
+                        }
+                    });
+
+            pending.add(task);
+            submitted++;
+
+            // if rejected the plane is read when requested
+            readProcessor.addTask(task, false, 0);
+        }
+
+        /**
+         * Returns the next plane (T then Z order).
+         */
+        IcyBufferedImage next() throws FormatException, IOException
+        {
+            while ((submitted < numPlanes) && (pending.size() < window))
+                submit();
+
+            final FutureTask<IcyBufferedImage> task = pending.remove(0);
+
+            // not yet started (or rejected) --> read it in the loader thread
+            // (run() does nothing if the task is already running or done)
+            readProcessor.removeTask(task);
+            task.run();
+
+            try
+            {
+                return task.get();
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException("Plane read interrupted");
+            }
+            catch (ExecutionException e)
+            {
+                final Throwable cause = e.getCause();
+
+                if (cause instanceof FormatException)
+                    throw (FormatException) cause;
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+
+                throw new FormatException(cause);
+            }
+        }
+
+        /**
+         * Cancel pending reads and close the readers.
+         */
+        void close()
+        {
+            for (FutureTask<IcyBufferedImage> task : pending)
+            {
+                readProcessor.removeTask(task);
+                task.cancel(false);
+            }
+            pending.clear();
+
+            // wait for running reads to release their reader
+            for (IFormatReader reader : allReaders)
+            {
+                try
+                {
+                    while (!readers.remove(reader))
+                        Thread.sleep(1);
+
+                    reader.close();
+                }
+                catch (Exception e)
+                {
+                    // ignore
+                }
+            }
+        }
+    }
+
     private static class FilePosition extends BandPosition
     {
         public final File file;
@@ -380,12 +580,30 @@ public class Loader
         private void load(File file, BandPosition position) throws FormatException, IOException
         {
             final String path = file.getAbsolutePath();
+            // importer plugins have priority over default readers
+            final Importer importer = getImporterFor(path);
             final IFormatReader reader;
 
             if ((lastUsedReader != null) && lastUsedReader.isThisType(path, true))
                 reader = lastUsedReader;
             else
-                reader = mainReader.getReader(path);
+            {
+                final IFormatReader pluginReader = createReader(importer);
+
+                if (pluginReader != null)
+                    reader = pluginReader;
+                else
+                    reader = mainReader.getReader(path);
+            }
+
+            // planes can be read ahead only with the importer own reader
+            final PluginFileImporter readAheadImporter;
+
+            if ((importer != null) && (importer.importer.getReaderClass() == reader.getClass())
+                    && importer.importer.isThreadSafe() && importer.importer.isRandomAccess())
+                readAheadImporter = importer.importer;
+            else
+                readAheadImporter = null;
 
             // keep trace of last used reader
             lastUsedReader = reader;
@@ -394,10 +612,19 @@ public class Loader
             if (loaderFrame != null)
                 loaderFrame.setFilename(path);
 
-            // prepare meta data store structure
-            reader.setMetadataStore(new OMEXMLMetadataImpl());
-            // load file with LOCI library
-            reader.setId(path);
+            final long openStart = openTimer.start();
+
+            try
+            {
+                // prepare meta data store structure
+                reader.setMetadataStore(new OMEXMLMetadataImpl());
+                // load file with LOCI library
+                reader.setId(path);
+            }
+            finally
+            {
+                openTimer.stop(openStart);
+            }
 
             // only if series has not yet be defined
             if (series == null)
@@ -441,6 +668,15 @@ public class Loader
 
                     reader.setSeries(serieIndex);
 
+                    // planes too large for a single raster --> tile by tile access
+                    if (isTiledPlane(reader))
+                    {
+                        openTiled(path, serieIndex, (selectedSeries.size() > 1) ? FileUtil.getFileName(path, false)
+                                + " - serie " + s : FileUtil.getFileName(path, false), display);
+                        firstSerie = false;
+                        continue;
+                    }
+
                     // first serie and already have sequence(s) --> concatenate to last one
                     if (firstSerie && (sequences.size() > 0))
                         seq = sequences.get(sequences.size() - 1);
@@ -483,6 +719,13 @@ public class Loader
 
                     int progress = 0;
 
+                    final PlaneReadAhead readAhead;
+
+                    if ((readAheadImporter != null) && (progressLen > 1))
+                        readAhead = new PlaneReadAhead(readAheadImporter, path, serieIndex, planes, frames);
+                    else
+                        readAhead = null;
+
                     seq.beginUpdate();
                     try
                     {
@@ -514,8 +757,21 @@ public class Loader
                                 if (z > 0)
                                     position.setZ(position.getZ() + 1);
 
+                                final long start = loadImageTimer.start();
                                 // get composed image
-                                final IcyBufferedImage icyImage = IcyBufferedImage.createFrom(reader, z, t);
+                                final IcyBufferedImage icyImage;
+
+                                try
+                                {
+                                    if (readAhead != null)
+                                        icyImage = readAhead.next();
+                                    else
+                                        icyImage = IcyBufferedImage.createFrom(reader, z, t);
+                                }
+                                finally
+                                {
+                                    loadImageTimer.stop(start);
+                                }
 
                                 // image format is not compatible with this sequence ?
                                 if (!seq.isCompatible(icyImage))
@@ -554,6 +810,9 @@ public class Loader
                     }
                     finally
                     {
+                        if (readAhead != null)
+                            readAhead.close();
+
                         // remove empty element on current sequence
                         seq.packImageList();
                         seq.endUpdate();
@@ -569,6 +828,97 @@ public class Loader
         }
     }
 
+    /**
+     * Returns true if planes of the current series of the specified reader (file id already set)
+     * are too large to be loaded in a single {@link IcyBufferedImage} (more than 2^31 pixels or a
+     * quarter of the java heap).<br>
+     * Such planes should be accessed through {@link TiledImage}.
+     */
+    public static boolean isTiledPlane(IFormatReader reader)
+    {
+        final long numPixel = (long) reader.getSizeX() * (long) reader.getSizeY();
+        final long planeSize = numPixel * reader.getEffectiveSizeC() * reader.getRGBChannelCount()
+                * DataType.getDataTypeFromFormatToolsType(reader.getPixelType()).getSize();
+
+        return (numPixel > Integer.MAX_VALUE) || (planeSize > (SystemUtil.getJavaMaxMemory() / 4));
+    }
+
+    /**
+     * Open the specified series of the image file in a {@link TiledImageFrame} as its planes are
+     * too large for a {@link Sequence}.
+     * 
+     * @throws FormatException
+     *         if display is disabled (the series cannot be loaded in a {@link Sequence}, it should
+     *         be accessed through {@link #loadTiledImage(File, int, int, int)}) or if the importer
+     *         does not support tile access
+     */
+    static void openTiled(String path, int serie, final String title, boolean display) throws FormatException,
+            IOException
+    {
+        checkTileSupported(path);
+
+        if (!display)
+            throw new FormatException("Image '" + path + "' serie " + serie
+                    + " is too large to be loaded in a Sequence, use Loader.loadTiledImage(..) to access it.");
+
+        // the frame has its own reader as the loader one is closed after loading
+        final IFormatReader reader = getReader(path);
+
+        reader.setId(path);
+        reader.setSeries(serie);
+
+        ThreadUtil.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                new TiledImageFrame(reader, title);
+            }
+        });
+    }
+
+    /**
+     * Returns true if planes of the specified series of the image file are too large to be loaded
+     * in a {@link Sequence} (see {@link #isTiledPlane(IFormatReader)}).<br>
+     * Such series are not loaded by the <code>loadSequence(s)</code> methods and should be accessed
+     * through {@link #loadTiledImage(File, int, int, int)}.
+     */
+    public static boolean isTiledImage(File file, int serie) throws FormatException, IOException
+    {
+        final String path = file.getAbsolutePath();
+        final IFormatReader reader = getReader(path);
+
+        try
+        {
+            reader.setId(path);
+            reader.setSeries(serie);
+
+            return isTiledPlane(reader);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns false if the importer plugin handling the specified image file cannot read it tile by
+     * tile (see {@link PluginFileImporter#isTileSupported()}), default readers always can.
+     */
+    public static boolean isTileSupported(String path)
+    {
+        final PluginFileImporter importer = getImporter(path);
+
+        return (importer == null) || importer.isTileSupported();
+    }
+
+    private static void checkTileSupported(String path) throws FormatException
+    {
+        if (!isTileSupported(path))
+            throw new FormatException("Image '" + path
+                    + "' is too large to be loaded at once and its importer does not support tile access.");
+    }
+
     /**
      * Returns true if the specified file is not an image file for sure.<br>
      * This method use the well known extension (doc, rtf, txt, exe, xml...) and discard them.
@@ -596,9 +946,185 @@ public class Loader
         if (canDiscardImageFile(path))
             return false;
 
+        if (getImporter(path) != null)
+            return true;
+
         return new ImageReader().isThisType(path);
     }
 
+    /**
+     * Importer plugin with the reader instance used to test file type
+     */
+    private static class Importer
+    {
+        final PluginDescriptor plugin;
+        final PluginFileImporter importer;
+        final IFormatReader typeReader;
+
+        Importer(PluginDescriptor plugin, PluginFileImporter importer) throws Exception
+        {
+            super();
+
+            this.plugin = plugin;
+            this.importer = importer;
+            typeReader = importer.getReaderClass().newInstance();
+        }
+
+        boolean isThisType(String path)
+        {
+            // reader instance is shared
+            synchronized (typeReader)
+            {
+                return typeReader.isThisType(path, true);
+            }
+        }
+    }
+
+    /**
+     * Importers cache (rebuilt when plugins are reloaded)
+     */
+    private static List<Importer> importers = null;
+    private static boolean pluginListening = false;
+
+    /**
+     * Returns the importers (from {@link PluginFileImporter} plugins).<br>
+     * Importer plugins are instantiated only once (until plugins are reloaded).
+     */
+    private static synchronized List<Importer> getImporterList()
+    {
+        if (!pluginListening)
+        {
+            PluginLoader.addListener(new PluginLoaderListener()
+            {
+                @Override
+                public void pluginLoaderChanged(PluginLoaderEvent e)
+                {
+                    invalidImporters();
+                }
+            });
+            pluginListening = true;
+        }
+
+        if (importers == null)
+        {
+            final List<Importer> result = new ArrayList<Importer>();
+
+            for (PluginDescriptor plugin : PluginLoader.getPlugins(PluginFileImporter.class))
+            {
+                try
+                {
+                    result.add(new Importer(plugin, (PluginFileImporter) plugin.getPluginClass().newInstance()));
+                }
+                catch (Throwable t)
+                {
+                    IcyExceptionHandler.handleException(plugin, t, true);
+                }
+            }
+
+            importers = result;
+        }
+
+        return importers;
+    }
+
+    static synchronized void invalidImporters()
+    {
+        importers = null;
+    }
+
+    /**
+     * Discard a failing importer (until plugins are reloaded) so the error is reported only once.
+     */
+    private static synchronized void discardImporter(Importer importer, Throwable t)
+    {
+        if ((importers != null) && importers.contains(importer))
+        {
+            final List<Importer> result = new ArrayList<Importer>(importers);
+
+            result.remove(importer);
+            importers = result;
+
+            IcyExceptionHandler.handleException(importer.plugin, t, true);
+        }
+    }
+
+    /**
+     * Returns the importer (and its type reader) able to open the specified image file.
+     */
+    private static Importer getImporterFor(String path)
+    {
+        for (Importer importer : getImporterList())
+        {
+            try
+            {
+                if (importer.isThisType(path))
+                    return importer;
+            }
+            catch (Throwable t)
+            {
+                discardImporter(importer, t);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns all available importers (from {@link PluginFileImporter} plugins).
+     */
+    public static List<PluginFileImporter> getImporters()
+    {
+        final List<PluginFileImporter> result = new ArrayList<PluginFileImporter>();
+
+        for (Importer importer : getImporterList())
+            result.add(importer.importer);
+
+        return result;
+    }
+
+    /**
+     * Returns the importer able to open the specified image file.<br>
+     * Returns null if no importer plugin supports the specified file.
+     */
+    public static PluginFileImporter getImporter(String path)
+    {
+        final Importer importer = getImporterFor(path);
+
+        if (importer != null)
+            return importer.importer;
+
+        return null;
+    }
+
+    /**
+     * Returns a new reader from importer plugins for the specified image file.<br>
+     * Returns null if no importer plugin supports the specified file.
+     */
+    private static IFormatReader getPluginReader(String path)
+    {
+        return createReader(getImporterFor(path));
+    }
+
+    /**
+     * Returns a new reader from the specified importer (null if importer is null or fails).
+     */
+    private static IFormatReader createReader(Importer importer)
+    {
+        if (importer != null)
+        {
+            try
+            {
+                return importer.importer.getReaderClass().newInstance();
+            }
+            catch (Throwable t)
+            {
+                discardImporter(importer, t);
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Returns the reader for the specified image file.<br>
      * Returns null if the specified file is not a valid (or supported) image file.
@@ -608,6 +1134,12 @@ public class Loader
      */
     public static IFormatReader getReader(String path) throws FormatException, IOException
     {
+        // importer plugins have priority over default readers
+        final IFormatReader result = getPluginReader(path);
+
+        if (result != null)
+            return result;
+
         return new ImageReader().getReader(path);
     }
 
@@ -657,6 +1189,36 @@ public class Loader
         return getMetaData(file.getAbsolutePath());
     }
 
+    /**
+     * Returns the plane at given position of the specified image file as a {@link TiledImage}
+     * (tiles are loaded on demand).<br>
+     * The reader stays opened until {@link TiledImage#close()} is called.
+     * 
+     * @param file
+     *        image file
+     * @param serie
+     *        series index
+     * @param z
+     *        Z position of the image to open.
+     * @param t
+     *        T position of the image to open.
+     * @throws IOException
+     * @throws FormatException
+     */
+    public static TiledImage loadTiledImage(File file, int serie, int z, int t) throws FormatException, IOException
+    {
+        final String path = file.getAbsolutePath();
+
+        checkTileSupported(path);
+
+        final IFormatReader reader = getReader(path);
+
+        reader.setId(path);
+        reader.setSeries(serie);
+
+        return TiledImage.createFrom(reader, z, t, 0, 0, true);
+    }
+
     /**
      * Load and return the image at given position from the specified reader.
      * 
@@ -676,6 +1238,31 @@ public class Loader
         return IcyBufferedImage.createFrom(reader, z, t);
     }
 
+    /**
+     * Load and return the specified region of the image at given position from the specified
+     * reader.<br>
+     * The region is read with <code>openBytes(index, x, y, w, h)</code> so readers supporting
+     * tiles don't need to read the whole plane.
+     * 
+     * @param reader
+     *        initialized image reader (file id already set).
+     * @param region
+     *        region of the image to load (full image if null)
+     * @param z
+     *        Z position of the image to open.
+     * @param t
+     *        T position of the image to open.
+     * @return icy image
+     * @throws IOException
+     * @throws FormatException
+     */
+    public static IcyBufferedImage loadImage(IFormatReader reader, Rectangle region, int z, int t)
+            throws FormatException, IOException
+    {
+        // return an icy image
+        return IcyBufferedImage.createFrom(reader, region, z, t);
+    }
+
     /**
      * Load and return a single image from the specified reader.<br>
      * If the specified file contains severals image the first image is returned.
@@ -707,7 +1294,7 @@ public class Loader
      */
     public static IcyBufferedImage loadImage(File file, int z, int t) throws FormatException, IOException
     {
-        final ImageReader reader = new ImageReader();
+        final IFormatReader reader = getReader(file.getAbsolutePath());
 
         // set file id
         reader.setId(file.getAbsolutePath());
@@ -734,7 +1321,7 @@ public class Loader
      */
     public static IcyBufferedImage loadImage(File file) throws FormatException, IOException
     {
-        final ImageReader reader = new ImageReader();
+        final IFormatReader reader = getReader(file.getAbsolutePath());
 
         // set file id
         reader.setId(file.getAbsolutePath());
@@ -753,6 +1340,9 @@ public class Loader
     /**
      * Load a list of sequence from the specified list of file and returns them.<br>
      * As the function can take sometime you should not call it from the AWT EDT.<br>
+     * Loading stops with an error if a series is too large to be loaded in a {@link Sequence} (see
+     * {@link #isTiledImage(File, int)}), use {@link #loadTiledImage(File, int, int, int)} to
+     * access it instead.
      * 
      * @param files
      *        List of image file to load.
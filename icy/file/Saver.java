@@ -24,16 +24,26 @@ import icy.gui.menu.ApplicationMenu;
 import icy.image.IcyBufferedImage;
 import icy.image.colormodel.IcyColorModel;
 import icy.main.Icy;
+import icy.plugin.PluginDescriptor;
+import icy.plugin.PluginLoader;
+import icy.plugin.PluginLoader.PluginLoaderEvent;
+import icy.plugin.PluginLoader.PluginLoaderListener;
+import icy.plugin.interface_.PluginFileExporter;
 import icy.preferences.GeneralPreferences;
 import icy.sequence.MetaDataUtil;
 import icy.sequence.Sequence;
 import icy.system.IcyExceptionHandler;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
 import icy.type.DataType;
 import icy.util.OMEUtil;
 
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import loci.common.services.ServiceException;
 import loci.formats.FormatException;
@@ -47,7 +57,8 @@ import loci.formats.out.OMETiffWriter;
 /**
  * Sequence / Image saver class.<br>
  * <br>
- * Supported save format are the following : TIFF (preferred), PNG, JPG and AVI.
+ * Supported save format are the following : TIFF (preferred), PNG, JPG and AVI.<br>
+ * Others formats can be provided by {@link PluginFileExporter} plugins.<br>
  * When sequence is saved as multiple file the following naming convention is used :<br>
  * <code>filename-tttt-zzzz</code>
  * 
@@ -55,6 +66,14 @@ import loci.formats.out.OMETiffWriter;
  */
 public class Saver
 {
+    private static final TimerMetric saveImageTimer = MetricsRegistry.getTimer("Saver.saveImage");
+
+    /**
+     * Exporters cache (rebuilt when plugins are reloaded)
+     */
+    private static List<PluginFileExporter> exporters = null;
+    private static boolean pluginListening = false;
+
     /**
      * @deprecated use {@link OMEUtil#generateMetaData(int, int, int, int, int, DataType, boolean)}
      *             instead
@@ -170,9 +189,97 @@ public class Saver
      */
     public static IFormatWriter getWriter(String ext)
     {
+        // exporter plugins have priority over default writers
+        final PluginFileExporter exporter = getExporter(ext);
+
+        if (exporter != null)
+        {
+            try
+            {
+                return exporter.getWriterClass().newInstance();
+            }
+            catch (Throwable t)
+            {
+                IcyExceptionHandler.handleException(t, true);
+            }
+        }
+
         return getWriter(FileFormat.getFileFormat(ext));
     }
 
+    /**
+     * Returns all available exporters (from {@link PluginFileExporter} plugins).
+     */
+    public static synchronized List<PluginFileExporter> getExporters()
+    {
+        if (!pluginListening)
+        {
+            PluginLoader.addListener(new PluginLoaderListener()
+            {
+                @Override
+                public void pluginLoaderChanged(PluginLoaderEvent e)
+                {
+                    invalidExporters();
+                }
+            });
+            pluginListening = true;
+        }
+
+        // exporter plugins are instantiated only once (until plugins are reloaded)
+        if (exporters == null)
+        {
+            final List<PluginFileExporter> result = new ArrayList<PluginFileExporter>();
+
+            for (PluginDescriptor plugin : PluginLoader.getPlugins(PluginFileExporter.class))
+            {
+                try
+                {
+                    result.add((PluginFileExporter) plugin.getPluginClass().newInstance());
+                }
+                catch (Throwable t)
+                {
+                    IcyExceptionHandler.handleException(plugin, t, true);
+                }
+            }
+
+            exporters = Collections.unmodifiableList(result);
+        }
+
+        return exporters;
+    }
+
+    static synchronized void invalidExporters()
+    {
+        exporters = null;
+    }
+
+    /**
+     * Returns the exporter handling the specified filename extension.<br>
+     * Returns null if no exporter plugin supports the specified extension.
+     */
+    public static PluginFileExporter getExporter(String ext)
+    {
+        for (PluginFileExporter exporter : getExporters())
+            for (String e : exporter.getExtensions())
+                if (e.equalsIgnoreCase(ext))
+                    return exporter;
+
+        return null;
+    }
+
+    /**
+     * Returns the exporter providing the specified writer.<br>
+     * Returns null if the writer does not come from an exporter plugin.
+     */
+    public static PluginFileExporter getExporter(IFormatWriter writer)
+    {
+        for (PluginFileExporter exporter : getExporters())
+            if (exporter.getWriterClass() == writer.getClass())
+                return exporter;
+
+        return null;
+    }
+
     /**
      * Return the writer to use for the specified file.<br>
      * <br>
@@ -204,6 +311,11 @@ public class Saver
     {
         final DataType outDataType;
         final int outNumChannel;
+        final PluginFileExporter exporter = getExporter(writer);
+
+        // writer provided by an exporter plugin
+        if (exporter != null)
+            return exporter.getCompatibleColorModel(numChannel, dataType);
 
         if (writer instanceof OMETiffWriter)
         {
@@ -602,6 +714,8 @@ public class Saver
         writer.setInterleaved(interleaved);
         writer.setId(file.getAbsolutePath());
         writer.setSeries(0);
+
+        final long start = saveImageTimer.start();
         try
         {
             writer.saveBytes(0, image.getRawData(littleEndian, interleaved));
@@ -611,6 +725,10 @@ public class Saver
             System.err.println("Saver.saveBytes(...) error :");
             IcyExceptionHandler.showErrorMessage(e, true);
         }
+        finally
+        {
+            saveImageTimer.stop(start);
+        }
         writer.close();
     }
 
@@ -695,33 +813,41 @@ public class Saver
                             return;
 
                         final IcyBufferedImage image = sequence.getImage(t, z);
+                        final long start = saveImageTimer.start();
 
-                        // separated channel data
-                        if (separateChannel)
+                        try
                         {
-                            for (int c = 0; c < sizeC; c++)
+                            // separated channel data
+                            if (separateChannel)
+                            {
+                                for (int c = 0; c < sizeC; c++)
+                                {
+                                    if (image != null)
+                                    {
+                                        // avoid multiple allocation
+                                        data = image.getRawData(c, data, 0, littleEndian);
+                                        writer.saveBytes(imageIndex, data);
+                                    }
+
+                                    imageIndex++;
+                                }
+                            }
+                            else
                             {
                                 if (image != null)
                                 {
                                     // avoid multiple allocation
-                                    data = image.getRawData(c, data, 0, littleEndian);
+                                    data = image.getRawData(data, 0, littleEndian, interleaved);
                                     writer.saveBytes(imageIndex, data);
                                 }
+                                // ((BufferedImageWriter) writer).saveImage(imageIndex, image);
 
                                 imageIndex++;
                             }
                         }
-                        else
+                        finally
                         {
-                            if (image != null)
-                            {
-                                // avoid multiple allocation
-                                data = image.getRawData(data, 0, littleEndian, interleaved);
-                                writer.saveBytes(imageIndex, data);
-                            }
-                            // ((BufferedImageWriter) writer).saveImage(imageIndex, image);
-
-                            imageIndex++;
+                            saveImageTimer.stop(start);
                         }
 
                         if (saveFrame != null)
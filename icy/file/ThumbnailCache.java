@@ -0,0 +1,507 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.file;
+
+import icy.image.IcyBufferedImage;
+import icy.image.IcyBufferedImageUtil;
+import icy.system.IcyExceptionHandler;
+import icy.system.thread.Processor;
+import icy.type.DataType;
+import icy.util.StringUtil;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import loci.formats.IFormatReader;
+import loci.formats.ome.OMEXMLMetadataImpl;
+
+/**
+ * Persistent on-disk cache of image file thumbnails and metadata summary.<br>
+ * Entries are keyed by file path, size and last modification date so a modified file is
+ * automatically considered as a new entry (the old one is evicted later).<br>
+ * The cache size is bounded and the least recently used entries are evicted first. Entries can
+ * be filled in a background pool with {@link #prefetch(List)}.<br>
+ * Entries are written in a unique temporary file then renamed so concurrent writers (threads or
+ * Icy instances) never see a partial entry.
+ * 
+ * @author Stephane
+ */
+public class ThumbnailCache
+{
+    public static final String CACHE_PATH = "cache" + FileUtil.separator + "thumbnail";
+    public static final String CACHE_EXTENSION = ".thumb";
+    public static final String TEMP_EXTENSION = DiskCache.TEMP_EXTENSION;
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024L * 1024L;
+    /**
+     * Maximum number of files filled by a single {@link #prefetch(List)} request
+     */
+    public static final int MAX_PREFETCH = 64;
+    /**
+     * Temporary files older than this (in ms) are remaining of an interrupted write
+     */
+    public static final long TEMP_MAX_AGE = DiskCache.TEMP_MAX_AGE;
+
+    private static final int VERSION = 2;
+
+    /**
+     * Cached informations for a single series of an image file.
+     */
+    public static class SeriesInfo
+    {
+        public final String name;
+        public final int sizeX;
+        public final int sizeY;
+        public final int sizeZ;
+        public final int sizeT;
+        public final int sizeC;
+        public final DataType dataType;
+        public final BufferedImage thumbnail;
+
+        public SeriesInfo(String name, int sizeX, int sizeY, int sizeZ, int sizeT, int sizeC, DataType dataType,
+                BufferedImage thumbnail)
+        {
+            super();
+
+            this.name = name;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.sizeT = sizeT;
+            this.sizeC = sizeC;
+            this.dataType = dataType;
+            this.thumbnail = thumbnail;
+        }
+
+        /**
+         * Build series informations from the current series of the specified reader (file id
+         * already set).
+         */
+        public static SeriesInfo create(IFormatReader reader, String name) throws Exception
+        {
+            final IcyBufferedImage img = IcyBufferedImage.createThumbnailFrom(reader, reader.getSizeZ() / 2,
+                    reader.getSizeT() / 2);
+
+            return new SeriesInfo(name, reader.getSizeX(), reader.getSizeY(), reader.getSizeZ(), reader.getSizeT(),
+                    reader.getSizeC(), DataType.getDataTypeFromFormatToolsType(reader.getPixelType()),
+                    IcyBufferedImageUtil.getARGBImage(img));
+        }
+
+        /**
+         * Returns dimension informations ("XxY - ZZ x TT").
+         */
+        public String getSizeInfos()
+        {
+            return sizeX + " x " + sizeY + " - " + sizeZ + "Z x " + sizeT + "T";
+        }
+
+        /**
+         * Returns channel informations ("C channels (type)").
+         */
+        public String getChannelInfos()
+        {
+            return sizeC + ((sizeC > 1) ? " channels (" : " channel (") + dataType + ")";
+        }
+    }
+
+    /**
+     * Cached informations of an image file.<br>
+     * <code>series</code> contains an element per series of the file, series which haven't been
+     * read yet (see {@link ThumbnailCache#getOrCreatePreview(String)}) are null.
+     */
+    public static class Entry
+    {
+        public final String format;
+        public final SeriesInfo[] series;
+
+        public Entry(String format, SeriesInfo[] series)
+        {
+            super();
+
+            this.format = format;
+            this.series = series;
+        }
+
+        /**
+         * Returns true if informations of all series are available.
+         */
+        public boolean isComplete()
+        {
+            for (SeriesInfo info : series)
+                if (info == null)
+                    return false;
+
+            return true;
+        }
+    }
+
+    private static final DiskCache cache = new DiskCache(new File(CACHE_PATH), CACHE_EXTENSION, DEFAULT_MAX_SIZE);
+
+    /**
+     * background fill pool
+     */
+    private static final Processor processor = new Processor(Processor.DEFAULT_MAX_WAITING, 2, Thread.MIN_PRIORITY);
+
+    static
+    {
+        processor.setDefaultThreadName("Thumbnail cache");
+    }
+
+    /**
+     * Returns the directory containing cache entries.
+     */
+    public static File getCacheDirectory()
+    {
+        return cache.getDirectory();
+    }
+
+    /**
+     * Sets the directory containing cache entries (default is {@link #CACHE_PATH}).<br>
+     * The index is rebuilt from the new directory content on next access.
+     */
+    public static void setCacheDirectory(File value)
+    {
+        cache.setDirectory(value);
+    }
+
+    /**
+     * Returns the current size (in bytes) of the cache.
+     */
+    public static long getSize()
+    {
+        return cache.getSize();
+    }
+
+    /**
+     * Returns the maximum size (in bytes) of the cache.
+     */
+    public static long getMaxSize()
+    {
+        return cache.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum size (in bytes) of the cache, least recently used entries are evicted if
+     * needed.
+     */
+    public static void setMaxSize(long value)
+    {
+        cache.setMaxSize(value);
+    }
+
+    /**
+     * Returns the cache key of the specified file (path + size + last modification date).<br>
+     * Returns null if the file does not exist.
+     */
+    public static String getKey(File file)
+    {
+        if ((file == null) || !file.isFile())
+            return null;
+
+        return DiskCache.getKey(file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified());
+    }
+
+    /**
+     * Returns the cached entry for the specified file or null if not (or no more) cached.
+     */
+    public static Entry get(String path)
+    {
+        final String key = getKey(new File(path));
+
+        if (key == null)
+            return null;
+
+        final File file = cache.get(key);
+
+        if (file == null)
+            return null;
+
+        try
+        {
+            return read(file);
+        }
+        catch (IOException e)
+        {
+            // corrupted entry
+            cache.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the complete entry (all series) for the specified file, building it (and storing it
+     * in the cache) if needed.<br>
+     * Returns null if the file cannot be read.
+     */
+    public static Entry getOrCreate(String path)
+    {
+        final Entry cached = get(path);
+
+        if ((cached != null) && cached.isComplete())
+            return cached;
+
+        try
+        {
+            final Entry result = create(path, true);
+            put(path, result);
+            return result;
+        }
+        catch (Throwable t)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns an entry for the specified file with at least the first series informations,
+     * building it (and storing it in the cache) if needed.<br>
+     * Other series are only read when not yet cached so previewing a multi series file stays
+     * cheap.<br>
+     * Returns null if the file cannot be read.
+     */
+    public static Entry getOrCreatePreview(String path)
+    {
+        final Entry cached = get(path);
+
+        if ((cached != null) && (cached.series.length > 0) && (cached.series[0] != null))
+            return cached;
+
+        try
+        {
+            final Entry result = create(path, false);
+            put(path, result);
+            return result;
+        }
+        catch (Throwable t)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the entry of the specified file in the cache.
+     */
+    public static void put(String path, Entry entry)
+    {
+        final String key = getKey(new File(path));
+
+        if ((key == null) || (entry == null))
+            return;
+
+        File tmp = null;
+
+        try
+        {
+            // unique name as the same entry can be written concurrently
+            tmp = cache.createTempFile(key);
+            write(tmp, entry);
+            cache.commit(key, tmp);
+        }
+        catch (IOException e)
+        {
+            if (tmp != null)
+                tmp.delete();
+            IcyExceptionHandler.showErrorMessage(e, false);
+        }
+    }
+
+    /**
+     * Requests the background filling of the cache for the specified files.<br>
+     * Only the first {@link #MAX_PREFETCH} files are considered and any previous pending request is
+     * discarded (only the last browsed folder is of interest).
+     */
+    public static void prefetch(List<String> paths)
+    {
+        processor.removeAllWaitingTasks();
+
+        for (final String path : paths.subList(0, Math.min(paths.size(), MAX_PREFETCH)))
+        {
+            processor.addTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if ((get(path) == null) && Loader.isImageFile(path))
+                        getOrCreatePreview(path);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public static void clear()
+    {
+        cache.clear();
+    }
+
+    /**
+     * Builds the complete entry for the specified image file by opening it.
+     */
+    public static Entry create(String path) throws Exception
+    {
+        return create(path, true);
+    }
+
+    /**
+     * Builds the entry for the specified image file by opening it.
+     * 
+     * @param allSeries
+     *        if false only the first series informations (and thumbnail) are built, other series
+     *        are left to null
+     */
+    public static Entry create(String path, boolean allSeries) throws Exception
+    {
+        final IFormatReader reader = Loader.getReader(path);
+
+        if (reader == null)
+            return null;
+
+        try
+        {
+            final OMEXMLMetadataImpl metadata = Loader.getMetaData(reader, path);
+            final SeriesInfo[] series = new SeriesInfo[reader.getSeriesCount()];
+            final int count = allSeries ? series.length : Math.min(1, series.length);
+
+            for (int i = 0; i < count; i++)
+            {
+                reader.setSeries(i);
+                series[i] = SeriesInfo.create(reader, metadata.getImageName(i));
+            }
+
+            return new Entry(reader.getFormat(), series);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private static void write(File file, Entry entry) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        try
+        {
+            out.writeInt(VERSION);
+            out.writeUTF(StringUtil.getValue(entry.format, ""));
+            out.writeInt(entry.series.length);
+
+            for (SeriesInfo info : entry.series)
+            {
+                // series not yet read
+                out.writeBoolean(info != null);
+                if (info == null)
+                    continue;
+
+                out.writeUTF(StringUtil.getValue(info.name, ""));
+                out.writeInt(info.sizeX);
+                out.writeInt(info.sizeY);
+                out.writeInt(info.sizeZ);
+                out.writeInt(info.sizeT);
+                out.writeInt(info.sizeC);
+                out.writeUTF(info.dataType.name());
+
+                if (info.thumbnail != null)
+                {
+                    final ByteArrayOutputStream png = new ByteArrayOutputStream();
+
+                    ImageIO.write(info.thumbnail, "png", png);
+                    out.writeInt(png.size());
+                    png.writeTo(out);
+                }
+                else
+                    out.writeInt(0);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static Entry read(File file) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try
+        {
+            if (in.readInt() != VERSION)
+                throw new IOException("Unsupported cache entry version");
+
+            final String format = in.readUTF();
+            final SeriesInfo[] series = new SeriesInfo[in.readInt()];
+
+            for (int i = 0; i < series.length; i++)
+            {
+                // series not yet read
+                if (!in.readBoolean())
+                    continue;
+
+                final String name = in.readUTF();
+                final int sizeX = in.readInt();
+                final int sizeY = in.readInt();
+                final int sizeZ = in.readInt();
+                final int sizeT = in.readInt();
+                final int sizeC = in.readInt();
+                final DataType dataType;
+
+                try
+                {
+                    dataType = DataType.valueOf(in.readUTF());
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw new IOException("Invalid data type");
+                }
+
+                final int len = in.readInt();
+                BufferedImage thumbnail = null;
+
+                if (len > 0)
+                {
+                    final byte[] data = new byte[len];
+
+                    in.readFully(data);
+                    thumbnail = ImageIO.read(new ByteArrayInputStream(data));
+                }
+
+                series[i] = new SeriesInfo(name, sizeX, sizeY, sizeZ, sizeT, sizeC, dataType, thumbnail);
+            }
+
+            return new Entry(format, series);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
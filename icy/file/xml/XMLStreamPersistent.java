@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.file.xml;
+
+import icy.util.XMLUtil;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * {@link XMLPersistent} which can also be loaded from a XML stream so large documents don't need
+ * to be entirely built in memory.<br>
+ * See {@link XMLUtil#nextElement(XMLStreamReader)} to walk the stream.
+ * 
+ * @author Stephane
+ */
+public interface XMLStreamPersistent extends XMLPersistent
+{
+    /**
+     * LOAD from stream.<br>
+     * The reader is on the start of the element to load and should end on the element end.
+     */
+    public boolean loadFromXML(XMLStreamReader reader) throws XMLStreamException;
+}
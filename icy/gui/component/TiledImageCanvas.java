@@ -0,0 +1,356 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.gui.component;
+
+import icy.image.IcyBufferedImage;
+import icy.image.IcyBufferedImageUtil;
+import icy.image.TiledImage;
+import icy.image.lut.LUT;
+import icy.system.thread.ThreadUtil;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JPanel;
+
+/**
+ * Display component for {@link TiledImage}.<br>
+ * Only the visible region is rendered, at screen resolution, with
+ * {@link TiledImage#getScaledImage(Rectangle, int, int)} so images larger than a single raster can
+ * be displayed. Rendering is done in background, the previous rendering is displayed meanwhile.<br>
+ * Drag to pan, use mouse wheel to zoom.
+ *
+ * @author Stephane
+ */
+public class TiledImageCanvas extends JPanel
+{
+    /**
+     *
+     */
+    private static final long serialVersionUID = -1672867470294856011L;
+
+    /**
+     * zoom step for a mouse wheel notch
+     */
+    public static final double ZOOM_FACTOR = 1.25d;
+    /**
+     * maximum zoom (screen pixel per image pixel)
+     */
+    public static final double MAX_SCALE = 32d;
+
+    /**
+     * View state (image position displayed at component origin and screen pixel per image pixel)
+     */
+    static class View
+    {
+        final TiledImage image;
+        final double offsetX;
+        final double offsetY;
+        final double scale;
+        final int width;
+        final int height;
+
+        View(TiledImage image, double offsetX, double offsetY, double scale, int width, int height)
+        {
+            super();
+
+            this.image = image;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.scale = scale;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Returns the visible image region
+         */
+        Rectangle getRegion()
+        {
+            final int x = (int) Math.floor(offsetX);
+            final int y = (int) Math.floor(offsetY);
+            final int w = (int) Math.ceil(offsetX + (width / scale)) - x;
+            final int h = (int) Math.ceil(offsetY + (height / scale)) - y;
+
+            return new Rectangle(x, y, w, h).intersection(image.getBounds());
+        }
+    }
+
+    TiledImage image;
+    volatile LUT lut;
+
+    // view (EDT access)
+    double offsetX;
+    double offsetY;
+    double scale;
+    boolean fitted;
+
+    // rendering
+    volatile View requestedView;
+    BufferedImage rendered;
+    Rectangle renderedRegion;
+    TiledImage renderedImage;
+    final Runnable renderer;
+
+    // internals
+    Point dragPoint;
+
+    public TiledImageCanvas(TiledImage image)
+    {
+        super(true);
+
+        this.image = image;
+        lut = null;
+        offsetX = 0d;
+        offsetY = 0d;
+        scale = 1d;
+        fitted = false;
+
+        requestedView = null;
+        rendered = null;
+        renderedRegion = null;
+        renderedImage = null;
+        renderer = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                render();
+            }
+        };
+
+        final MouseAdapter mouseAdapter = new MouseAdapter()
+        {
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                dragPoint = e.getPoint();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e)
+            {
+                dragPoint = null;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e)
+            {
+                if (dragPoint == null)
+                    return;
+
+                final Point p = e.getPoint();
+
+                setOffset(offsetX - ((p.x - dragPoint.x) / scale), offsetY - ((p.y - dragPoint.y) / scale));
+                dragPoint = p;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e)
+            {
+                zoom(Math.pow(ZOOM_FACTOR, -e.getWheelRotation()), e.getX(), e.getY());
+            }
+        };
+
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
+
+        setBackground(Color.black);
+        setPreferredSize(new Dimension(640, 480));
+    }
+
+    public TiledImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Sets the displayed image, the view is kept if the new image has the same size (for instance
+     * another plane of the same file).
+     */
+    public void setImage(TiledImage value)
+    {
+        if (image == value)
+            return;
+
+        if ((value == null) || (image == null) || !value.getBounds().equals(image.getBounds()))
+        {
+            fitted = false;
+            lut = null;
+        }
+
+        image = value;
+        repaint();
+    }
+
+    /**
+     * Returns the display LUT (null until the first rendering).
+     */
+    public LUT getLut()
+    {
+        return lut;
+    }
+
+    public double getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Sets the image position displayed at the top left corner of the component.
+     */
+    public void setOffset(double x, double y)
+    {
+        offsetX = x;
+        offsetY = y;
+        repaint();
+    }
+
+    /**
+     * Zoom by the specified factor keeping the image point under (x, y) component position fixed.
+     */
+    public void zoom(double factor, int x, int y)
+    {
+        if (image == null)
+            return;
+
+        final double newScale = Math.max(getMinScale(), Math.min(MAX_SCALE, scale * factor));
+        final double imageX = offsetX + (x / scale);
+        final double imageY = offsetY + (y / scale);
+
+        scale = newScale;
+        setOffset(imageX - (x / newScale), imageY - (y / newScale));
+    }
+
+    /**
+     * Adjust the view so the whole image is visible.
+     */
+    public void fitToWindow()
+    {
+        if ((image == null) || (getWidth() <= 0) || (getHeight() <= 0))
+            return;
+
+        scale = Math.min((double) getWidth() / image.getSizeX(), (double) getHeight() / image.getSizeY());
+        // center image
+        setOffset(-((getWidth() / scale) - image.getSizeX()) / 2d, -((getHeight() / scale) - image.getSizeY()) / 2d);
+        fitted = true;
+    }
+
+    private double getMinScale()
+    {
+        if ((image == null) || (getWidth() <= 0) || (getHeight() <= 0))
+            return 0d;
+
+        // a quarter of the fit scale
+        return Math.min((double) getWidth() / image.getSizeX(), (double) getHeight() / image.getSizeY()) / 4d;
+    }
+
+    /**
+     * Render the requested view (background thread)
+     */
+    void render()
+    {
+        final View view = requestedView;
+
+        if (view == null)
+            return;
+
+        final Rectangle region = view.getRegion();
+        BufferedImage result = null;
+
+        if (!region.isEmpty())
+        {
+            // don't scale up here, drawImage does it
+            final int w = Math.max(1, Math.min(region.width, (int) Math.round(region.width * view.scale)));
+            final int h = Math.max(1, Math.min(region.height, (int) Math.round(region.height * view.scale)));
+            final IcyBufferedImage scaled = view.image.getScaledImage(region, w, h);
+
+            if (scaled != null)
+            {
+                LUT l = lut;
+
+                // keep the same LUT so intensity stay consistent while moving
+                if (l == null)
+                {
+                    l = scaled.createCompatibleLUT();
+                    lut = l;
+                }
+
+                result = IcyBufferedImageUtil.getARGBImage(scaled, l);
+            }
+        }
+
+        final BufferedImage img = result;
+
+        ThreadUtil.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                rendered = img;
+                renderedRegion = region;
+                renderedImage = view.image;
+                repaint();
+            }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        super.paintComponent(g);
+
+        if (image == null)
+            return;
+
+        if (!fitted)
+            fitToWindow();
+
+        final View view = new View(image, offsetX, offsetY, scale, getWidth(), getHeight());
+        final View last = requestedView;
+
+        // view changed --> render it again
+        if ((last == null) || (last.image != view.image) || (last.offsetX != view.offsetX)
+                || (last.offsetY != view.offsetY) || (last.scale != view.scale) || (last.width != view.width)
+                || (last.height != view.height))
+        {
+            requestedView = view;
+            ThreadUtil.bgRunSingle(renderer);
+        }
+
+        // display last rendering at its position in the current view
+        if ((rendered != null) && (renderedImage == image))
+        {
+            final int x = (int) Math.round((renderedRegion.x - offsetX) * scale);
+            final int y = (int) Math.round((renderedRegion.y - offsetY) * scale);
+            final int w = (int) Math.round(renderedRegion.width * scale);
+            final int h = (int) Math.round(renderedRegion.height * scale);
+
+            g.drawImage(rendered, x, y, w, h, null);
+        }
+    }
+}
@@ -6,6 +6,7 @@ package icy.gui.component.pool;
 import icy.main.Icy;
 import icy.swimmingPool.SwimmingObject;
 import icy.swimmingPool.SwimmingPoolEvent;
+import icy.swimmingPool.SwimmingPoolEventType;
 import icy.swimmingPool.SwimmingPoolListener;
 import icy.swimmingPool.WeakSwimmingPoolListener;
 import icy.util.StringUtil;
@@ -94,11 +95,12 @@ public class SwimmingObjectChooser extends JComboBox implements SwimmingPoolList
             {
                 refreshList();
 
-                final Object obj = event.getResult().getObject();
+                final SwimmingObject result = event.getResult();
 
                 // Select the last entry computed
-                if (obj != null)
-                    setSelectedItem(obj);
+                if ((event.getType() == SwimmingPoolEventType.ELEMENT_ADDED) && (result != null)
+                        && (result.getObject() != null))
+                    setSelectedItem(result.getObject());
             }
         });
 
@@ -117,9 +119,7 @@ public class SwimmingObjectChooser extends JComboBox implements SwimmingPoolList
     Object[] getSwimmingObjects()
     {
         final List<Object> objectList = new ArrayList<Object>();
-        final ArrayList<SwimmingObject> objects = Icy.getMainInterface().getSwimmingPool().getObjects();
-
-        for (SwimmingObject so : objects)
+        for (SwimmingObject so : Icy.getMainInterface().getSwimmingPool().getObjectsView())
         {
             final Object o = so.getObject();
 
@@ -20,6 +20,7 @@ package icy.gui.dialog;
 
 import icy.file.FileFormat;
 import icy.file.Loader;
+import icy.file.ThumbnailCache;
 import icy.main.Icy;
 import icy.preferences.ApplicationPreferences;
 import icy.preferences.XMLPreferences;
@@ -30,6 +31,9 @@ import java.awt.Dimension;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileFilter;
@@ -104,6 +108,8 @@ public class ImageLoaderDialog extends JFileChooser implements PropertyChangeLis
 
         // listen file filter change
         addPropertyChangeListener(this);
+        // start filling thumbnail cache for current folder
+        prefetchDirectory(getCurrentDirectory());
 
         setDialogTitle("ICY - Load image file");
 
@@ -145,10 +151,34 @@ public class ImageLoaderDialog extends JFileChooser implements PropertyChangeLis
             }
         }
 
+        else if (prop.equals(JFileChooser.DIRECTORY_CHANGED_PROPERTY))
+            prefetchDirectory((File) evt.getNewValue());
+
         // setting state
         updateOptionPanel();
     }
 
+    /**
+     * Fill the thumbnail cache in background for image files of the specified folder.
+     */
+    void prefetchDirectory(File dir)
+    {
+        final File[] files = (dir != null) ? dir.listFiles() : null;
+
+        if (files == null)
+            return;
+
+        final List<String> paths = new ArrayList<String>();
+
+        for (File file : files)
+            if (file.isFile() && !Loader.canDiscardImageFile(file.getName()))
+                paths.add(file.getAbsolutePath());
+
+        // first displayed files are prefetched first
+        Collections.sort(paths);
+        ThumbnailCache.prefetch(paths);
+    }
+
     void updateOptionPanel()
     {
         final boolean multi = getSelectedFiles().length > 1;
@@ -1,16 +1,15 @@
 package icy.gui.dialog;
 
+import icy.file.ThumbnailCache;
+import icy.file.ThumbnailCache.Entry;
+import icy.file.ThumbnailCache.SeriesInfo;
 import icy.gui.component.ThumbnailComponent;
-import icy.image.IcyBufferedImage;
-import icy.image.IcyBufferedImageUtil;
 import icy.resource.ResourceUtil;
-import icy.type.DataType;
 
 import java.awt.BorderLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.io.IOException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JCheckBox;
@@ -20,8 +19,6 @@ import javax.swing.border.Border;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import loci.formats.ImageReader;
-
 public class ImageLoaderOptionPanel extends JPanel
 {
     /**
@@ -151,25 +148,19 @@ public class ImageLoaderOptionPanel extends JPanel
         preview.setInfos("");
         preview.setInfos2("");
 
-        final ImageReader reader = new ImageReader();
+        // cached (or freshly cached) file informations, only the first series is needed here
+        final Entry entry = ThumbnailCache.getOrCreatePreview(fileId);
 
-        try
+        if ((entry != null) && (entry.series.length > 0) && (entry.series[0] != null))
         {
-            reader.setId(fileId);
-            reader.setSeries(0);
-
-            final int sizeC = reader.getSizeC();
-
-            final IcyBufferedImage img = IcyBufferedImage.createThumbnailFrom(reader, reader.getSizeZ() / 2,
-                    reader.getSizeT() / 2);
-            preview.setImage(IcyBufferedImageUtil.getARGBImage(img));
-            preview.setTitle(reader.getFormat());
-            preview.setInfos(reader.getSizeX() + " x " + reader.getSizeY() + " - " + reader.getSizeZ() + "Z x "
-                    + reader.getSizeT() + "T");
-            preview.setInfos2(sizeC + ((sizeC > 1) ? " channels (" : " channel (")
-                    + DataType.getDataTypeFromFormatToolsType(reader.getPixelType()) + ")");
+            final SeriesInfo info = entry.series[0];
+
+            preview.setImage(info.thumbnail);
+            preview.setTitle(entry.format);
+            preview.setInfos(info.getSizeInfos());
+            preview.setInfos2(info.getChannelInfos());
         }
-        catch (Exception e)
+        else
         {
             // error image, we just totally ignore error here...
             preview.setImage(ResourceUtil.ICON_DELETE);
@@ -177,16 +168,5 @@ public class ImageLoaderOptionPanel extends JPanel
             preview.setInfos("");
             preview.setInfos2("");
         }
-        finally
-        {
-            try
-            {
-                reader.close();
-            }
-            catch (IOException e)
-            {
-                // ignore
-            }
-        }
     }
 }
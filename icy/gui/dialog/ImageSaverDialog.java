@@ -24,6 +24,7 @@ import icy.file.Saver;
 import icy.gui.component.RangeComponent;
 import icy.gui.util.GuiUtil;
 import icy.main.Icy;
+import icy.plugin.interface_.PluginFileExporter;
 import icy.preferences.ApplicationPreferences;
 import icy.preferences.XMLPreferences;
 import icy.sequence.Sequence;
@@ -123,7 +124,12 @@ public class ImageSaverDialog extends JFileChooser
         addChoosableFileFilter(FileFormat.PNG.getExtensionFileFilter());
         addChoosableFileFilter(FileFormat.JPG.getExtensionFileFilter());
         addChoosableFileFilter(FileFormat.AVI.getExtensionFileFilter());
-        setFileFilter(getChoosableFileFilters()[preferences.getInt(ID_FILETYPE, 0)]);
+        // and format from exporter plugins
+        for (PluginFileExporter exporter : Saver.getExporters())
+            addChoosableFileFilter(new ExtensionFileFilter(exporter.getExtensions(), exporter.getDescription()));
+
+        final FileFilter[] filters = getChoosableFileFilters();
+        setFileFilter(filters[Math.min(preferences.getInt(ID_FILETYPE, 0), filters.length - 1)]);
 
         setMultiSelectionEnabled(false);
         setFileSelectionMode(JFileChooser.FILES_ONLY);
@@ -210,7 +216,7 @@ public class ImageSaverDialog extends JFileChooser
         if (value == JFileChooser.APPROVE_OPTION)
         {
             // Choose writer should be compatible
-            if (Saver.isCompatible(Saver.getWriter(getSelectedFileFormat()), sequence.getColorModel()))
+            if (Saver.isCompatible(Saver.getWriter(getSelectedExtension()), sequence.getColorModel()))
             {
                 // test and add extension if needed
                 final ExtensionFileFilter extensionFilter = (ExtensionFileFilter) getFileFilter();
@@ -316,6 +322,17 @@ public class ImageSaverDialog extends JFileChooser
         return null;
     }
 
+    private String getSelectedExtension()
+    {
+        final FileFilter ff = getFileFilter();
+
+        // default
+        if (ff == null)
+            return FileFormat.TIFF.getExtensions()[0];
+
+        return ((ExtensionFileFilter) ff).getExtension();
+    }
+
     private FileFormat getSelectedFileFormat()
     {
         final FileFilter ff = getFileFilter();
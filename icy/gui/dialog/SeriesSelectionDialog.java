@@ -1,13 +1,13 @@
 package icy.gui.dialog;
 
+import icy.file.ThumbnailCache;
+import icy.file.ThumbnailCache.Entry;
+import icy.file.ThumbnailCache.SeriesInfo;
 import icy.gui.component.ThumbnailComponent;
 import icy.gui.util.ComponentUtil;
-import icy.image.IcyBufferedImage;
-import icy.image.IcyBufferedImageUtil;
 import icy.main.Icy;
 import icy.resource.ResourceUtil;
 import icy.system.thread.ThreadUtil;
-import icy.type.DataType;
 import icy.util.OMEUtil;
 
 import java.awt.BorderLayout;
@@ -234,31 +234,68 @@ public class SeriesSelectionDialog extends ActionDialog implements Runnable
     @Override
     public void run()
     {
-        for (int i = 0; i < serieComponents.length; i++)
+        final String path = reader.getCurrentFile();
+        final Entry cached = (path != null) ? ThumbnailCache.get(path) : null;
+
+        final SeriesInfo[] series = new SeriesInfo[serieComponents.length];
+
+        // cache hit --> only read thumbnails of series not yet cached (preview only caches the first one)
+        if ((cached != null) && (cached.series.length == serieComponents.length))
         {
-            try
+            if (cached.isComplete())
             {
-                reader.setSeries(i);
-
-                final int sizeC = reader.getSizeC();
-
-                final IcyBufferedImage img = IcyBufferedImage.createThumbnailFrom(reader, reader.getSizeZ() / 2,
-                        reader.getSizeT() / 2);
-                serieComponents[i].setImage(IcyBufferedImageUtil.getARGBImage(img));
-                serieComponents[i].setTitle(metadata.getImageName(i));
-                serieComponents[i].setInfos(reader.getSizeX() + " x " + reader.getSizeY() + " - " + reader.getSizeZ()
-                        + "Z x " + reader.getSizeT() + "T");
-                serieComponents[i].setInfos2(sizeC + ((sizeC > 1) ? " channels (" : " channel (")
-                        + DataType.getDataTypeFromFormatToolsType(reader.getPixelType()) + ")");
+                for (int i = 0; i < serieComponents.length; i++)
+                    setSerieInfo(i, cached.series[i]);
+
+                return;
             }
-            catch (Exception e)
+
+            System.arraycopy(cached.series, 0, series, 0, series.length);
+        }
+
+        boolean complete = true;
+
+        for (int i = 0; i < serieComponents.length; i++)
+        {
+            if (series[i] == null)
             {
-                // error image, we just totally ignore error here...
-                serieComponents[i].setImage(ResourceUtil.ICON_DELETE);
-                serieComponents[i].setTitle("Cannot read file");
-                serieComponents[i].setInfos("");
-                serieComponents[i].setInfos2("");
+                try
+                {
+                    reader.setSeries(i);
+                    series[i] = SeriesInfo.create(reader, metadata.getImageName(i));
+                }
+                catch (Exception e)
+                {
+                    // error image, we just totally ignore error here...
+                    complete = false;
+                }
             }
+
+            setSerieInfo(i, series[i]);
+        }
+
+        // store in cache for next time
+        if (complete && (path != null))
+            ThumbnailCache.put(path, new Entry(reader.getFormat(), series));
+    }
+
+    void setSerieInfo(int index, SeriesInfo info)
+    {
+        final ThumbnailComponent thumb = serieComponents[index];
+
+        if (info != null)
+        {
+            thumb.setImage(info.thumbnail);
+            thumb.setTitle(info.name);
+            thumb.setInfos(info.getSizeInfos());
+            thumb.setInfos2(info.getChannelInfos());
+        }
+        else
+        {
+            thumb.setImage(ResourceUtil.ICON_DELETE);
+            thumb.setTitle("Cannot read file");
+            thumb.setInfos("");
+            thumb.setInfos2("");
         }
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.gui.frame;
+
+import icy.gui.component.IcySlider;
+import icy.gui.component.TiledImageCanvas;
+import icy.image.TiledImage;
+import icy.system.IcyExceptionHandler;
+import icy.system.thread.ThreadUtil;
+
+import java.awt.BorderLayout;
+import java.io.IOException;
+
+import javax.swing.SwingConstants;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import loci.formats.IFormatReader;
+
+/**
+ * Frame displaying planes too large to be loaded in a {@link icy.sequence.Sequence}.<br>
+ * Planes are accessed tile by tile from the reader ({@link TiledImage}) and displayed with a
+ * {@link TiledImageCanvas}, Z and T sliders are available for multi planes images.<br>
+ * The frame owns the reader and closes it when it is closed.
+ *
+ * @author Stephane
+ */
+public class TiledImageFrame extends IcyFrame
+{
+    final IFormatReader reader;
+    final TiledImageCanvas canvas;
+    final IcySlider zSlider;
+    final IcySlider tSlider;
+
+    /**
+     * @param reader
+     *        reader with file id and series set, closed with the frame
+     * @param title
+     *        frame title
+     */
+    public TiledImageFrame(IFormatReader reader, String title)
+    {
+        super(title, true, true, true, true);
+
+        this.reader = reader;
+
+        canvas = new TiledImageCanvas(TiledImage.createFrom(reader, 0, 0));
+
+        final ChangeListener positionListener = new ChangeListener()
+        {
+            @Override
+            public void stateChanged(ChangeEvent e)
+            {
+                if (!((IcySlider) e.getSource()).getValueIsAdjusting())
+                    positionChanged();
+            }
+        };
+
+        zSlider = new IcySlider(SwingConstants.VERTICAL, 0, Math.max(0, reader.getSizeZ() - 1), 0);
+        zSlider.setToolTipText("Z position");
+        zSlider.addChangeListener(positionListener);
+        tSlider = new IcySlider(SwingConstants.HORIZONTAL, 0, Math.max(0, reader.getSizeT() - 1), 0);
+        tSlider.setToolTipText("T position");
+        tSlider.addChangeListener(positionListener);
+
+        setLayout(new BorderLayout());
+        add(canvas, BorderLayout.CENTER);
+        if (reader.getSizeZ() > 1)
+            add(zSlider, BorderLayout.EAST);
+        if (reader.getSizeT() > 1)
+            add(tSlider, BorderLayout.SOUTH);
+
+        addFrameListener(new IcyFrameAdapter()
+        {
+            @Override
+            public void icyFrameClosed(IcyFrameEvent e)
+            {
+                closeReader();
+            }
+        });
+
+        setSize(640, 480);
+        setVisible(true);
+        addToMainDesktopPane();
+        center();
+        requestFocus();
+    }
+
+    public TiledImageCanvas getCanvas()
+    {
+        return canvas;
+    }
+
+    /**
+     * Display the plane at current slider position.
+     */
+    void positionChanged()
+    {
+        final TiledImage previous = canvas.getImage();
+
+        canvas.setImage(TiledImage.createFrom(reader, zSlider.getValue(), tSlider.getValue()));
+
+        // release tiles of previous plane (the reader is shared)
+        if (previous != null)
+            previous.clearCache();
+    }
+
+    void closeReader()
+    {
+        final TiledImage image = canvas.getImage();
+
+        if (image != null)
+            image.clearCache();
+
+        // wait for pending tile loading
+        ThreadUtil.bgRun(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    synchronized (reader)
+                    {
+                        reader.close();
+                    }
+                }
+                catch (IOException e)
+                {
+                    IcyExceptionHandler.showErrorMessage(e, false);
+                }
+            }
+        });
+    }
+}
@@ -23,6 +23,7 @@ import icy.gui.component.ExternalizablePanel;
 import icy.gui.main.FocusedSequenceListener;
 import icy.gui.main.FocusedViewerListener;
 import icy.gui.system.MemoryMonitorPanel;
+import icy.gui.system.MetricsPanel;
 import icy.gui.system.OutputConsolePanel;
 import icy.gui.system.OutputConsolePanel.OutputConsoleChangeListener;
 import icy.gui.viewer.Viewer;
@@ -73,6 +74,7 @@ public class InspectorPanel extends ExternalizablePanel implements FocusedViewer
     final LayersPanel layersPanel;
     final UndoManagerPanel historyPanel;
     final OutputConsolePanel outputConsolePanel;
+    final MetricsPanel metricsPanel;
     final ChatPanel chatPanel;
 
     /**
@@ -93,6 +95,7 @@ public class InspectorPanel extends ExternalizablePanel implements FocusedViewer
         layersPanel = new LayersPanel(true, true);
         historyPanel = new UndoManagerPanel();
         outputConsolePanel = new OutputConsolePanel();
+        metricsPanel = new MetricsPanel();
         chatPanel = new ChatPanel();
 
         // add main tab panels
@@ -104,6 +107,7 @@ public class InspectorPanel extends ExternalizablePanel implements FocusedViewer
         mainPane.addTab("ROI", null, roisPanel, "Manage / edit your ROI");
         mainPane.addTab("History", null, historyPanel, "Actions history");
         mainPane.addTab("Output", null, outputConsolePanel, "Console output");
+        mainPane.addTab("Metrics", null, metricsPanel, "Kernel performance metrics");
         mainPane.addTab("Chat", null, chatPanel, "Chat room");
 
         // minimum required size for sequence infos panel
@@ -207,6 +211,14 @@ public class InspectorPanel extends ExternalizablePanel implements FocusedViewer
         return historyPanel;
     }
 
+    /**
+     * @return the metricsPanel
+     */
+    public MetricsPanel getMetricsPanel()
+    {
+        return metricsPanel;
+    }
+
     /**
      * @return the outputConsolePanel
      */
@@ -23,12 +23,14 @@ import icy.gui.component.IcyTextField.TextChangeListener;
 import icy.gui.inspector.InspectorPanel.InspectorSubPanel;
 import icy.gui.viewer.Viewer;
 import icy.gui.viewer.ViewerEvent;
+import icy.image.IntensityInfo;
 import icy.main.Icy;
 import icy.roi.ROI;
+import icy.roi.ROIUtil;
 import icy.sequence.Sequence;
 import icy.sequence.SequenceEvent;
-import icy.sequence.SequenceEvent.SequenceEventSourceType;
 import icy.sequence.SequenceEvent.SequenceEventType;
+import icy.system.thread.Processor;
 import icy.system.thread.ThreadUtil;
 import icy.util.StringUtil;
 
@@ -36,6 +38,10 @@ import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -46,11 +52,14 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableRowSorter;
 
 /**
  * @author Stephane
@@ -62,12 +71,235 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
      */
     private static final long serialVersionUID = -2870878233087117178L;
 
-    static final String[] columnNames = {"Name", "Type"};
+    static final String[] columnNames = {"Name", "Type", "Min", "Mean", "Max"};
 
-    ArrayList<ROI> rois;
+    /**
+     * delay (ms) before name filter is applied
+     */
+    static final int FILTER_DELAY = 300;
+
+    /**
+     * ROI intensity statistics cache entry.<br>
+     * We keep the ROI selected and focused state so we can detect changes which don't affect
+     * statistics.<br>
+     * Outdated statistics are still displayed until they are computed again.
+     */
+    static class RoiStats
+    {
+        final IntensityInfo info;
+        final boolean selected;
+        final boolean focused;
+        final boolean outdated;
+
+        RoiStats(IntensityInfo info, boolean selected, boolean focused, boolean outdated)
+        {
+            super();
+
+            this.info = info;
+            this.selected = selected;
+            this.focused = focused;
+            this.outdated = outdated;
+        }
+
+        RoiStats(IntensityInfo info, boolean selected, boolean focused)
+        {
+            this(info, selected, focused, false);
+        }
+    }
+
+    /**
+     * Table model of displayed ROIs.<br>
+     * ROI to row index is maintained so single ROI changes only fire row events.<br>
+     * Should only be accessed from the EDT.
+     */
+    class RoiTableModel extends AbstractTableModel
+    {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -8573364273165723214L;
+
+        final ArrayList<ROI> rows;
+        final Map<ROI, Integer> rowIndexes;
+
+        RoiTableModel()
+        {
+            super();
+
+            rows = new ArrayList<ROI>();
+            rowIndexes = new IdentityHashMap<ROI, Integer>();
+        }
+
+        void setRois(List<ROI> values)
+        {
+            rows.clear();
+            rowIndexes.clear();
+            rows.addAll(values);
+            for (int i = 0; i < rows.size(); i++)
+                rowIndexes.put(rows.get(i), Integer.valueOf(i));
+
+            // remove statistics of ROI which are not anymore displayed
+            statsCache.keySet().retainAll(rowIndexes.keySet());
+            statsPending.keySet().retainAll(rowIndexes.keySet());
+
+            fireTableDataChanged();
+        }
+
+        ArrayList<ROI> getRois()
+        {
+            return new ArrayList<ROI>(rows);
+        }
+
+        ROI getRoi(int index)
+        {
+            if ((index >= 0) && (index < rows.size()))
+                return rows.get(index);
+
+            return null;
+        }
+
+        int indexOf(ROI roi)
+        {
+            final Integer result = rowIndexes.get(roi);
+
+            if (result == null)
+                return -1;
+
+            return result.intValue();
+        }
+
+        boolean addRoi(ROI roi)
+        {
+            if (rowIndexes.containsKey(roi))
+                return false;
+
+            final int index = rows.size();
+
+            rows.add(roi);
+            rowIndexes.put(roi, Integer.valueOf(index));
+            fireTableRowsInserted(index, index);
+
+            return true;
+        }
+
+        /**
+         * Remove the specified ROI, the last row is moved in place of the removed one so no row
+         * has to be shifted (display order is given by the table sorter).<br>
+         * Returns the moved ROI (selection need to be refreshed for it), the removed ROI itself if
+         * no row has been moved or null if the ROI wasn't in the table.
+         */
+        ROI removeRoi(ROI roi)
+        {
+            final Integer index = rowIndexes.remove(roi);
+
+            if (index == null)
+                return null;
+
+            final int ind = index.intValue();
+            final int last = rows.size() - 1;
+
+            if (ind != last)
+            {
+                final ROI moved = rows.get(last);
+
+                rows.set(ind, moved);
+                rowIndexes.put(moved, index);
+            }
+
+            rows.remove(last);
+            fireTableRowsDeleted(last, last);
+
+            if (ind == last)
+                return roi;
+
+            fireTableRowsUpdated(ind, ind);
+
+            return rows.get(ind);
+        }
+
+        void updateRoi(ROI roi)
+        {
+            final int index = indexOf(roi);
+
+            if (index != -1)
+                fireTableRowsUpdated(index, index);
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column)
+        {
+            return columnNames[column];
+        }
+
+        @Override
+        public int getRowCount()
+        {
+            return rows.size();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column)
+        {
+            // substance occasionally do not check size before getting value
+            if (row >= rows.size())
+                return null;
+
+            final ROI roi = rows.get(row);
+
+            switch (column)
+            {
+                case 0:
+                    return roi.getName();
+
+                case 1:
+                    return roi.getSimpleClassName();
+            }
+
+            // only visible rows are requested here so statistics are lazily computed
+            final IntensityInfo info = getRoiIntensityInfo(roi);
+
+            if (info == null)
+                return null;
+
+            switch (column)
+            {
+                case 2:
+                    return Double.valueOf(info.minIntensity);
+
+                case 3:
+                    return Double.valueOf(info.meanIntensity);
+
+                case 4:
+                    return Double.valueOf(info.maxIntensity);
+            }
+
+            return null;
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column)
+        {
+            return false;
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex)
+        {
+            if (columnIndex >= 2)
+                return Double.class;
+
+            return String.class;
+        }
+    }
 
     // GUI
-    final AbstractTableModel tableModel;
+    final RoiTableModel tableModel;
     final ListSelectionModel tableSelectionModel;
     final JTable table;
 
@@ -81,6 +313,20 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
     boolean isSelectionAdjusting;
     boolean isRoiTypeAdjusting;
 
+    /**
+     * ROI statistics (EDT access only)
+     */
+    final Map<ROI, RoiStats> statsCache;
+    /**
+     * ROI statistics in computation, the token is used to discard obsolete results (EDT access
+     * only)
+     */
+    final Map<ROI, Object> statsPending;
+    final Processor statsProcessor;
+
+    final Timer filterTimer;
+
+    final Runnable roisRefresher;
     final Runnable tableDataRefresher;
     final Runnable roiTypeListRefresher;
     final Runnable controlPanelRefresher;
@@ -89,10 +335,23 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
     {
         super();
 
-        rois = new ArrayList<ROI>();
         isSelectionAdjusting = false;
         isRoiTypeAdjusting = false;
 
+        statsCache = new HashMap<ROI, RoiStats>();
+        statsPending = new HashMap<ROI, Object>();
+        statsProcessor = new Processor(Processor.DEFAULT_MAX_WAITING, 2, Processor.MIN_PRIORITY);
+        statsProcessor.setDefaultThreadName("ROI statistics");
+        statsProcessor.setBlockingTasks(false);
+
+        roisRefresher = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                refreshRois();
+            }
+        };
         tableDataRefresher = new Runnable()
         {
             @Override
@@ -118,6 +377,17 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
             }
         };
 
+        // name filter is applied when user stopped typing
+        filterTimer = new Timer(FILTER_DELAY, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                refreshRois();
+            }
+        });
+        filterTimer.setRepeats(false);
+
         roiType = new JComboBox(new DefaultComboBoxModel());
         roiType.setToolTipText("Select ROI type to display");
         roiType.addActionListener(new ActionListener()
@@ -152,65 +422,7 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
         roiControlPanel = new RoiControlPanel(this);
 
         // build table
-        tableModel = new AbstractTableModel()
-        {
-            /**
-             * 
-             */
-            private static final long serialVersionUID = -8573364273165723214L;
-
-            @Override
-            public int getColumnCount()
-            {
-                return columnNames.length;
-            }
-
-            @Override
-            public String getColumnName(int column)
-            {
-                return columnNames[column];
-            }
-
-            @Override
-            public int getRowCount()
-            {
-                return rois.size();
-            }
-
-            @Override
-            public Object getValueAt(int row, int column)
-            {
-                // substance occasionally do not check size before getting value
-                if (row >= rois.size())
-                    return "";
-
-                final ROI roi = rois.get(row);
-
-                switch (column)
-                {
-                    case 0:
-                        return roi.getName();
-
-                    case 1:
-                        return roi.getSimpleClassName();
-                }
-
-                return "";
-            }
-
-            @Override
-            public boolean isCellEditable(int row, int column)
-            {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int columnIndex)
-            {
-                return String.class;
-            }
-        };
-
+        tableModel = new RoiTableModel();
         table = new JTable(tableModel);
 
         final TableColumnModel colModel = table.getColumnModel();
@@ -225,11 +437,25 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
         col.setPreferredWidth(100);
         col.setMinWidth(60);
 
+        for (int i = 2; i < columnNames.length; i++)
+        {
+            col = colModel.getColumn(i);
+            col.setPreferredWidth(60);
+            col.setMinWidth(40);
+        }
+
         table.setRowHeight(24);
         table.setColumnSelectionAllowed(false);
         table.setRowSelectionAllowed(true);
         table.setShowVerticalLines(false);
-        table.setAutoCreateRowSorter(true);
+
+        // statistics columns aren't sortable as sorting would compute statistics of all ROI
+        final TableRowSorter<RoiTableModel> sorter = new TableRowSorter<RoiTableModel>(tableModel);
+        for (int i = 2; i < columnNames.length; i++)
+            sorter.setSortable(i, false);
+        // keep order when a ROI is renamed
+        sorter.setSortsOnUpdates(true);
+        table.setRowSorter(sorter);
         // table.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
 
         tableSelectionModel = table.getSelectionModel();
@@ -285,12 +511,27 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
      */
     protected void refreshRois()
     {
+        // table model is only modified from the EDT
+        if (!SwingUtilities.isEventDispatchThread())
+        {
+            ThreadUtil.invokeLater(roisRefresher);
+            return;
+        }
+
         final Sequence sequence = getSequence();
 
-        if (sequence != null)
-            rois = filterList(sequence.getROIs(), nameFilter.getText());
-        else
-            rois.clear();
+        isSelectionAdjusting = true;
+        try
+        {
+            if (sequence != null)
+                tableModel.setRois(filterList(sequence.getROIs(), nameFilter.getText()));
+            else
+                tableModel.setRois(new ArrayList<ROI>());
+        }
+        finally
+        {
+            isSelectionAdjusting = false;
+        }
 
         // refresh table data
         ThreadUtil.bgRunSingle(tableDataRefresher, true);
@@ -301,7 +542,7 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
      */
     protected int getRoiIndex(ROI roi)
     {
-        return rois.indexOf(roi);
+        return tableModel.indexOf(roi);
     }
 
     /**
@@ -350,28 +591,6 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
         return result;
     }
 
-    // public ROI getFirstSelectedRoi()
-    // {
-    // int index = table.getSelectedRow();
-    //
-    // if (index != -1)
-    // {
-    // try
-    // {
-    // index = table.convertRowIndexToModel(index);
-    // }
-    // catch (IndexOutOfBoundsException e)
-    // {
-    // // ignore
-    // }
-    //
-    // if ((index >= 0) || (index < rois.size()))
-    // return rois.get(index);
-    // }
-    //
-    // return null;
-    // }
-
     public ArrayList<ROI> getSelectedRois()
     {
         final ArrayList<ROI> result = new ArrayList<ROI>();
@@ -392,8 +611,10 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
                 }
             }
 
-            if ((index >= 0) && (index < rois.size()))
-                result.add(rois.get(index));
+            final ROI roi = tableModel.getRoi(index);
+
+            if (roi != null)
+                result.add(roi);
         }
 
         return result;
@@ -494,35 +715,72 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
             roiType.setSelectedIndex(0);
     }
 
-    ArrayList<ROI> filterList(ArrayList<ROI> list, String nameFilterText)
+    /**
+     * Add the type of the specified ROI to the ROI type list if needed
+     */
+    void addRoiType(ROI roi)
     {
-        final ArrayList<ROI> result = new ArrayList<ROI>();
+        final DefaultComboBoxModel model = (DefaultComboBoxModel) roiType.getModel();
+        final String type = roi.getSimpleClassName();
 
-        final boolean typeEmpty = roiType.getSelectedIndex() == 0;
-        final boolean nameEmpty = StringUtil.isEmpty(nameFilterText, true);
-        final String typeFilter;
-        final String nameFilterUp;
+        if (model.getIndexOf(type) != -1)
+            return;
 
-        if (!typeEmpty)
-            typeFilter = roiType.getSelectedItem().toString();
-        else
-            typeFilter = "";
-        if (!nameEmpty)
-            nameFilterUp = nameFilterText.trim().toLowerCase();
-        else
-            nameFilterUp = "";
+        isRoiTypeAdjusting = true;
+        try
+        {
+            model.addElement(type);
+        }
+        finally
+        {
+            isRoiTypeAdjusting = false;
+        }
+    }
+
+    ArrayList<ROI> filterList(ArrayList<ROI> list, String nameFilterText)
+    {
+        final ArrayList<ROI> result = new ArrayList<ROI>();
+        final String typeFilter = getTypeFilter();
+        final String nameFilterUp = getNameFilter(nameFilterText);
 
         for (ROI roi : list)
-        {
-            // search in name and type
-            if ((typeEmpty || roi.getSimpleClassName().equals(typeFilter))
-                    && (nameEmpty || (roi.getName().toLowerCase().indexOf(nameFilterUp) != -1)))
+            if (accept(roi, typeFilter, nameFilterUp))
                 result.add(roi);
-        }
 
         return result;
     }
 
+    private String getTypeFilter()
+    {
+        if ((roiType.getSelectedIndex() > 0) && (roiType.getSelectedItem() != null))
+            return roiType.getSelectedItem().toString();
+
+        return "";
+    }
+
+    private static String getNameFilter(String nameFilterText)
+    {
+        if (StringUtil.isEmpty(nameFilterText, true))
+            return "";
+
+        return nameFilterText.trim().toLowerCase();
+    }
+
+    private static boolean accept(ROI roi, String typeFilter, String nameFilterUp)
+    {
+        // search in name and type
+        return (StringUtil.isEmpty(typeFilter) || roi.getSimpleClassName().equals(typeFilter))
+                && (StringUtil.isEmpty(nameFilterUp) || (roi.getName().toLowerCase().indexOf(nameFilterUp) != -1));
+    }
+
+    /**
+     * Returns true if the specified ROI pass the current filters
+     */
+    boolean accept(ROI roi)
+    {
+        return accept(roi, getTypeFilter(), getNameFilter(nameFilter.getText()));
+    }
+
     protected void refreshTableData()
     {
         isSelectionAdjusting = true;
@@ -547,29 +805,275 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
         ThreadUtil.bgRunSingle(controlPanelRefresher, true);
     }
 
-    // protected void refreshTableRow(final ROI roi)
-    // {
-    // isSelectionAdjusting = true;
-    // try
-    // {
-    // final int rowIndex = getRoiModelIndex(roi);
-    //
-    // tableModel.fireTableRowsUpdated(rowIndex, rowIndex);
-    // }
-    // finally
-    // {
-    // isSelectionAdjusting = false;
-    // }
-    //
-    // // restore selected roi
-    // if (sequence != null)
-    // setSelectedRoisInternal(sequence.getSelectedROIs());
-    // else
-    // setSelectedRoisInternal(null);
-    //
-    // // refresh control panel
-    // refreshControlPanel();
-    // }
+    /**
+     * Synchronize table row selection with the specified ROI selection state
+     */
+    void refreshRoiSelection(ROI roi)
+    {
+        final int index = getRoiTableIndex(roi);
+
+        if ((index == -1) || (table.isRowSelected(index) == roi.isSelected()))
+            return;
+
+        isSelectionAdjusting = true;
+        try
+        {
+            if (roi.isSelected())
+                tableSelectionModel.addSelectionInterval(index, index);
+            else
+                tableSelectionModel.removeSelectionInterval(index, index);
+        }
+        finally
+        {
+            isSelectionAdjusting = false;
+        }
+
+        // refresh control panel
+        ThreadUtil.bgRunSingle(controlPanelRefresher, true);
+    }
+
+    /**
+     * A ROI has been added to the sequence (EDT only)
+     */
+    void roiAdded(ROI roi)
+    {
+        final Sequence sequence = getSequence();
+
+        // already removed ?
+        if ((sequence == null) || !sequence.contains(roi))
+            return;
+
+        addRoiType(roi);
+
+        if (!accept(roi))
+            return;
+
+        isSelectionAdjusting = true;
+        try
+        {
+            tableModel.addRoi(roi);
+        }
+        finally
+        {
+            isSelectionAdjusting = false;
+        }
+
+        refreshRoiSelection(roi);
+    }
+
+    /**
+     * A ROI has been removed from the sequence (EDT only)
+     */
+    void roiRemoved(ROI roi)
+    {
+        invalidStats(roi);
+        statsCache.remove(roi);
+
+        if (removeRow(roi))
+            ThreadUtil.bgRunSingle(controlPanelRefresher, true);
+
+        final Sequence sequence = getSequence();
+        final String type = roi.getSimpleClassName();
+
+        if (sequence != null)
+        {
+            for (ROI r : sequence.getROIs())
+                if (r.getSimpleClassName().equals(type))
+                    return;
+        }
+
+        // it was the last ROI of this type
+        if (type.equals(roiType.getSelectedItem()))
+            ThreadUtil.bgRunSingle(roiTypeListRefresher, true);
+        else
+        {
+            isRoiTypeAdjusting = true;
+            try
+            {
+                ((DefaultComboBoxModel) roiType.getModel()).removeElement(type);
+            }
+            finally
+            {
+                isRoiTypeAdjusting = false;
+            }
+        }
+    }
+
+    /**
+     * A ROI has been modified (EDT only)
+     */
+    void roiChanged(ROI roi)
+    {
+        final Sequence sequence = getSequence();
+
+        if ((sequence == null) || !sequence.contains(roi))
+            return;
+
+        final RoiStats stats = statsCache.get(roi);
+
+        // selection or focus change does not affect statistics
+        if ((stats != null) && ((stats.selected != roi.isSelected()) || (stats.focused != roi.isFocused())))
+            statsCache.put(roi, new RoiStats(stats.info, roi.isSelected(), roi.isFocused(), stats.outdated));
+        else
+        {
+            invalidStats(roi);
+            statsCache.remove(roi);
+        }
+
+        // name may have changed
+        final boolean accepted = accept(roi);
+
+        if ((tableModel.indexOf(roi) != -1) && !accepted)
+        {
+            removeRow(roi);
+            return;
+        }
+
+        isSelectionAdjusting = true;
+        try
+        {
+            if (accepted)
+            {
+                if (tableModel.indexOf(roi) != -1)
+                    tableModel.updateRoi(roi);
+                else
+                    tableModel.addRoi(roi);
+            }
+        }
+        finally
+        {
+            isSelectionAdjusting = false;
+        }
+
+        refreshRoiSelection(roi);
+    }
+
+    /**
+     * Remove the specified ROI from the table (EDT only).<br>
+     * Returns false if the ROI wasn't displayed.
+     */
+    boolean removeRow(ROI roi)
+    {
+        final ROI moved;
+
+        isSelectionAdjusting = true;
+        try
+        {
+            moved = tableModel.removeRoi(roi);
+        }
+        finally
+        {
+            isSelectionAdjusting = false;
+        }
+
+        if (moved == null)
+            return false;
+
+        // row of the moved ROI changed
+        if (moved != roi)
+            refreshRoiSelection(moved);
+
+        return true;
+    }
+
+    /**
+     * Returns intensity informations of the specified ROI if already computed or launch its
+     * computation in background (EDT only).
+     */
+    IntensityInfo getRoiIntensityInfo(final ROI roi)
+    {
+        final RoiStats stats = statsCache.get(roi);
+
+        if ((stats != null) && !stats.outdated)
+            return stats.info;
+
+        if (!statsPending.containsKey(roi))
+        {
+            final Sequence sequence = getSequence();
+
+            if (sequence != null)
+            {
+                final Object token = new Object();
+                final boolean selected = roi.isSelected();
+                final boolean focused = roi.isFocused();
+
+                final Runnable task = new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        final IntensityInfo info = ROIUtil.getIntensityInfo(sequence, roi);
+
+                        ThreadUtil.invokeLater(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                statsComputed(roi, token, new RoiStats(info, selected, focused));
+                            }
+                        });
+                    }
+                };
+
+                // queue full --> we will retry on next repaint
+                if (statsProcessor.submitTask(task, false, 0, roi, Processor.DEFAULT_TASK_PRIORITY) != null)
+                    statsPending.put(roi, token);
+            }
+        }
+
+        // display outdated statistics while computing
+        if (stats != null)
+            return stats.info;
+
+        return null;
+    }
+
+    void statsComputed(ROI roi, Object token, RoiStats stats)
+    {
+        // obsolete result
+        if (statsPending.get(roi) != token)
+            return;
+
+        statsPending.remove(roi);
+        statsCache.put(roi, stats);
+        tableModel.updateRoi(roi);
+    }
+
+    /**
+     * Discard pending statistics computation for the specified ROI
+     */
+    void invalidStats(ROI roi)
+    {
+        statsPending.remove(roi);
+    }
+
+    /**
+     * Discard all ROI statistics (EDT only)
+     */
+    void clearStats()
+    {
+        statsProcessor.removeAllWaitingTasks();
+        statsPending.clear();
+        statsCache.clear();
+    }
+
+    /**
+     * Mark all ROI statistics as outdated (EDT only).<br>
+     * They are computed again only when displayed and meanwhile the old values remain visible.
+     */
+    void outdateStats()
+    {
+        statsProcessor.removeAllWaitingTasks();
+        statsPending.clear();
+
+        for (Map.Entry<ROI, RoiStats> entry : statsCache.entrySet())
+        {
+            final RoiStats stats = entry.getValue();
+
+            if (!stats.outdated)
+                entry.setValue(new RoiStats(stats.info, stats.selected, stats.focused, true));
+        }
+    }
 
     /**
      * called when selection has changed
@@ -588,8 +1092,9 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
     @Override
     public void textChanged(IcyTextField source, boolean validate)
     {
+        // wait for user to stop typing before filtering
         if (source == nameFilter)
-            refreshRois();
+            filterTimer.restart();
     }
 
     @Override
@@ -616,19 +1121,78 @@ public class RoisPanel extends InspectorSubPanel implements TextChangeListener,
     @Override
     public void focusChanged(Sequence value)
     {
-        // refresh ROI type list
-        ThreadUtil.bgRunSingle(roiTypeListRefresher);
+        ThreadUtil.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                clearStats();
+                // refresh ROI type list
+                refreshRoiTypeList();
+            }
+        });
     }
 
     @Override
-    public void focusedSequenceChanged(SequenceEvent event)
+    public void focusedSequenceChanged(final SequenceEvent event)
+    {
+        switch (event.getSourceType())
+        {
+            case SEQUENCE_ROI:
+                // process in EDT so events stay ordered with table model access
+                ThreadUtil.invokeLater(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        sequenceRoiChanged(event);
+                    }
+                });
+                break;
+
+            case SEQUENCE_DATA:
+                ThreadUtil.invokeLater(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        // statistics need to be computed again
+                        outdateStats();
+                        table.repaint();
+                    }
+                });
+                break;
+        }
+    }
+
+    void sequenceRoiChanged(SequenceEvent event)
     {
-        if (event.getSourceType() == SequenceEventSourceType.SEQUENCE_ROI)
+        final ROI roi = (ROI) event.getSource();
+
+        // several ROI changed at once
+        if (roi == null)
         {
+            // ROI(s) added or removed --> the table is rebuilt and keeps statistics of remaining
+            // ROI, others are ROI changes we can't identify so we outdate displayed statistics
             if (event.getType() == SequenceEventType.CHANGED)
-                ThreadUtil.bgRunSingle(tableDataRefresher, true);
-            else
-                ThreadUtil.bgRunSingle(roiTypeListRefresher);
+                outdateStats();
+            refreshRoiTypeList();
+            return;
+        }
+
+        switch (event.getType())
+        {
+            case ADDED:
+                roiAdded(roi);
+                break;
+
+            case REMOVED:
+                roiRemoved(roi);
+                break;
+
+            case CHANGED:
+                roiChanged(roi);
+                break;
         }
     }
 }
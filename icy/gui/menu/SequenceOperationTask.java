@@ -13,6 +13,7 @@ import icy.gui.menu.action.SequenceOperationActions.RemoveChannelAction;
 import icy.gui.util.ComponentUtil;
 import icy.gui.util.GuiUtil;
 import icy.gui.util.RibbonUtil;
+import icy.gui.viewer.Viewer;
 import icy.image.IcyBufferedImage;
 import icy.main.Icy;
 import icy.resource.ResourceUtil;
@@ -20,6 +21,7 @@ import icy.resource.icon.IcyIcon;
 import icy.roi.BooleanMask2D;
 import icy.roi.ROI2D;
 import icy.sequence.Sequence;
+import icy.sequence.SequenceEdit;
 import icy.type.DataType;
 import icy.type.collection.array.Array1DUtil;
 import icy.util.StringUtil;
@@ -612,11 +614,12 @@ public class SequenceOperationTask extends RibbonTask
                 @Override
                 public void actionPerformed(ActionEvent e)
                 {
-                    final Sequence sequence = Icy.getMainInterface().getFocusedSequence();
-                    final IcyBufferedImage image = Icy.getMainInterface().getFocusedImage();
+                    final Viewer viewer = Icy.getMainInterface().getFocusedViewer();
+                    final Sequence sequence = (viewer != null) ? viewer.getSequence() : null;
 
-                    if ((sequence != null) && (image != null))
-                        modifyImage(image, getBooleanMaskOfSelectedRoi(sequence), getFillValue(sequence));
+                    if ((sequence != null) && (sequence.getImage(viewer.getT(), viewer.getZ()) != null))
+                        modifyImage(sequence, viewer.getT(), viewer.getZ(), getBooleanMaskOfSelectedRoi(sequence),
+                                getFillValue(sequence), false);
                 }
             });
 
@@ -641,9 +644,17 @@ public class SequenceOperationTask extends RibbonTask
                         sequence.beginUpdate();
                         try
                         {
-                            for (IcyBufferedImage image : sequence.getAllImage())
-                                if (image != null)
-                                    modifyImage(image, mask, value);
+                            boolean merge = false;
+
+                            for (int t = 0; t < sequence.getSizeT(); t++)
+                            {
+                                for (int z = 0; z < sequence.getSizeZ(t); z++)
+                                {
+                                    // single undo for the whole sequence
+                                    if (sequence.getImage(t, z) != null)
+                                        merge |= modifyImage(sequence, t, z, mask, value, merge);
+                                }
+                            }
                         }
                         finally
                         {
@@ -708,15 +719,21 @@ public class SequenceOperationTask extends RibbonTask
             return result;
         }
 
-        void modifyImage(IcyBufferedImage image, BooleanMask2D booleanMask, double value)
+        /**
+         * Fill the masked area of the (t, z) image with the specified value (undoable).<br>
+         * Returns true if the image has been modified.
+         */
+        boolean modifyImage(Sequence sequence, int t, int z, BooleanMask2D booleanMask, double value, boolean merge)
         {
-            final Rectangle imageBounds = image.getBounds();
-
             // process only if global mask is not empty
             if ((booleanMask != null) && (!booleanMask.bounds.isEmpty()))
             {
                 final Rectangle bounds = booleanMask.bounds;
                 final boolean[] mask = booleanMask.mask;
+                // save original data of modified area
+                final SequenceEdit.DataEdit edit = new SequenceEdit.DataEdit(sequence, t, z, bounds, "Fill");
+                final IcyBufferedImage image = sequence.getImage(t, z);
+                final Rectangle imageBounds = image.getBounds();
 
                 for (int c = 0; c < image.getSizeC(); c++)
                 {
@@ -737,7 +754,12 @@ public class SequenceOperationTask extends RibbonTask
                 }
 
                 image.dataChanged();
+                edit.commit(merge);
+
+                return true;
             }
+
+            return false;
         }
 
         void updateButtonsState()
@@ -60,17 +60,8 @@ public class RoiActions
                 {
                     final List<ROI> rois = ROI.getROIsFromXML(XMLUtil.getRootElement(doc));
 
-                    sequence.beginUpdate();
-                    try
-                    {
-                        // add to sequence
-                        for (ROI roi : rois)
-                            sequence.addROI(roi);
-                    }
-                    finally
-                    {
-                        sequence.endUpdate();
-                    }
+                    // add to sequence
+                    sequence.addROIs(rois, false);
                 }
             }
         }
@@ -170,20 +161,15 @@ public class RoiActions
 
             if (sequence != null)
             {
-                final List<Object> rois = Clipboard.get(ID_ROI_COPY_CLIPBOARD, false);
+                final List<Object> objects = Clipboard.get(ID_ROI_COPY_CLIPBOARD, false);
+                final List<ROI> rois = new ArrayList<ROI>();
 
-                sequence.beginUpdate();
-                try
-                {
-                    // add to sequence
-                    for (Object roi : rois)
-                        if (roi instanceof ROI)
-                            sequence.addROI((ROI) roi);
-                }
-                finally
-                {
-                    sequence.endUpdate();
-                }
+                for (Object object : objects)
+                    if (object instanceof ROI)
+                        rois.add((ROI) object);
+
+                // add to sequence
+                sequence.addROIs(rois, false);
             }
         }
 
@@ -234,18 +220,14 @@ public class RoiActions
 
             if ((sequence != null) && (roisPanel != null))
             {
-                sequence.beginUpdate();
-                try
-                {
-                    // delete selected rois
-                    for (ROI roi : roisPanel.getSelectedRois())
-                        if (roi.isEditable())
-                            sequence.removeROI(roi);
-                }
-                finally
-                {
-                    sequence.endUpdate();
-                }
+                final List<ROI> rois = new ArrayList<ROI>();
+
+                for (ROI roi : roisPanel.getSelectedRois())
+                    if (roi.isEditable())
+                        rois.add(roi);
+
+                // delete selected rois
+                sequence.removeROIs(rois, false);
             }
         }
 
@@ -183,7 +183,9 @@ public class SequenceDimensionMergeFrame extends ActionDialog
                                 break;
                         }
 
-                        Icy.getMainInterface().addSequence(out);
+                        // null if canceled
+                        if (out != null)
+                            Icy.getMainInterface().addSequence(out);
 
                         pf.close();
                     }
@@ -73,7 +73,7 @@ public class SequenceResizeFrame extends ActionDialog
             settingPanel.add(lblFilterType, gbc_lblFilterType);
 
             filterComboBox = new JComboBox();
-            filterComboBox.setModel(new DefaultComboBoxModel(new String[] {"Nearest", "Bilinear", "Bicubic"}));
+            filterComboBox.setModel(new DefaultComboBoxModel(new String[] {"Nearest", "Bilinear", "Bicubic", "Area"}));
             filterComboBox.setSelectedIndex(1);
             GridBagConstraints gbc_filterComboBox = new GridBagConstraints();
             gbc_filterComboBox.insets = new Insets(0, 0, 5, 5);
@@ -95,6 +95,8 @@ public class SequenceResizeFrame extends ActionDialog
                     return FilterType.BILINEAR;
                 case 2:
                     return FilterType.BICUBIC;
+                case 3:
+                    return FilterType.AREA;
             }
         }
 
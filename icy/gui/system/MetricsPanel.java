@@ -0,0 +1,275 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.gui.system;
+
+import icy.file.FileUtil;
+import icy.gui.component.ExternalizablePanel;
+import icy.gui.component.button.IcyButton;
+import icy.gui.dialog.SaveDialog;
+import icy.gui.util.GuiUtil;
+import icy.math.RateMeter;
+import icy.resource.ResourceUtil;
+import icy.resource.icon.IcyIcon;
+import icy.system.profile.HistogramMetric;
+import icy.system.profile.Metric;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
+import icy.util.StringUtil;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.Box;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ScrollPaneConstants;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Live view of kernel performance metrics (see {@link MetricsRegistry}).
+ * 
+ * @author Stephane
+ */
+public class MetricsPanel extends ExternalizablePanel
+{
+    /**
+     * 
+     */
+    private static final long serialVersionUID = -1850243981377485276L;
+
+    static final String[] columnNames = {"Name", "Count", "Rate (/s)", "Mean (ms)", "p99 (ms)", "Max (ms)"};
+
+    List<Metric> metrics;
+    final Map<Metric, RateMeter> rates;
+
+    // GUI
+    final AbstractTableModel tableModel;
+    final JTable table;
+    final JCheckBox enabledCheck;
+    final IcyButton resetButton;
+    final IcyButton exportButton;
+    final Timer refreshTimer;
+
+    public MetricsPanel()
+    {
+        super("Metrics", "metrics");
+
+        metrics = new ArrayList<Metric>();
+        rates = new HashMap<Metric, RateMeter>();
+
+        tableModel = new AbstractTableModel()
+        {
+            /**
+             * 
+             */
+            private static final long serialVersionUID = 4389734812536092541L;
+
+            @Override
+            public int getColumnCount()
+            {
+                return columnNames.length;
+            }
+
+            @Override
+            public String getColumnName(int column)
+            {
+                return columnNames[column];
+            }
+
+            @Override
+            public int getRowCount()
+            {
+                return metrics.size();
+            }
+
+            @Override
+            public Object getValueAt(int row, int column)
+            {
+                if (row >= metrics.size())
+                    return "";
+
+                final Metric metric = metrics.get(row);
+
+                switch (column)
+                {
+                    case 0:
+                        return metric.getName();
+
+                    case 1:
+                        return Long.toString(metric.getCount());
+
+                    case 2:
+                        final RateMeter rate = rates.get(metric);
+                        if (rate != null)
+                            return StringUtil.toString(rate.getRate(), 1);
+                        return "";
+
+                    case 3:
+                        if (metric instanceof TimerMetric)
+                            return StringUtil.toString(((TimerMetric) metric).getMeanMs(), 3);
+                        if (metric instanceof HistogramMetric)
+                            return StringUtil.toString(((HistogramMetric) metric).getMean(), 3);
+                        return "";
+
+                    case 4:
+                        if (metric instanceof TimerMetric)
+                            return StringUtil.toString(((TimerMetric) metric).getPercentile(0.99d) / 1000000d, 3);
+                        if (metric instanceof HistogramMetric)
+                            return Long.toString(((HistogramMetric) metric).getPercentile(0.99d));
+                        return "";
+
+                    case 5:
+                        if (metric instanceof TimerMetric)
+                            return StringUtil.toString(((TimerMetric) metric).getMax() / 1000000d, 3);
+                        if (metric instanceof HistogramMetric)
+                            return Long.toString(((HistogramMetric) metric).getMax());
+                        return "";
+                }
+
+                return "";
+            }
+
+            @Override
+            public boolean isCellEditable(int row, int column)
+            {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int columnIndex)
+            {
+                return String.class;
+            }
+        };
+
+        table = new JTable(tableModel);
+        table.getColumnModel().getColumn(0).setPreferredWidth(160);
+        table.setColumnSelectionAllowed(false);
+        table.setShowVerticalLines(false);
+
+        enabledCheck = new JCheckBox("Enabled", MetricsRegistry.isEnabled());
+        enabledCheck.setToolTipText("Enable / disable metrics recording");
+        enabledCheck.addActionListener(new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                MetricsRegistry.setEnabled(enabledCheck.isSelected());
+            }
+        });
+
+        resetButton = new IcyButton(new IcyIcon(ResourceUtil.ICON_DELETE));
+        resetButton.setFlat(true);
+        resetButton.setToolTipText("Reset all metrics");
+        resetButton.addActionListener(new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                MetricsRegistry.reset();
+                rates.clear();
+                refresh();
+            }
+        });
+
+        exportButton = new IcyButton(new IcyIcon(ResourceUtil.ICON_DOCEXPORT));
+        exportButton.setFlat(true);
+        exportButton.setToolTipText("Export metrics (CSV or JSON depending file extension)");
+        exportButton.addActionListener(new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                final String path = SaveDialog.chooseFile("Export metrics", null, "metrics", ".csv");
+
+                if (path != null)
+                {
+                    if (FileUtil.getFileExtension(path, false).equalsIgnoreCase("json"))
+                        MetricsRegistry.exportJSON(new File(path));
+                    else
+                        MetricsRegistry.exportCSV(new File(path));
+                }
+            }
+        });
+
+        setLayout(new BorderLayout());
+
+        add(new JScrollPane(table, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED), BorderLayout.CENTER);
+        add(GuiUtil.createLineBoxPanel(enabledCheck, Box.createHorizontalGlue(), resetButton,
+                Box.createHorizontalStrut(4), exportButton), BorderLayout.SOUTH);
+
+        validate();
+
+        // live refresh (timer runs on EDT)
+        refreshTimer = new Timer(1000, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                if (isShowing())
+                    refresh();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    /**
+     * Refresh metrics values
+     */
+    public void refresh()
+    {
+        final List<Metric> newMetrics = MetricsRegistry.getMetrics();
+
+        for (Metric metric : newMetrics)
+        {
+            RateMeter rate = rates.get(metric);
+
+            if (rate == null)
+            {
+                rate = new RateMeter();
+                rates.put(metric, rate);
+            }
+
+            rate.updateFromTotal(metric.getCount());
+        }
+
+        if (newMetrics.size() != metrics.size())
+        {
+            metrics = newMetrics;
+            tableModel.fireTableDataChanged();
+        }
+        else
+        {
+            metrics = newMetrics;
+            // only values changed
+            if (!metrics.isEmpty())
+                tableModel.fireTableRowsUpdated(0, metrics.size() - 1);
+        }
+    }
+}
@@ -52,12 +52,40 @@ import javax.swing.event.ChangeListener;
  */
 public class TNavigationPanel extends JPanel
 {
+    /**
+     * Frame provider used to prepare the next frames in background while playing.
+     */
+    public static interface FramePrefetcher
+    {
+        /**
+         * Request the frame at the specified T position to be prepared in background.<br>
+         * Positions are requested in order of need (closest first).
+         */
+        public void prefetchFrame(int t);
+
+        /**
+         * Cancel all pending frame requests.
+         */
+        public void cancelPrefetch();
+
+        /**
+         * Returns the number of displayed frames which were already prepared.
+         */
+        public int getPrefetchHitCount();
+
+        /**
+         * Returns the number of displayed frames which had to be prepared on demand.
+         */
+        public int getPrefetchMissCount();
+    }
+
     /**
      * 
      */
     private static final long serialVersionUID = 9123780562399386045L;
 
     private static final int DEFAULT_FRAME_RATE = 15;
+    private static final int DEFAULT_PREFETCH_SIZE = 4;
 
     final JSlider slider;
     final JLabel leftLabel;
@@ -68,6 +96,23 @@ public class TNavigationPanel extends JPanel
     final JSpinner frameRate;
 
     final Timer timer;
+    final JLabel frameRateLabel;
+
+    /**
+     * playback internals
+     */
+    FramePrefetcher prefetcher;
+    int prefetchSize;
+    long playStartTime;
+    int playStartT;
+    int playedFrames;
+    int droppedFrames;
+    long statTime;
+    int statFrames;
+    int statHit;
+    int statMiss;
+    double achievedFrameRate;
+    double prefetchHitRate;
 
     public TNavigationPanel()
     {
@@ -97,33 +142,20 @@ public class TNavigationPanel extends JPanel
         });
         ComponentUtil.setFixedHeight(slider, 22);
 
+        prefetcher = null;
+        prefetchSize = DEFAULT_PREFETCH_SIZE;
+        achievedFrameRate = 0d;
+        prefetchHitRate = -1d;
+
         timer = new Timer(1000 / DEFAULT_FRAME_RATE, new ActionListener()
         {
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                final int oldT = getTPosition();
-
-                incTPosition();
-
-                // end reached ?
-                if (oldT == getTPosition())
-                {
-                    // loop mode --> reset
-                    if (loop.isSelected())
-                        resetTPosition();
-                    else
-                    {
-                        // end play
-                        timer.stop();
-                        stop.setVisible(false);
-                        play.setVisible(true);
-                        // and reset position
-                        resetTPosition();
-                    }
-                }
+                playNextFrame();
             }
         });
+        timer.setCoalesce(true);
 
         play = new IcyButton(new IcyIcon("playback_play"));
         play.setFlat(true);
@@ -134,9 +166,7 @@ public class TNavigationPanel extends JPanel
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                timer.start();
-                play.setVisible(false);
-                stop.setVisible(true);
+                startPlay();
             }
         });
 
@@ -150,9 +180,7 @@ public class TNavigationPanel extends JPanel
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                timer.stop();
-                stop.setVisible(false);
-                play.setVisible(true);
+                stopPlay();
             }
         });
 
@@ -187,6 +215,9 @@ public class TNavigationPanel extends JPanel
                 final int f = ((Integer) frameRate.getValue()).intValue();
                 // adjust timer delay
                 setTimerDelay(1000 / f);
+                // restart frame deadlines from current position
+                if (isPlaying())
+                    resetPlayClock();
             }
         });
         ComponentUtil.setFixedSize(frameRate, new Dimension(50, 22));
@@ -213,7 +244,7 @@ public class TNavigationPanel extends JPanel
         final JPanel rightPanel = new JPanel();
         rightPanel.setLayout(new BoxLayout(rightPanel, BoxLayout.LINE_AXIS));
 
-        final JLabel frameRateLabel = new JLabel("FPS");
+        frameRateLabel = new JLabel("FPS");
         frameRateLabel.setToolTipText("Frames Per Second");
 
         rightPanel.add(rightLabel);
@@ -238,6 +269,228 @@ public class TNavigationPanel extends JPanel
         validate();
     }
 
+    /**
+     * Start playback from current position
+     */
+    public void startPlay()
+    {
+        if (isPlaying())
+            return;
+
+        // start from beginning if we are at the end
+        if (getTPosition() >= getMaximum())
+            resetTPosition();
+
+        playedFrames = 0;
+        droppedFrames = 0;
+        statTime = System.currentTimeMillis();
+        statFrames = 0;
+        if (prefetcher != null)
+        {
+            statHit = prefetcher.getPrefetchHitCount();
+            statMiss = prefetcher.getPrefetchMissCount();
+        }
+        resetPlayClock();
+        prefetchNextFrames();
+
+        timer.start();
+        play.setVisible(false);
+        stop.setVisible(true);
+    }
+
+    /**
+     * Stop playback
+     */
+    public void stopPlay()
+    {
+        timer.stop();
+        stop.setVisible(false);
+        play.setVisible(true);
+
+        if (prefetcher != null)
+            prefetcher.cancelPrefetch();
+    }
+
+    /**
+     * Returns true if playback is running
+     */
+    public boolean isPlaying()
+    {
+        return timer.isRunning();
+    }
+
+    void resetPlayClock()
+    {
+        playStartTime = System.currentTimeMillis();
+        playStartT = getTPosition();
+    }
+
+    /**
+     * Display the frame due at current time.<br>
+     * Frames which missed their deadline are dropped so playback keeps the requested rate.
+     */
+    void playNextFrame()
+    {
+        final int fps = ((Integer) frameRate.getValue()).intValue();
+        final long now = System.currentTimeMillis();
+        final int oldT = getTPosition();
+        final int maxT = getMaximum();
+        int t = playStartT + (int) (((now - playStartTime) * fps) / 1000);
+
+        // not yet time for next frame
+        if (t <= oldT)
+            t = oldT + 1;
+
+        // end reached ?
+        if (t > maxT)
+        {
+            // we did not display the last frame yet
+            if (oldT < maxT)
+                t = maxT;
+            // loop mode --> reset
+            else if (loop.isSelected())
+            {
+                resetTPosition();
+                resetPlayClock();
+                frameDisplayed(now, 0);
+                return;
+            }
+            else
+            {
+                // end play
+                stopPlay();
+                // and reset position
+                resetTPosition();
+                return;
+            }
+        }
+
+        setTPosition(t);
+        frameDisplayed(now, (t - oldT) - 1);
+    }
+
+    private void frameDisplayed(long now, int dropped)
+    {
+        playedFrames++;
+        droppedFrames += dropped;
+        statFrames++;
+
+        prefetchNextFrames();
+
+        // update statistics every second
+        final long elapsed = now - statTime;
+        if (elapsed >= 1000)
+        {
+            achievedFrameRate = (statFrames * 1000d) / elapsed;
+
+            if (prefetcher != null)
+            {
+                final int hit = prefetcher.getPrefetchHitCount();
+                final int miss = prefetcher.getPrefetchMissCount();
+                final int total = (hit - statHit) + (miss - statMiss);
+
+                if (total > 0)
+                    prefetchHitRate = (double) (hit - statHit) / total;
+                statHit = hit;
+                statMiss = miss;
+            }
+
+            statTime = now;
+            statFrames = 0;
+
+            updateFrameRateInfo();
+        }
+    }
+
+    private void prefetchNextFrames()
+    {
+        if (prefetcher == null)
+            return;
+
+        final int maxT = getMaximum();
+        final int t = getTPosition();
+
+        for (int i = 1; i <= prefetchSize; i++)
+        {
+            int nt = t + i;
+
+            if (nt > maxT)
+            {
+                if (!loop.isSelected())
+                    break;
+                nt -= maxT + 1;
+            }
+
+            prefetcher.prefetchFrame(nt);
+        }
+    }
+
+    private void updateFrameRateInfo()
+    {
+        String text = "Frames Per Second (achieved: " + Math.round(achievedFrameRate * 10d) / 10d + ", dropped: "
+                + droppedFrames + "/" + (playedFrames + droppedFrames);
+        if (prefetchHitRate >= 0d)
+            text += ", prefetch hit: " + Math.round(prefetchHitRate * 100d) + "%";
+        frameRateLabel.setToolTipText(text + ")");
+    }
+
+    /**
+     * Returns the frame rate achieved during last playback (in frame per second).
+     */
+    public double getAchievedFrameRate()
+    {
+        return achievedFrameRate;
+    }
+
+    /**
+     * Returns the number of frames dropped during last playback.
+     */
+    public int getDroppedFrameCount()
+    {
+        return droppedFrames;
+    }
+
+    /**
+     * Returns the ratio of displayed frames which were prepared in advance during last playback
+     * (-1 if unknown).
+     */
+    public double getPrefetchHitRate()
+    {
+        return prefetchHitRate;
+    }
+
+    /**
+     * Returns the frame prefetcher used during playback.
+     */
+    public FramePrefetcher getFramePrefetcher()
+    {
+        return prefetcher;
+    }
+
+    /**
+     * Set the frame prefetcher used to prepare next frames during playback.
+     */
+    public void setFramePrefetcher(FramePrefetcher value)
+    {
+        prefetcher = value;
+    }
+
+    /**
+     * Returns the number of frames prepared ahead during playback.
+     */
+    public int getPrefetchSize()
+    {
+        return prefetchSize;
+    }
+
+    /**
+     * Set the number of frames prepared ahead during playback.
+     */
+    public void setPrefetchSize(int value)
+    {
+        prefetchSize = Math.max(0, value);
+    }
+
     int getTPosition()
     {
         return slider.getValue();
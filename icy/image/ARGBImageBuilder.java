@@ -21,9 +21,12 @@ package icy.image;
 import icy.image.lut.LUT;
 import icy.math.Scaler;
 import icy.system.SystemUtil;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
 import icy.system.thread.Processor;
 import icy.system.thread.ThreadUtil;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 
@@ -34,6 +37,7 @@ class ARGBImageBuilder
 {
     private static final int BLOC_SIZE = 256 * 256;
     private static final int PARALLEL_PROCESS = SystemUtil.getAvailableProcessors() * 2;
+    private static final TimerMetric buildTimer = MetricsRegistry.getTimer("ARGBImageBuilder.build");
 
     private class BlockBuilder implements Runnable
     {
@@ -206,29 +210,57 @@ class ARGBImageBuilder
 
     synchronized BufferedImage buildARGBImage(IcyBufferedImage image, LUT lut, BufferedImage out)
     {
-        // planar size
-        final int imageSize = image.getSizeX() * image.getSizeY();
-        final int step = imageSize / BLOC_SIZE;
-        final BufferedImage result = getImage(image, out);
-        // destination buffer
-        final int[] dest = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
-
-        int offset = 0;
-        for (int i = 0; i < step; i++)
+        return buildARGBImage(image, lut, out, null);
+    }
+
+    /**
+     * Build the ARGB image, if <code>out</code> can be reused only the blocs intersecting the
+     * specified region are rebuilt (whole image if region is null).
+     */
+    synchronized BufferedImage buildARGBImage(IcyBufferedImage image, LUT lut, BufferedImage out, Rectangle region)
+    {
+        final long start = buildTimer.start();
+
+        try
         {
-            // build bloc
-            sendBuild(image, lut, dest, offset, BLOC_SIZE);
-            offset += BLOC_SIZE;
-        }
+            // planar size
+            final int sizeX = image.getSizeX();
+            final int imageSize = sizeX * image.getSizeY();
+            final BufferedImage result = getImage(image, out);
+            // destination buffer
+            final int[] dest = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+
+            int offset = 0;
+            int end = imageSize;
+
+            // partial rebuild (blocs are horizontal bands so we only need Y extent)
+            if ((region != null) && (result == out))
+            {
+                final int minY = Math.max(0, region.y);
+                final int maxY = Math.min(image.getSizeY(), region.y + region.height);
 
-        // last bloc
-        if (offset < imageSize)
-            sendBuild(image, lut, dest, offset, imageSize - offset);
+                offset = ((minY * sizeX) / BLOC_SIZE) * BLOC_SIZE;
+                end = Math.min(imageSize, maxY * sizeX);
+            }
+
+            while (offset < end)
+            {
+                // build bloc
+                final int length = Math.min(BLOC_SIZE, imageSize - offset);
+
+                sendBuild(image, lut, dest, offset, length);
+                offset += length;
+            }
 
-        // wait until image is built
-        waitCompletion();
+            // wait until image is built
+            waitCompletion();
 
-        return result;
+            return result;
+        }
+        finally
+        {
+            buildTimer.stop(start);
+        }
     }
 
     private void sendBuild(IcyBufferedImage image, LUT lut, int dest[], int offset, int length)
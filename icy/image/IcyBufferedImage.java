@@ -32,6 +32,7 @@ import icy.image.lut.LUT;
 import icy.math.ArrayMath;
 import icy.math.MathUtil;
 import icy.math.Scaler;
+import icy.system.thread.ThreadUtil;
 import icy.type.DataType;
 import icy.type.TypeUtil;
 import icy.type.collection.array.Array1DUtil;
@@ -54,6 +55,7 @@ import java.awt.image.DataBufferUShort;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import javax.swing.event.EventListenerList;
@@ -461,8 +463,42 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
      */
     public static IcyBufferedImage createFrom(IFormatReader reader, int z, int t) throws FormatException, IOException
     {
-        final int sizeX = reader.getSizeX();
-        final int sizeY = reader.getSizeY();
+        return createFrom(reader, null, z, t);
+    }
+
+    /**
+     * Load the specified region of the image located at (Z, T) position from the specified
+     * {@link IFormatReader} and returns it as an IcyBufferedImage.<br>
+     * Only the wanted region (tile) is read from the reader.
+     * 
+     * @param reader
+     *        Reader used to load the image
+     * @param region
+     *        region of the image to load (full image if <code>null</code>)
+     * @param z
+     *        Z position of the image to load
+     * @param t
+     *        T position of the image to load
+     * @return {@link IcyBufferedImage} (<code>null</code> if region does not intersect image)
+     */
+    public static IcyBufferedImage createFrom(IFormatReader reader, Rectangle region, int z, int t)
+            throws FormatException, IOException
+    {
+        final Rectangle imageRect = new Rectangle(0, 0, reader.getSizeX(), reader.getSizeY());
+        final Rectangle rect;
+
+        if (region == null)
+            rect = imageRect;
+        else
+            rect = region.intersection(imageRect);
+
+        // nothing to load
+        if (rect.isEmpty())
+            return null;
+
+        final boolean fullImage = rect.equals(imageRect);
+        final int sizeX = rect.width;
+        final int sizeY = rect.height;
         // convert in our data type
         final DataType dataType = DataType.getDataTypeFromFormatToolsType(reader.getPixelType());
         // prepare informations
@@ -490,7 +526,13 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
 
         for (int effC = 0; effC < effSizeC; effC++)
         {
-            final byte[] byteData = reader.openBytes(reader.getIndex(z, effC, t));
+            final int index = reader.getIndex(z, effC, t);
+            final byte[] byteData;
+
+            if (fullImage)
+                byteData = reader.openBytes(index);
+            else
+                byteData = reader.openBytes(index, rect.x, rect.y, rect.width, rect.height);
 
             // current final component
             final int c = effC * rgbChanCount;
@@ -569,6 +611,33 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         return result;
     }
 
+    /**
+     * Create an image sharing the data arrays of the specified channels of the source image (no
+     * data copy).<br>
+     * Colormaps and channel bounds are copied from the source image so the data doesn't need to be
+     * scanned, the result then updates its bounds as any other image when it is notified of data
+     * change.
+     * 
+     * @param source
+     *        source image
+     * @param channels
+     *        source channels to share (in result channel order)
+     */
+    public static IcyBufferedImage createChannelView(IcyBufferedImage source, int[] channels)
+    {
+        return new IcyBufferedImage(source, channels);
+    }
+
+    private static Object[] getChannelsData(IcyBufferedImage source, int[] channels)
+    {
+        final Object[] result = new Object[channels.length];
+
+        for (int c = 0; c < channels.length; c++)
+            result[c] = source.getDataXY(channels[c]);
+
+        return result;
+    }
+
     /**
      * @deprecated Uses {@link #IcyBufferedImage(int, int, IcyColorModel)} instead.
      */
@@ -656,6 +725,21 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
      */
     private final EventListenerList listeners;
 
+    /**
+     * pending data change (region and channels not yet dispatched)
+     */
+    private Rectangle dirtyRegion;
+    private final BitSet dirtyChannels;
+    /**
+     * last calculated data bounds for each channel (null if unknown)
+     */
+    private final double[][] dataBounds;
+    /**
+     * channels waiting for a full bounds rescan
+     */
+    private final BitSet rescanChannels;
+    private final Runnable boundsRescanner;
+
     /**
      * Build an Icy formatted BufferedImage, takes an IcyColorModel and a WritableRaster as input
      * 
@@ -676,6 +760,19 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         updater = new UpdateEventHandler(this, false);
         listeners = new EventListenerList();
 
+        dirtyRegion = null;
+        dirtyChannels = new BitSet();
+        dataBounds = new double[cm.getNumComponents()][];
+        rescanChannels = new BitSet();
+        boundsRescanner = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                rescanChannelsBounds();
+            }
+        };
+
         // automatic update of channel bounds
         this.autoUpdateChannelBounds = autoUpdateChannelBounds;
 
@@ -683,6 +780,45 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         cm.addListener(this);
     }
 
+    /**
+     * Create an image sharing the data arrays of the specified channels of the source image (see
+     * {@link #createChannelView(IcyBufferedImage, int[])}).
+     * 
+     * @param source
+     *        source image
+     * @param channels
+     *        source channels to share (in result channel order)
+     */
+    protected IcyBufferedImage(IcyBufferedImage source, int[] channels)
+    {
+        this(IcyColorModel.createInstance(channels.length, source.getDataType_()), source, channels);
+    }
+
+    private IcyBufferedImage(IcyColorModel cm, IcyBufferedImage source, int[] channels)
+    {
+        // don't compute bounds here
+        this(cm, cm.createWritableRaster(getChannelsData(source, channels), source.getWidth(), source.getHeight()),
+                false);
+
+        final IcyColorModel srcCm = source.getIcyColorModel();
+
+        for (int c = 0; c < channels.length; c++)
+        {
+            final int srcC = channels[c];
+
+            cm.getIcyColorSpace().copyColormap(c, srcCm.getColormap(srcC));
+            cm.setComponentAbsBounds(c, srcCm.getComponentAbsBounds(srcC));
+            cm.setComponentUserBounds(c, srcCm.getComponentUserBounds(srcC));
+
+            synchronized (source.dirtyChannels)
+            {
+                dataBounds[c] = source.dataBounds[srcC];
+            }
+        }
+
+        autoUpdateChannelBounds = source.autoUpdateChannelBounds;
+    }
+
     /**
      * Create an Icy formatted BufferedImage, takes an IcyColorModel and a WritableRaster as input
      * 
@@ -1213,6 +1349,36 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         return new double[] {min, max};
     }
 
+    /**
+     * Get calculated image channel bounds (min and max values) in the specified region
+     */
+    private double[] getCalculatedChannelBounds(int channel, Rectangle region)
+    {
+        final boolean signed = getDataType_().isSigned();
+        final Object data = getDataXY(channel);
+        final int sizeX = getSizeX();
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+
+        for (int y = region.y; y < region.y + region.height; y++)
+        {
+            int offset = region.x + (y * sizeX);
+
+            for (int x = 0; x < region.width; x++)
+            {
+                final double value = Array1DUtil.getValue(data, offset++, signed);
+
+                if (value < min)
+                    min = value;
+                if (value > max)
+                    max = value;
+            }
+        }
+
+        return new double[] {min, max};
+    }
+
     /**
      * Adjust specified bounds depending internal data type
      */
@@ -1683,25 +1849,105 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
     public void updateChannelsBounds()
     {
         final int sizeC = getSizeC();
-        final IcyColorModel cm = getIcyColorModel();
 
         for (int c = 0; c < sizeC; c++)
-        {
-            // get data type bounds
-            final double[] bounds = getCalculatedChannelBounds(c);
+            setCalculatedChannelBounds(c, getCalculatedChannelBounds(c));
+    }
+
+    /**
+     * Update bounds of specified channels after a change in the given region.<br>
+     * Only the modified region is scanned: bounds are widened immediately if needed while the full
+     * rescan (needed to detect shrinking) is deferred to a coalesced background task.
+     */
+    private void updateChannelsBounds(Rectangle region, BitSet channels)
+    {
+        final boolean wholeImage = (region.width == getWidth()) && (region.height == getHeight());
+        boolean rescan = false;
 
-            cm.setComponentAbsBounds(c, adjustBoundsForDataType(bounds));
+        for (int c = channels.nextSetBit(0); c >= 0; c = channels.nextSetBit(c + 1))
+        {
+            final double[] bounds;
 
-            final IcyColorModel colorModel = getIcyColorModel();
+            synchronized (dirtyChannels)
+            {
+                bounds = dataBounds[c];
+            }
 
-            if (colorModel != null)
+            if (wholeImage || (bounds == null))
+                setCalculatedChannelBounds(c, getCalculatedChannelBounds(c));
+            else
             {
-                final IcyColorMap colorMap = colorModel.getColormap(c);
+                final double[] regionBounds = getCalculatedChannelBounds(c, region);
+
+                // widen bounds if new values are outside
+                if ((regionBounds[0] < bounds[0]) || (regionBounds[1] > bounds[1]))
+                    setCalculatedChannelBounds(c, new double[] {Math.min(bounds[0], regionBounds[0]),
+                            Math.max(bounds[1], regionBounds[1])});
+
+                synchronized (dirtyChannels)
+                {
+                    rescanChannels.set(c);
+                }
+                rescan = true;
+            }
+        }
+
+        // previous extremum may have been overwritten --> rescan later
+        if (rescan)
+            ThreadUtil.bgRunSingle(boundsRescanner);
+    }
+
+    /**
+     * Do the deferred full bounds rescan.
+     */
+    void rescanChannelsBounds()
+    {
+        final BitSet channels;
+
+        synchronized (dirtyChannels)
+        {
+            channels = (BitSet) rescanChannels.clone();
+            rescanChannels.clear();
+        }
+
+        for (int c = channels.nextSetBit(0); c >= 0; c = channels.nextSetBit(c + 1))
+        {
+            final double[] bounds = getCalculatedChannelBounds(c);
+            final double[] current;
 
-                // we do user bounds adjustment on "non ALPHA" component only
-                if (colorMap.getType() != IcyColorMapType.ALPHA)
-                    cm.setComponentUserBounds(c, bounds);
+            synchronized (dirtyChannels)
+            {
+                current = dataBounds[c];
             }
+
+            if ((current == null) || (current[0] != bounds[0]) || (current[1] != bounds[1]))
+                setCalculatedChannelBounds(c, bounds);
+        }
+    }
+
+    /**
+     * Store calculated data bounds of specified channel and update color model bounds from them.
+     */
+    private void setCalculatedChannelBounds(int c, double[] bounds)
+    {
+        final IcyColorModel cm = getIcyColorModel();
+
+        synchronized (dirtyChannels)
+        {
+            dataBounds[c] = bounds;
+        }
+
+        cm.setComponentAbsBounds(c, adjustBoundsForDataType(bounds));
+
+        final IcyColorModel colorModel = getIcyColorModel();
+
+        if (colorModel != null)
+        {
+            final IcyColorMap colorMap = colorModel.getColormap(c);
+
+            // we do user bounds adjustment on "non ALPHA" component only
+            if (colorMap.getType() != IcyColorMapType.ALPHA)
+                cm.setComponentUserBounds(c, bounds);
         }
     }
 
@@ -1879,6 +2125,16 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         return new LUT(IcyColorModel.createInstance(getIcyColorModel(), false, false));
     }
 
+    /**
+     * Returns the image where data have to be written to modify this image.<br>
+     * This is the image itself except for images sharing their data with another one and which
+     * cannot be modified in place (sequence view planes), these return their private copy.
+     */
+    protected IcyBufferedImage getWritableImage()
+    {
+        return this;
+    }
+
     /**
      * Return a direct reference to internal 2D array data [C][XY]
      */
@@ -2056,7 +2312,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         ArrayUtil.arrayToArray(values, getDataXY(c), getDataType_().isSigned());
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -2747,7 +3003,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         System.arraycopy(values, 0, getDataXYAsByte(c), 0, getSizeX() * getSizeY());
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -2758,7 +3014,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         System.arraycopy(values, 0, getDataXYAsShort(c), 0, getSizeX() * getSizeY());
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -2769,7 +3025,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         System.arraycopy(values, 0, getDataXYAsInt(c), 0, getSizeX() * getSizeY());
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -2780,7 +3036,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         System.arraycopy(values, 0, getDataXYAsFloat(c), 0, getSizeX() * getSizeY());
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -2791,7 +3047,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         System.arraycopy(values, 0, getDataXYAsDouble(c), 0, getSizeX() * getSizeY());
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -2808,7 +3064,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
             data[comp][offset] = values[comp];
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), -1);
     }
 
     /**
@@ -2830,7 +3086,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
             data[comp][offset] = values[comp];
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), -1);
     }
 
     /**
@@ -2847,7 +3103,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
             data[comp][offset] = values[comp];
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), -1);
     }
 
     /**
@@ -2864,7 +3120,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
             data[comp][offset] = values[comp];
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), -1);
     }
 
     /**
@@ -2881,7 +3137,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
             data[comp][offset] = values[comp];
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), -1);
     }
 
     /**
@@ -2902,7 +3158,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         Array1DUtil.setValue(getDataXY(c), getOffset(x, y), getDataType_(), value);
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), c);
     }
 
     /**
@@ -2923,7 +3179,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         (((DataBufferByte) getRaster().getDataBuffer()).getData(c))[x + (y * getWidth())] = value;
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), c);
     }
 
     /**
@@ -2953,7 +3209,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
             (((DataBufferShort) db).getData(c))[x + (y * getWidth())] = value;
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), c);
     }
 
     /**
@@ -2974,7 +3230,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         (((DataBufferInt) getRaster().getDataBuffer()).getData(c))[x + (y * getWidth())] = value;
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), c);
     }
 
     /**
@@ -2995,7 +3251,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         (((DataBufferFloat) getRaster().getDataBuffer()).getData(c))[x + (y * getWidth())] = value;
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), c);
     }
 
     /**
@@ -3016,7 +3272,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         (((DataBufferDouble) getRaster().getDataBuffer()).getData(c))[x + (y * getWidth())] = value;
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(x, y, 1, 1), c);
     }
 
     /**
@@ -3086,7 +3342,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         }
 
         // notify data changed
-        dataChanged();
+        dataChanged(new Rectangle(adjDstRect.x, adjDstRect.y, w, h), dstChannel);
     }
 
     /**
@@ -3555,7 +3811,7 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         ByteArrayConvert.byteArrayTo(data, offset, step, getDataXY(c), little);
 
         // notify data changed
-        dataChanged();
+        dataChanged(null, c);
     }
 
     /**
@@ -3670,6 +3926,39 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
      */
     public void dataChanged()
     {
+        dataChanged(null, -1);
+    }
+
+    /**
+     * notify image data has changed in the specified region and channel.<br>
+     * Successive changes are merged until the event is dispatched.
+     * 
+     * @param region
+     *        modified XY region (null means the whole image)
+     * @param channel
+     *        modified channel (-1 means all channels)
+     */
+    public void dataChanged(Rectangle region, int channel)
+    {
+        final Rectangle imageBounds = new Rectangle(getWidth(), getHeight());
+        final Rectangle adjRegion = (region == null) ? imageBounds : region.intersection(imageBounds);
+
+        if (adjRegion.isEmpty())
+            return;
+
+        synchronized (dirtyChannels)
+        {
+            if (dirtyRegion == null)
+                dirtyRegion = adjRegion;
+            else
+                dirtyRegion.add(adjRegion);
+
+            if (channel == -1)
+                dirtyChannels.set(0, getSizeC());
+            else
+                dirtyChannels.set(channel);
+        }
+
         updater.changed(new IcyBufferedImageEvent(this, IcyBufferedImageEventType.DATA_CHANGED));
     }
 
@@ -3741,10 +4030,30 @@ public class IcyBufferedImage extends BufferedImage implements IcyColorModelList
         {
         // do here global process on image data change
             case DATA_CHANGED:
+            {
+                final Rectangle region;
+                final BitSet channels;
+
+                // get and reset accumulated changes
+                synchronized (dirtyChannels)
+                {
+                    region = dirtyRegion;
+                    channels = (BitSet) dirtyChannels.clone();
+                    dirtyRegion = null;
+                    dirtyChannels.clear();
+                }
+
+                // changes already dispatched by a previous event
+                if (region == null)
+                    return;
+
+                event = new IcyBufferedImageEvent(this, region, channels);
+
                 // update image components bounds
                 if (autoUpdateChannelBounds)
-                    updateChannelsBounds();
+                    updateChannelsBounds(region, channels);
                 break;
+            }
 
             // do here global process on image bounds change
             case BOUNDS_CHANGED:
@@ -20,6 +20,9 @@ package icy.image;
 
 import icy.common.EventHierarchicalChecker;
 
+import java.awt.Rectangle;
+import java.util.BitSet;
+
 /**
  * @author Stephane
  */
@@ -33,6 +36,8 @@ public class IcyBufferedImageEvent implements EventHierarchicalChecker
     private final IcyBufferedImage image;
     private final IcyBufferedImageEventType type;
     private final int param;
+    private final Rectangle region;
+    private final BitSet channels;
 
     /**
      * @param image
@@ -49,12 +54,34 @@ public class IcyBufferedImageEvent implements EventHierarchicalChecker
      * @param param
      */
     public IcyBufferedImageEvent(IcyBufferedImage image, IcyBufferedImageEventType type, int param)
+    {
+        this(image, type, param, null, null);
+    }
+
+    /**
+     * Create a <code>DATA_CHANGED</code> event for the specified dirty region and channels.
+     * 
+     * @param image
+     * @param region
+     *        modified XY region (null means the whole image)
+     * @param channels
+     *        modified channels (null means all channels)
+     */
+    public IcyBufferedImageEvent(IcyBufferedImage image, Rectangle region, BitSet channels)
+    {
+        this(image, IcyBufferedImageEventType.DATA_CHANGED, -1, region, channels);
+    }
+
+    private IcyBufferedImageEvent(IcyBufferedImage image, IcyBufferedImageEventType type, int param,
+            Rectangle region, BitSet channels)
     {
         super();
 
         this.image = image;
         this.type = type;
         this.param = param;
+        this.region = region;
+        this.channels = channels;
     }
 
     /**
@@ -81,6 +108,32 @@ public class IcyBufferedImageEvent implements EventHierarchicalChecker
         return param;
     }
 
+    /**
+     * Returns the modified XY region for <code>DATA_CHANGED</code> event.<br>
+     * A <code>null</code> value means the whole image may have changed.
+     */
+    public Rectangle getRegion()
+    {
+        return region;
+    }
+
+    /**
+     * Returns the modified channels for <code>DATA_CHANGED</code> event.<br>
+     * A <code>null</code> value means all channels may have changed.
+     */
+    public BitSet getChannels()
+    {
+        return channels;
+    }
+
+    /**
+     * Returns true if the specified channel may have changed (<code>DATA_CHANGED</code> event).
+     */
+    public boolean isChannelChanged(int channel)
+    {
+        return (channels == null) || channels.get(channel);
+    }
+
     @Override
     public boolean isEventRedundantWith(EventHierarchicalChecker event)
     {
@@ -11,15 +11,9 @@ import icy.type.collection.array.ArrayUtil;
 
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.util.List;
 
-import javax.media.jai.BorderExtender;
-import javax.media.jai.Interpolation;
-import javax.media.jai.JAI;
-import javax.media.jai.RenderedOp;
-import javax.media.jai.operator.ScaleDescriptor;
 import javax.swing.SwingConstants;
 
 /**
@@ -32,7 +26,7 @@ public class IcyBufferedImageUtil
 {
     public static enum FilterType
     {
-        NEAREST, BILINEAR, BICUBIC
+        NEAREST, BILINEAR, BICUBIC, AREA
     };
 
     /**
@@ -153,6 +147,33 @@ public class IcyBufferedImageUtil
         return argbImageBuilder.buildARGBImage(source, lut, dest);
     }
 
+    /**
+     * Same as {@link #getARGBImage(IcyBufferedImage, LUT, BufferedImage)} except that only the
+     * part of <code>dest</code> covering the specified region is rebuilt (<code>dest</code> should
+     * already contains a previous rendering of the image).<br>
+     * The whole image is rebuilt if <code>dest</code> cannot be reused.
+     * 
+     * @param source
+     *        source image
+     * @param lut
+     *        {@link LUT} is used for color calculation (internal lut is used if null).
+     * @param dest
+     *        destination image
+     * @param region
+     *        modified region of source image (null means the whole image)
+     */
+    public static BufferedImage getARGBImage(IcyBufferedImage source, LUT lut, BufferedImage dest, Rectangle region)
+    {
+        if (source == null)
+            return null;
+
+        // use image lut when no specific lut
+        if (lut == null)
+            return argbImageBuilder.buildARGBImage(source, source.getLUT(), dest, region);
+
+        return argbImageBuilder.buildARGBImage(source, lut, dest, region);
+    }
+
     /**
      * Draw the source {@link IcyBufferedImage} into the destination ARGB {@link BufferedImage}<br>
      * If <code>dest</code> is null then a new ARGB {@link BufferedImage} is returned.<br>
@@ -487,6 +508,7 @@ public class IcyBufferedImageUtil
      *        (used only if resizeContent is false)
      * @param filterType
      *        filter method used for scale (used only if resizeContent is true)
+     * @see ImageResampler
      */
     public static IcyBufferedImage scale(IcyBufferedImage source, int width, int height, boolean resizeContent,
             int xAlign, int yAlign, FilterType filterType)
@@ -544,39 +566,8 @@ public class IcyBufferedImageUtil
         }
         else
         {
-            final Float xScale = Float.valueOf((float) width / source.getWidth());
-            final Float yScale = Float.valueOf((float) height / source.getHeight());
-            final Interpolation interpolation;
-
-            switch (filterType)
-            {
-                default:
-                case NEAREST:
-                    interpolation = Interpolation.getInstance(Interpolation.INTERP_NEAREST);
-                    break;
-
-                case BILINEAR:
-                    interpolation = Interpolation.getInstance(Interpolation.INTERP_BILINEAR);
-                    break;
-
-                case BICUBIC:
-                    interpolation = Interpolation.getInstance(Interpolation.INTERP_BICUBIC);
-                    break;
-            }
-
-            // use JAI scaler (use a copy to avoid source alteration)
-            final RenderedOp renderedOp = ScaleDescriptor.create(
-                    getCopy(source),
-                    xScale,
-                    yScale,
-                    Float.valueOf(0f),
-                    Float.valueOf(0f),
-                    interpolation,
-                    new RenderingHints(JAI.KEY_BORDER_EXTENDER, BorderExtender
-                            .createInstance(BorderExtender.BORDER_COPY)));
-
-            // JAI keep dataType and others stuff in their BufferedImage
-            result = IcyBufferedImage.createFrom(renderedOp.getAsBufferedImage());
+            // native resampling (source is not modified, data type and color model are kept)
+            result = ImageResampler.scale(source, width, height, filterType);
         }
 
         return result;
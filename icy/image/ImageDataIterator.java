@@ -10,6 +10,8 @@ import icy.roi.ROI3D;
 import icy.roi.ROI4D;
 import icy.roi.ROI5D;
 import icy.type.DataIterator;
+import icy.type.DataSpan;
+import icy.type.DataSpanIterator;
 import icy.type.DataType;
 import icy.type.collection.array.Array1DUtil;
 
@@ -21,14 +23,15 @@ import java.util.NoSuchElementException;
  * This class permit to use simple iterator to read / write <code>IcyBufferedImage</code> data<br>
  * as double in XYC <i>([C[Y[X]]])</i> dimension order .<br>
  * Whatever is the internal {@link DataType} data is returned and set as double.<br>
+ * Data can also be accessed by contiguous runs with {@link #nextSpan()}.<br>
  * <b>If the image size or type is modified during iteration the iterator
  * becomes invalid and can causes exception to happen.</b>
  * 
  * @author Stephane
  */
-public class ImageDataIterator implements DataIterator
+public class ImageDataIterator implements DataIterator, DataSpanIterator
 {
-    protected final IcyBufferedImage image;
+    protected IcyBufferedImage image;
     protected final DataType dataType;
     protected final ROI roi;
 
@@ -43,6 +46,17 @@ public class ImageDataIterator implements DataIterator
     protected int x, y, c;
     protected boolean done;
     protected Object data;
+    /**
+     * true when writes have been prepared on the image (see {@link #set(double)})
+     */
+    protected boolean writable;
+
+    /**
+     * span internals
+     */
+    protected DataSpan span;
+    protected int spanX, spanY, spanC;
+    protected boolean spanDone;
 
     /**
      * Create a new ImageData iterator to iterate data through the specified dimensions (inclusive).
@@ -389,9 +403,127 @@ public class ImageDataIterator implements DataIterator
         if (done)
             throw new NoSuchElementException(null);
 
+        // first write --> get the image data can be written to (shared images are detached)
+        if (!writable)
+        {
+            final IcyBufferedImage writableImage = image.getWritableImage();
+
+            if (writableImage != image)
+            {
+                image = writableImage;
+                prepareDataXY();
+            }
+
+            writable = true;
+        }
+
         Array1DUtil.setValue(data, image.getOffset(x, y), dataType, value);
     }
 
+    @Override
+    public void resetSpan()
+    {
+        if (span == null)
+            span = new DataSpan();
+
+        spanDone = (image == null) || (startC > endC) || (startY > endY) || (startX > endX);
+        spanC = startC;
+        spanY = startY;
+        spanX = startX;
+    }
+
+    /**
+     * Pass span iteration to next channel.
+     */
+    protected void nextSpanChannel()
+    {
+        spanX = startX;
+        spanY = startY;
+
+        if (++spanC > endC)
+            spanDone = true;
+    }
+
+    /**
+     * Fill span informations.
+     */
+    protected DataSpan setSpan(Object spanData, int sx, int sy, int len)
+    {
+        span.data = spanData;
+        span.dataType = dataType;
+        span.offset = image.getOffset(sx, sy);
+        span.length = len;
+        span.x = sx;
+        span.y = sy;
+        span.c = spanC;
+
+        return span;
+    }
+
+    /**
+     * Returns the next contiguous run of data.<br>
+     * Without mask, a run is a row of the iterated region (or the whole region for a channel
+     * when the region covers full image rows). With a mask, a run is a set of consecutive pixels
+     * of the same row contained in the mask.
+     */
+    @Override
+    public DataSpan nextSpan()
+    {
+        // not yet initialized
+        if (span == null)
+            resetSpan();
+
+        while (!spanDone)
+        {
+            final Object spanData = image.getDataXY(spanC);
+
+            if (maskXY == null)
+            {
+                final DataSpan result;
+
+                // full rows --> data are contiguous for the whole region
+                if ((startX == 0) && (endX == (image.getSizeX() - 1)))
+                {
+                    result = setSpan(spanData, startX, startY, image.getSizeX() * ((endY - startY) + 1));
+                    nextSpanChannel();
+                }
+                else
+                {
+                    result = setSpan(spanData, startX, spanY, (endX - startX) + 1);
+                    if (++spanY > endY)
+                        nextSpanChannel();
+                }
+
+                return result;
+            }
+
+            final boolean[] mask = maskXY.mask;
+            final int maskOffset = ((spanY - maskXY.bounds.y) * maskXY.bounds.width) - maskXY.bounds.x;
+
+            // search start of run
+            while ((spanX <= endX) && !mask[maskOffset + spanX])
+                spanX++;
+
+            if (spanX <= endX)
+            {
+                final int sx = spanX;
+
+                // search end of run
+                while ((spanX <= endX) && mask[maskOffset + spanX])
+                    spanX++;
+
+                return setSpan(spanData, sx, spanY, spanX - sx);
+            }
+
+            // next row
+            spanX = startX;
+            if (++spanY > endY)
+                nextSpanChannel();
+        }
+
+        return null;
+    }
+
     /**
      * Return current X position.
      */
@@ -0,0 +1,472 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.image;
+
+import icy.image.IcyBufferedImageUtil.FilterType;
+import icy.math.ArrayMathExecutor;
+import icy.math.ArrayMathExecutor.RangeTask;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
+
+import java.util.Arrays;
+
+/**
+ * Native image resampling engine.<br>
+ * Resampling is done directly on the typed channel arrays in two separable passes (horizontal
+ * then vertical) using weights precomputed once per destination coordinate. Borders are
+ * extended by copying the edge pixels and rows are processed in parallel on large images.<br>
+ * A third pass ({@link #resampleZ(IcyBufferedImage[], int, FilterType)}) can resample a stack
+ * along Z so anisotropic volumes can be made isotropic.
+ * 
+ * @author Stephane
+ */
+public class ImageResampler
+{
+    /**
+     * Bicubic kernel parameter (Catmull-Rom spline).
+     */
+    private static final double CUBIC_A = -0.5d;
+
+    /**
+     * Maximum number of values of the intermediate buffer used by a band of destination rows.
+     */
+    public static final int BAND_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Precomputed 1D resampling weights.<br>
+     * Each destination coordinate uses a fixed number of taps, source indexes are already clamped
+     * to the source bounds (edge copy).
+     */
+    public static class Weights
+    {
+        public final int srcSize;
+        public final int dstSize;
+        public final int taps;
+        final int[] index;
+        final double[] weight;
+
+        Weights(int srcSize, int dstSize, int taps)
+        {
+            super();
+
+            this.srcSize = srcSize;
+            this.dstSize = dstSize;
+            this.taps = taps;
+            index = new int[dstSize * taps];
+            weight = new double[dstSize * taps];
+        }
+
+        /**
+         * Returns true if each destination coordinate simply picks a single source coordinate
+         * (nearest filter or identity).
+         */
+        public boolean isPick()
+        {
+            return taps == 1;
+        }
+
+        void set(int dst, int tap, int src, double w)
+        {
+            final int off = (dst * taps) + tap;
+
+            index[off] = Math.max(0, Math.min(srcSize - 1, src));
+            weight[off] = w;
+        }
+    }
+
+    /**
+     * Computes the 1D resampling weights to go from <code>srcSize</code> to <code>dstSize</code>
+     * samples with the specified filter.<br>
+     * Pixel centers are aligned (source coordinate = (dst + 0.5) / scale - 0.5).
+     */
+    public static Weights getWeights(int srcSize, int dstSize, FilterType filterType)
+    {
+        if ((srcSize <= 0) || (dstSize <= 0))
+            throw new IllegalArgumentException("Invalid resampling size: " + srcSize + " --> " + dstSize);
+
+        final double scale = (double) dstSize / (double) srcSize;
+        final Weights result;
+
+        // identity
+        if (srcSize == dstSize)
+        {
+            result = new Weights(srcSize, dstSize, 1);
+            for (int d = 0; d < dstSize; d++)
+                result.set(d, 0, d, 1d);
+
+            return result;
+        }
+
+        switch (filterType)
+        {
+            default:
+            case NEAREST:
+                result = new Weights(srcSize, dstSize, 1);
+                for (int d = 0; d < dstSize; d++)
+                    result.set(d, 0, (int) Math.floor((d + 0.5d) / scale), 1d);
+                break;
+
+            case BILINEAR:
+                result = new Weights(srcSize, dstSize, 2);
+                for (int d = 0; d < dstSize; d++)
+                {
+                    final double s = ((d + 0.5d) / scale) - 0.5d;
+                    final int i = (int) Math.floor(s);
+                    final double f = s - i;
+
+                    result.set(d, 0, i, 1d - f);
+                    result.set(d, 1, i + 1, f);
+                }
+                break;
+
+            case BICUBIC:
+                result = new Weights(srcSize, dstSize, 4);
+                for (int d = 0; d < dstSize; d++)
+                {
+                    final double s = ((d + 0.5d) / scale) - 0.5d;
+                    final int i = (int) Math.floor(s);
+                    final double f = s - i;
+
+                    result.set(d, 0, i - 1, cubic(1d + f));
+                    result.set(d, 1, i, cubic(f));
+                    result.set(d, 2, i + 1, cubic(1d - f));
+                    result.set(d, 3, i + 2, cubic(2d - f));
+                }
+                break;
+
+            case AREA:
+                // destination pixel footprint can overlap at most ceil(1/scale) + 1 source pixels
+                result = new Weights(srcSize, dstSize, (int) Math.ceil(1d / scale) + 1);
+                for (int d = 0; d < dstSize; d++)
+                {
+                    final double lo = d / scale;
+                    final double hi = Math.min(srcSize, (d + 1) / scale);
+                    final double norm = 1d / (hi - lo);
+                    final int start = (int) Math.floor(lo);
+
+                    for (int t = 0; t < result.taps; t++)
+                    {
+                        final int i = start + t;
+                        final double overlap = Math.min(hi, i + 1) - Math.max(lo, i);
+
+                        if (overlap > 0d)
+                            result.set(d, t, i, overlap * norm);
+                        else
+                            result.set(d, t, start, 0d);
+                    }
+                }
+                break;
+        }
+
+        return result;
+    }
+
+    private static double cubic(double x)
+    {
+        final double ax = Math.abs(x);
+
+        if (ax <= 1d)
+            return (((CUBIC_A + 2d) * ax) - (CUBIC_A + 3d)) * ax * ax + 1d;
+        if (ax < 2d)
+            return (((((CUBIC_A * ax) - (5d * CUBIC_A)) * ax) + (8d * CUBIC_A)) * ax) - (4d * CUBIC_A);
+
+        return 0d;
+    }
+
+    /**
+     * Returns a new image corresponding to the source image resampled to the specified size with
+     * the specified filter.<br>
+     * The result keeps the source data type, colormaps and channel display bounds.
+     */
+    public static IcyBufferedImage scale(IcyBufferedImage source, int width, int height, FilterType filterType)
+    {
+        if (source == null)
+            return null;
+
+        final int srcW = source.getWidth();
+        final int srcH = source.getHeight();
+        final Weights wx = getWeights(srcW, width, filterType);
+        final Weights wy = getWeights(srcH, height, filterType);
+        final DataType dataType = source.getDataType_();
+        final IcyBufferedImage result = new IcyBufferedImage(width, height, source.getIcyColorModel());
+
+        for (int c = 0; c < source.getSizeC(); c++)
+            resample(source.getDataXY(c), srcW, srcH, result.getDataXY(c), wx, wy, dataType);
+
+        result.dataChanged();
+
+        // keep source colormaps and display bounds
+        result.copyColormap(source);
+        result.setChannelsBounds(source.getChannelsBounds());
+
+        return result;
+    }
+
+    /**
+     * Resamples a single 2D channel array of <code>srcW * srcH</code> pixels into
+     * <code>dst</code> (<code>wx.dstSize * wy.dstSize</code> pixels) using the specified
+     * precomputed weights.<br>
+     * Destination rows are processed by bands: the horizontal pass is only done on the source rows
+     * needed by the band so the intermediate buffer never exceeds {@link #BAND_BUFFER_SIZE} values
+     * (unless a single destination row needs more).
+     */
+    public static void resample(final Object src, final int srcW, final int srcH, final Object dst,
+            final Weights wx, final Weights wy, final DataType dataType)
+    {
+        final int dstW = wx.dstSize;
+        final int dstH = wy.dstSize;
+        final boolean signed = dataType.isSigned();
+        final boolean round = !dataType.isFloat();
+        // cost of a destination row (its share of the horizontal pass and the vertical pass)
+        final long rowCost = ((((long) srcH * (srcW + ((long) dstW * wx.taps))) / dstH) + ((long) dstW * wy.taps));
+
+        ArrayMathExecutor.execute(dstH, (int) Math.min(Integer.MAX_VALUE, rowCost), new RangeTask<Object>()
+        {
+            @Override
+            public Object compute(int from, int to)
+            {
+                final double[] srcRow = new double[srcW];
+                final double[] dstRow = new double[dstW];
+                double[] band = null;
+                int y = from;
+
+                while (y < to)
+                {
+                    // source rows range of the band
+                    int srcStart = getMinIndex(wy, y);
+                    int srcEnd = getMaxIndex(wy, y);
+                    int end = y + 1;
+
+                    while (end < to)
+                    {
+                        final int start = Math.min(srcStart, getMinIndex(wy, end));
+                        final int last = Math.max(srcEnd, getMaxIndex(wy, end));
+
+                        if ((((long) (last - start) + 1L) * dstW) > BAND_BUFFER_SIZE)
+                            break;
+
+                        srcStart = start;
+                        srcEnd = last;
+                        end++;
+                    }
+
+                    final int size = ((srcEnd - srcStart) + 1) * dstW;
+
+                    if ((band == null) || (band.length < size))
+                        band = new double[size];
+
+                    // horizontal pass
+                    for (int sy = srcStart; sy <= srcEnd; sy++)
+                    {
+                        Array1DUtil.arrayToDoubleArray(src, sy * srcW, srcRow, 0, srcW, signed);
+                        filter(srcRow, band, (sy - srcStart) * dstW, wx);
+                    }
+
+                    // vertical pass
+                    for (; y < end; y++)
+                    {
+                        accumulateRows(band, dstW, wy, y, srcStart, dstRow);
+                        store(dstRow, dst, y * dstW, round, signed);
+                    }
+                }
+
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns the minimum source index used by destination coordinate <code>d</code>.
+     */
+    private static int getMinIndex(Weights w, int d)
+    {
+        final int base = d * w.taps;
+        int result = w.index[base];
+
+        for (int t = 1; t < w.taps; t++)
+            result = Math.min(result, w.index[base + t]);
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum source index used by destination coordinate <code>d</code>.
+     */
+    private static int getMaxIndex(Weights w, int d)
+    {
+        final int base = d * w.taps;
+        int result = w.index[base];
+
+        for (int t = 1; t < w.taps; t++)
+            result = Math.max(result, w.index[base + t]);
+
+        return result;
+    }
+
+    /**
+     * Resamples a stack of planes along Z to the specified number of planes.<br>
+     * All planes should have the same size, number of channel and data type.
+     * 
+     * @return resampled planes (source planes are directly returned when sizeZ is unchanged)
+     */
+    public static IcyBufferedImage[] resampleZ(IcyBufferedImage[] planes, int sizeZ, FilterType filterType)
+    {
+        if ((planes == null) || (planes.length == 0) || (planes.length == sizeZ))
+            return planes;
+
+        final IcyBufferedImage first = planes[0];
+        final int w = first.getWidth();
+        final int h = first.getHeight();
+        final int sizeC = first.getSizeC();
+        final DataType dataType = first.getDataType_();
+        final boolean signed = dataType.isSigned();
+        final boolean round = !dataType.isFloat();
+        final Weights wz = getWeights(planes.length, sizeZ, filterType);
+        final IcyBufferedImage[] result = new IcyBufferedImage[sizeZ];
+
+        for (int z = 0; z < sizeZ; z++)
+        {
+            final IcyBufferedImage image = new IcyBufferedImage(w, h, first.getIcyColorModel());
+
+            for (int c = 0; c < sizeC; c++)
+            {
+                final Object dst = image.getDataXY(c);
+                final Object[] srcs = new Object[wz.taps];
+                final double[] weights = new double[wz.taps];
+
+                for (int t = 0; t < wz.taps; t++)
+                {
+                    srcs[t] = planes[wz.index[(z * wz.taps) + t]].getDataXY(c);
+                    weights[t] = wz.weight[(z * wz.taps) + t];
+                }
+
+                ArrayMathExecutor.execute(h, w * wz.taps, new RangeTask<Object>()
+                {
+                    @Override
+                    public Object compute(int from, int to)
+                    {
+                        final double[] in = new double[w];
+                        final double[] out = new double[w];
+
+                        for (int y = from; y < to; y++)
+                        {
+                            final int off = y * w;
+
+                            Arrays.fill(out, 0d);
+                            for (int t = 0; t < srcs.length; t++)
+                            {
+                                final double wt = weights[t];
+
+                                if (wt == 0d)
+                                    continue;
+
+                                Array1DUtil.arrayToDoubleArray(srcs[t], off, in, 0, w, signed);
+                                for (int x = 0; x < w; x++)
+                                    out[x] += in[x] * wt;
+                            }
+
+                            store(out, dst, off, round, signed);
+                        }
+
+                        return null;
+                    }
+                });
+            }
+
+            image.dataChanged();
+
+            // keep source colormaps and display bounds
+            image.copyColormap(first);
+            image.setChannelsBounds(first.getChannelsBounds());
+
+            result[z] = image;
+        }
+
+        return result;
+    }
+
+    /**
+     * 1D filtering of <code>in</code> into <code>out[outOff .. outOff + w.dstSize[</code>.
+     */
+    private static void filter(double[] in, double[] out, int outOff, Weights w)
+    {
+        final int taps = w.taps;
+        final int[] index = w.index;
+        final double[] weight = w.weight;
+
+        if (taps == 1)
+        {
+            for (int d = 0; d < w.dstSize; d++)
+                out[outOff + d] = in[index[d]];
+            return;
+        }
+
+        int k = 0;
+        for (int d = 0; d < w.dstSize; d++)
+        {
+            double v = 0d;
+
+            for (int t = 0; t < taps; t++, k++)
+                v += in[index[k]] * weight[k];
+
+            out[outOff + d] = v;
+        }
+    }
+
+    /**
+     * Computes destination row <code>y</code> from the weighted rows of <code>in</code> (which
+     * starts at source row <code>inStart</code>).
+     */
+    private static void accumulateRows(double[] in, int width, Weights w, int y, int inStart, double[] out)
+    {
+        final int taps = w.taps;
+        final int base = y * taps;
+
+        if (taps == 1)
+        {
+            System.arraycopy(in, (w.index[base] - inStart) * width, out, 0, width);
+            return;
+        }
+
+        Arrays.fill(out, 0d);
+        for (int t = 0; t < taps; t++)
+        {
+            final double wt = w.weight[base + t];
+
+            if (wt == 0d)
+                continue;
+
+            final int off = (w.index[base + t] - inStart) * width;
+            for (int x = 0; x < width; x++)
+                out[x] += in[off + x] * wt;
+        }
+    }
+
+    /**
+     * Stores the row into the typed destination array (rounding and clamping for integer types).
+     */
+    static void store(double[] row, Object dst, int dstOff, boolean round, boolean signed)
+    {
+        if (round)
+            for (int i = 0; i < row.length; i++)
+                row[i] = Math.rint(row[i]);
+
+        Array1DUtil.doubleArrayToSafeArray(row, 0, dst, dstOff, row.length, signed);
+    }
+}
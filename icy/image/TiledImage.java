@@ -0,0 +1,775 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.image;
+
+import icy.system.IcyExceptionHandler;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import loci.formats.IFormatReader;
+
+/**
+ * Large 2D image (plane) stored as fixed size tiles.<br>
+ * Unlike {@link IcyBufferedImage} the whole plane never needs to fit in a single Java array:
+ * tiles are loaded on demand through a {@link TileLoader} (for instance from
+ * <code>IFormatReader.openBytes(index, x, y, w, h)</code>) and kept in a bounded LRU cache, so
+ * planes larger than 46k x 46k pixels can be accessed.<br>
+ * Data is accessed by pixel ({@link #getData(int, int, int)}), by region (
+ * {@link #getDataXY(Rectangle, int)}, {@link #getImage(Rectangle)}) or through a
+ * {@link TiledImageDataIterator} which reads the image tile by tile.<br>
+ * Low resolution views ({@link #getScaledImage(Rectangle, int, int)}) are computed from a pyramid
+ * of half resolution overviews (see {@link #getOverview()}) so a zoomed out view doesn't need to
+ * read the full resolution tiles each time.<br>
+ * Tiles are read only: modifications done on a tile image are lost when it is evicted from the
+ * cache.
+ *
+ * @author Stephane
+ */
+public class TiledImage
+{
+    /**
+     * Loads a tile (region) of the image.
+     */
+    public static interface TileLoader
+    {
+        /**
+         * Load and return the specified region of the image (always contained in the image).
+         */
+        public IcyBufferedImage loadTile(Rectangle region) throws Exception;
+    }
+
+    /**
+     * Loads tiles from a {@link IFormatReader}, the reader can be closed with the image.
+     */
+    private static class ReaderTileLoader implements TileLoader, Closeable
+    {
+        final IFormatReader reader;
+        final int z;
+        final int t;
+        final boolean closeReader;
+
+        ReaderTileLoader(IFormatReader reader, int z, int t, boolean closeReader)
+        {
+            super();
+
+            this.reader = reader;
+            this.z = z;
+            this.t = t;
+            this.closeReader = closeReader;
+        }
+
+        @Override
+        public IcyBufferedImage loadTile(Rectangle region) throws Exception
+        {
+            // readers are not thread safe
+            synchronized (reader)
+            {
+                return IcyBufferedImage.createFrom(reader, region, z, t);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (closeReader)
+            {
+                synchronized (reader)
+                {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes tiles of the half resolution overview from the source image (mean of 2x2 pixels).
+     */
+    private static class OverviewLoader implements TileLoader
+    {
+        final TiledImage source;
+
+        OverviewLoader(TiledImage source)
+        {
+            super();
+
+            this.source = source;
+        }
+
+        @Override
+        public IcyBufferedImage loadTile(Rectangle region) throws Exception
+        {
+            final Rectangle srcRegion = new Rectangle(region.x * 2, region.y * 2, region.width * 2,
+                    region.height * 2).intersection(source.getBounds());
+            final DataType dataType = source.getDataType_();
+            final boolean signed = dataType.isSigned();
+            final int sizeC = source.getSizeC();
+            final IcyBufferedImage result = new IcyBufferedImage(region.width, region.height, sizeC, dataType);
+            final double[] src = new double[srcRegion.width * srcRegion.height];
+            final double[] dst = new double[region.width * region.height];
+
+            for (int c = 0; c < sizeC; c++)
+            {
+                Array1DUtil.arrayToDoubleArray(source.getDataXY(srcRegion, c, true), src, signed);
+
+                for (int y = 0, off = 0; y < region.height; y++)
+                {
+                    final int sy = y * 2;
+                    final int ny = Math.min(2, srcRegion.height - sy);
+
+                    for (int x = 0; x < region.width; x++, off++)
+                    {
+                        final int sx = x * 2;
+                        final int nx = Math.min(2, srcRegion.width - sx);
+                        double sum = 0d;
+
+                        for (int j = 0; j < ny; j++)
+                            for (int i = 0; i < nx; i++)
+                                sum += src[((sy + j) * srcRegion.width) + sx + i];
+
+                        dst[off] = sum / (nx * ny);
+                    }
+                }
+
+                Array1DUtil.doubleArrayToSafeArray(dst, result.getDataXY(c), signed);
+            }
+
+            result.dataChanged();
+
+            return result;
+        }
+    }
+
+    public static final int DEFAULT_TILE_SIZE = 512;
+    public static final long DEFAULT_CACHE_SIZE = 256L * 1024L * 1024L;
+
+    private final TileLoader loader;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeC;
+    private final DataType dataType;
+    private final int tileW;
+    private final int tileH;
+    private final int numTileX;
+    private final int numTileY;
+
+    /**
+     * tile cache (tile index --> tile image) in LRU order
+     */
+    private final LinkedHashMap<Long, IcyBufferedImage> tiles;
+    private long cacheSize;
+    private long maxCacheSize;
+
+    /**
+     * half resolution image (next level of the pyramid)
+     */
+    private TiledImage overview;
+
+    /**
+     * Create a tiled image.
+     *
+     * @param loader
+     *        tile loader
+     * @param sizeX
+     *        image width
+     * @param sizeY
+     *        image height
+     * @param sizeC
+     *        number of channel
+     * @param dataType
+     *        data type of tiles
+     * @param tileW
+     *        tile width
+     * @param tileH
+     *        tile height
+     */
+    public TiledImage(TileLoader loader, int sizeX, int sizeY, int sizeC, DataType dataType, int tileW, int tileH)
+    {
+        super();
+
+        if ((sizeX <= 0) || (sizeY <= 0) || (sizeC <= 0))
+            throw new IllegalArgumentException("TiledImage: invalid size " + sizeX + " x " + sizeY + " x " + sizeC);
+        if ((tileW <= 0) || (tileH <= 0))
+            throw new IllegalArgumentException("TiledImage: invalid tile size " + tileW + " x " + tileH);
+
+        this.loader = loader;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeC = sizeC;
+        this.dataType = dataType;
+        this.tileW = Math.min(tileW, sizeX);
+        this.tileH = Math.min(tileH, sizeY);
+
+        numTileX = ((sizeX - 1) / this.tileW) + 1;
+        numTileY = ((sizeY - 1) / this.tileH) + 1;
+
+        tiles = new LinkedHashMap<Long, IcyBufferedImage>(64, 0.75f, true);
+        cacheSize = 0L;
+        maxCacheSize = DEFAULT_CACHE_SIZE;
+    }
+
+    /**
+     * Create a tiled image for the plane located at (Z, T) position in the specified reader (file
+     * id already set).<br>
+     * Tiles are loaded with <code>IFormatReader.openBytes(index, x, y, w, h)</code> and use the
+     * reader optimal tile size when it is not specified.<br>
+     * The reader should stay opened while the tiled image is used.
+     *
+     * @param tileW
+     *        tile width (reader optimal tile width if <= 0)
+     * @param tileH
+     *        tile height (reader optimal tile height if <= 0)
+     */
+    public static TiledImage createFrom(IFormatReader reader, int z, int t, int tileW, int tileH)
+    {
+        return createFrom(reader, z, t, tileW, tileH, false);
+    }
+
+    /**
+     * Create a tiled image for the plane located at (Z, T) position in the specified reader (file
+     * id already set).<br>
+     * Tiles are loaded with <code>IFormatReader.openBytes(index, x, y, w, h)</code> and use the
+     * reader optimal tile size when it is not specified.
+     *
+     * @param tileW
+     *        tile width (reader optimal tile width if <= 0)
+     * @param tileH
+     *        tile height (reader optimal tile height if <= 0)
+     * @param closeReader
+     *        if true the reader is closed when the image is closed ({@link #close()}), else the
+     *        reader should stay opened while the tiled image is used.
+     */
+    public static TiledImage createFrom(IFormatReader reader, int z, int t, int tileW, int tileH, boolean closeReader)
+    {
+        final int w;
+        final int h;
+
+        if (tileW > 0)
+            w = tileW;
+        else
+            w = getTileSize(reader.getOptimalTileWidth());
+        if (tileH > 0)
+            h = tileH;
+        else
+            h = getTileSize(reader.getOptimalTileHeight());
+
+        return new TiledImage(new ReaderTileLoader(reader, z, t, closeReader), reader.getSizeX(), reader.getSizeY(), reader.getEffectiveSizeC()
+                * reader.getRGBChannelCount(), DataType.getDataTypeFromFormatToolsType(reader.getPixelType()), w, h);
+    }
+
+    /**
+     * Create a tiled image for the plane located at (Z, T) position in the specified reader (file
+     * id already set) using the reader optimal tile size.
+     */
+    public static TiledImage createFrom(IFormatReader reader, int z, int t)
+    {
+        return createFrom(reader, z, t, 0, 0);
+    }
+
+    /**
+     * Returns a reasonable tile size from the reader optimal one (some readers return a full
+     * image width or a single line).
+     */
+    private static int getTileSize(int optimal)
+    {
+        if ((optimal < 64) || (optimal > 4096))
+            return DEFAULT_TILE_SIZE;
+
+        return optimal;
+    }
+
+    public int getSizeX()
+    {
+        return sizeX;
+    }
+
+    public int getSizeY()
+    {
+        return sizeY;
+    }
+
+    public int getSizeC()
+    {
+        return sizeC;
+    }
+
+    /**
+     * Returns the number of pixel per channel (can exceed <code>Integer.MAX_VALUE</code>).
+     */
+    public long getNumPixel()
+    {
+        return (long) sizeX * (long) sizeY;
+    }
+
+    public DataType getDataType_()
+    {
+        return dataType;
+    }
+
+    public Rectangle getBounds()
+    {
+        return new Rectangle(0, 0, sizeX, sizeY);
+    }
+
+    public int getTileWidth()
+    {
+        return tileW;
+    }
+
+    public int getTileHeight()
+    {
+        return tileH;
+    }
+
+    public int getNumTileX()
+    {
+        return numTileX;
+    }
+
+    public int getNumTileY()
+    {
+        return numTileY;
+    }
+
+    /**
+     * Returns the maximum size (in bytes) of the tile cache.
+     */
+    public synchronized long getMaxCacheSize()
+    {
+        return maxCacheSize;
+    }
+
+    /**
+     * Sets the maximum size (in bytes) of the tile cache, least recently used tiles are evicted
+     * if needed.
+     */
+    public synchronized void setMaxCacheSize(long value)
+    {
+        maxCacheSize = Math.max(0L, value);
+        evict();
+
+        // overview has 4 times less tiles
+        if (overview != null)
+            overview.setMaxCacheSize(maxCacheSize / 4);
+    }
+
+    /**
+     * Returns the half resolution overview of this image, next level of the resolution pyramid
+     * (null if this image fits in a single tile).<br>
+     * The overview is created on first call, its tiles are computed from tiles of this image (mean
+     * of 2x2 pixels) and cached so they are read only once.
+     */
+    public synchronized TiledImage getOverview()
+    {
+        if ((overview == null) && ((numTileX > 1) || (numTileY > 1)))
+            setOverview(new TiledImage(new OverviewLoader(this), (sizeX + 1) / 2, (sizeY + 1) / 2, sizeC, dataType,
+                    tileW, tileH));
+
+        return overview;
+    }
+
+    /**
+     * Sets the overview (lower resolution version) of this image, for instance a resolution level
+     * provided by the file format.
+     *
+     * @throws IllegalArgumentException
+     *         if the overview isn't smaller or doesn't have the same channel number and data type
+     */
+    public synchronized void setOverview(TiledImage value) throws IllegalArgumentException
+    {
+        if (value != null)
+        {
+            if ((value.getSizeC() != sizeC) || (value.getDataType_() != dataType))
+                throw new IllegalArgumentException("TiledImage.setOverview(..) error: incompatible overview");
+            if ((value.getSizeX() >= sizeX) || (value.getSizeY() >= sizeY))
+                throw new IllegalArgumentException("TiledImage.setOverview(..) error: overview ("
+                        + value.getSizeX() + " x " + value.getSizeY() + ") should be smaller than image (" + sizeX
+                        + " x " + sizeY + ")");
+
+            value.setMaxCacheSize(maxCacheSize / 4);
+        }
+
+        overview = value;
+    }
+
+    /**
+     * Returns bounds of the specified tile in the image.
+     */
+    public Rectangle getTileBounds(int tileX, int tileY)
+    {
+        final int x = tileX * tileW;
+        final int y = tileY * tileH;
+
+        return new Rectangle(x, y, Math.min(tileW, sizeX - x), Math.min(tileH, sizeY - y));
+    }
+
+    /**
+     * Returns index (tile X, tile Y) of tiles intersecting the specified region.
+     */
+    public List<Point> getTiles(Rectangle region)
+    {
+        final List<Point> result = new ArrayList<Point>();
+        final Rectangle rect = region.intersection(getBounds());
+
+        if (rect.isEmpty())
+            return result;
+
+        final int endTX = (rect.x + rect.width - 1) / tileW;
+        final int endTY = (rect.y + rect.height - 1) / tileH;
+
+        for (int ty = rect.y / tileH; ty <= endTY; ty++)
+            for (int tx = rect.x / tileW; tx <= endTX; tx++)
+                result.add(new Point(tx, ty));
+
+        return result;
+    }
+
+    /**
+     * Returns true if the specified tile is currently loaded.
+     */
+    public synchronized boolean isTileLoaded(int tileX, int tileY)
+    {
+        return tiles.containsKey(getTileKey(tileX, tileY));
+    }
+
+    /**
+     * Returns the specified tile image (loaded if needed).<br>
+     * Returns null if the tile cannot be loaded (error is displayed in the console).
+     */
+    public IcyBufferedImage getTile(int tileX, int tileY)
+    {
+        try
+        {
+            return readTile(tileX, tileY);
+        }
+        catch (Throwable t)
+        {
+            IcyExceptionHandler.showErrorMessage(t, false);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the specified tile image (loaded if needed).<br>
+     * Unlike {@link #getTile(int, int)} loading errors are thrown to the caller.
+     *
+     * @throws IllegalArgumentException
+     *         if the tile index is out of the image
+     * @throws Exception
+     *         if the tile cannot be loaded
+     */
+    public IcyBufferedImage readTile(int tileX, int tileY) throws Exception
+    {
+        if ((tileX < 0) || (tileX >= numTileX) || (tileY < 0) || (tileY >= numTileY))
+            throw new IllegalArgumentException("TiledImage.readTile(..) error: tile [" + tileX + "," + tileY
+                    + "] out of image");
+
+        final Long key = getTileKey(tileX, tileY);
+
+        synchronized (this)
+        {
+            final IcyBufferedImage result = tiles.get(key);
+
+            if (result != null)
+                return result;
+        }
+
+        // load outside lock so other tiles can be accessed meanwhile
+        final IcyBufferedImage result = loader.loadTile(getTileBounds(tileX, tileY));
+
+        if (result == null)
+            throw new IOException("TiledImage.readTile(..) error: cannot load tile [" + tileX + "," + tileY + "]");
+
+        synchronized (this)
+        {
+            // loaded meanwhile ? keep the first one
+            final IcyBufferedImage previous = tiles.get(key);
+
+            if (previous != null)
+                return previous;
+
+            tiles.put(key, result);
+            cacheSize += getTileByteSize(result);
+            evict();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the tile image containing the specified pixel (loaded if needed).
+     */
+    public IcyBufferedImage getTileAt(int x, int y)
+    {
+        return getTile(x / tileW, y / tileH);
+    }
+
+    /**
+     * Remove all tiles from the cache (overviews included).
+     */
+    public synchronized void clearCache()
+    {
+        tiles.clear();
+        cacheSize = 0L;
+
+        if (overview != null)
+            overview.clearCache();
+    }
+
+    /**
+     * Release the image resources (tiles cache and reader if the image was created with
+     * <code>closeReader</code> set).
+     */
+    public void close() throws IOException
+    {
+        clearCache();
+
+        if (loader instanceof Closeable)
+            ((Closeable) loader).close();
+    }
+
+    /**
+     * Returns the value of the specified pixel.
+     */
+    public double getData(int x, int y, int c)
+    {
+        final IcyBufferedImage tile = getTileAt(x, y);
+
+        if (tile == null)
+            return 0d;
+
+        return tile.getData(x % tileW, y % tileH, c);
+    }
+
+    /**
+     * Returns data of the specified region and channel as a 1D array (same type as image data
+     * type).<br>
+     * Region size (width * height) should fit in a Java array.
+     */
+    public Object getDataXY(Rectangle region, int c)
+    {
+        try
+        {
+            return getDataXY(region, c, false);
+        }
+        catch (Exception e)
+        {
+            // can't happen as tile errors are ignored
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns data of the specified region and channel, if <code>strict</code> is set tile loading
+     * errors are thrown else the tiles which cannot be loaded are left 0 filled.
+     */
+    Object getDataXY(Rectangle region, int c, boolean strict) throws Exception
+    {
+        final Rectangle rect = region.intersection(getBounds());
+        final long len = (long) rect.width * (long) rect.height;
+
+        if (len > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("TiledImage.getDataXY(..) error: region too large ("
+                    + rect.width + " x " + rect.height + ")");
+
+        final Object result = Array1DUtil.createArray(dataType, (int) Math.max(0L, len));
+
+        if (len <= 0)
+            return result;
+
+        for (Point tileIndex : getTiles(rect))
+        {
+            final IcyBufferedImage tile = strict ? readTile(tileIndex.x, tileIndex.y) : getTile(tileIndex.x,
+                    tileIndex.y);
+
+            if (tile == null)
+                continue;
+
+            final Rectangle tileBounds = getTileBounds(tileIndex.x, tileIndex.y);
+            final Rectangle inter = tileBounds.intersection(rect);
+            final Object src = tile.getDataXY(c);
+
+            // copy tile rows
+            for (int y = inter.y; y < inter.y + inter.height; y++)
+                System.arraycopy(src, ((y - tileBounds.y) * tileBounds.width) + (inter.x - tileBounds.x), result,
+                        ((y - rect.y) * rect.width) + (inter.x - rect.x), inter.width);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the specified region as an {@link IcyBufferedImage}.<br>
+     * Region size (width * height) should fit in a Java array.
+     */
+    public IcyBufferedImage getImage(Rectangle region)
+    {
+        final Rectangle rect = region.intersection(getBounds());
+
+        if (rect.isEmpty())
+            return null;
+
+        final IcyBufferedImage result = new IcyBufferedImage(rect.width, rect.height, sizeC, dataType);
+
+        result.beginUpdate();
+        try
+        {
+            for (int c = 0; c < sizeC; c++)
+                result.setDataXY(c, getDataXY(rect, c));
+        }
+        finally
+        {
+            result.endUpdate();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the specified region scaled to the given size (nearest neighbor sampling).<br>
+     * This is the method to use for rendering: when the region is reduced by a factor 2 or more
+     * the lowest resolution overview still having enough pixels is used (see
+     * {@link #getOverview()}), then only the tiles containing sampled pixels are read, row of tiles
+     * by row of tiles.
+     */
+    public IcyBufferedImage getScaledImage(Rectangle region, int width, int height)
+    {
+        final Rectangle rect = region.intersection(getBounds());
+
+        if (rect.isEmpty() || (width <= 0) || (height <= 0))
+            return null;
+
+        final TiledImage ov = getOverview();
+
+        if (ov != null)
+        {
+            final double ratioX = (double) sizeX / (double) ov.getSizeX();
+            final double ratioY = (double) sizeY / (double) ov.getSizeY();
+
+            // overview has enough resolution for this view
+            if (((rect.width / ratioX) >= width) && ((rect.height / ratioY) >= height))
+            {
+                final int x = (int) (rect.x / ratioX);
+                final int y = (int) (rect.y / ratioY);
+                final int w = Math.max(1, (int) Math.ceil((rect.x + rect.width) / ratioX) - x);
+                final int h = Math.max(1, (int) Math.ceil((rect.y + rect.height) / ratioY) - y);
+
+                return ov.getScaledImage(new Rectangle(x, y, w, h), width, height);
+            }
+        }
+
+        final IcyBufferedImage result = new IcyBufferedImage(width, height, sizeC, dataType);
+        final Object[] dest = new Object[sizeC];
+        final int[] srcX = new int[width];
+
+        for (int c = 0; c < sizeC; c++)
+            dest[c] = result.getDataXY(c);
+        for (int dx = 0; dx < width; dx++)
+            srcX[dx] = rect.x + (int) (((long) dx * rect.width) / width);
+
+        // tiles data of current row of tiles
+        Object[][] rowData = null;
+        int[] rowWidth = null;
+        int rowTileY = -1;
+        int offset = 0;
+
+        for (int dy = 0; dy < height; dy++)
+        {
+            final int sy = rect.y + (int) (((long) dy * rect.height) / height);
+            final int ty = sy / tileH;
+            final int tileOffY = (sy % tileH);
+
+            if (ty != rowTileY)
+            {
+                rowData = new Object[numTileX][];
+                rowWidth = new int[numTileX];
+                rowTileY = ty;
+            }
+
+            for (int dx = 0; dx < width; dx++, offset++)
+            {
+                final int sx = srcX[dx];
+                final int tx = sx / tileW;
+                Object[] tileData = rowData[tx];
+
+                if (tileData == null)
+                {
+                    final IcyBufferedImage tile = getTile(tx, ty);
+
+                    if (tile == null)
+                        continue;
+
+                    tileData = new Object[sizeC];
+                    for (int c = 0; c < sizeC; c++)
+                        tileData[c] = tile.getDataXY(c);
+
+                    rowData[tx] = tileData;
+                    rowWidth[tx] = tile.getWidth();
+                }
+
+                final int tileOffset = (sx % tileW) + (tileOffY * rowWidth[tx]);
+
+                for (int c = 0; c < sizeC; c++)
+                    Array1DUtil.setValue(dest[c], offset, dataType,
+                            Array1DUtil.getValue(tileData[c], tileOffset, dataType));
+            }
+        }
+
+        result.dataChanged();
+
+        return result;
+    }
+
+    private static Long getTileKey(int tileX, int tileY)
+    {
+        return Long.valueOf((((long) tileY) << 32) | (tileX & 0xFFFFFFFFL));
+    }
+
+    private long getTileByteSize(IcyBufferedImage tile)
+    {
+        return (long) tile.getWidth() * (long) tile.getHeight() * sizeC * dataType.getSize();
+    }
+
+    /**
+     * Evict least recently used tiles until cache size fit the maximum size (at least one tile is
+     * kept).
+     */
+    private void evict()
+    {
+        final Iterator<Map.Entry<Long, IcyBufferedImage>> it = tiles.entrySet().iterator();
+
+        while ((cacheSize > maxCacheSize) && (tiles.size() > 1) && it.hasNext())
+        {
+            final Map.Entry<Long, IcyBufferedImage> eldest = it.next();
+
+            cacheSize -= getTileByteSize(eldest.getValue());
+            it.remove();
+        }
+    }
+}
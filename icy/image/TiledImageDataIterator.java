@@ -0,0 +1,297 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.image;
+
+import icy.roi.ROI2D;
+import icy.type.DataIterator;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link TiledImage} data iterator.<br>
+ * Data is read tile by tile (in C, Y, X order inside a tile) so only one tile needs to be in
+ * memory at once, whatever is the size of the iterated region.<br>
+ * When a {@link ROI2D} is specified its mask is computed per tile.<br>
+ * A tile loading error stops the iteration with a {@link TileLoadingException}.<br>
+ * Note that values set with {@link #set(double)} are only kept while the tile stays in the
+ * tiled image cache.
+ *
+ * @author Stephane
+ */
+public class TiledImageDataIterator implements DataIterator
+{
+    /**
+     * Thrown when a tile cannot be loaded during iteration (cause is the loading error).
+     */
+    public static class TileLoadingException extends RuntimeException
+    {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 4313562127402478871L;
+
+        public TileLoadingException(Throwable cause)
+        {
+            super(cause);
+        }
+    }
+
+    protected final TiledImage image;
+    protected final DataType dataType;
+    protected final ROI2D roi;
+    protected final List<Point> tiles;
+    protected final Rectangle region;
+    protected final int startC, endC;
+
+    /**
+     * internals
+     */
+    protected int tileIndex;
+    protected Rectangle tileBounds;
+    protected Rectangle bounds;
+    protected boolean[] mask;
+    protected IcyBufferedImage tile;
+    protected Object data;
+    protected int x, y, c;
+    protected boolean done;
+
+    /**
+     * Create a new TiledImage iterator to iterate data of the specified region and channels
+     * (inclusive).
+     *
+     * @param image
+     *        Image we want to iterate data from
+     * @param region
+     *        XY region to iterate
+     * @param startC
+     *        start C position
+     * @param endC
+     *        end C position
+     */
+    public TiledImageDataIterator(TiledImage image, Rectangle region, int startC, int endC)
+    {
+        this(image, region, null, startC, endC);
+    }
+
+    /**
+     * Create a new TiledImage iterator to iterate data of the specified region and channel.
+     */
+    public TiledImageDataIterator(TiledImage image, Rectangle region, int c)
+    {
+        this(image, region, null, c, c);
+    }
+
+    /**
+     * Create a new TiledImage iterator to iterate all data of the specified channel.
+     */
+    public TiledImageDataIterator(TiledImage image, int c)
+    {
+        this(image, image.getBounds(), null, c, c);
+    }
+
+    /**
+     * Create a new TiledImage iterator to iterate data contained in the specified ROI.<br>
+     * If the ROI is attached to a specific channel only this channel is iterated.
+     */
+    public TiledImageDataIterator(TiledImage image, ROI2D roi)
+    {
+        this(image, roi.getBounds(), roi, (roi.getC() == -1) ? 0 : roi.getC(), (roi.getC() == -1) ? image
+                .getSizeC() - 1 : roi.getC());
+    }
+
+    protected TiledImageDataIterator(TiledImage image, Rectangle region, ROI2D roi, int startC, int endC)
+    {
+        super();
+
+        this.image = image;
+        this.roi = roi;
+        this.region = region.intersection(image.getBounds());
+        this.startC = Math.max(startC, 0);
+        this.endC = Math.min(endC, image.getSizeC() - 1);
+
+        dataType = image.getDataType_();
+        tiles = image.getTiles(this.region);
+
+        // start iterator
+        reset();
+    }
+
+    @Override
+    public void reset()
+    {
+        tileIndex = -1;
+        done = (this.startC > this.endC);
+
+        if (!done)
+        {
+            nextTile();
+            if (!done && !contains())
+                next();
+        }
+    }
+
+    /**
+     * Pass to the next (non empty) tile.
+     */
+    protected void nextTile()
+    {
+        while (++tileIndex < tiles.size())
+        {
+            final Point index = tiles.get(tileIndex);
+
+            tileBounds = image.getTileBounds(index.x, index.y);
+            bounds = tileBounds.intersection(region);
+
+            if (bounds.isEmpty())
+                continue;
+
+            if (roi != null)
+            {
+                mask = roi.getBooleanMask(bounds.x, bounds.y, bounds.width, bounds.height, false);
+
+                // nothing to iterate in this tile
+                if (isEmpty(mask))
+                    continue;
+            }
+
+            try
+            {
+                tile = image.readTile(index.x, index.y);
+            }
+            catch (Exception e)
+            {
+                // ignoring the tile would give wrong results
+                throw new TileLoadingException(e);
+            }
+
+            c = startC;
+            y = bounds.y;
+            x = bounds.x;
+            data = tile.getDataXY(c);
+
+            return;
+        }
+
+        done = true;
+    }
+
+    private static boolean isEmpty(boolean[] mask)
+    {
+        for (boolean b : mask)
+            if (b)
+                return false;
+
+        return true;
+    }
+
+    private boolean contains()
+    {
+        if (mask == null)
+            return true;
+
+        return mask[(x - bounds.x) + ((y - bounds.y) * bounds.width)];
+    }
+
+    @Override
+    public void next()
+    {
+        internalNext();
+        while (!done && !contains())
+            internalNext();
+    }
+
+    /**
+     * Advance one position.
+     */
+    protected void internalNext()
+    {
+        if (++x >= bounds.x + bounds.width)
+        {
+            x = bounds.x;
+
+            if (++y >= bounds.y + bounds.height)
+            {
+                y = bounds.y;
+
+                if (++c > endC)
+                    nextTile();
+                else
+                    data = tile.getDataXY(c);
+            }
+        }
+    }
+
+    @Override
+    public boolean done()
+    {
+        return done;
+    }
+
+    /**
+     * Returns current X position.
+     */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+     * Returns current Y position.
+     */
+    public int getY()
+    {
+        return y;
+    }
+
+    /**
+     * Returns current C position.
+     */
+    public int getC()
+    {
+        return c;
+    }
+
+    private int getOffset()
+    {
+        return (x - tileBounds.x) + ((y - tileBounds.y) * tileBounds.width);
+    }
+
+    @Override
+    public double get()
+    {
+        if (done)
+            throw new NoSuchElementException();
+
+        return Array1DUtil.getValue(data, getOffset(), dataType);
+    }
+
+    @Override
+    public void set(double value)
+    {
+        if (done)
+            throw new NoSuchElementException();
+
+        Array1DUtil.setValue(data, getOffset(), dataType, value);
+    }
+}
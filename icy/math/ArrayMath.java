@@ -18,17 +18,40 @@
  */
 package icy.math;
 
+import icy.math.ArrayMathExecutor.RangeTask;
 import icy.type.TypeUtil;
 import icy.type.collection.array.Array1DUtil;
 import icy.type.collection.array.ArrayUtil;
 
+import java.util.List;
+
 /**
- * Class defining basic arithmetic and statistic operations on 1D double arrays.
+ * Class defining basic arithmetic and statistic operations on 1D double arrays.<br>
+ * Element-wise operations, min / max and statistics on double and float arrays are processed in
+ * parallel chunks when the array is large enough (see {@link ArrayMathExecutor}).
  * 
  * @author Alexandre Dufour & Stephane
  */
 public class ArrayMath
 {
+    /**
+     * Block size under which pairwise summation switches to a plain loop
+     */
+    private static final int PAIRWISE_BLOCK_SIZE = 256;
+
+    /**
+     * Element-wise operations
+     */
+    private static final int OP_ADD = 0;
+    private static final int OP_SUBTRACT = 1;
+    private static final int OP_MULTIPLY = 2;
+    private static final int OP_DIVIDE = 3;
+    private static final int OP_ADD_VALUE = 4;
+    private static final int OP_SUBTRACT_VALUE = 5;
+    private static final int OP_MULTIPLY_VALUE = 6;
+    private static final int OP_DIVIDE_VALUE = 7;
+    private static final int OP_ABS = 8;
+
     /**
      * Element-wise addition of two arrays
      * 
@@ -72,12 +95,7 @@ public class ArrayMath
      */
     public static double[] add(double[] a1, double[] a2, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] + a2[i];
-
-        return result;
+        return apply(OP_ADD, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -96,12 +114,7 @@ public class ArrayMath
      */
     public static float[] add(float[] a1, float[] a2, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] + a2[i];
-
-        return result;
+        return apply(OP_ADD, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -251,12 +264,7 @@ public class ArrayMath
      */
     public static double[] add(double[] array, double value, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] + value;
-
-        return result;
+        return apply(OP_ADD_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -284,12 +292,7 @@ public class ArrayMath
      */
     public static float[] add(float[] array, float value, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] + value;
-
-        return result;
+        return apply(OP_ADD_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -439,12 +442,7 @@ public class ArrayMath
      */
     public static double[] subtract(double[] a1, double[] a2, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] - a2[i];
-
-        return result;
+        return apply(OP_SUBTRACT, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -463,12 +461,7 @@ public class ArrayMath
      */
     public static float[] subtract(float[] a1, float[] a2, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] - a2[i];
-
-        return result;
+        return apply(OP_SUBTRACT, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -618,12 +611,7 @@ public class ArrayMath
      */
     public static double[] subtract(double[] array, double value, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] - value;
-
-        return result;
+        return apply(OP_SUBTRACT_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -642,12 +630,7 @@ public class ArrayMath
      */
     public static float[] subtract(float[] array, float value, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] - value;
-
-        return result;
+        return apply(OP_SUBTRACT_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -976,12 +959,7 @@ public class ArrayMath
      */
     public static double[] multiply(double[] a1, double[] a2, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] * a2[i];
-
-        return result;
+        return apply(OP_MULTIPLY, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -1000,12 +978,7 @@ public class ArrayMath
      */
     public static float[] multiply(float[] a1, float[] a2, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] * a2[i];
-
-        return result;
+        return apply(OP_MULTIPLY, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -1155,12 +1128,7 @@ public class ArrayMath
      */
     public static double[] multiply(double[] array, double value, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] * value;
-
-        return result;
+        return apply(OP_MULTIPLY_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -1188,12 +1156,7 @@ public class ArrayMath
      */
     public static float[] multiply(float[] array, float value, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] * value;
-
-        return result;
+        return apply(OP_MULTIPLY_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -1343,12 +1306,7 @@ public class ArrayMath
      */
     public static double[] divide(double[] a1, double[] a2, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] / a2[i];
-
-        return result;
+        return apply(OP_DIVIDE, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -1367,12 +1325,7 @@ public class ArrayMath
      */
     public static float[] divide(float[] a1, float[] a2, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, a1.length);
-
-        for (int i = 0; i < a1.length; i++)
-            result[i] = a1[i] / a2[i];
-
-        return result;
+        return apply(OP_DIVIDE, a1, a2, 0, Array1DUtil.allocIfNull(out, a1.length));
     }
 
     /**
@@ -1522,12 +1475,7 @@ public class ArrayMath
      */
     public static double[] divide(double[] array, double value, double[] out)
     {
-        final double[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] / value;
-
-        return result;
+        return apply(OP_DIVIDE_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -1546,12 +1494,7 @@ public class ArrayMath
      */
     public static float[] divide(float[] array, float value, float[] out)
     {
-        final float[] result = Array1DUtil.allocIfNull(out, array.length);
-
-        for (int i = 0; i < array.length; i++)
-            result[i] = array[i] / value;
-
-        return result;
+        return apply(OP_DIVIDE_VALUE, array, null, value, Array1DUtil.allocIfNull(out, array.length));
     }
 
     /**
@@ -1873,12 +1816,7 @@ public class ArrayMath
      */
     public static double[] abs(double[] input, boolean overwrite)
     {
-        final double[] result = overwrite ? input : new double[input.length];
-
-        for (int i = 0; i < input.length; i++)
-            result[i] = Math.abs(input[i]);
-
-        return result;
+        return apply(OP_ABS, input, null, 0, overwrite ? input : new double[input.length]);
     }
 
     /**
@@ -1889,12 +1827,7 @@ public class ArrayMath
      */
     public static float[] abs(float[] input, boolean overwrite)
     {
-        final float[] result = overwrite ? input : new float[input.length];
-
-        for (int i = 0; i < input.length; i++)
-            result[i] = Math.abs(input[i]);
-
-        return result;
+        return apply(OP_ABS, input, null, 0, overwrite ? input : new float[input.length]);
     }
 
     /**
@@ -2136,13 +2069,43 @@ public class ArrayMath
      *        an array
      * @return the min value of the array
      */
-    public static float min(float[] array)
+    public static float min(final float[] array)
+    {
+        if (ArrayMathExecutor.isParallel(array.length))
+        {
+            float result = Float.MAX_VALUE;
+
+            for (Float v : ArrayMathExecutor.execute(array.length, new RangeTask<Float>()
+            {
+                @Override
+                public Float compute(int from, int to)
+                {
+                    return Float.valueOf(min(array, from, to));
+                }
+            }))
+                if (v.floatValue() < result)
+                    result = v.floatValue();
+
+            return result;
+        }
+
+        return min(array, 0, array.length);
+    }
+
+    /**
+     * Find the minimum value of the [from, to[ range of an array
+     * 
+     * @param array
+     *        an array
+     * @return the min value of the range
+     */
+    public static float min(float[] array, int from, int to)
     {
         float min = Float.MAX_VALUE;
 
-        for (float v : array)
-            if (v < min)
-                min = v;
+        for (int i = from; i < to; i++)
+            if (array[i] < min)
+                min = array[i];
 
         return min;
     }
@@ -2154,13 +2117,43 @@ public class ArrayMath
      *        an array
      * @return the min value of the array
      */
-    public static double min(double[] array)
+    public static double min(final double[] array)
+    {
+        if (ArrayMathExecutor.isParallel(array.length))
+        {
+            double result = Double.MAX_VALUE;
+
+            for (Double v : ArrayMathExecutor.execute(array.length, new RangeTask<Double>()
+            {
+                @Override
+                public Double compute(int from, int to)
+                {
+                    return Double.valueOf(min(array, from, to));
+                }
+            }))
+                if (v.doubleValue() < result)
+                    result = v.doubleValue();
+
+            return result;
+        }
+
+        return min(array, 0, array.length);
+    }
+
+    /**
+     * Find the minimum value of the [from, to[ range of an array
+     * 
+     * @param array
+     *        an array
+     * @return the min value of the range
+     */
+    public static double min(double[] array, int from, int to)
     {
         double min = Double.MAX_VALUE;
 
-        for (double v : array)
-            if (v < min)
-                min = v;
+        for (int i = from; i < to; i++)
+            if (array[i] < min)
+                min = array[i];
 
         return min;
     }
@@ -2340,13 +2333,43 @@ public class ArrayMath
      *        an array
      * @return the max value of the array
      */
-    public static float max(float[] array)
+    public static float max(final float[] array)
+    {
+        if (ArrayMathExecutor.isParallel(array.length))
+        {
+            float result = -Float.MAX_VALUE;
+
+            for (Float v : ArrayMathExecutor.execute(array.length, new RangeTask<Float>()
+            {
+                @Override
+                public Float compute(int from, int to)
+                {
+                    return Float.valueOf(max(array, from, to));
+                }
+            }))
+                if (v.floatValue() > result)
+                    result = v.floatValue();
+
+            return result;
+        }
+
+        return max(array, 0, array.length);
+    }
+
+    /**
+     * Find the maximum value of the [from, to[ range of an array
+     * 
+     * @param array
+     *        an array
+     * @return the max value of the range
+     */
+    public static float max(float[] array, int from, int to)
     {
         float max = -Float.MAX_VALUE;
 
-        for (float v : array)
-            if (v > max)
-                max = v;
+        for (int i = from; i < to; i++)
+            if (array[i] > max)
+                max = array[i];
 
         return max;
     }
@@ -2358,13 +2381,43 @@ public class ArrayMath
      *        an array
      * @return the max value of the array
      */
-    public static double max(double[] array)
+    public static double max(final double[] array)
+    {
+        if (ArrayMathExecutor.isParallel(array.length))
+        {
+            double result = -Double.MAX_VALUE;
+
+            for (Double v : ArrayMathExecutor.execute(array.length, new RangeTask<Double>()
+            {
+                @Override
+                public Double compute(int from, int to)
+                {
+                    return Double.valueOf(max(array, from, to));
+                }
+            }))
+                if (v.doubleValue() > result)
+                    result = v.doubleValue();
+
+            return result;
+        }
+
+        return max(array, 0, array.length);
+    }
+
+    /**
+     * Find the maximum value of the [from, to[ range of an array
+     * 
+     * @param array
+     *        an array
+     * @return the max value of the range
+     */
+    public static double max(double[] array, int from, int to)
     {
         double max = -Double.MAX_VALUE;
 
-        for (double v : array)
-            if (v > max)
-                max = v;
+        for (int i = from; i < to; i++)
+            if (array[i] > max)
+                max = array[i];
 
         return max;
     }
@@ -2462,16 +2515,16 @@ public class ArrayMath
      */
     public static double mad(double[] input, boolean normalPopulation)
     {
-        double[] temp = new double[input.length];
-        double median = median(input, true);
+        // single work buffer used for both median computations
+        final double[] temp = new double[input.length];
 
-        if (normalPopulation)
-            for (int i = 0; i < input.length; i++)
-                temp[i] = 1.4826f * (input[i] - median);
-        else
-            for (int i = 0; i < input.length; i++)
-                temp[i] = (input[i] - median);
+        System.arraycopy(input, 0, temp, 0, input.length);
+        final double median = median(temp, false);
 
+        // temp has been reordered so restart from input
+        subtract(input, median, temp);
+        if (normalPopulation)
+            multiply(temp, 1.4826f, temp);
         abs(temp, true);
 
         return median(temp, false);
@@ -2569,12 +2622,61 @@ public class ArrayMath
      * @param input
      *        the array to sum up
      */
-    public static double sum(double[] input)
+    public static double sum(final double[] input)
     {
-        double sum = 0;
-        for (double d : input)
-            sum += d;
-        return sum;
+        if (ArrayMathExecutor.isParallel(input.length))
+        {
+            double result = 0;
+
+            for (Double v : ArrayMathExecutor.execute(input.length, new RangeTask<Double>()
+            {
+                @Override
+                public Double compute(int from, int to)
+                {
+                    return Double.valueOf(sum(input, from, to));
+                }
+            }))
+                result += v.doubleValue();
+
+            return result;
+        }
+
+        return sum(input, 0, input.length);
+    }
+
+    /**
+     * Computes the sum of the values in the [from, to[ range of the input array.<br>
+     * Uses pairwise summation so rounding error grows as O(log(n)) instead of O(n).
+     * 
+     * @param input
+     *        the array to sum up
+     */
+    public static double sum(double[] input, int from, int to)
+    {
+        final int len = to - from;
+
+        if (len > PAIRWISE_BLOCK_SIZE)
+        {
+            final int mid = from + (len >> 1);
+            return sum(input, from, mid) + sum(input, mid, to);
+        }
+
+        // independent accumulators let the JIT pipeline the loop
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        final int end = from + (len & ~3);
+        int i = from;
+
+        for (; i < end; i += 4)
+        {
+            s0 += input[i];
+            s1 += input[i + 1];
+            s2 += input[i + 2];
+            s3 += input[i + 3];
+        }
+        for (; i < to; i++)
+            s0 += input[i];
+
+        return (s0 + s1) + (s2 + s3);
     }
 
     /**
@@ -2594,12 +2696,77 @@ public class ArrayMath
      * @param unbiased
      *        set to true if the result should be normalized by the population size minus 1
      */
-    public static double var(double[] input, boolean unbiased)
+    public static double var(final double[] input, boolean unbiased)
+    {
+        final double m2;
+
+        if (ArrayMathExecutor.isParallel(input.length))
+        {
+            // each chunk gives {count, mean, sum of squared deviation}
+            final List<double[]> moments = ArrayMathExecutor.execute(input.length, new RangeTask<double[]>()
+            {
+                @Override
+                public double[] compute(int from, int to)
+                {
+                    final double n = to - from;
+                    final double mean = sum(input, from, to) / n;
+
+                    return new double[] {n, mean, sumSquaredDeviation(input, mean, from, to)};
+                }
+            });
+
+            // merge them (Chan et al. parallel variance)
+            final double[] total = moments.get(0);
+            for (int i = 1; i < moments.size(); i++)
+            {
+                final double[] chunk = moments.get(i);
+                final double n = total[0] + chunk[0];
+                final double delta = chunk[1] - total[1];
+
+                total[1] += (delta * chunk[0]) / n;
+                total[2] += chunk[2] + ((delta * delta * total[0] * chunk[0]) / n);
+                total[0] = n;
+            }
+
+            m2 = total[2];
+        }
+        else
+            m2 = sumSquaredDeviation(input, mean(input), 0, input.length);
+
+        return m2 / (unbiased ? input.length - 1 : input.length);
+    }
+
+    /**
+     * Pairwise sum of (input[i] - mean)^2 over the [from, to[ range.
+     */
+    private static double sumSquaredDeviation(double[] input, double mean, int from, int to)
     {
-        double var = 0, mean = mean(input);
-        for (double f : input)
-            var += (f - mean) * (f - mean);
-        return var / (unbiased ? input.length - 1 : input.length);
+        final int len = to - from;
+
+        if (len > PAIRWISE_BLOCK_SIZE)
+        {
+            final int mid = from + (len >> 1);
+            return sumSquaredDeviation(input, mean, from, mid) + sumSquaredDeviation(input, mean, mid, to);
+        }
+
+        double s0 = 0, s1 = 0;
+        final int end = from + (len & ~1);
+        int i = from;
+
+        for (; i < end; i += 2)
+        {
+            final double d0 = input[i] - mean;
+            final double d1 = input[i + 1] - mean;
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+        }
+        if (i < to)
+        {
+            final double d = input[i] - mean;
+            s0 += d * d;
+        }
+
+        return s0 + s1;
     }
 
     /**
@@ -2689,19 +2856,9 @@ public class ArrayMath
         if (a.length != b.length)
             throw new IllegalArgumentException("Populations must have same size");
 
-        double sum = 0, sqsum_a = 0, sqsum_b = 0;
+        final double[] sums = crossSums(a, b, 0, 0);
 
-        double ai, bi;
-        for (int i = 0; i < a.length; i++)
-        {
-            ai = a[i];
-            bi = b[i];
-            sum += ai * bi;
-            sqsum_a += ai * ai;
-            sqsum_b += bi * bi;
-        }
-
-        return sum / Math.sqrt(sqsum_a * sqsum_b);
+        return sums[0] / Math.sqrt(sums[1] * sums[2]);
     }
 
     /**
@@ -2727,10 +2884,190 @@ public class ArrayMath
         if (a.length != b.length)
             throw new IllegalArgumentException("Populations must have same size");
 
-        double sum = 0;
-        for (int i = 0; i < a.length; i++)
-            sum += a[i] * b[i];
+        // centered form: same result as the formula above without the cancellation issue
+        final double[] sums = crossSums(a, b, mean(a), mean(b));
+
+        return sums[0] / Math.sqrt(sums[1] * sums[2]);
+    }
+
+    /**
+     * Returns {sum((a-ma)*(b-mb)), sum((a-ma)^2), sum((b-mb)^2)} (computed in parallel for large
+     * arrays).
+     */
+    private static double[] crossSums(final double[] a, final double[] b, final double ma, final double mb)
+    {
+        final double[] result = new double[3];
+
+        for (double[] chunk : ArrayMathExecutor.execute(a.length, new RangeTask<double[]>()
+        {
+            @Override
+            public double[] compute(int from, int to)
+            {
+                double ab = 0, aa = 0, bb = 0;
+
+                for (int i = from; i < to; i++)
+                {
+                    final double da = a[i] - ma;
+                    final double db = b[i] - mb;
+
+                    ab += da * db;
+                    aa += da * da;
+                    bb += db * db;
+                }
+
+                return new double[] {ab, aa, bb};
+            }
+        }))
+        {
+            result[0] += chunk[0];
+            result[1] += chunk[1];
+            result[2] += chunk[2];
+        }
+
+        return result;
+    }
 
-        return (sum - a.length * mean(a) * mean(b)) / ((a.length - 1) * std(a, true) * std(b, true));
+    /**
+     * Applies the specified element-wise operation on the whole double array (in parallel if large
+     * enough) and returns <code>out</code>.
+     */
+    private static double[] apply(final int op, final double[] a1, final double[] a2, final double value, final double[] out)
+    {
+        if (ArrayMathExecutor.isParallel(a1.length))
+        {
+            ArrayMathExecutor.execute(a1.length, new RangeTask<Object>()
+            {
+                @Override
+                public Object compute(int from, int to)
+                {
+                    apply(op, a1, a2, value, out, from, to);
+                    return null;
+                }
+            });
+        }
+        else
+            apply(op, a1, a2, value, out, 0, a1.length);
+
+        return out;
+    }
+
+    /**
+     * Applies the specified element-wise operation on the [from, to[ range.<br>
+     * The operation is dispatched outside the loops so each loop stays simple enough to be
+     * vectorized by the JIT.
+     */
+    private static void apply(int op, double[] a1, double[] a2, double value, double[] out, int from, int to)
+    {
+        switch (op)
+        {
+            case OP_ADD:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] + a2[i];
+                break;
+            case OP_SUBTRACT:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] - a2[i];
+                break;
+            case OP_MULTIPLY:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] * a2[i];
+                break;
+            case OP_DIVIDE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] / a2[i];
+                break;
+            case OP_ADD_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] + value;
+                break;
+            case OP_SUBTRACT_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] - value;
+                break;
+            case OP_MULTIPLY_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] * value;
+                break;
+            case OP_DIVIDE_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] / value;
+                break;
+            case OP_ABS:
+                for (int i = from; i < to; i++)
+                    out[i] = Math.abs(a1[i]);
+                break;
+        }
+    }
+
+    /**
+     * Applies the specified element-wise operation on the whole float array (in parallel if large
+     * enough) and returns <code>out</code>.
+     */
+    private static float[] apply(final int op, final float[] a1, final float[] a2, final float value, final float[] out)
+    {
+        if (ArrayMathExecutor.isParallel(a1.length))
+        {
+            ArrayMathExecutor.execute(a1.length, new RangeTask<Object>()
+            {
+                @Override
+                public Object compute(int from, int to)
+                {
+                    apply(op, a1, a2, value, out, from, to);
+                    return null;
+                }
+            });
+        }
+        else
+            apply(op, a1, a2, value, out, 0, a1.length);
+
+        return out;
+    }
+
+    /**
+     * Applies the specified element-wise operation on the [from, to[ range.<br>
+     * The operation is dispatched outside the loops so each loop stays simple enough to be
+     * vectorized by the JIT.
+     */
+    private static void apply(int op, float[] a1, float[] a2, float value, float[] out, int from, int to)
+    {
+        switch (op)
+        {
+            case OP_ADD:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] + a2[i];
+                break;
+            case OP_SUBTRACT:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] - a2[i];
+                break;
+            case OP_MULTIPLY:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] * a2[i];
+                break;
+            case OP_DIVIDE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] / a2[i];
+                break;
+            case OP_ADD_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] + value;
+                break;
+            case OP_SUBTRACT_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] - value;
+                break;
+            case OP_MULTIPLY_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] * value;
+                break;
+            case OP_DIVIDE_VALUE:
+                for (int i = from; i < to; i++)
+                    out[i] = a1[i] / value;
+                break;
+            case OP_ABS:
+                for (int i = from; i < to; i++)
+                    out[i] = Math.abs(a1[i]);
+                break;
+        }
     }
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.math;
+
+import icy.system.SystemUtil;
+import icy.system.thread.Processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Splits large array operations in contiguous chunks processed concurrently.<br>
+ * Used by {@link ArrayMath} which automatically switches to the parallel code path when the array
+ * length is above {@link #getParallelThreshold()}.<br>
+ * The calling thread always processes the first chunk itself and calls issued from a worker
+ * thread are executed serially so nested calls can't dead lock the shared pool.<br>
+ * The pool is shared with coarser grained parallel operations ({@link #submit(Callable)}, used by
+ * {@link icy.sequence.PlaneExecutor} for instance) so nested parallel operations never use more
+ * than one thread per CPU.
+ * 
+ * @author Stephane
+ */
+public class ArrayMathExecutor
+{
+    /**
+     * Work on the [from, to[ range of an array.
+     */
+    public static abstract class RangeTask<T>
+    {
+        public abstract T compute(int from, int to);
+    }
+
+    /**
+     * Minimum number of elements per chunk (smaller chunks don't pay the dispatching cost)
+     */
+    public static final int MIN_CHUNK_SIZE = 1 << 15;
+
+    /**
+     * Default array length from which parallel processing is used
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 18;
+
+    private static final int NB_CPU = SystemUtil.getAvailableProcessors();
+
+    private static final Processor processor;
+    private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>();
+
+    private static volatile boolean enabled = true;
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    static
+    {
+        processor = new Processor(Processor.DEFAULT_MAX_WAITING, NB_CPU, Processor.NORM_PRIORITY);
+        processor.setDefaultThreadName("ArrayMath");
+        // computation only --> bounded compute pool
+        processor.setBlockingTasks(false);
+    }
+
+    /**
+     * Returns true if parallel processing is enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable parallel processing.
+     */
+    public static void setEnabled(boolean value)
+    {
+        enabled = value;
+    }
+
+    /**
+     * Returns the array length from which parallel processing is used.
+     */
+    public static int getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the array length from which parallel processing is used.
+     */
+    public static void setParallelThreshold(int value)
+    {
+        parallelThreshold = Math.max(MIN_CHUNK_SIZE * 2, value);
+    }
+
+    /**
+     * Returns true if an array of specified length should be processed in parallel.
+     */
+    public static boolean isParallel(int length)
+    {
+        return enabled && (NB_CPU > 1) && (length >= parallelThreshold) && !isWorkerThread();
+    }
+
+    /**
+     * Returns true if the current thread is executing a task of the shared pool (parallel
+     * operations should then be executed serially).
+     */
+    public static boolean isWorkerThread()
+    {
+        return worker.get() != null;
+    }
+
+    /**
+     * Returns the number of chunks used to process an array of specified length.
+     */
+    public static int getChunkCount(int length)
+    {
+        if (!isParallel(length))
+            return 1;
+
+        return Math.max(1, Math.min(NB_CPU, length / MIN_CHUNK_SIZE));
+    }
+
+    /**
+     * Returns the number of chunks used to process <code>length</code> items where each item
+     * represents <code>itemSize</code> elements (a row of an image for instance).
+     */
+    public static int getChunkCount(int length, int itemSize)
+    {
+        final long size = (long) length * Math.max(1, itemSize);
+
+        if (!isParallel((int) Math.min(Integer.MAX_VALUE, size)))
+            return 1;
+
+        return (int) Math.max(1, Math.min(Math.min(NB_CPU, length), size / MIN_CHUNK_SIZE));
+    }
+
+    /**
+     * Execute the specified task on the [0, length[ range and returns the result of each chunk in
+     * range order.<br>
+     * The task is directly executed on the whole range if the length is below the parallel
+     * threshold.
+     */
+    public static <T> List<T> execute(int length, final RangeTask<T> task)
+    {
+        return executeChunks(length, getChunkCount(length), task);
+    }
+
+    /**
+     * Same as {@link #execute(int, RangeTask)} except the range is made of <code>length</code>
+     * items of <code>itemSize</code> elements each (rows of an image for instance) so the parallel
+     * threshold is evaluated on the total number of elements while chunks never split an item.
+     */
+    public static <T> List<T> execute(int length, int itemSize, final RangeTask<T> task)
+    {
+        return executeChunks(length, getChunkCount(length, itemSize), task);
+    }
+
+    private static <T> List<T> executeChunks(int length, int nbChunk, final RangeTask<T> task)
+    {
+        final List<T> result = new ArrayList<T>(nbChunk);
+
+        if (nbChunk == 1)
+        {
+            result.add(task.compute(0, length));
+            return result;
+        }
+
+        final List<Future<T>> futures = new ArrayList<Future<T>>(nbChunk - 1);
+        final int chunkSize = (length + nbChunk - 1) / nbChunk;
+
+        // dispatch all chunks except the first one
+        for (int from = chunkSize; from < length; from += chunkSize)
+        {
+            final int start = from;
+            final int end = Math.min(length, from + chunkSize);
+
+            futures.add(submit(new Callable<T>()
+            {
+                @Override
+                public T call() throws Exception
+                {
+                    return task.compute(start, end);
+                }
+            }));
+        }
+
+        // the calling thread processes the first chunk meanwhile
+        result.add(task.compute(0, chunkSize));
+
+        for (Future<T> future : futures)
+            result.add(getResult(future));
+
+        return result;
+    }
+
+    /**
+     * Submit the specified task to the shared pool (it is computed in the calling thread if the
+     * pool is saturated).<br>
+     * The task is executed as a worker task: parallel operations it calls are executed serially.
+     * Use {@link #getResult(Future)} to get the result.
+     */
+    public static <T> Future<T> submit(final Callable<T> task)
+    {
+        final FutureTask<T> future = new FutureTask<T>(new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                final Boolean previous = worker.get();
+
+                worker.set(Boolean.TRUE);
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    if (previous == null)
+                        worker.remove();
+                }
+            }
+        });
+
+        // pool saturated --> compute it here
+        if (!processor.addTask(future))
+            future.run();
+
+        return future;
+    }
+
+    /**
+     * Cancel a task submitted with {@link #submit(Callable)}, it is removed from the pool queue if
+     * not yet started.
+     */
+    public static void cancel(Future<?> future)
+    {
+        if (!future.isDone())
+        {
+            processor.removeTask((Runnable) future);
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the result of a task submitted with {@link #submit(Callable)}.<br>
+     * If the task is not yet started it is computed in the calling thread rather than waiting for
+     * a pool thread. Exceptions thrown by the task are rethrown (checked ones wrapped in a
+     * RuntimeException).
+     */
+    public static <T> T getResult(Future<T> future)
+    {
+        boolean interrupted = false;
+
+        // not yet started --> compute it here rather than waiting for a pool thread
+        if (!future.isDone() && processor.removeTask((Runnable) future))
+            ((Runnable) future).run();
+
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch (InterruptedException e)
+                {
+                    // we need the result anyway
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new RuntimeException(cause);
+        }
+        finally
+        {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,9 +4,15 @@
 package icy.math;
 
 import icy.type.DataIterator;
+import icy.type.DataSpan;
+import icy.type.DataSpanIterator;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
 
 /**
- * Math utilities for DataIterator subclasses.
+ * Math utilities for DataIterator subclasses.<br>
+ * When the iterator also implements {@link DataSpanIterator} data are processed by contiguous
+ * runs with typed loops.
  * 
  * @author Stephane
  */
@@ -19,6 +25,17 @@ public class DataIteratorMath
     {
         long result = 0;
 
+        if (it instanceof DataSpanIterator)
+        {
+            final DataSpanIterator sit = (DataSpanIterator) it;
+
+            sit.resetSpan();
+            for (DataSpan span = sit.nextSpan(); span != null; span = sit.nextSpan())
+                result += span.length;
+
+            return result;
+        }
+
         it.reset();
 
         while (!it.done())
@@ -38,6 +55,17 @@ public class DataIteratorMath
     {
         double result = 0;
 
+        if (it instanceof DataSpanIterator)
+        {
+            final DataSpanIterator sit = (DataSpanIterator) it;
+
+            sit.resetSpan();
+            for (DataSpan span = sit.nextSpan(); span != null; span = sit.nextSpan())
+                result += sum(span);
+
+            return result;
+        }
+
         it.reset();
 
         while (!it.done())
@@ -57,6 +85,17 @@ public class DataIteratorMath
     {
         double result = Double.MAX_VALUE;
 
+        if (it instanceof DataSpanIterator)
+        {
+            final DataSpanIterator sit = (DataSpanIterator) it;
+
+            sit.resetSpan();
+            for (DataSpan span = sit.nextSpan(); span != null; span = sit.nextSpan())
+                result = Math.min(result, min(span));
+
+            return result;
+        }
+
         it.reset();
 
         while (!it.done())
@@ -78,6 +117,17 @@ public class DataIteratorMath
     {
         double result = -Double.MAX_VALUE;
 
+        if (it instanceof DataSpanIterator)
+        {
+            final DataSpanIterator sit = (DataSpanIterator) it;
+
+            sit.resetSpan();
+            for (DataSpan span = sit.nextSpan(); span != null; span = sit.nextSpan())
+                result = Math.max(result, max(span));
+
+            return result;
+        }
+
         it.reset();
 
         while (!it.done())
@@ -100,6 +150,20 @@ public class DataIteratorMath
         double result = 0;
         long numSample = 0;
 
+        if (it instanceof DataSpanIterator)
+        {
+            final DataSpanIterator sit = (DataSpanIterator) it;
+
+            sit.resetSpan();
+            for (DataSpan span = sit.nextSpan(); span != null; span = sit.nextSpan())
+            {
+                result += sum(span);
+                numSample += span.length;
+            }
+
+            return result / numSample;
+        }
+
         it.reset();
 
         while (!it.done())
@@ -111,4 +175,191 @@ public class DataIteratorMath
 
         return result / numSample;
     }
+
+    /**
+     * Returns the sum of values contained in the specified {@link DataSpan}.
+     */
+    public static double sum(DataSpan span)
+    {
+        final int start = span.offset;
+        final int end = span.offset + span.length;
+        double result = 0;
+
+        switch (span.dataType)
+        {
+            case UBYTE:
+            {
+                final byte[] data = (byte[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i] & 0xFF;
+                break;
+            }
+            case BYTE:
+            {
+                final byte[] data = (byte[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i];
+                break;
+            }
+            case USHORT:
+            {
+                final short[] data = (short[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i] & 0xFFFF;
+                break;
+            }
+            case SHORT:
+            {
+                final short[] data = (short[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i];
+                break;
+            }
+            case UINT:
+            {
+                final int[] data = (int[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i] & 0xFFFFFFFFL;
+                break;
+            }
+            case INT:
+            {
+                final int[] data = (int[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i];
+                break;
+            }
+            case FLOAT:
+            {
+                final float[] data = (float[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i];
+                break;
+            }
+            case DOUBLE:
+            {
+                final double[] data = (double[]) span.data;
+                for (int i = start; i < end; i++)
+                    result += data[i];
+                break;
+            }
+            default:
+                for (int i = start; i < end; i++)
+                    result += Array1DUtil.getValue(span.data, i, span.dataType);
+                break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the minimum value contained in the specified {@link DataSpan}.
+     */
+    public static double min(DataSpan span)
+    {
+        return minMax(span, true);
+    }
+
+    /**
+     * Returns the maximum value contained in the specified {@link DataSpan}.
+     */
+    public static double max(DataSpan span)
+    {
+        return minMax(span, false);
+    }
+
+    private static double minMax(DataSpan span, boolean min)
+    {
+        final int start = span.offset;
+        final int end = span.offset + span.length;
+        final DataType dataType = span.dataType;
+
+        // integer types fit in long so we can use integer comparison
+        if (dataType.isInteger() && (dataType.getSize() <= 4))
+        {
+            long result = min ? Long.MAX_VALUE : Long.MIN_VALUE;
+
+            switch (dataType)
+            {
+                case UBYTE:
+                case BYTE:
+                {
+                    final byte[] data = (byte[]) span.data;
+                    final int mask = dataType.isSigned() ? -1 : 0xFF;
+                    for (int i = start; i < end; i++)
+                    {
+                        final long value = data[i] & mask;
+                        result = min ? Math.min(result, value) : Math.max(result, value);
+                    }
+                    break;
+                }
+                case USHORT:
+                case SHORT:
+                {
+                    final short[] data = (short[]) span.data;
+                    final int mask = dataType.isSigned() ? -1 : 0xFFFF;
+                    for (int i = start; i < end; i++)
+                    {
+                        final long value = data[i] & mask;
+                        result = min ? Math.min(result, value) : Math.max(result, value);
+                    }
+                    break;
+                }
+                default:
+                {
+                    final int[] data = (int[]) span.data;
+                    final long mask = dataType.isSigned() ? -1L : 0xFFFFFFFFL;
+                    for (int i = start; i < end; i++)
+                    {
+                        final long value = data[i] & mask;
+                        result = min ? Math.min(result, value) : Math.max(result, value);
+                    }
+                    break;
+                }
+            }
+
+            if (span.length == 0)
+                return min ? Double.MAX_VALUE : -Double.MAX_VALUE;
+
+            return result;
+        }
+
+        double result = min ? Double.MAX_VALUE : -Double.MAX_VALUE;
+
+        switch (dataType)
+        {
+            case FLOAT:
+            {
+                final float[] data = (float[]) span.data;
+                for (int i = start; i < end; i++)
+                {
+                    final double value = data[i];
+                    if (min ? (value < result) : (value > result))
+                        result = value;
+                }
+                break;
+            }
+            case DOUBLE:
+            {
+                final double[] data = (double[]) span.data;
+                for (int i = start; i < end; i++)
+                {
+                    final double value = data[i];
+                    if (min ? (value < result) : (value > result))
+                        result = value;
+                }
+                break;
+            }
+            default:
+                for (int i = start; i < end; i++)
+                {
+                    final double value = Array1DUtil.getValue(span.data, i, dataType);
+                    if (min ? (value < result) : (value > result))
+                        result = value;
+                }
+                break;
+        }
+
+        return result;
+    }
 }
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.network;
+
+import icy.file.DiskCache;
+import icy.file.FileUtil;
+import icy.system.IcyExceptionHandler;
+import icy.util.StringUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Persistent on-disk cache of HTTP resources (plugin descriptors, icons...).<br>
+ * Entries keep the <code>ETag</code> and <code>Last-Modified</code> validators returned by the
+ * server so a cached resource is revalidated with a conditional request and only downloaded
+ * again when it actually changed (server returns <code>304 Not Modified</code> otherwise).<br>
+ * When the server cannot be reached the cached version is returned.<br>
+ * The cache size is bounded and the least recently used entries are evicted first.
+ *
+ * @author Stephane
+ */
+public class HttpCache
+{
+    public static final String CACHE_PATH = "cache" + FileUtil.separator + "http";
+    public static final String CACHE_EXTENSION = ".http";
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024L * 1024L;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Cached resource.
+     */
+    public static class Entry
+    {
+        public final String url;
+        public final String eTag;
+        public final String lastModified;
+        public final byte[] data;
+
+        public Entry(String url, String eTag, String lastModified, byte[] data)
+        {
+            super();
+
+            this.url = url;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.data = data;
+        }
+    }
+
+    private static final DiskCache cache = new DiskCache(new File(CACHE_PATH), CACHE_EXTENSION, DEFAULT_MAX_SIZE);
+
+    /**
+     * Returns the directory containing cache entries.
+     */
+    public static File getCacheDirectory()
+    {
+        return cache.getDirectory();
+    }
+
+    /**
+     * Sets the directory containing cache entries (default is {@link #CACHE_PATH}).<br>
+     * The index is rebuilt from the new directory content on next access.
+     */
+    public static void setCacheDirectory(File value)
+    {
+        cache.setDirectory(value);
+    }
+
+    /**
+     * Returns the current size (in bytes) of the cache.
+     */
+    public static long getSize()
+    {
+        return cache.getSize();
+    }
+
+    /**
+     * Returns the maximum size (in bytes) of the cache.
+     */
+    public static long getMaxSize()
+    {
+        return cache.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum size (in bytes) of the cache, least recently used entries are evicted if
+     * needed.
+     */
+    public static void setMaxSize(long value)
+    {
+        cache.setMaxSize(value);
+    }
+
+    /**
+     * Returns true if resources from the specified URL can be cached (HTTP protocol).
+     */
+    public static boolean isCacheable(URL url)
+    {
+        if (url == null)
+            return false;
+
+        final String protocol = url.getProtocol();
+
+        return URLUtil.PROTOCOL_HTTP.equals(protocol) || "https".equals(protocol);
+    }
+
+    /**
+     * Returns the cache key of the specified URL.
+     */
+    public static String getKey(String url)
+    {
+        return DiskCache.getKey(url);
+    }
+
+    /**
+     * Returns the cached entry for the specified URL or null if not (or no more) cached.<br>
+     * Note that the entry is returned without any revalidation.
+     */
+    public static Entry get(URL url)
+    {
+        if (url == null)
+            return null;
+
+        final String key = getKey(url.toString());
+        final File file = cache.get(key);
+
+        if (file == null)
+            return null;
+
+        try
+        {
+            final Entry result = read(file);
+
+            // hash collision
+            if (!url.toString().equals(result.url))
+                return null;
+
+            return result;
+        }
+        catch (IOException e)
+        {
+            // corrupted entry
+            cache.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Download data from specified URL and return it as an array of byte.<br>
+     * For HTTP URL the cached version is revalidated with a conditional request and used if still
+     * valid (or if the server cannot be reached).<br>
+     * Returns null if an error occurred and no cached version is available.
+     */
+    public static byte[] download(URL url, AuthenticationInfo auth, boolean displayError)
+    {
+        if (url == null)
+            return null;
+
+        // not cacheable --> direct download
+        if (!isCacheable(url))
+        {
+            if ((auth != null) && auth.isEnabled())
+                return NetworkUtil.download(url, auth.getLogin(), auth.getPassword(), null, displayError);
+
+            return NetworkUtil.download(url, null, displayError);
+        }
+
+        final Entry cached = get(url);
+        // disable proxy cache as we do our own revalidation
+        final URLConnection uc = NetworkUtil.openConnection(url, auth, true, displayError && (cached == null));
+
+        if (uc == null)
+            return (cached != null) ? cached.data : null;
+
+        if (cached != null)
+        {
+            if (!StringUtil.isEmpty(cached.eTag))
+                uc.setRequestProperty("If-None-Match", cached.eTag);
+            if (!StringUtil.isEmpty(cached.lastModified))
+                uc.setRequestProperty("If-Modified-Since", cached.lastModified);
+        }
+
+        try
+        {
+            if ((cached != null) && (uc instanceof HttpURLConnection)
+                    && (((HttpURLConnection) uc).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED))
+                return cached.data;
+        }
+        catch (IOException e)
+        {
+            // server not reachable --> use cached version
+            return cached.data;
+        }
+
+        final InputStream ip = NetworkUtil.getInputStream(uc, displayError && (cached == null));
+
+        if (ip == null)
+            return (cached != null) ? cached.data : null;
+
+        final byte[] result;
+
+        try
+        {
+            result = NetworkUtil.download(ip, uc.getContentLength(), null);
+        }
+        catch (IOException e)
+        {
+            if (cached != null)
+                return cached.data;
+
+            if (displayError)
+            {
+                System.out.println("Error while downloading from '" + url + "' :");
+                IcyExceptionHandler.showErrorMessage(e, false, false);
+            }
+
+            return null;
+        }
+
+        final String eTag = uc.getHeaderField("ETag");
+        final String lastModified = uc.getHeaderField("Last-Modified");
+
+        // store only if we can revalidate it later
+        if ((result != null) && (!StringUtil.isEmpty(eTag) || !StringUtil.isEmpty(lastModified)))
+            put(new Entry(url.toString(), eTag, lastModified, result));
+
+        return result;
+    }
+
+    /**
+     * Returns a new {@link InputStream} from specified URL (null if an error occurred).<br>
+     * HTTP resources are served from the cache when still valid (see
+     * {@link #download(URL, AuthenticationInfo, boolean)}).
+     */
+    public static InputStream getInputStream(URL url, AuthenticationInfo auth, boolean displayError)
+    {
+        if (!isCacheable(url))
+            return NetworkUtil.getInputStream(url, auth, true, displayError);
+
+        final byte[] data = download(url, auth, displayError);
+
+        if (data == null)
+            return null;
+
+        return new ByteArrayInputStream(data);
+    }
+
+    /**
+     * Stores the specified entry in the cache.
+     */
+    public static void put(Entry entry)
+    {
+        final String key = getKey(entry.url);
+        File tmp = null;
+
+        try
+        {
+            // unique name as the same entry can be written concurrently (threads or Icy instances)
+            tmp = cache.createTempFile(key);
+            write(tmp, entry);
+            cache.commit(key, tmp);
+        }
+        catch (IOException e)
+        {
+            if (tmp != null)
+                tmp.delete();
+            IcyExceptionHandler.showErrorMessage(e, false);
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public static void clear()
+    {
+        cache.clear();
+    }
+
+    private static Entry read(File file) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try
+        {
+            if (in.readInt() != VERSION)
+                throw new IOException("Unsupported cache entry version");
+
+            final String url = in.readUTF();
+            final String eTag = in.readUTF();
+            final String lastModified = in.readUTF();
+            final byte[] data = new byte[in.readInt()];
+
+            in.readFully(data);
+
+            return new Entry(url, eTag, lastModified, data);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static void write(File file, Entry entry) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        try
+        {
+            out.writeInt(VERSION);
+            out.writeUTF(entry.url);
+            out.writeUTF(StringUtil.isEmpty(entry.eTag) ? "" : entry.eTag);
+            out.writeUTF(StringUtil.isEmpty(entry.lastModified) ? "" : entry.lastModified);
+            out.writeInt(entry.data.length);
+            out.write(entry.data);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import icy.util.StringUtil;
 
 import java.awt.Desktop;
 import java.awt.Desktop.Action;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
@@ -37,9 +38,11 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
 import java.net.URI;
@@ -47,13 +50,14 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import sun.misc.BASE64Encoder;
-
 /**
  * @author stephane
  */
@@ -122,6 +126,11 @@ public class NetworkUtil
     static final String REPORT_URL = WEBSITE_URL + "index.php";
     static final String USER_INTERRUPT_MESS = "Load interrupted by user";
 
+    /**
+     * Base64 alphabet (RFC 2045)
+     */
+    private static final String BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
     /**
      * Parameters id
      */
@@ -661,6 +670,164 @@ public class NetworkUtil
         return download(in, -1, null);
     }
 
+    /**
+     * Download data from specified URL string directly into the specified file (data are streamed
+     * to the file instead of being kept in memory).<br>
+     * When the server provides a <code>Content-MD5</code> header the downloaded data are verified
+     * against it.<br>
+     * Process authentication process if login / pass are not null.<br>
+     * Returns false if an error occurred or download has been canceled (file is deleted then).
+     */
+    public static boolean download(String path, String login, String pass, File dest, ProgressListener listener,
+            boolean displayError)
+    {
+        final File file = new File(path);
+        InputStream in = null;
+        long len = -1;
+        String md5 = null;
+
+        try
+        {
+            if (file.exists())
+            {
+                // authentication not supported on file download
+                in = new FileInputStream(file);
+                len = file.length();
+            }
+            else
+            {
+                final URL url = URLUtil.getURL(path);
+
+                if (url == null)
+                {
+                    if (displayError)
+                        System.out.println("Can't download '" + path + "', incorrect path !");
+
+                    return false;
+                }
+
+                if (URLUtil.isFileURL(url))
+                {
+                    final File f = new File(url.toURI());
+
+                    in = new FileInputStream(f);
+                    len = f.length();
+                }
+                else
+                {
+                    // disable cache
+                    final URLConnection uc = openConnection(url, login, pass, true, displayError);
+
+                    // get input stream with coherence verification
+                    in = getInputStream(uc, displayError);
+                    if (in == null)
+                        return false;
+
+                    len = uc.getContentLength();
+                    md5 = uc.getHeaderField("Content-MD5");
+                }
+            }
+
+            if (download(in, len, dest, md5, listener))
+                return true;
+        }
+        catch (Exception e)
+        {
+            if (displayError)
+            {
+                System.out.println("Error while downloading from '" + path + "' :");
+                IcyExceptionHandler.showErrorMessage(e, false, false);
+            }
+        }
+
+        // incomplete or canceled download
+        dest.delete();
+
+        return false;
+    }
+
+    /**
+     * Write data from specified InputStream into the specified file (the stream is closed at the
+     * end).<br>
+     * If <code>md5</code> is not empty it should be the base 64 MD5 digest of the data, an
+     * IOException is thrown if data does not match it.<br>
+     * Returns false if download has been canceled.
+     */
+    public static boolean download(InputStream in, long len, File dest, String md5, ProgressListener listener)
+            throws IOException
+    {
+        final int READ_BLOCKSIZE = 64 * 1024;
+        final byte[] data = new byte[READ_BLOCKSIZE];
+        final MessageDigest digest;
+
+        if (StringUtil.isEmpty(md5))
+            digest = null;
+        else
+        {
+            try
+            {
+                digest = MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                in.close();
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        final File parent = dest.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(dest));
+
+        try
+        {
+            long off = 0;
+            int count = 0;
+            while (count >= 0)
+            {
+                count = in.read(data);
+                if (count < 0)
+                {
+                    // unexpected length
+                    if ((len != -1) && (off != len))
+                        throw new EOFException();
+                }
+                else
+                    off += count;
+
+                if (count > 0)
+                {
+                    out.write(data, 0, count);
+                    if (digest != null)
+                        digest.update(data, 0, count);
+                }
+
+                if (listener != null)
+                {
+                    // download canceled ?
+                    if (!listener.notifyProgress(off, len))
+                    {
+                        System.out.println(USER_INTERRUPT_MESS);
+                        return false;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            in.close();
+            out.close();
+        }
+
+        // integrity check
+        if ((digest != null) && !Arrays.equals(digest.digest(), decodeBase64(md5)))
+            throw new IOException("Checksum error on downloaded data");
+
+        return true;
+    }
+
     /**
      * Returns a new {@link URLConnection} from specified URL (null if an error occurred).
      * 
@@ -901,11 +1068,93 @@ public class NetworkUtil
     public static void setAuthentication(URLConnection uc, String login, String pass)
     {
         final String req = login + ":" + pass;
-        final String encoded = new BASE64Encoder().encode(req.getBytes());
+        final String encoded = encodeBase64(req.getBytes());
 
         uc.setRequestProperty("Authorization", "Basic " + encoded);
     }
 
+    /**
+     * Encodes the specified data in Base64 (no line break).
+     */
+    static String encodeBase64(byte[] data)
+    {
+        final StringBuilder result = new StringBuilder(((data.length + 2) / 3) * 4);
+
+        for (int i = 0; i < data.length; i += 3)
+        {
+            final int remaining = data.length - i;
+            final int b0 = data[i] & 0xFF;
+            final int b1 = (remaining > 1) ? (data[i + 1] & 0xFF) : 0;
+            final int b2 = (remaining > 2) ? (data[i + 2] & 0xFF) : 0;
+
+            result.append(BASE64_CHARS.charAt(b0 >> 2));
+            result.append(BASE64_CHARS.charAt(((b0 & 0x03) << 4) | (b1 >> 4)));
+            result.append((remaining > 1) ? BASE64_CHARS.charAt(((b1 & 0x0F) << 2) | (b2 >> 6)) : '=');
+            result.append((remaining > 2) ? BASE64_CHARS.charAt(b2 & 0x3F) : '=');
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Decodes the specified Base64 string (white spaces are ignored).
+     * 
+     * @throws IOException
+     *         if the string is not a valid Base64 content
+     */
+    static byte[] decodeBase64(String value) throws IOException
+    {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream((value.length() * 3) / 4);
+        int bits = 0;
+        int count = 0;
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+
+            // padding
+            if (c == '=')
+                break;
+            if (Character.isWhitespace(c))
+                continue;
+
+            final int v = BASE64_CHARS.indexOf(c);
+
+            if (v == -1)
+                throw new IOException("Invalid Base64 character '" + c + "'");
+
+            bits = (bits << 6) | v;
+            count++;
+
+            if (count == 4)
+            {
+                result.write(bits >> 16);
+                result.write(bits >> 8);
+                result.write(bits);
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        // remaining partial group
+        switch (count)
+        {
+            case 1:
+                throw new IOException("Invalid Base64 length");
+
+            case 2:
+                result.write(bits >> 4);
+                break;
+
+            case 3:
+                result.write(bits >> 10);
+                result.write(bits >> 2);
+                break;
+        }
+
+        return result.toByteArray();
+    }
+
     public static String getContentString(HashMap<String, String> values)
     {
         String result = "";
@@ -23,7 +23,8 @@ import icy.file.FileUtil;
 import icy.file.xml.XMLPersistent;
 import icy.file.xml.XMLPersistentHelper;
 import icy.image.ImageUtil;
-import icy.network.NetworkUtil;
+import icy.network.AuthenticationInfo;
+import icy.network.HttpCache;
 import icy.network.URLUtil;
 import icy.plugin.abstract_.Plugin;
 import icy.plugin.interface_.PluginImageAnalysis;
@@ -720,8 +721,15 @@ public class PluginDescriptor implements XMLPersistent
         if (descriptorLoaded && !reload)
             return true;
 
-        // retrieve document
-        final Document document = XMLUtil.loadDocument(xmlUrl, repository.getAuthenticationInfo(), true);
+        final AuthenticationInfo auth = repository.getAuthenticationInfo();
+        final URL url = URLUtil.getURL(xmlUrl);
+        final Document document;
+
+        // retrieve document (use HTTP cache when possible)
+        if (HttpCache.isCacheable(url))
+            document = XMLUtil.loadDocument(HttpCache.getInputStream(url, auth, true), true);
+        else
+            document = XMLUtil.loadDocument(xmlUrl, auth, true);
 
         if (document != null)
         {
@@ -835,8 +843,8 @@ public class PluginDescriptor implements XMLPersistent
         // load icon
         if (url != null)
             icon = ResourceUtil.getImageIcon(
-                    ImageUtil.load(NetworkUtil.getInputStream(url,
-                            (repository != null) ? repository.getAuthenticationInfo() : null, true, false), false),
+                    ImageUtil.load(HttpCache.getInputStream(url,
+                            (repository != null) ? repository.getAuthenticationInfo() : null, false), false),
                     ICON_SIZE);
         // get default icon
         if (icon == null)
@@ -848,8 +856,8 @@ public class PluginDescriptor implements XMLPersistent
         // load image
         if (url != null)
             image = ImageUtil.scale(
-                    ImageUtil.load(NetworkUtil.getInputStream(url,
-                            (repository != null) ? repository.getAuthenticationInfo() : null, true, false), false),
+                    ImageUtil.load(HttpCache.getInputStream(url,
+                            (repository != null) ? repository.getAuthenticationInfo() : null, false), false),
                     IMAGE_SIZE, IMAGE_SIZE);
         // get default image
         if (image == null)
@@ -18,22 +18,31 @@
  */
 package icy.plugin;
 
+import icy.common.listener.ProgressListener;
 import icy.file.FileUtil;
 import icy.gui.dialog.ConfirmDialog;
 import icy.gui.frame.progress.CancelableProgressFrame;
 import icy.gui.frame.progress.FailedAnnounceFrame;
-import icy.gui.frame.progress.ProgressFrame;
 import icy.gui.frame.progress.SuccessfullAnnounceFrame;
 import icy.network.NetworkUtil;
 import icy.plugin.PluginDescriptor.PluginIdent;
 import icy.preferences.RepositoryPreferences.RepositoryInfo;
 import icy.system.IcyExceptionHandler;
+import icy.system.thread.Processor;
 import icy.system.thread.ThreadUtil;
 import icy.update.Updater;
 import icy.util.StringUtil;
+import icy.util.XMLUtil;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.ZipInputStream;
 
 import javax.swing.event.EventListenerList;
 
@@ -64,8 +73,187 @@ public class PluginInstaller implements Runnable
         }
     }
 
-    private static final String ERROR_DOWNLOAD = "Error while downloading ";
-    private static final String ERROR_SAVE = "Error while saving";
+    /**
+     * Plugin file downloaded in a staging file (next to its final location) before installation.
+     */
+    private static class FileDownload implements Runnable
+    {
+        final String url;
+        final String path;
+        final File stagingFile;
+        final boolean required;
+        final String login;
+        final String pass;
+        final ProgressListener listener;
+        final CountDownLatch done;
+
+        String error;
+
+        public FileDownload(String url, String path, boolean required, String login, String pass,
+                ProgressListener listener, CountDownLatch done)
+        {
+            super();
+
+            this.url = url;
+            this.path = path;
+            this.stagingFile = new File(path + STAGING_EXTENSION);
+            this.required = required;
+            this.login = login;
+            this.pass = pass;
+            this.listener = listener;
+            this.done = done;
+
+            error = null;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if (StringUtil.isEmpty(url))
+                {
+                    if (required)
+                        error = ERROR_DOWNLOAD + path + " (no URL)";
+                }
+                else if (!NetworkUtil.download(url, login, pass, stagingFile, listener, required))
+                    error = ERROR_DOWNLOAD + url;
+                else
+                    error = verify(stagingFile, path);
+            }
+            finally
+            {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Move staging file to its final location.<br>
+         * Return an empty string if no error else return error message
+         */
+        String install()
+        {
+            // optional file not available --> keep the old one
+            if (!StringUtil.isEmpty(error) || !stagingFile.exists())
+                return "";
+
+            if (!FileUtil.rename(stagingFile, new File(path), true))
+            {
+                System.err.println("Can't write '" + path + "' !");
+                System.err.println("File may be locked or you don't own the rights to write files here.");
+                return ERROR_SAVE + path;
+            }
+
+            return "";
+        }
+    }
+
+    /**
+     * All files of a plugin being downloaded.
+     */
+    private static class PluginDownload
+    {
+        final PluginDescriptor plugin;
+        final FileDownload[] files;
+        final CountDownLatch done;
+
+        public PluginDownload(PluginDescriptor plugin, ProgressListener listener)
+        {
+            super();
+
+            this.plugin = plugin;
+
+            final RepositoryInfo repos = plugin.getRepository();
+            final String login;
+            final String pass;
+
+            // use authentication
+            if ((repos != null) && repos.isAuthenticationEnabled())
+            {
+                login = repos.getLogin();
+                pass = repos.getPassword();
+            }
+            else
+            {
+                login = null;
+                pass = null;
+            }
+
+            done = new CountDownLatch(4);
+            files = new FileDownload[] {
+                    new FileDownload(plugin.getJarUrl(), plugin.getJarFilename(), true, login, pass, listener, done),
+                    new FileDownload(plugin.getUrl(), plugin.getXMLFilename(), true, login, pass, listener, done),
+                    new FileDownload(plugin.getIconUrl(), plugin.getIconFilename(), false, login, pass, listener, done),
+                    new FileDownload(plugin.getImageUrl(), plugin.getImageFilename(), false, login, pass, listener,
+                            done)};
+        }
+
+        /**
+         * Wait for download completion and return an empty string if no error else return error
+         * message.<br>
+         * Files whose download is not yet started are downloaded from the calling thread.
+         */
+        String waitCompletion(Processor downloader)
+        {
+            for (FileDownload file : files)
+                if (downloader.removeTask(file))
+                    file.run();
+
+            try
+            {
+                done.await();
+            }
+            catch (InterruptedException e)
+            {
+                return ERROR_DOWNLOAD + plugin.getJarUrl() + " (interrupted)";
+            }
+
+            // only required files matter
+            for (FileDownload file : files)
+                if (file.required && !StringUtil.isEmpty(file.error))
+                    return file.error;
+
+            return "";
+        }
+
+        /**
+         * Move downloaded files to their final location.<br>
+         * Return an empty string if no error else return error message
+         */
+        String install()
+        {
+            for (FileDownload file : files)
+            {
+                final String result = file.install();
+
+                if (!StringUtil.isEmpty(result))
+                    return result;
+            }
+
+            return "";
+        }
+
+        /**
+         * Delete remaining staging files
+         */
+        void clean()
+        {
+            for (FileDownload file : files)
+                if (file.stagingFile.exists())
+                    file.stagingFile.delete();
+        }
+    }
+
+    /**
+     * Maximum number of simultaneous file downloads
+     */
+    public static final int MAX_CONCURRENT_DOWNLOAD = 4;
+
+    static final String STAGING_EXTENSION = ".download";
+
+    static final String ERROR_DOWNLOAD = "Error while downloading ";
+    static final String ERROR_SAVE = "Error while saving ";
+    static final String ERROR_CORRUPTED = "Corrupted file ";
     // private static final String INSTALL_CANCELED = "Plugin installation canceled by user.";
 
     /**
@@ -73,6 +261,10 @@ public class PluginInstaller implements Runnable
      */
     private static final PluginInstaller instance = new PluginInstaller();
 
+    /**
+     * installer thread wake up signal
+     */
+    private final LinkedBlockingQueue<Object> requests;
     /**
      * plugin(s) to install FIFO
      */
@@ -92,6 +284,7 @@ public class PluginInstaller implements Runnable
      */
     private final ArrayList<PluginDescriptor> installingPlugins;
     private final ArrayList<PluginDescriptor> desinstallingPlugin;
+    private final Processor downloader;
 
     /**
      * static class
@@ -100,6 +293,7 @@ public class PluginInstaller implements Runnable
     {
         super();
 
+        requests = new LinkedBlockingQueue<Object>();
         installFIFO = new ArrayList<PluginInstallInfo>();
         removeFIFO = new ArrayList<PluginInstallInfo>();
 
@@ -108,6 +302,9 @@ public class PluginInstaller implements Runnable
         installingPlugins = new ArrayList<PluginDescriptor>();
         desinstallingPlugin = new ArrayList<PluginDescriptor>();
 
+        downloader = new Processor(Processor.DEFAULT_MAX_WAITING, MAX_CONCURRENT_DOWNLOAD);
+        downloader.setDefaultThreadName("Plugin downloader");
+
         // launch installer thread
         new Thread(this, "Plugin installer").start();
     }
@@ -138,6 +335,8 @@ public class PluginInstaller implements Runnable
             {
                 instance.installFIFO.add(new PluginInstallInfo(plugin, showConfirm));
             }
+
+            instance.wakeUp();
         }
     }
 
@@ -233,6 +432,8 @@ public class PluginInstaller implements Runnable
                     {
                         instance.removeFIFO.add(new PluginInstallInfo(plugin, showConfirm));
                     }
+
+                    instance.wakeUp();
                 }
             }
             else
@@ -241,6 +442,8 @@ public class PluginInstaller implements Runnable
                 {
                     instance.removeFIFO.add(new PluginInstallInfo(plugin, showConfirm));
                 }
+
+                instance.wakeUp();
             }
         }
     }
@@ -296,11 +499,32 @@ public class PluginInstaller implements Runnable
         return (instance.desinstallingPlugin.indexOf(plugin) != -1) || isWaitingForDesinstall(plugin);
     }
 
+    /**
+     * Wake up the installer thread
+     */
+    private void wakeUp()
+    {
+        requests.offer(Boolean.TRUE);
+    }
+
     @Override
     public void run()
     {
         while (true)
         {
+            // wait for request
+            try
+            {
+                requests.take();
+            }
+            catch (InterruptedException e)
+            {
+                continue;
+            }
+
+            // requests are processed per batch
+            requests.clear();
+
             // process installations
             while (!installFIFO.isEmpty())
                 installInternal();
@@ -308,8 +532,6 @@ public class PluginInstaller implements Runnable
             // process deletions
             while (!removeFIFO.isEmpty())
                 desinstallInternal();
-
-            ThreadUtil.sleep(100);
         }
     }
 
@@ -332,71 +554,107 @@ public class PluginInstaller implements Runnable
     }
 
     /**
-     * Return an empty string if no error else return error message
+     * Verify integrity of the specified downloaded file.<br>
+     * Return null if no error else return error message
      */
-    private String downloadAndSavePlugin(PluginDescriptor plugin, CancelableProgressFrame taskFrame)
+    static String verify(File file, String path)
     {
-        String result;
-
-        if (taskFrame != null)
-            taskFrame.setMessage("Downloading " + plugin);
+        final String ext = FileUtil.getFileExtension(path, false).toLowerCase();
 
-        // ensure descriptor is loaded
-        plugin.loadDescriptor();
+        // read all JAR entries so CRC are checked
+        if (ext.equals("jar"))
+        {
+            try
+            {
+                final ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(file)));
+                final byte[] buffer = new byte[64 * 1024];
+                int numEntry = 0;
 
-        final RepositoryInfo repos = plugin.getRepository();
-        final String login;
-        final String pass;
+                try
+                {
+                    while (zip.getNextEntry() != null)
+                    {
+                        while (zip.read(buffer) >= 0)
+                            ;
+                        numEntry++;
+                    }
+                }
+                finally
+                {
+                    zip.close();
+                }
 
-        // use authentication
-        if ((repos != null) && repos.isAuthenticationEnabled())
-        {
-            login = repos.getLogin();
-            pass = repos.getPassword();
+                if (numEntry == 0)
+                    return ERROR_CORRUPTED + path + " (empty archive)";
+            }
+            catch (IOException e)
+            {
+                return ERROR_CORRUPTED + path + " (" + e.getMessage() + ")";
+            }
         }
-        else
+        else if (ext.equals("xml"))
         {
-            login = null;
-            pass = null;
+            if (XMLUtil.loadDocument(file, false) == null)
+                return ERROR_CORRUPTED + path + " (invalid XML)";
         }
 
-        // download and save JAR file
-        result = downloadAndSave(plugin.getJarUrl(), plugin.getJarFilename(), login, pass, true, taskFrame);
-        if (!StringUtil.isEmpty(result))
-            return result;
+        return null;
+    }
 
-        // download and save XML file
-        result = downloadAndSave(plugin.getUrl(), plugin.getXMLFilename(), login, pass, true, taskFrame);
-        if (!StringUtil.isEmpty(result))
-            return result;
+    /**
+     * Start download of all plugin files in staging files (asynchronous).
+     */
+    private PluginDownload startDownload(PluginDescriptor plugin, ProgressListener listener)
+    {
+        // ensure descriptor is loaded
+        plugin.loadDescriptor();
 
-        // download and save icon & image files
-        downloadAndSave(plugin.getIconUrl(), plugin.getIconFilename(), login, pass, false, taskFrame);
-        downloadAndSave(plugin.getImageUrl(), plugin.getImageFilename(), login, pass, false, taskFrame);
+        final PluginDownload result = new PluginDownload(plugin, listener);
 
-        return "";
+        for (FileDownload file : result.files)
+        {
+            // download queue full --> do it here
+            if (!downloader.addTask(file))
+                file.run();
+        }
+
+        return result;
     }
 
     /**
+     * Install downloaded plugin files.<br>
      * Return an empty string if no error else return error message
      */
-    private String downloadAndSave(String downloadPath, String savePath, String login, String pass,
-            boolean displayError, ProgressFrame taskFrame)
+    private String installPlugin(PluginDownload download)
     {
-        // load data
-        final byte[] data = NetworkUtil.download(downloadPath, login, pass, taskFrame, displayError);
-        if (data == null)
-            return ERROR_DOWNLOAD + downloadPath;
+        // wait for downloaded and verified files
+        String result = download.waitCompletion(downloader);
+
+        if (!StringUtil.isEmpty(result))
+            return result;
 
-        // save data
-        if (!FileUtil.save(savePath, data, displayError))
+        try
         {
-            System.err.println("Can't write '" + savePath + "' !");
-            System.err.println("File may be locked or you don't own the rights to write files here.");
-            return ERROR_SAVE + savePath;
+            // backup plugin
+            result = backup(download.plugin);
+
+            // backup ok --> swap in new files
+            if (StringUtil.isEmpty(result))
+            {
+                result = download.install();
+
+                // an error occurred ? --> restore
+                if (!StringUtil.isEmpty(result))
+                    Updater.restore();
+            }
+        }
+        finally
+        {
+            // delete backup
+            FileUtil.delete(Updater.BACKUP_DIRECTORY, true);
         }
 
-        return null;
+        return result;
     }
 
     private boolean deletePlugin(PluginDescriptor plugin)
@@ -672,52 +930,62 @@ public class PluginInstaller implements Runnable
 
             String error = "";
 
-            // now we can proceed the installation itself
-            for (PluginDescriptor plugin : installingPlugins)
+            final CancelableProgressFrame frame = taskFrame;
+            // downloads are interrupted on cancel
+            final ProgressListener cancelListener = new ProgressListener()
             {
-                // already installed --> go to next one
-                if (PluginLoader.isLoaded(plugin, false))
-                    continue;
+                @Override
+                public boolean notifyProgress(double position, double length)
+                {
+                    return (frame == null) || !frame.isCancelRequested();
+                }
+            };
+            final ArrayList<PluginDownload> downloads = new ArrayList<PluginDownload>();
 
-                final String plugDesc = plugin.getName() + " " + plugin.getVersion();
+            if (taskFrame != null)
+                taskFrame.setMessage("Downloading plugin(s)...");
 
-                if (taskFrame != null)
+            try
+            {
+                // download all files concurrently
+                for (PluginDescriptor plugin : installingPlugins)
+                    if (!PluginLoader.isLoaded(plugin, false))
+                        downloads.add(startDownload(plugin, cancelListener));
+
+                // now we can proceed the installation itself (in dependencies order)
+                for (PluginDownload download : downloads)
                 {
-                    // cancel requested ? --> interrupt installation
-                    if (taskFrame.isCancelRequested())
-                        break;
+                    final PluginDescriptor plugin = download.plugin;
+                    final String plugDesc = plugin.getName() + " " + plugin.getVersion();
 
-                    taskFrame.setMessage("Installing " + plugDesc + "...");
-                }
+                    if (taskFrame != null)
+                    {
+                        // cancel requested ? --> interrupt installation
+                        if (taskFrame.isCancelRequested())
+                            break;
 
-                try
-                {
-                    // backup plugin
-                    error = backup(plugin);
+                        taskFrame.setMessage("Installing " + plugDesc + "...");
+                    }
+
+                    error = installPlugin(download);
 
-                    // backup ok --> install plugin
                     if (StringUtil.isEmpty(error))
+                        pluginsOk.add(plugin);
+                    else
                     {
-                        error = downloadAndSavePlugin(plugin, taskFrame);
-
-                        // an error occurred ? --> restore
-                        if (!StringUtil.isEmpty(error))
-                            Updater.restore();
+                        pluginsNOk.add(plugin);
+                        // print error
+                        System.err.println(error);
                     }
                 }
-                finally
-                {
-                    // delete backup
-                    FileUtil.delete(Updater.BACKUP_DIRECTORY, true);
-                }
-
-                if (StringUtil.isEmpty(error))
-                    pluginsOk.add(plugin);
-                else
+            }
+            finally
+            {
+                // wait for pending downloads (canceled) before removing staging files
+                for (PluginDownload download : downloads)
                 {
-                    pluginsNOk.add(plugin);
-                    // print error
-                    System.err.println(error);
+                    download.waitCompletion(downloader);
+                    download.clean();
                 }
             }
 
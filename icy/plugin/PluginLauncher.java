@@ -24,6 +24,8 @@ import icy.plugin.interface_.PluginImageAnalysis;
 import icy.plugin.interface_.PluginStartAsThread;
 import icy.plugin.interface_.PluginThreaded;
 import icy.system.IcyExceptionHandler;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
 import icy.system.thread.ThreadUtil;
 
 /**
@@ -34,6 +36,34 @@ import icy.system.thread.ThreadUtil;
  */
 public class PluginLauncher implements Runnable
 {
+    protected class TimedRunner implements Runnable
+    {
+        private final Runnable runnable;
+
+        public TimedRunner(Runnable runnable)
+        {
+            super();
+
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run()
+        {
+            final TimerMetric timer = MetricsRegistry.getTimer("PluginLauncher." + descriptor.getClassName());
+            final long start = timer.start();
+
+            try
+            {
+                runnable.run();
+            }
+            finally
+            {
+                timer.stop(start);
+            }
+        }
+    }
+
     protected final PluginDescriptor descriptor;
     protected Plugin plugin;
 
@@ -89,10 +119,10 @@ public class PluginLauncher implements Runnable
         final Thread thread;
 
         if (plugin instanceof PluginThreaded)
-            thread = new Thread((PluginThreaded) plugin, descriptor.getName());
+            thread = new Thread(new TimedRunner((PluginThreaded) plugin), descriptor.getName());
         // keep backward compatibility
         else if (plugin instanceof PluginStartAsThread)
-            thread = new Thread(this, descriptor.getName());
+            thread = new Thread(new TimedRunner(this), descriptor.getName());
         else
             thread = null;
 
@@ -101,7 +131,7 @@ public class PluginLauncher implements Runnable
             thread.start();
         else
             // direct launch in EDT now (no thread creation)
-            ThreadUtil.invokeNow(this);
+            ThreadUtil.invokeNow(new TimedRunner(this));
     }
 
     /**
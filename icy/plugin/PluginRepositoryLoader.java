@@ -19,7 +19,9 @@
 package icy.plugin;
 
 import icy.main.Icy;
+import icy.network.HttpCache;
 import icy.network.NetworkUtil;
+import icy.network.URLUtil;
 import icy.plugin.PluginDescriptor.PluginIdent;
 import icy.plugin.PluginDescriptor.PluginNameSorter;
 import icy.plugin.PluginDescriptor.PluginOnlineIdent;
@@ -27,14 +29,18 @@ import icy.preferences.PluginPreferences;
 import icy.preferences.RepositoryPreferences;
 import icy.preferences.RepositoryPreferences.RepositoryInfo;
 import icy.system.IcyExceptionHandler;
+import icy.system.thread.Processor;
 import icy.system.thread.SingleProcessor;
 import icy.system.thread.ThreadUtil;
 import icy.util.XMLUtil;
 
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventListener;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import javax.swing.event.EventListenerList;
@@ -112,21 +118,9 @@ public class PluginRepositoryLoader
             basicLoaded = true;
             changed(null);
 
-            // we load descriptor
-            for (PluginDescriptor plugin : plugins)
-            {
-                // reload requested --> stop current loading
-                if (processor.hasWaitingTasks())
-                    return;
-                // internet connection lost --> failed
-                if (!NetworkUtil.hasInternetAccess())
-                {
-                    failed = true;
-                    return;
-                }
-
-                plugin.loadDescriptor();
-            }
+            // we load descriptors (concurrently)
+            if (!fetch(newPlugins, true))
+                return;
 
             // sort list on plugin name
             synchronized (plugins)
@@ -138,29 +132,20 @@ public class PluginRepositoryLoader
             descriptorsLoaded = true;
             changed(null);
 
-            // then we load images
-            for (PluginDescriptor plugin : plugins)
-            {
-                // reload requested --> stop current loading
-                if (processor.hasWaitingTasks())
-                    return;
-                // internet connection lost --> failed
-                if (!NetworkUtil.hasInternetAccess())
-                {
-                    failed = true;
-                    return;
-                }
-
-                plugin.loadImages();
-                // notify change
-                changed(plugin);
-            }
+            // then we load images (concurrently)
+            if (!fetch(newPlugins, false))
+                return;
 
             // images loaded
             imagesLoaded = true;
         }
     }
 
+    /**
+     * Maximum number of simultaneous downloads
+     */
+    public static final int MAX_CONCURRENT_DOWNLOAD = 4;
+
     private static final String ID_ROOT = "plugins";
     private static final String ID_PLUGIN = "plugin";
     // private static final String ID_PATH = "path";
@@ -190,6 +175,7 @@ public class PluginRepositoryLoader
 
     private final Loader loader;
     final SingleProcessor processor;
+    final Processor downloader;
 
     /**
      * static class
@@ -205,6 +191,8 @@ public class PluginRepositoryLoader
         processor = new SingleProcessor(true, "Online Plugin Loader");
         // we want the processor to stay alive
         processor.setKeepAliveTime(1, TimeUnit.DAYS);
+        downloader = new Processor(Processor.DEFAULT_MAX_WAITING, MAX_CONCURRENT_DOWNLOAD);
+        downloader.setDefaultThreadName("Online Plugin Downloader");
 
         // initial loading
         load();
@@ -220,8 +208,16 @@ public class PluginRepositoryLoader
 
         values.put(NetworkUtil.ID_KERNELVERSION, Icy.version.toString());
 
-        final Document document = XMLUtil.loadDocument(
-                repos.getLocation() + "?" + NetworkUtil.getContentString(values), repos.getAuthenticationInfo(), false);
+        final String path = repos.getLocation() + "?" + NetworkUtil.getContentString(values);
+        final URL url = URLUtil.getURL(path);
+        final Document document;
+
+        // use HTTP cache when possible
+        if (HttpCache.isCacheable(url))
+            document = XMLUtil.loadDocument(HttpCache.getInputStream(url, repos.getAuthenticationInfo(), false),
+                    false);
+        else
+            document = XMLUtil.loadDocument(path, repos.getAuthenticationInfo(), false);
 
         if (document != null)
         {
@@ -311,6 +307,69 @@ public class PluginRepositoryLoader
     // instance.loadAllRunner.run();
     // }
 
+    /**
+     * Load descriptors (or images) of specified plugins using the download pool and notify change
+     * as soon as a plugin is loaded.<br>
+     * Returns false if loading has been interrupted (reload requested).
+     */
+    boolean fetch(List<PluginDescriptor> list, final boolean descriptor)
+    {
+        final CountDownLatch done = new CountDownLatch(list.size());
+        final List<Runnable> tasks = new ArrayList<Runnable>(list.size());
+
+        for (final PluginDescriptor plugin : list)
+        {
+            final Runnable task = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        // reload requested --> don't waste time
+                        if (processor.hasWaitingTasks())
+                            return;
+
+                        if (descriptor)
+                        {
+                            if (plugin.loadDescriptor())
+                                changed(plugin);
+                        }
+                        else if (plugin.loadImages())
+                            changed(plugin);
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            };
+
+            // download queue full --> do it here
+            if (downloader.addTask(task))
+                tasks.add(task);
+            else
+                task.run();
+        }
+
+        // don't block a pool thread on downloads not yet started, help from the end of the queue
+        for (int i = tasks.size() - 1; i >= 0; i--)
+            if (downloader.removeTask(tasks.get(i)))
+                tasks.get(i).run();
+
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException e)
+        {
+            return false;
+        }
+
+        // reload requested --> stop current loading
+        return !processor.hasWaitingTasks();
+    }
+
     /**
      * Load and return the list of online plugins located at specified repository
      */
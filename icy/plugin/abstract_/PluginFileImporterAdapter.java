@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.plugin.abstract_;
+
+import icy.plugin.interface_.PluginFileImporter;
+
+/**
+ * Base class for file importer Plugin.<br>
+ * <br>
+ * Only {@link #getReaderClass()} has to be implemented, capabilities default to a plain random
+ * access reader: no tile support, single resolution and not thread safe.
+ * 
+ * @author Stephane
+ */
+public abstract class PluginFileImporterAdapter extends Plugin implements PluginFileImporter
+{
+    @Override
+    public boolean isRandomAccess()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isTileSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isPyramidal()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isThreadSafe()
+    {
+        return false;
+    }
+}
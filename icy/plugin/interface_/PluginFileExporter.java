@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.plugin.interface_;
+
+import icy.image.colormodel.IcyColorModel;
+import icy.type.DataType;
+import loci.formats.IFormatWriter;
+
+/**
+ * Plugin File Exporter interface.<br>
+ * {@link PluginExporter} providing an image file writer.<br>
+ * <br>
+ * Exporters are automatically registered in {@link icy.file.Saver#getWriter(String)} lookup and
+ * are tested before the default writers. The returned writer is used as any LOCI writer : metadata
+ * are set first then planes are written with <code>saveBytes(index, bytes)</code>.<br>
+ * <br>
+ * The exporter also declares the writer capabilities (see
+ * {@link icy.plugin.abstract_.PluginFileExporterAdapter} for default values).
+ * 
+ * @author Stephane
+ */
+public interface PluginFileExporter extends PluginExporter
+{
+    /**
+     * Return the file extensions (without dot) handled by this exporter.
+     */
+    public String[] getExtensions();
+
+    /**
+     * Return the file format description (used in file dialog filter).
+     */
+    public String getDescription();
+
+    /**
+     * Return the writer class used to write files.<br>
+     * The class should have a default public constructor.
+     */
+    public Class<? extends IFormatWriter> getWriterClass();
+
+    /**
+     * Return the closest {@link IcyColorModel} the writer is able to save without any loss or
+     * conversion from the specified image description.
+     */
+    public IcyColorModel getCompatibleColorModel(int numChannel, DataType dataType);
+
+    /**
+     * Return true if the writer can write a sub region of a plane with
+     * <code>saveBytes(index, bytes, x, y, w, h)</code>.
+     */
+    public boolean isTileSupported();
+
+    /**
+     * Return true if several planes can be written concurrently.
+     */
+    public boolean isThreadSafe();
+}
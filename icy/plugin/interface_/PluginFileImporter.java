@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.plugin.interface_;
+
+import loci.formats.IFormatReader;
+
+/**
+ * Plugin File Importer interface.<br>
+ * {@link PluginImporter} providing an image file reader.<br>
+ * <br>
+ * Importers are automatically registered in {@link icy.file.Loader#getReader(String)} lookup and
+ * are tested before the default LOCI readers. The returned reader is used as any LOCI reader :
+ * <code>setId(path)</code> is called first then planes are read with
+ * <code>openBytes(index)</code>, or <code>openBytes(index, x, y, w, h)</code> when only a region
+ * of the image is needed (see {@link icy.file.Loader#loadImage(IFormatReader, java.awt.Rectangle,
+ * int, int)}).<br>
+ * <br>
+ * The importer also declares the reader capabilities used by the loader (see
+ * {@link icy.plugin.abstract_.PluginFileImporterAdapter} for default values).
+ * 
+ * @author Stephane
+ */
+public interface PluginFileImporter extends PluginImporter
+{
+    /**
+     * Return the reader class used to read files.<br>
+     * The class should have a default public constructor.
+     */
+    public Class<? extends IFormatReader> getReaderClass();
+
+    /**
+     * Return true if planes can be read in any order without performance penalty.<br>
+     * If false the loader always reads planes in sequential order.
+     */
+    public boolean isRandomAccess();
+
+    /**
+     * Return true if the reader can efficiently read a sub region of a plane with
+     * <code>openBytes(index, x, y, w, h)</code> (without reading the whole plane).<br>
+     * Planes too large to be loaded at once can only be opened tile by tile when this is true.
+     */
+    public boolean isTileSupported();
+
+    /**
+     * Return true if the reader provides several resolution levels of the same image.
+     */
+    public boolean isPyramidal();
+
+    /**
+     * Return true if several reader instances can be used concurrently on the same file.<br>
+     * The loader then reads planes ahead with several readers (random access readers only).
+     */
+    public boolean isThreadSafe();
+}
@@ -60,6 +60,11 @@ public class IcyPreferences
         PluginsPreferences.load();
     }
 
+    /**
+     * Save preferences to the setting file now.<br>
+     * Note that modifications are automatically saved in background so this is only needed
+     * when we want to be sure pending modifications are written (on exit for instance).
+     */
     public static void save()
     {
         // save to setting file
@@ -3,11 +3,15 @@
  */
 package icy.preferences;
 
+import icy.file.FileUtil;
 import icy.util.ClassUtil;
 import icy.util.XMLUtil;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -20,8 +24,32 @@ public class XMLPreferences
 {
     public static class XMLPreferencesRoot
     {
+        /**
+         * Delay (in ms) between a preference modification and its persistence on disk, all
+         * modifications done meanwhile are saved at once.
+         */
+        public static final long SAVE_DELAY = 2000L;
+
+        /**
+         * shared write-behind thread
+         */
+        private static Timer saver;
+
         private final String filename;
         private Document doc;
+        private boolean loaded;
+        private boolean dirty;
+        private TimerTask saveTask;
+        /**
+         * serialize file writes (explicit save and background flush)
+         */
+        private final Object writeLock;
+        /**
+         * generation of the last document copy taken for writing and of the last one written in
+         * the preferences file, an older copy is never written over a more recent one
+         */
+        private long generation;
+        private long writtenGeneration;
 
         // cached
         Element element;
@@ -31,7 +59,13 @@ public class XMLPreferences
         {
             this.filename = filename;
 
-            load();
+            // document is parsed on first access
+            loaded = false;
+            dirty = false;
+            saveTask = null;
+            writeLock = new Object();
+            generation = 0L;
+            writtenGeneration = 0L;
         }
 
         /**
@@ -45,7 +79,7 @@ public class XMLPreferences
         /**
          * Load preferences from file
          */
-        public void load(String filename)
+        public synchronized void load(String filename)
         {
             // get document
             doc = XMLUtil.loadDocument(new File(filename));
@@ -58,10 +92,19 @@ public class XMLPreferences
             // create our root XMLPreference object
             preferences = new XMLPreferences(this, element);
             preferences.clean();
+
+            loaded = true;
+            dirty = false;
+        }
+
+        private synchronized void ensureLoaded()
+        {
+            if (!loaded)
+                load();
         }
 
         /**
-         * Save preferences to file
+         * Save preferences to file now (pending modifications are written).
          */
         public void save()
         {
@@ -69,12 +112,157 @@ public class XMLPreferences
         }
 
         /**
-         * Save preferences to file
+         * Save preferences to file now (waits for a background write in progress).
          */
         public void save(String filename)
         {
-            if (doc != null)
-                XMLUtil.saveDocument(doc, new File(filename));
+            final Document copy;
+            final long gen;
+
+            synchronized (this)
+            {
+                // nothing to save
+                if (doc == null)
+                    return;
+
+                cancelSave();
+                copy = (Document) doc.cloneNode(true);
+                gen = ++generation;
+
+                if (filename.equals(this.filename))
+                    dirty = false;
+            }
+
+            write(copy, gen, filename);
+        }
+
+        /**
+         * Schedule a save of preferences.<br>
+         * Modifications are coalesced and written in background after {@link #SAVE_DELAY} ms.
+         */
+        public synchronized void saveLater()
+        {
+            dirty = true;
+
+            // already scheduled
+            if (saveTask != null)
+                return;
+
+            saveTask = new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    flush();
+                }
+            };
+
+            getSaver().schedule(saveTask, SAVE_DELAY);
+        }
+
+        /**
+         * Write pending modifications (if any).
+         */
+        public void flush()
+        {
+            final Document copy;
+            final long gen;
+
+            synchronized (this)
+            {
+                saveTask = null;
+
+                if (!dirty || (doc == null))
+                    return;
+
+                // serialize a copy so preferences stay accessible while writing
+                copy = (Document) doc.cloneNode(true);
+                gen = ++generation;
+                dirty = false;
+            }
+
+            if (!write(copy, gen, filename))
+            {
+                // retry later
+                synchronized (this)
+                {
+                    if (saveTask == null)
+                        saveLater();
+                }
+            }
+        }
+
+        private void cancelSave()
+        {
+            if (saveTask != null)
+            {
+                saveTask.cancel();
+                saveTask = null;
+            }
+        }
+
+        private static synchronized Timer getSaver()
+        {
+            if (saver == null)
+                saver = new Timer("Preferences saver", true);
+
+            return saver;
+        }
+
+        /**
+         * Write the document copy of the specified generation, writes are serialized and a copy
+         * older than the one already in the preferences file is discarded.
+         */
+        private boolean write(Document document, long gen, String filename)
+        {
+            synchronized (writeLock)
+            {
+                final boolean prefFile = filename.equals(this.filename);
+
+                // a more recent copy has already been written
+                if (prefFile && (gen <= writtenGeneration))
+                    return true;
+
+                if (!write(document, new File(filename)))
+                    return false;
+
+                if (prefFile)
+                    writtenGeneration = gen;
+
+                return true;
+            }
+        }
+
+        /**
+         * Write document in a temporary file then replace the destination so a crash during the
+         * write never leaves a truncated preferences file.
+         */
+        private static boolean write(Document document, File file)
+        {
+            final File tmp;
+
+            try
+            {
+                FileUtil.ensureParentDirExist(file);
+                // unique name in the destination directory (same file system for the rename)
+                tmp = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+            }
+            catch (IOException e)
+            {
+                return false;
+            }
+
+            if (!XMLUtil.saveDocument(document, tmp))
+            {
+                tmp.delete();
+                return false;
+            }
+
+            // atomic replace when supported by the file system
+            if (tmp.renameTo(file))
+                return true;
+
+            return FileUtil.rename(tmp, file, true);
         }
 
         /**
@@ -82,6 +270,8 @@ public class XMLPreferences
          */
         public Element getElement()
         {
+            ensureLoaded();
+
             return element;
         }
 
@@ -90,6 +280,8 @@ public class XMLPreferences
          */
         public XMLPreferences getPreferences()
         {
+            ensureLoaded();
+
             return preferences;
         }
     }
@@ -110,51 +302,66 @@ public class XMLPreferences
 
     public String absolutePath()
     {
-        String result = "/" + name();
-
-        Element parent = XMLUtil.getParentElement(currentElement);
-        while ((parent != null) && (parent != root.element))
+        synchronized (root)
         {
-            result = "/" + XMLUtil.getGenericElementName(parent) + result;
-            parent = XMLUtil.getParentElement(parent);
-        }
+            String result = "/" + name();
 
-        return result;
+            Element parent = XMLUtil.getParentElement(currentElement);
+            while ((parent != null) && (parent != root.element))
+            {
+                result = "/" + XMLUtil.getGenericElementName(parent) + result;
+                parent = XMLUtil.getParentElement(parent);
+            }
+
+            return result;
+        }
     }
 
     public String name()
     {
-        return XMLUtil.getGenericElementName(currentElement);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementName(currentElement);
+        }
     }
 
     public XMLPreferences getParent()
     {
-        final Element parent = XMLUtil.getParentElement(currentElement);
+        synchronized (root)
+        {
+            final Element parent = XMLUtil.getParentElement(currentElement);
 
-        if (parent != null)
-            return new XMLPreferences(root, parent);
+            if (parent != null)
+                return new XMLPreferences(root, parent);
 
-        return null;
+            return null;
+        }
     }
 
     public ArrayList<XMLPreferences> getChildren()
     {
-        final ArrayList<XMLPreferences> result = new ArrayList<XMLPreferences>();
+        synchronized (root)
+        {
+            final ArrayList<XMLPreferences> result = new ArrayList<XMLPreferences>();
 
-        for (Element element : XMLUtil.getGenericElements(currentElement, TYPE_SECTION))
-            result.add(new XMLPreferences(root, element));
+            for (Element element : XMLUtil.getGenericElements(currentElement, TYPE_SECTION))
+                result.add(new XMLPreferences(root, element));
 
-        return result;
+            return result;
+        }
     }
 
     public ArrayList<String> childrenNames()
     {
-        final ArrayList<String> result = new ArrayList<String>();
+        synchronized (root)
+        {
+            final ArrayList<String> result = new ArrayList<String>();
 
-        for (Element element : XMLUtil.getGenericElements(currentElement, TYPE_SECTION))
-            result.add(XMLUtil.getGenericElementName(element));
+            for (Element element : XMLUtil.getGenericElements(currentElement, TYPE_SECTION))
+                result.add(XMLUtil.getGenericElementName(element));
 
-        return result;
+            return result;
+        }
     }
 
     private Element getSection(String name)
@@ -198,8 +405,21 @@ public class XMLPreferences
         }
 
         for (String subName : name.split("/"))
+        {
             if (!subName.isEmpty())
-                element = XMLUtil.setGenericElement(element, TYPE_SECTION, subName);
+            {
+                final Element section = XMLUtil.getGenericElement(element, TYPE_SECTION, subName);
+
+                if (section == null)
+                {
+                    // section created --> need to be saved
+                    element = XMLUtil.addGenericElement(element, TYPE_SECTION, subName);
+                    root.saveLater();
+                }
+                else
+                    element = section;
+            }
+        }
 
         return element;
     }
@@ -209,12 +429,15 @@ public class XMLPreferences
      */
     public XMLPreferences node(String name)
     {
-        final Element element = setSection(name);
+        synchronized (root)
+        {
+            final Element element = setSection(name);
 
-        if (element != null)
-            return new XMLPreferences(root, element);
+            if (element != null)
+                return new XMLPreferences(root, element);
 
-        return null;
+            return null;
+        }
     }
 
     /**
@@ -243,23 +466,26 @@ public class XMLPreferences
      */
     public boolean exists()
     {
-        // root element, always exists
-        if (currentElement == root.element)
-            return true;
-
-        // try to reach root from current element
-        Element parent = XMLUtil.getParentElement(currentElement);
-        while (parent != null)
+        synchronized (root)
         {
-            // we reached root so the element still exist
-            if (parent == root.element)
+            // root element, always exists
+            if (currentElement == root.element)
                 return true;
 
-            parent = XMLUtil.getParentElement(parent);
-        }
+            // try to reach root from current element
+            Element parent = XMLUtil.getParentElement(currentElement);
+            while (parent != null)
+            {
+                // we reached root so the element still exist
+                if (parent == root.element)
+                    return true;
 
-        // can't reach root, element is no more existing
-        return false;
+                parent = XMLUtil.getParentElement(parent);
+            }
+
+            // can't reach root, element is no more existing
+            return false;
+        }
     }
 
     /**
@@ -267,7 +493,10 @@ public class XMLPreferences
      */
     public boolean nodeExists(String name)
     {
-        return getSection(name) != null;
+        synchronized (root)
+        {
+            return getSection(name) != null;
+        }
     }
 
     /**
@@ -285,12 +514,15 @@ public class XMLPreferences
 
     public ArrayList<String> keys()
     {
-        final ArrayList<String> result = new ArrayList<String>();
+        synchronized (root)
+        {
+            final ArrayList<String> result = new ArrayList<String>();
 
-        for (Element element : XMLUtil.getGenericElements(currentElement, TYPE_KEY))
-            result.add(XMLUtil.getGenericElementName(element));
+            for (Element element : XMLUtil.getGenericElements(currentElement, TYPE_KEY))
+                result.add(XMLUtil.getGenericElementName(element));
 
-        return result;
+            return result;
+        }
     }
 
     /**
@@ -298,14 +530,17 @@ public class XMLPreferences
      */
     public void clean()
     {
-        final ArrayList<Node> nodes = XMLUtil.getChildren(currentElement);
-
-        for (Node node : nodes)
+        synchronized (root)
         {
-            final String nodeName = node.getNodeName();
+            final ArrayList<Node> nodes = XMLUtil.getChildren(currentElement);
+
+            for (Node node : nodes)
+            {
+                final String nodeName = node.getNodeName();
 
-            if (!(nodeName.equals(TYPE_KEY) || nodeName.equals(TYPE_SECTION)))
-                XMLUtil.removeNode(currentElement, node);
+                if (!(nodeName.equals(TYPE_KEY) || nodeName.equals(TYPE_SECTION)))
+                    XMLUtil.removeNode(currentElement, node);
+            }
         }
     }
 
@@ -314,7 +549,12 @@ public class XMLPreferences
      */
     public void clear()
     {
-        XMLUtil.removeChildren(currentElement, TYPE_KEY);
+        synchronized (root)
+        {
+            XMLUtil.removeChildren(currentElement, TYPE_KEY);
+
+            root.saveLater();
+        }
     }
 
     /**
@@ -336,7 +576,12 @@ public class XMLPreferences
      */
     public void remove()
     {
-        remove(currentElement);
+        synchronized (root)
+        {
+            remove(currentElement);
+
+            root.saveLater();
+        }
     }
 
     /**
@@ -344,7 +589,12 @@ public class XMLPreferences
      */
     public void remove(String name)
     {
-        remove(getSection(name));
+        synchronized (root)
+        {
+            remove(getSection(name));
+
+            root.saveLater();
+        }
     }
 
     /**
@@ -352,77 +602,138 @@ public class XMLPreferences
      */
     public void removeChildren()
     {
-        XMLUtil.removeChildren(currentElement, TYPE_SECTION);
+        synchronized (root)
+        {
+            XMLUtil.removeChildren(currentElement, TYPE_SECTION);
+
+            root.saveLater();
+        }
     }
 
     public String get(String key, String def)
     {
-        return XMLUtil.getGenericElementValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public boolean getBoolean(String key, boolean def)
     {
-        return XMLUtil.getGenericElementBooleanValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementBooleanValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public byte[] getBytes(String key, byte[] def)
     {
-        return XMLUtil.getGenericElementBytesValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementBytesValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public double getDouble(String key, double def)
     {
-        return XMLUtil.getGenericElementDoubleValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementDoubleValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public float getFloat(String key, float def)
     {
-        return XMLUtil.getGenericElementFloatValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementFloatValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public int getInt(String key, int def)
     {
-        return XMLUtil.getGenericElementIntValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementIntValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public long getLong(String key, long def)
     {
-        return XMLUtil.getGenericElementLongValue(currentElement, TYPE_KEY, key, def);
+        synchronized (root)
+        {
+            return XMLUtil.getGenericElementLongValue(currentElement, TYPE_KEY, key, def);
+        }
     }
 
     public void put(String key, String value)
     {
-        XMLUtil.setGenericElementValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
     public void putBoolean(String key, boolean value)
     {
-        XMLUtil.setGenericElementBooleanValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementBooleanValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
     public void putBytes(String key, byte[] value)
     {
-        XMLUtil.setGenericElementBytesValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementBytesValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
     public void putDouble(String key, double value)
     {
-        XMLUtil.setGenericElementDoubleValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementDoubleValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
     public void putFloat(String key, float value)
     {
-        XMLUtil.setGenericElementFloatValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementFloatValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
     public void putInt(String key, int value)
     {
-        XMLUtil.setGenericElementIntValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementIntValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
     public void putLong(String key, long value)
     {
-        XMLUtil.setGenericElementLongValue(currentElement, TYPE_KEY, key, value);
+        synchronized (root)
+        {
+            XMLUtil.setGenericElementLongValue(currentElement, TYPE_KEY, key, value);
+
+            root.saveLater();
+        }
     }
 
 }
@@ -34,6 +34,7 @@ import icy.type.rectangle.Rectangle5D;
 import icy.util.ClassUtil;
 import icy.util.StringUtil;
 import icy.util.XMLUtil;
+import icy.util.XMLUtil.ElementDecoder;
 
 import java.awt.Color;
 import java.awt.geom.Point2D;
@@ -41,9 +42,13 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.event.EventListenerList;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 public abstract class ROI implements ChangeListener, XMLPersistent
@@ -258,6 +263,40 @@ public abstract class ROI implements ChangeListener, XMLPersistent
         return result;
     }
 
+    /**
+     * Return a list of ROI from a XML stream (reader should be on the start of the element
+     * containing the ROIs, it ends on the element end).<br>
+     * ROIs are created in document order (so are their ids) and their properties are decoded
+     * concurrently while the stream is read.
+     * 
+     * @param reader
+     *        XML stream reader
+     * @return the list of ROI
+     * @throws XMLStreamException
+     *         if an error occurred while reading the stream
+     */
+    public static List<ROI> getROIsFromXML(XMLStreamReader reader) throws XMLStreamException
+    {
+        return XMLUtil.decodeElements(reader, ID_ROI, new ElementDecoder<ROI>()
+        {
+            @Override
+            public ROI create(Element element)
+            {
+                final String className = XMLUtil.getElementValue(element, ID_CLASSNAME, "");
+
+                return ROI.create(className, null, new Point2D.Double(0, 0), false);
+            }
+
+            @Override
+            public void decode(ROI roi, Element element)
+            {
+                // load properties from XML
+                roi.loadFromXML(element);
+                roi.setSelected(false, false);
+            }
+        });
+    }
+
     /**
      * Set a list of ROI to a XML node.
      * 
@@ -539,6 +578,33 @@ public abstract class ROI implements ChangeListener, XMLPersistent
      */
     private static int id_generator = 1;
 
+    /**
+     * global selection / focus and position versions, incremented as soon as any ROI state
+     * changes (change events can be deferred by {@link #beginUpdate()})
+     */
+    private static final AtomicInteger stateVersion = new AtomicInteger(0);
+    private static final AtomicInteger positionVersion = new AtomicInteger(0);
+
+    /**
+     * Returns the global ROI selection / focus state version.<br>
+     * It changes as soon as the selected or focused state of any ROI changes so caches depending
+     * on it can be validated even while ROI change events are deferred.
+     */
+    public static int getStateVersion()
+    {
+        return stateVersion.get();
+    }
+
+    /**
+     * Returns the global ROI position version.<br>
+     * It changes as soon as the Z / T / C position of any ROI changes so caches depending on it
+     * can be validated even while ROI change events are deferred.
+     */
+    public static int getPositionVersion()
+    {
+        return positionVersion.get();
+    }
+
     /**
      * associated ROI painter
      */
@@ -863,6 +929,7 @@ public abstract class ROI implements ChangeListener, XMLPersistent
         if (focused != true)
         {
             focused = true;
+            stateVersion.incrementAndGet();
             focusChanged();
         }
     }
@@ -872,6 +939,7 @@ public abstract class ROI implements ChangeListener, XMLPersistent
         if (focused != false)
         {
             focused = false;
+            stateVersion.incrementAndGet();
             focusChanged();
         }
     }
@@ -920,6 +988,7 @@ public abstract class ROI implements ChangeListener, XMLPersistent
             selected = false;
             // as soon ROI has been unselected, we're not in create mode anymore
             creating = false;
+            stateVersion.incrementAndGet();
             selectionChanged();
         }
     }
@@ -929,6 +998,7 @@ public abstract class ROI implements ChangeListener, XMLPersistent
         if (selected != true)
         {
             selected = true;
+            stateVersion.incrementAndGet();
             selectionChanged();
         }
     }
@@ -1124,6 +1194,15 @@ public abstract class ROI implements ChangeListener, XMLPersistent
         updater.changed(new ROIEvent(this, ROIEventType.ROI_CHANGED, pointEventType, point));
     }
 
+    /**
+     * Called when ROI has changed its Z / T / C position.
+     */
+    protected void roiPositionChanged()
+    {
+        positionVersion.incrementAndGet();
+        roiChanged();
+    }
+
     /**
      * Called when ROI has changed its bounds.
      */
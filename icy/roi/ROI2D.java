@@ -534,7 +534,7 @@ public abstract class ROI2D extends ROI
         if (z != value)
         {
             z = value;
-            roiChanged();
+            roiPositionChanged();
         }
     }
 
@@ -555,7 +555,7 @@ public abstract class ROI2D extends ROI
         if (t != value)
         {
             t = value;
-            roiChanged();
+            roiPositionChanged();
         }
     }
 
@@ -576,7 +576,7 @@ public abstract class ROI2D extends ROI
         if (c != value)
         {
             c = value;
-            roiChanged();
+            roiPositionChanged();
         }
     }
 
@@ -636,6 +636,10 @@ public abstract class ROI2DShape extends ROI2D implements Shape, Anchor2DListene
      * control points
      */
     protected final ArrayList<Anchor2D> controlPoints;
+    /**
+     * cached boolean masks (exclusive and inclusive) of the whole shape
+     */
+    private final BooleanMask2D[] cachedMasks;
 
     public ROI2DShape(Shape shape)
     {
@@ -643,6 +647,7 @@ public abstract class ROI2DShape extends ROI2D implements Shape, Anchor2DListene
 
         this.shape = shape;
         controlPoints = new ArrayList<Anchor2D>();
+        cachedMasks = new BooleanMask2D[2];
     }
 
     @Override
@@ -697,6 +702,52 @@ public abstract class ROI2DShape extends ROI2D implements Shape, Anchor2DListene
     {
         // the shape should have been rebuilt here
         ((ROI2DShapePainter) painter).needRebuild = true;
+
+        // cached masks are no more valid
+        synchronized (cachedMasks)
+        {
+            cachedMasks[0] = null;
+            cachedMasks[1] = null;
+        }
+    }
+
+    /**
+     * Return the boolean mask of the whole shape (computed on first call then cached until the
+     * shape changes).
+     */
+    protected BooleanMask2D getCachedBooleanMask(boolean inclusive)
+    {
+        final int index = inclusive ? 1 : 0;
+
+        synchronized (cachedMasks)
+        {
+            BooleanMask2D result = cachedMasks[index];
+
+            if (result == null)
+            {
+                final Rectangle bounds = getMaskBounds(inclusive);
+
+                result = new BooleanMask2D(bounds, ShapeRasterizer.getBooleanMask(shape, bounds.x, bounds.y,
+                        bounds.width, bounds.height, inclusive));
+                cachedMasks[index] = result;
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Return the pixel bounds of the shape mask.
+     */
+    private Rectangle getMaskBounds(boolean inclusive)
+    {
+        final Rectangle result = shape.getBounds();
+
+        // pixels only touching the shape border are intersected
+        if (inclusive)
+            result.grow(1, 1);
+
+        return result;
     }
 
     protected Anchor2D getSelectedPoint()
@@ -1100,6 +1151,73 @@ public abstract class ROI2DShape extends ROI2D implements Shape, Anchor2DListene
         return shape.getBounds();
     }
 
+    @Override
+    public boolean[] getBooleanMask(int x, int y, int w, int h, boolean inclusive)
+    {
+        if ((w <= 0) || (h <= 0))
+            return new boolean[0];
+
+        final Rectangle region = new Rectangle(x, y, w, h);
+        final BooleanMask2D mask;
+
+        synchronized (cachedMasks)
+        {
+            final BooleanMask2D cached = cachedMasks[inclusive ? 1 : 0];
+
+            // whole shape mask already built or requested --> use (and cache) it
+            if ((cached != null) || region.contains(getMaskBounds(inclusive)))
+                mask = getCachedBooleanMask(inclusive);
+            else
+                mask = null;
+        }
+
+        // only a part of the shape is requested --> rasterize that part only (not cached)
+        if (mask == null)
+        {
+            final Rectangle intersect = getMaskBounds(inclusive).intersection(region);
+
+            if (intersect.isEmpty())
+                return new boolean[w * h];
+            if (intersect.equals(region))
+                return ShapeRasterizer.getBooleanMask(shape, x, y, w, h, inclusive);
+
+            return copyMask(intersect,
+                    ShapeRasterizer.getBooleanMask(shape, intersect.x, intersect.y, intersect.width,
+                            intersect.height, inclusive), region);
+        }
+
+        return copyMask(mask.bounds, mask.mask, region);
+    }
+
+    /**
+     * Copy the specified mask in a new mask covering <code>region</code> (pixels outside the
+     * source mask are false).
+     */
+    private static boolean[] copyMask(Rectangle bounds, boolean[] mask, Rectangle region)
+    {
+        final boolean[] result = new boolean[region.width * region.height];
+        final Rectangle intersect = bounds.intersection(region);
+        final int x = region.x;
+        final int y = region.y;
+        final int w = region.width;
+
+        // no intersection between mask and specified rectangle
+        if (intersect.isEmpty())
+            return result;
+
+        int offSrc = (intersect.x - bounds.x) + ((intersect.y - bounds.y) * bounds.width);
+        int offDst = (intersect.x - x) + ((intersect.y - y) * w);
+
+        for (int j = 0; j < intersect.height; j++)
+        {
+            System.arraycopy(mask, offSrc, result, offDst, intersect.width);
+            offSrc += bounds.width;
+            offDst += w;
+        }
+
+        return result;
+    }
+
     @Override
     public Rectangle2D getBounds2D()
     {
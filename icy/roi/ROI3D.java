@@ -111,7 +111,7 @@ public abstract class ROI3D extends ROI
         if (t != value)
         {
             t = value;
-            roiChanged();
+            roiPositionChanged();
         }
     }
 
@@ -132,7 +132,7 @@ public abstract class ROI3D extends ROI
         if (c != value)
         {
             c = value;
-            roiChanged();
+            roiPositionChanged();
         }
     }
 
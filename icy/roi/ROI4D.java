@@ -105,7 +105,7 @@ public abstract class ROI4D extends ROI
         if (c != value)
         {
             c = value;
-            roiChanged();
+            roiPositionChanged();
         }
     }
 
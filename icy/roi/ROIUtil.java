@@ -4,6 +4,9 @@
 package icy.roi;
 
 import icy.image.IntensityInfo;
+import icy.image.TiledImage;
+import icy.image.TiledImageDataIterator;
+import icy.image.TiledImageDataIterator.TileLoadingException;
 import icy.math.DataIteratorMath;
 import icy.sequence.Sequence;
 import icy.sequence.SequenceDataIterator;
@@ -25,47 +28,21 @@ public class ROIUtil
         return new SequenceDataIterator(sequence, roi);
     }
 
+    /**
+     * Return a {@link DataIterator} object from the specified {@link ROI2D} and
+     * {@link TiledImage}.<br>
+     * Data is iterated tile by tile so the whole image never need to be loaded.
+     */
+    public static TiledImageDataIterator getDataIterator(TiledImage image, ROI2D roi)
+    {
+        return new TiledImageDataIterator(image, roi);
+    }
+
     public static IntensityInfo getIntensityInfo(Sequence sequence, ROI roi)
     {
         try
         {
-            final IntensityInfo result = new IntensityInfo();
-            final SequenceDataIterator it = getDataIterator(sequence, roi);
-
-            long numPixels = 0;
-            double min = Double.MAX_VALUE;
-            double max = -Double.MAX_VALUE;
-            double sum = 0;
-
-            // faster to do all calculation in a single iteration run
-            while (!it.done())
-            {
-                final double value = it.get();
-
-                if (value < min)
-                    min = value;
-                if (value > max)
-                    max = value;
-                sum += value;
-                numPixels++;
-
-                it.next();
-            }
-
-            if (numPixels > 0)
-            {
-                result.minIntensity = min;
-                result.maxIntensity = max;
-                result.meanIntensity = sum / numPixels;
-            }
-            else
-            {
-                result.minIntensity = 0d;
-                result.maxIntensity = 0d;
-                result.meanIntensity = 0d;
-            }
-
-            return result;
+            return getIntensityInfo(getDataIterator(sequence, roi));
         }
         catch (Exception e)
         {
@@ -75,6 +52,71 @@ public class ROIUtil
         }
     }
 
+    /**
+     * Compute intensity informations of the specified {@link TiledImage} inside the ROI.<br>
+     * Tiles are loaded (and released) one by one so this works on images too large to fit in
+     * memory.
+     * 
+     * @throws Exception
+     *         if a tile cannot be loaded
+     */
+    public static IntensityInfo getIntensityInfo(TiledImage image, ROI2D roi) throws Exception
+    {
+        try
+        {
+            return getIntensityInfo(getDataIterator(image, roi));
+        }
+        catch (TileLoadingException e)
+        {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+
+            throw e;
+        }
+    }
+
+    private static IntensityInfo getIntensityInfo(DataIterator it)
+    {
+        final IntensityInfo result = new IntensityInfo();
+
+        long numPixels = 0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double sum = 0;
+
+        // faster to do all calculation in a single iteration run
+        while (!it.done())
+        {
+            final double value = it.get();
+
+            if (value < min)
+                min = value;
+            if (value > max)
+                max = value;
+            sum += value;
+            numPixels++;
+
+            it.next();
+        }
+
+        if (numPixels > 0)
+        {
+            result.minIntensity = min;
+            result.maxIntensity = max;
+            result.meanIntensity = sum / numPixels;
+        }
+        else
+        {
+            result.minIntensity = 0d;
+            result.maxIntensity = 0d;
+            result.meanIntensity = 0d;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the number of pixel contained in the ROI of specified sequence.
      */
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.roi;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scanline rasterizer building boolean masks directly from a {@link Shape} outline.<br>
+ * The result is identical to testing each pixel with <code>shape.contains(x, y, 1, 1)</code>
+ * (or <code>shape.intersects(x, y, 1, 1)</code> in inclusive mode) for polygonal shapes and
+ * lines (curves are flattened first so pixels tangent to a curve may differ) but only pixels
+ * touching the outline are tested:
+ * <ul>
+ * <li>pixels touched by an edge (supercover of the edge, borders and corners included) use the
+ * Java2D test</li>
+ * <li>other pixels are entirely inside or outside so their center is tested with the shape winding
+ * rule (even-odd or non-zero), a whole row being filled in a single pass over the edges</li>
+ * </ul>
+ * 
+ * @author Stephane
+ */
+public class ShapeRasterizer
+{
+    /**
+     * Flatness used to convert curves into line segments (in pixel)
+     */
+    public static final double DEFAULT_FLATNESS = 0.01d;
+
+    /**
+     * Return the boolean mask of the specified rectangular area of the shape.<br>
+     * if the pixel (x,y) is contained in the shape then result[(y * w) + x] = true
+     * 
+     * @param shape
+     *        shape to rasterize
+     * @param x
+     *        the X coordinate of the upper-left corner of the area
+     * @param y
+     *        the Y coordinate of the upper-left corner of the area
+     * @param w
+     *        the width of the area
+     * @param h
+     *        the height of the area
+     * @param inclusive
+     *        If true then all partially contained (intersected) pixels are included in the mask.
+     */
+    public static boolean[] getBooleanMask(Shape shape, int x, int y, int w, int h, boolean inclusive)
+    {
+        if ((w <= 0) || (h <= 0))
+            return new boolean[0];
+
+        final boolean[] result = new boolean[w * h];
+        final PathIterator pathIt = shape.getPathIterator(null, DEFAULT_FLATNESS);
+        final boolean evenOdd = (pathIt.getWindingRule() == PathIterator.WIND_EVEN_ODD);
+        final List<double[]>[] rowEdges = getRowEdges(getEdges(pathIt), y, h);
+        final boolean[] boundary = new boolean[w];
+
+        double[] up = new double[16];
+        double[] down = new double[16];
+
+        for (int j = 0; j < h; j++)
+        {
+            final List<double[]> edges = rowEdges[j];
+
+            if (edges == null)
+                continue;
+
+            final int offset = j * w;
+            final double top = y + j;
+            final double center = top + 0.5d;
+            int numUp = 0;
+            int numDown = 0;
+
+            // get edge crossings at pixel center
+            for (double[] edge : edges)
+            {
+                final double y0 = edge[1];
+                final double y1 = edge[3];
+
+                if ((y0 != y1) && (Math.min(y0, y1) <= center) && (center < Math.max(y0, y1)))
+                {
+                    final double cx = xAt(edge, center);
+
+                    if (y1 > y0)
+                    {
+                        if (numUp == up.length)
+                            up = Arrays.copyOf(up, numUp * 2);
+                        up[numUp++] = cx;
+                    }
+                    else
+                    {
+                        if (numDown == down.length)
+                            down = Arrays.copyOf(down, numDown * 2);
+                        down[numDown++] = cx;
+                    }
+                }
+            }
+
+            // fill spans which are inside
+            if ((numUp + numDown) > 0)
+            {
+                Arrays.sort(up, 0, numUp);
+                Arrays.sort(down, 0, numDown);
+
+                int iu = 0;
+                int id = 0;
+                int winding = 0;
+                int count = 0;
+                boolean inside = false;
+                double start = 0d;
+
+                while ((iu < numUp) || (id < numDown))
+                {
+                    final double cx;
+
+                    if ((id >= numDown) || ((iu < numUp) && (up[iu] <= down[id])))
+                    {
+                        cx = up[iu++];
+                        winding++;
+                    }
+                    else
+                    {
+                        cx = down[id++];
+                        winding--;
+                    }
+                    count++;
+
+                    final boolean nowInside = evenOdd ? ((count & 1) != 0) : (winding != 0);
+
+                    if (!inside && nowInside)
+                        start = cx;
+                    else if (inside && !nowInside)
+                        fillCenters(result, offset, x, w, start, cx);
+
+                    inside = nowInside;
+                }
+            }
+
+            // pixels touched by an edge use the exact test
+            for (double[] edge : edges)
+                markBoundary(boundary, x, w, edge, top);
+
+            for (int i = 0; i < w; i++)
+            {
+                if (boundary[i])
+                {
+                    final boolean value;
+
+                    if (inclusive)
+                        value = shape.intersects(x + i, top, 1d, 1d);
+                    else
+                        value = shape.contains(x + i, top, 1d, 1d);
+
+                    result[offset + i] = value;
+                    boundary[i] = false;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Set pixels having their center in [start, end[
+     */
+    private static void fillCenters(boolean[] result, int offset, int x, int w, double start, double end)
+    {
+        final int i0 = Math.max(x, (int) Math.ceil(start - 0.5d));
+        final int i1 = Math.min(x + w, (int) Math.ceil(end - 0.5d));
+
+        if (i0 < i1)
+            Arrays.fill(result, offset + (i0 - x), offset + (i1 - x), true);
+    }
+
+    /**
+     * Mark pixels of the row touched by the specified edge (closed pixel square and closed
+     * segment).
+     */
+    private static void markBoundary(boolean[] boundary, int x, int w, double[] edge, double top)
+    {
+        final double y0 = edge[1];
+        final double y1 = edge[3];
+        final double xa;
+        final double xb;
+
+        if (y0 == y1)
+        {
+            if ((y0 < top) || (y0 > top + 1d))
+                return;
+
+            xa = Math.min(edge[0], edge[2]);
+            xb = Math.max(edge[0], edge[2]);
+        }
+        else
+        {
+            final double ya = Math.max(Math.min(y0, y1), top);
+            final double yb = Math.min(Math.max(y0, y1), top + 1d);
+
+            if (ya > yb)
+                return;
+
+            final double x0 = xAt(edge, ya);
+            final double x1 = xAt(edge, yb);
+
+            xa = Math.min(x0, x1);
+            xb = Math.max(x0, x1);
+        }
+
+        // pixel [i, i + 1] touches [xa, xb] for i in [ceil(xa) - 1, floor(xb)] (one more on each
+        // side to be safe with rounding, they are tested anyway)
+        final int i0 = Math.max(x, (int) Math.floor(xa) - 1);
+        final int i1 = Math.min(x + w - 1, (int) Math.floor(xb) + 1);
+
+        if (i0 <= i1)
+            Arrays.fill(boundary, i0 - x, (i1 - x) + 1, true);
+    }
+
+    private static double xAt(double[] edge, double y)
+    {
+        final double x0 = edge[0];
+        final double y0 = edge[1];
+
+        return x0 + (((y - y0) * (edge[2] - x0)) / (edge[3] - y0));
+    }
+
+    /**
+     * Return the list of edges {x0, y0, x1, y1} of the flattened path (sub paths are implicitly
+     * closed as done by Java2D for containment tests).
+     */
+    private static List<double[]> getEdges(PathIterator pathIt)
+    {
+        final List<double[]> result = new ArrayList<double[]>();
+        final double[] crd = new double[6];
+        double startX = 0d, startY = 0d;
+        double lastX = 0d, lastY = 0d;
+
+        while (!pathIt.isDone())
+        {
+            switch (pathIt.currentSegment(crd))
+            {
+                case PathIterator.SEG_MOVETO:
+                    addEdge(result, lastX, lastY, startX, startY);
+                    startX = lastX = crd[0];
+                    startY = lastY = crd[1];
+                    break;
+
+                case PathIterator.SEG_LINETO:
+                    // keep zero length segment (point) as it can intersect pixels
+                    result.add(new double[] {lastX, lastY, crd[0], crd[1]});
+                    lastX = crd[0];
+                    lastY = crd[1];
+                    break;
+
+                case PathIterator.SEG_CLOSE:
+                    addEdge(result, lastX, lastY, startX, startY);
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+            }
+
+            pathIt.next();
+        }
+
+        addEdge(result, lastX, lastY, startX, startY);
+
+        return result;
+    }
+
+    private static void addEdge(List<double[]> edges, double x0, double y0, double x1, double y1)
+    {
+        if ((x0 != x1) || (y0 != y1))
+            edges.add(new double[] {x0, y0, x1, y1});
+    }
+
+    /**
+     * Dispatch edges on the rows [y, y + h[ they cover or touch.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<double[]>[] getRowEdges(List<double[]> edges, int y, int h)
+    {
+        final List<double[]>[] result = new List[h];
+
+        for (double[] edge : edges)
+        {
+            final double minY = Math.min(edge[1], edge[3]);
+            final double maxY = Math.max(edge[1], edge[3]);
+            final int j0 = Math.max(y, (int) Math.floor(minY) - 1);
+            final int j1 = Math.min(y + h - 1, (int) Math.floor(maxY));
+
+            for (int j = j0; j <= j1; j++)
+            {
+                List<double[]> row = result[j - y];
+
+                if (row == null)
+                {
+                    row = new ArrayList<double[]>();
+                    result[j - y] = row;
+                }
+
+                row.add(edge);
+            }
+        }
+
+        return result;
+    }
+}
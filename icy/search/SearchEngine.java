@@ -123,8 +123,8 @@ public class SearchEngine implements SearchResultConsumer, PluginLoaderListener
     {
         // save search string
         lastSearch = text;
-        // separate words
-        final String[] words = (text.split(" "));
+        // separate words (ignore extra spaces)
+        final String[] words = text.trim().split("\\s+");
 
         // notify search started
         fireSearchStartedEvent();
@@ -0,0 +1,404 @@
+package icy.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In memory inverted index used by {@link SearchResultProducer} to quickly find items from search
+ * keywords.<br>
+ * Item texts are split in lower case tokens, each token is associated to the items containing it
+ * with the score of the field it comes from. A keyword matches every token it is a prefix of.<br>
+ * A {@link Query} can be refined: when the new keywords only extend the previous ones we just
+ * filter the previous matches instead of scanning the whole index again.
+ *
+ * @author Stephane
+ */
+public class SearchIndex<T>
+{
+    /**
+     * Item matching a query with its score.
+     */
+    public static class Match<T> implements Comparable<Match<T>>
+    {
+        final T item;
+        final int score;
+
+        Match(T item, int score)
+        {
+            super();
+
+            this.item = item;
+            this.score = score;
+        }
+
+        public T getItem()
+        {
+            return item;
+        }
+
+        public int getScore()
+        {
+            return score;
+        }
+
+        @Override
+        public int compareTo(Match<T> o)
+        {
+            // lowest score first
+            return score - o.score;
+        }
+    }
+
+    /**
+     * Result of a search request, keep matches so it can be refined.
+     */
+    public static class Query<T>
+    {
+        final String[] words;
+        final int minScore;
+        final int version;
+        final Map<T, Integer> matches;
+
+        Query(String[] words, int minScore, int version, Map<T, Integer> matches)
+        {
+            super();
+
+            this.words = words;
+            this.minScore = minScore;
+            this.version = version;
+            this.matches = matches;
+        }
+
+        /**
+         * Returns normalized keywords of the query.
+         */
+        public String[] getWords()
+        {
+            return words;
+        }
+
+        /**
+         * Returns the number of matching items.
+         */
+        public int getMatchCount()
+        {
+            return matches.size();
+        }
+
+        /**
+         * Returns the <code>max</code> best matches sorted on score (best first).
+         */
+        public List<Match<T>> getBestMatches(int max)
+        {
+            final PriorityQueue<Match<T>> queue = new PriorityQueue<Match<T>>(Math.max(1, max + 1));
+
+            for (Entry<T, Integer> entry : matches.entrySet())
+            {
+                final int score = entry.getValue().intValue();
+
+                // keep the k best matches only
+                if ((queue.size() < max) || (score > queue.peek().score))
+                {
+                    queue.add(new Match<T>(entry.getKey(), score));
+                    if (queue.size() > max)
+                        queue.poll();
+                }
+            }
+
+            final List<Match<T>> result = new ArrayList<Match<T>>(queue);
+
+            Collections.sort(result, Collections.reverseOrder());
+
+            return result;
+        }
+
+        /**
+         * Returns true if this query can be used to compute the specified one.
+         */
+        boolean canRefine(String[] newWords, int newMinScore, int currentVersion)
+        {
+            if ((words.length == 0) || (version != currentVersion) || (minScore > newMinScore)
+                    || (words.length > newWords.length))
+                return false;
+
+            // all previous keywords should be prefix of the new ones
+            for (int i = 0; i < words.length; i++)
+                if (!newWords[i].startsWith(words[i]))
+                    return false;
+
+            return true;
+        }
+    }
+
+    public static final int DEFAULT_MAX_RESULTS = 50;
+
+    /**
+     * token --> (item --> score)
+     */
+    private final TreeMap<String, Map<T, Integer>> tokens;
+    /**
+     * item --> (token --> score)
+     */
+    private final Map<T, Map<String, Integer>> items;
+    /**
+     * modification counter
+     */
+    private int version;
+
+    public SearchIndex()
+    {
+        super();
+
+        tokens = new TreeMap<String, Map<T, Integer>>();
+        items = new HashMap<T, Map<String, Integer>>();
+        version = 0;
+    }
+
+    /**
+     * Split the specified text in lower case tokens (letters and digits only).
+     */
+    public static String[] tokenize(String text)
+    {
+        if (text == null)
+            return new String[0];
+
+        final List<String> result = new ArrayList<String>();
+
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+            if (token.length() > 0)
+                result.add(token);
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Split all specified keywords in tokens.
+     */
+    public static String[] tokenize(String[] words)
+    {
+        final List<String> result = new ArrayList<String>();
+
+        for (String word : words)
+            for (String token : tokenize(word))
+                result.add(token);
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Index the specified text for the given item.<br>
+     * If a token is already indexed for this item then the best score is kept.
+     */
+    public synchronized void add(T item, String text, int score)
+    {
+        final String[] words = tokenize(text);
+
+        if (words.length == 0)
+            return;
+
+        Map<String, Integer> itemTokens = items.get(item);
+
+        if (itemTokens == null)
+        {
+            itemTokens = new HashMap<String, Integer>();
+            items.put(item, itemTokens);
+        }
+
+        for (String word : words)
+        {
+            final Integer previous = itemTokens.get(word);
+
+            if ((previous != null) && (previous.intValue() >= score))
+                continue;
+
+            final Integer value = Integer.valueOf(score);
+            Map<T, Integer> tokenItems = tokens.get(word);
+
+            if (tokenItems == null)
+            {
+                tokenItems = new HashMap<T, Integer>();
+                tokens.put(word, tokenItems);
+            }
+
+            itemTokens.put(word, value);
+            tokenItems.put(item, value);
+        }
+
+        version++;
+    }
+
+    /**
+     * Remove the specified item from the index.
+     */
+    public synchronized void remove(T item)
+    {
+        final Map<String, Integer> itemTokens = items.remove(item);
+
+        if (itemTokens == null)
+            return;
+
+        for (String word : itemTokens.keySet())
+        {
+            final Map<T, Integer> tokenItems = tokens.get(word);
+
+            if (tokenItems != null)
+            {
+                tokenItems.remove(item);
+                if (tokenItems.isEmpty())
+                    tokens.remove(word);
+            }
+        }
+
+        version++;
+    }
+
+    /**
+     * Remove all items from the index.
+     */
+    public synchronized void clear()
+    {
+        tokens.clear();
+        items.clear();
+        version++;
+    }
+
+    /**
+     * Returns the number of indexed items.
+     */
+    public synchronized int getItemCount()
+    {
+        return items.size();
+    }
+
+    /**
+     * Returns true if the specified item is indexed.
+     */
+    public synchronized boolean contains(T item)
+    {
+        return items.containsKey(item);
+    }
+
+    /**
+     * Search for items containing all the specified keywords.<br>
+     * The score of an item is the mean of its best score for each keyword (+1 when the keyword
+     * exactly matches a token).
+     *
+     * @param words
+     *        search keywords
+     * @param minScore
+     *        minimum score for a keyword match to be accepted
+     * @param previous
+     *        previous query (can be null), used to only filter previous matches when the new
+     *        keywords extend the previous ones
+     */
+    public synchronized Query<T> search(String[] words, int minScore, Query<T> previous)
+    {
+        final String[] keys = tokenize(words);
+        final Map<T, Integer> matches = new HashMap<T, Integer>();
+
+        if (keys.length == 0)
+            return new Query<T>(keys, minScore, version, matches);
+
+        if ((previous != null) && previous.canRefine(keys, minScore, version))
+        {
+            // only filter previous matches
+            for (T item : previous.matches.keySet())
+            {
+                final int score = getScore(items.get(item), keys, minScore);
+
+                if (score > 0)
+                    matches.put(item, Integer.valueOf(score));
+            }
+        }
+        else
+        {
+            // start from the first keyword candidates
+            final Map<T, Integer> candidates = getMatches(keys[0], minScore);
+
+            for (Entry<T, Integer> entry : candidates.entrySet())
+            {
+                final T item = entry.getKey();
+                final int score;
+
+                if (keys.length > 1)
+                    score = getScore(items.get(item), keys, minScore);
+                else
+                    score = entry.getValue().intValue();
+
+                if (score > 0)
+                    matches.put(item, Integer.valueOf(score));
+            }
+        }
+
+        return new Query<T>(keys, minScore, version, matches);
+    }
+
+    /**
+     * Returns items having a token starting with the specified key, with their best score.
+     */
+    private Map<T, Integer> getMatches(String key, int minScore)
+    {
+        final Map<T, Integer> result = new HashMap<T, Integer>();
+        final SortedMap<String, Map<T, Integer>> range = tokens.subMap(key, key + Character.MAX_VALUE);
+
+        for (Entry<String, Map<T, Integer>> tokenEntry : range.entrySet())
+        {
+            final int bonus = tokenEntry.getKey().equals(key) ? 1 : 0;
+
+            for (Entry<T, Integer> entry : tokenEntry.getValue().entrySet())
+            {
+                final int score = entry.getValue().intValue();
+
+                if (score < minScore)
+                    continue;
+
+                final Integer previous = result.get(entry.getKey());
+
+                if ((previous == null) || (previous.intValue() < (score + bonus)))
+                    result.put(entry.getKey(), Integer.valueOf(score + bonus));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the mean score of the item tokens for the given keys (0 if a key is not found).
+     */
+    private static int getScore(Map<String, Integer> itemTokens, String[] keys, int minScore)
+    {
+        if (itemTokens == null)
+            return 0;
+
+        int result = 0;
+
+        for (String key : keys)
+        {
+            int best = 0;
+
+            for (Entry<String, Integer> entry : itemTokens.entrySet())
+            {
+                final String token = entry.getKey();
+                final int score = entry.getValue().intValue();
+
+                if ((score >= minScore) && token.startsWith(key))
+                    best = Math.max(best, score + (token.length() == key.length() ? 1 : 0));
+            }
+
+            // keyword not found --> reject
+            if (best == 0)
+                return 0;
+
+            result += best;
+        }
+
+        return result / keys.length;
+    }
+}
@@ -1,7 +1,6 @@
 package icy.search;
 
 import icy.system.thread.SingleProcessor;
-import icy.system.thread.ThreadUtil;
 import icy.util.StringUtil;
 
 import java.util.ArrayList;
@@ -18,33 +17,44 @@ public abstract class SearchResultProducer implements Comparable<SearchResultPro
     {
         private final String[] words;
         private final SearchResultConsumer consumer;
+        final int id;
 
-        public SearchRunner(String[] words, SearchResultConsumer consumer)
+        public SearchRunner(String[] words, SearchResultConsumer consumer, int id)
         {
             super();
 
             this.words = words;
             this.consumer = consumer;
+            this.id = id;
         }
 
         @Override
         public void run()
         {
-            // perform search if we have at least one not empty keyword
-            if ((words.length > 1) || !StringUtil.isEmpty(words[0]))
-                doSearch(words, consumer);
-            else
+            searchStarted(id);
+
+            try
             {
-                // clear the list if necessary
-                if (!results.isEmpty())
+                // perform search if we have at least one not empty keyword
+                if ((words.length > 1) || !StringUtil.isEmpty(words[0]))
+                    doSearch(words, consumer);
+                else
                 {
-                    results.clear();
-                    consumer.resultsChanged(SearchResultProducer.this);
+                    // clear the list if necessary
+                    if (!results.isEmpty())
+                    {
+                        results.clear();
+                        consumer.resultsChanged(SearchResultProducer.this);
+                    }
                 }
-            }
 
-            // search completed (do it after searching set to false)
-            consumer.searchCompleted(SearchResultProducer.this);
+                // search completed (do it after searching set to false)
+                consumer.searchCompleted(SearchResultProducer.this);
+            }
+            finally
+            {
+                searchDone(id);
+            }
         }
     }
 
@@ -53,6 +63,10 @@ public abstract class SearchResultProducer implements Comparable<SearchResultPro
 
     /** Internals */
     protected final SingleProcessor processor;
+    private final Object searchLock;
+    private int requestedSearch;
+    private int runningSearch;
+    private int completedSearch;
 
     public SearchResultProducer()
     {
@@ -60,6 +74,10 @@ public abstract class SearchResultProducer implements Comparable<SearchResultPro
 
         results = new ArrayList<SearchResult>();
         processor = new SingleProcessor(true);
+        searchLock = new Object();
+        requestedSearch = 0;
+        runningSearch = 0;
+        completedSearch = 0;
     }
 
     /** Returns the result producer order */
@@ -100,7 +118,35 @@ public abstract class SearchResultProducer implements Comparable<SearchResultPro
      */
     public void search(String[] words, SearchResultConsumer consumer)
     {
-        processor.addTask(new SearchRunner(words, consumer));
+        final int id;
+
+        synchronized (searchLock)
+        {
+            id = ++requestedSearch;
+        }
+
+        // previous waiting search (if any) is replaced by this one
+        if (!processor.addTask(new SearchRunner(words, consumer, id)))
+            searchDone(id);
+    }
+
+    void searchStarted(int id)
+    {
+        synchronized (searchLock)
+        {
+            runningSearch = id;
+        }
+    }
+
+    void searchDone(int id)
+    {
+        synchronized (searchLock)
+        {
+            // searches are executed in order so all previous ones are done (or dropped)
+            if (id > completedSearch)
+                completedSearch = id;
+            searchLock.notifyAll();
+        }
     }
 
     /**
@@ -123,12 +169,26 @@ public abstract class SearchResultProducer implements Comparable<SearchResultPro
     public abstract void doSearch(String[] words, SearchResultConsumer consumer);
 
     /**
-     * Wait for the search request to complete.
+     * Wait for the last search request to complete.
      */
     public void waitSearchComplete()
     {
-        while (isSearching())
-            ThreadUtil.sleep(1);
+        synchronized (searchLock)
+        {
+            while (completedSearch < requestedSearch)
+            {
+                try
+                {
+                    searchLock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    // restore interrupted state and stop waiting
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
     }
 
     /**
@@ -145,7 +205,12 @@ public abstract class SearchResultProducer implements Comparable<SearchResultPro
      */
     public boolean hasWaitingSearch()
     {
-        return processor.hasWaitingTasks();
+        synchronized (searchLock)
+        {
+            // a newer search has been requested (replaced waiting searches never run so only
+            // compare with the running one)
+            return runningSearch < requestedSearch;
+        }
     }
 
     /**
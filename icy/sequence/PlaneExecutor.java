@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.sequence;
+
+import icy.common.listener.ProgressListener;
+import icy.image.IcyBufferedImage;
+import icy.math.ArrayMathExecutor;
+import icy.system.SystemUtil;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the (T, Z) planes of a sequence concurrently on the shared compute pool (the
+ * {@link ArrayMathExecutor} one).<br>
+ * Used by {@link SequenceUtil} for per plane operations (type conversion, concatenation, copy...).
+ * <br>
+ * Only a bounded number of planes are computed ahead so memory use doesn't depend on the sequence
+ * size. Planes are stored in the result sequence from the calling thread, in T then Z order, inside
+ * a single update block.<br>
+ * Calls issued from a worker thread are executed serially and array operations done by a plane
+ * task are serial as well, so nested parallel calls neither dead lock nor multiply threads.
+ *
+ * @author Stephane
+ */
+public class PlaneExecutor
+{
+    /**
+     * Computes a single plane.
+     */
+    public static abstract class PlaneTask
+    {
+        /**
+         * Returns the (t, z) plane of the result (null means no image for this position).<br>
+         * A task working in place modifies the image data and returns the image itself, the data
+         * changed event is then fired from the calling thread.<br>
+         * Note that this method is called concurrently from several threads.
+         */
+        public abstract IcyBufferedImage compute(int t, int z);
+    }
+
+    private static final int NB_CPU = SystemUtil.getAvailableProcessors();
+
+    /**
+     * Default maximum number of planes computed ahead
+     */
+    public static final int DEFAULT_MAX_PENDING = NB_CPU * 2;
+
+    private static volatile int maxPending = DEFAULT_MAX_PENDING;
+
+    /**
+     * Returns the maximum number of planes computed ahead (and so kept in memory) by a single
+     * operation.
+     */
+    public static int getMaxPending()
+    {
+        return maxPending;
+    }
+
+    /**
+     * Sets the maximum number of planes computed ahead (and so kept in memory) by a single
+     * operation.
+     */
+    public static void setMaxPending(int value)
+    {
+        maxPending = Math.max(1, value);
+    }
+
+    /**
+     * Computes all planes of the [sizeT, sizeZ] range with the specified task and store them in
+     * the result sequence.<br>
+     * Returns false if the operation has been canceled from the progress listener.
+     *
+     * @param result
+     *        sequence receiving computed planes
+     * @param sizeT
+     *        number of T position to compute
+     * @param sizeZ
+     *        number of Z position to compute
+     * @param task
+     *        plane computation task
+     * @param pl
+     *        ProgressListener to indicate processing progress (can be null).
+     */
+    public static boolean execute(Sequence result, int sizeT, int sizeZ, final PlaneTask task, ProgressListener pl)
+    {
+        final int len = sizeT * sizeZ;
+        final int window = Math.min(maxPending, len);
+
+        result.beginUpdate();
+        try
+        {
+            // serial processing
+            if ((NB_CPU == 1) || (window <= 1) || ArrayMathExecutor.isWorkerThread())
+            {
+                for (int i = 0; i < len; i++)
+                {
+                    final int t = i / sizeZ;
+                    final int z = i % sizeZ;
+
+                    setImage(result, t, z, task.compute(t, z));
+
+                    if ((pl != null) && !pl.notifyProgress(i + 1, len))
+                        return false;
+                }
+
+                return true;
+            }
+
+            final LinkedList<Future<IcyBufferedImage>> pending = new LinkedList<Future<IcyBufferedImage>>();
+            int submitted = 0;
+
+            try
+            {
+                // fill the window
+                while (submitted < window)
+                    pending.add(submit(task, submitted++, sizeZ));
+
+                for (int i = 0; i < len; i++)
+                {
+                    final IcyBufferedImage image = ArrayMathExecutor.getResult(pending.removeFirst());
+
+                    // keep the window full
+                    if (submitted < len)
+                        pending.add(submit(task, submitted++, sizeZ));
+
+                    setImage(result, i / sizeZ, i % sizeZ, image);
+
+                    if ((pl != null) && !pl.notifyProgress(i + 1, len))
+                        return false;
+                }
+            }
+            finally
+            {
+                // canceled or failed --> don't compute remaining planes
+                for (Future<IcyBufferedImage> future : pending)
+                    ArrayMathExecutor.cancel(future);
+            }
+
+            return true;
+        }
+        finally
+        {
+            result.endUpdate();
+        }
+    }
+
+    /**
+     * Computes all planes of the specified sequence dimension (see
+     * {@link #execute(Sequence, int, int, PlaneTask, ProgressListener)}).
+     */
+    public static boolean execute(Sequence result, Sequence source, PlaneTask task, ProgressListener pl)
+    {
+        return execute(result, source.getSizeT(), source.getSizeZ(), task, pl);
+    }
+
+    private static void setImage(Sequence result, int t, int z, IcyBufferedImage image)
+    {
+        if (image == null)
+            return;
+
+        // modified in place
+        if (result.getImage(t, z) == image)
+            image.dataChanged();
+        else
+            result.setImage(t, z, image);
+    }
+
+    private static Future<IcyBufferedImage> submit(final PlaneTask task, int index, int sizeZ)
+    {
+        final int t = index / sizeZ;
+        final int z = index % sizeZ;
+
+        return ArrayMathExecutor.submit(new Callable<IcyBufferedImage>()
+        {
+            @Override
+            public IcyBufferedImage call() throws Exception
+            {
+                return task.compute(t, z);
+            }
+        });
+    }
+}
@@ -47,6 +47,7 @@ import icy.roi.ROI3D;
 import icy.roi.ROIEvent;
 import icy.roi.ROIListener;
 import icy.sequence.SequenceEdit.ROIAdd;
+import icy.sequence.SequenceEdit.ROIAddAll;
 import icy.sequence.SequenceEdit.ROIRemove;
 import icy.sequence.SequenceEdit.ROIRemoveAll;
 import icy.sequence.SequenceEvent.SequenceEventSourceType;
@@ -62,10 +63,16 @@ import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.event.EventListenerList;
 
@@ -91,6 +98,263 @@ import org.w3c.dom.Node;
 public class Sequence implements SequenceModel, IcyColorModelListener, IcyBufferedImageListener, ChangeListener,
         ROIListener, OverlayListener
 {
+    /**
+     * Immutable snapshot of the sequence ROIs with lazily built secondary indexes (class,
+     * position, selection and focus).<br>
+     * A new snapshot is created on the first read following a ROI add or remove so reads never
+     * lock nor iterate the whole ROI set.
+     */
+    private static class ROISnapshot
+    {
+        /**
+         * Cached value, valid as long as the associated version did not change
+         */
+        private static class Cached<T>
+        {
+            final int version;
+            final T value;
+
+            Cached(int version, T value)
+            {
+                super();
+
+                this.version = version;
+                this.value = value;
+            }
+        }
+
+        /**
+         * ROI2D / ROI3D position index
+         */
+        private static class PositionIndex
+        {
+            final Map<Long, List<ROI2D>> roi2ds;
+            final Map<Long, List<ROI3D>> roi3ds;
+
+            PositionIndex(List<ROI2D> list2d, List<ROI3D> list3d)
+            {
+                super();
+
+                roi2ds = new HashMap<Long, List<ROI2D>>();
+                roi3ds = new HashMap<Long, List<ROI3D>>();
+
+                for (ROI2D roi : list2d)
+                {
+                    final Long key = getPositionKey(roi);
+                    List<ROI2D> list = roi2ds.get(key);
+
+                    if (list == null)
+                    {
+                        list = new ArrayList<ROI2D>();
+                        roi2ds.put(key, list);
+                    }
+
+                    list.add(roi);
+                }
+                for (ROI3D roi : list3d)
+                {
+                    final Long key = getPositionKey(roi);
+                    List<ROI3D> list = roi3ds.get(key);
+
+                    if (list == null)
+                    {
+                        list = new ArrayList<ROI3D>();
+                        roi3ds.put(key, list);
+                    }
+
+                    list.add(roi);
+                }
+            }
+        }
+
+        final List<ROI> all;
+        final Set<ROI> set;
+        final List<ROI2D> roi2ds;
+        final List<ROI3D> roi3ds;
+        private final Map<Class<? extends ROI>, List<ROI>> classIndex;
+        private volatile Cached<List<ROI>> selected;
+        private volatile Cached<ROI> focused;
+        private volatile Cached<PositionIndex> positions;
+
+        ROISnapshot(Collection<ROI> rois)
+        {
+            super();
+
+            final ArrayList<ROI> allList = new ArrayList<ROI>(rois);
+            final ArrayList<ROI2D> list2d = new ArrayList<ROI2D>();
+            final ArrayList<ROI3D> list3d = new ArrayList<ROI3D>();
+
+            for (ROI roi : allList)
+            {
+                if (roi instanceof ROI2D)
+                    list2d.add((ROI2D) roi);
+                else if (roi instanceof ROI3D)
+                    list3d.add((ROI3D) roi);
+            }
+
+            all = Collections.unmodifiableList(allList);
+            set = Collections.unmodifiableSet(new HashSet<ROI>(allList));
+            roi2ds = Collections.unmodifiableList(list2d);
+            roi3ds = Collections.unmodifiableList(list3d);
+            classIndex = new ConcurrentHashMap<Class<? extends ROI>, List<ROI>>();
+            selected = null;
+            focused = null;
+            positions = null;
+        }
+
+        static Long getPositionKey(int z, int t, int c)
+        {
+            // -1 (all) is stored as 0
+            return Long.valueOf(((long) (z + 1) << 42) | ((long) (t + 1) << 21) | (c + 1));
+        }
+
+        static Long getPositionKey(ROI roi)
+        {
+            if (roi instanceof ROI2D)
+            {
+                final ROI2D roi2d = (ROI2D) roi;
+                return getPositionKey(roi2d.getZ(), roi2d.getT(), roi2d.getC());
+            }
+            if (roi instanceof ROI3D)
+            {
+                final ROI3D roi3d = (ROI3D) roi;
+                return getPositionKey(-1, roi3d.getT(), roi3d.getC());
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns ROIs whose class is assignable from the specified class (index built on first
+         * request).
+         */
+        List<ROI> getROIs(Class<? extends ROI> roiClass)
+        {
+            List<ROI> result = classIndex.get(roiClass);
+
+            if (result == null)
+            {
+                final ArrayList<ROI> list = new ArrayList<ROI>();
+
+                for (ROI roi : all)
+                    if (roi.getClass().isAssignableFrom(roiClass))
+                        list.add(roi);
+
+                result = Collections.unmodifiableList(list);
+                classIndex.put(roiClass, result);
+            }
+
+            return result;
+        }
+
+        List<ROI> getSelected()
+        {
+            final int version = ROI.getStateVersion();
+            Cached<List<ROI>> cached = selected;
+
+            if ((cached == null) || (cached.version != version))
+            {
+                final ArrayList<ROI> list = new ArrayList<ROI>();
+
+                for (ROI roi : all)
+                    if (roi.isSelected())
+                        list.add(roi);
+
+                cached = new Cached<List<ROI>>(version, Collections.unmodifiableList(list));
+                selected = cached;
+            }
+
+            return cached.value;
+        }
+
+        ROI getFocused()
+        {
+            final int version = ROI.getStateVersion();
+            Cached<ROI> cached = focused;
+
+            if ((cached == null) || (cached.version != version))
+            {
+                ROI result = null;
+
+                for (ROI roi : all)
+                {
+                    if (roi.isFocused())
+                    {
+                        result = roi;
+                        break;
+                    }
+                }
+
+                cached = new Cached<ROI>(version, result);
+                focused = cached;
+            }
+
+            return cached.value;
+        }
+
+        private PositionIndex getPositions()
+        {
+            final int version = ROI.getPositionVersion();
+            Cached<PositionIndex> cached = positions;
+
+            if ((cached == null) || (cached.version != version))
+            {
+                cached = new Cached<PositionIndex>(version, new PositionIndex(roi2ds, roi3ds));
+                positions = cached;
+            }
+
+            return cached.value;
+        }
+
+        ArrayList<ROI2D> getROI2Ds(int z, int t, int c)
+        {
+            final PositionIndex index = getPositions();
+            final ArrayList<ROI2D> result = new ArrayList<ROI2D>();
+            final int[] zs = (z == -1) ? new int[] {-1} : new int[] {z, -1};
+            final int[] ts = (t == -1) ? new int[] {-1} : new int[] {t, -1};
+            final int[] cs = (c == -1) ? new int[] {-1} : new int[] {c, -1};
+
+            // ROI attached to the position or to all positions
+            for (int zi : zs)
+            {
+                for (int ti : ts)
+                {
+                    for (int ci : cs)
+                    {
+                        final List<ROI2D> list = index.roi2ds.get(getPositionKey(zi, ti, ci));
+
+                        if (list != null)
+                            result.addAll(list);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        ArrayList<ROI3D> getROI3Ds(int t, int c)
+        {
+            final PositionIndex index = getPositions();
+            final ArrayList<ROI3D> result = new ArrayList<ROI3D>();
+            final int[] ts = (t == -1) ? new int[] {-1} : new int[] {t, -1};
+            final int[] cs = (c == -1) ? new int[] {-1} : new int[] {c, -1};
+
+            // ROI attached to the position or to all positions
+            for (int ti : ts)
+            {
+                for (int ci : cs)
+                {
+                    final List<ROI3D> list = index.roi3ds.get(getPositionKey(-1, ti, ci));
+
+                    if (list != null)
+                        result.addAll(list);
+                }
+            }
+
+            return result;
+        }
+    }
+
     private static final String DEFAULT_NAME = "no name";
 
     /**
@@ -150,6 +414,10 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      * ROIs
      */
     private final HashSet<ROI> rois;
+    /**
+     * ROIs snapshot with secondary indexes (null when it needs to be rebuilt)
+     */
+    private volatile ROISnapshot roiSnapshot;
 
     /**
      * id of sequence (uniq during an ICY session)
@@ -261,6 +529,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
         volumetricImages = new TreeMap<Integer, VolumetricImage>();
         painters = new HashSet<Painter>();
         rois = new HashSet<ROI>();
+        roiSnapshot = null;
         persistent = new SequencePersistent(this);
         undoManager = new IcyUndoManager(this);
 
@@ -357,6 +626,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
                 roi.removeListener(this);
 
             rois.clear();
+            roiSnapshot = null;
         }
 
         // notify some painters has been removed
@@ -915,10 +1185,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public boolean contains(ROI roi)
     {
-        synchronized (rois)
-        {
-            return rois.contains(roi);
-        }
+        return getROISnapshot().set.contains(roi);
     }
 
     /**
@@ -961,14 +1228,34 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
     }
 
     /**
-     * Returns all ROIs attached to this sequence
+     * Returns the current ROI snapshot (rebuilt if ROIs have been modified).
      */
-    public ArrayList<ROI> getROIs()
+    private ROISnapshot getROISnapshot()
     {
-        synchronized (rois)
+        ROISnapshot result = roiSnapshot;
+
+        if (result == null)
         {
-            return new ArrayList<ROI>(rois);
+            synchronized (rois)
+            {
+                result = roiSnapshot;
+                if (result == null)
+                {
+                    result = new ROISnapshot(rois);
+                    roiSnapshot = result;
+                }
+            }
         }
+
+        return result;
+    }
+
+    /**
+     * Returns all ROIs attached to this sequence
+     */
+    public ArrayList<ROI> getROIs()
+    {
+        return new ArrayList<ROI>(getROISnapshot().all);
     }
 
     /**
@@ -976,10 +1263,15 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public HashSet<ROI> getROISet()
     {
-        synchronized (rois)
-        {
-            return new HashSet<ROI>(rois);
-        }
+        return new HashSet<ROI>(getROISnapshot().set);
+    }
+
+    /**
+     * Returns the number of ROI attached to this sequence
+     */
+    public int getROICount()
+    {
+        return getROISnapshot().all.size();
     }
 
     /**
@@ -987,16 +1279,17 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ArrayList<ROI2D> getROI2Ds()
     {
-        final ArrayList<ROI2D> result = new ArrayList<ROI2D>();
-
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi instanceof ROI2D)
-                    result.add((ROI2D) roi);
-        }
+        return new ArrayList<ROI2D>(getROISnapshot().roi2ds);
+    }
 
-        return result;
+    /**
+     * Returns all 2D ROIs active at the specified Z, T, C position.
+     * 
+     * @see ROI2D#isActiveFor(int, int, int)
+     */
+    public ArrayList<ROI2D> getROI2Ds(int z, int t, int c)
+    {
+        return getROISnapshot().getROI2Ds(z, t, c);
     }
 
     /**
@@ -1004,16 +1297,17 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ArrayList<ROI3D> getROI3Ds()
     {
-        final ArrayList<ROI3D> result = new ArrayList<ROI3D>();
-
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi instanceof ROI3D)
-                    result.add((ROI3D) roi);
-        }
+        return new ArrayList<ROI3D>(getROISnapshot().roi3ds);
+    }
 
-        return result;
+    /**
+     * Returns all 3D ROIs active at the specified T, C position.
+     * 
+     * @see ROI3D#isActiveFor(int, int)
+     */
+    public ArrayList<ROI3D> getROI3Ds(int t, int c)
+    {
+        return getROISnapshot().getROI3Ds(t, c);
     }
 
     /**
@@ -1021,14 +1315,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public boolean hasROI(Class<? extends ROI> roiClass)
     {
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi.getClass().isAssignableFrom(roiClass))
-                    return true;
-        }
-
-        return false;
+        return !getROISnapshot().getROIs(roiClass).isEmpty();
     }
 
     /**
@@ -1036,16 +1323,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public List<ROI> getROIs(Class<? extends ROI> roiClass)
     {
-        final ArrayList<ROI> result = new ArrayList<ROI>();
-
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi.getClass().isAssignableFrom(roiClass))
-                    result.add(roi);
-        }
-
-        return result;
+        return new ArrayList<ROI>(getROISnapshot().getROIs(roiClass));
     }
 
     /**
@@ -1053,16 +1331,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public int getROICount(Class<? extends ROI> roiClass)
     {
-        int result = 0;
-
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi.getClass().isAssignableFrom(roiClass))
-                    result++;
-        }
-
-        return result;
+        return getROISnapshot().getROIs(roiClass).size();
     }
 
     /**
@@ -1070,12 +1339,8 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ROI getSelectedROI()
     {
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi.isSelected())
-                    return roi;
-        }
+        for (ROI roi : getROISnapshot().getSelected())
+            return roi;
 
         return null;
     }
@@ -1085,12 +1350,9 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ROI2D getSelectedROI2D()
     {
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if ((roi instanceof ROI2D) && roi.isSelected())
-                    return (ROI2D) roi;
-        }
+        for (ROI roi : getROISnapshot().getSelected())
+            if (roi instanceof ROI2D)
+                return (ROI2D) roi;
 
         return null;
     }
@@ -1100,12 +1362,9 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ROI3D getSelectedROI3D()
     {
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if ((roi instanceof ROI3D) && roi.isSelected())
-                    return (ROI3D) roi;
-        }
+        for (ROI roi : getROISnapshot().getSelected())
+            if (roi instanceof ROI3D)
+                return (ROI3D) roi;
 
         return null;
     }
@@ -1115,16 +1374,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ArrayList<ROI> getSelectedROIs()
     {
-        final ArrayList<ROI> result = new ArrayList<ROI>();
-
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi.isSelected())
-                    result.add(roi);
-        }
-
-        return result;
+        return new ArrayList<ROI>(getROISnapshot().getSelected());
     }
 
     /**
@@ -1134,12 +1384,9 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
     {
         final ArrayList<ROI2D> result = new ArrayList<ROI2D>();
 
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if ((roi instanceof ROI2D) && roi.isSelected())
-                    result.add((ROI2D) roi);
-        }
+        for (ROI roi : getROISnapshot().getSelected())
+            if (roi instanceof ROI2D)
+                result.add((ROI2D) roi);
 
         return result;
     }
@@ -1151,12 +1398,9 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
     {
         final ArrayList<ROI3D> result = new ArrayList<ROI3D>();
 
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if ((roi instanceof ROI3D) && roi.isSelected())
-                    result.add((ROI3D) roi);
-        }
+        for (ROI roi : getROISnapshot().getSelected())
+            if (roi instanceof ROI3D)
+                result.add((ROI3D) roi);
 
         return result;
     }
@@ -1166,14 +1410,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public ROI getFocusedROI()
     {
-        synchronized (rois)
-        {
-            for (ROI roi : rois)
-                if (roi.isFocused())
-                    return roi;
-        }
-
-        return null;
+        return getROISnapshot().getFocused();
     }
 
     /**
@@ -1188,19 +1425,20 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
             return true;
         }
 
-        final HashSet<ROI> listRoi = getROISet();
+        final ROISnapshot snapshot = getROISnapshot();
 
         beginUpdate();
         try
         {
             if (exclusive)
             {
-                for (ROI currentRoi : listRoi)
+                // only selected ROI need to be unselected
+                for (ROI currentRoi : snapshot.getSelected())
                     if (currentRoi != roi)
                         currentRoi.internalUnselect();
             }
 
-            if (listRoi.contains(roi))
+            if (snapshot.set.contains(roi))
             {
                 roi.internalSelect();
                 return true;
@@ -1237,20 +1475,19 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
         if ((newSelectedSize == oldSelectedSize) && newSelected.containsAll(oldSelected))
             return;
 
+        final Set<ROI> allRois = getROISnapshot().set;
+
         beginUpdate();
         try
         {
-            if (newSelectedSize > 0)
-            {
-                for (ROI roi : getROIs())
-                    roi.setSelected(newSelected.contains(roi), false);
-            }
-            else
-            {
-                // unselected all ROIs
-                for (ROI roi : getROIs())
+            // unselect ROIs which are not anymore selected
+            for (ROI roi : oldSelected)
+                if (!newSelected.contains(roi))
                     roi.internalUnselect();
-            }
+            // then select new ones
+            for (ROI roi : newSelected)
+                if (allRois.contains(roi))
+                    roi.internalSelect();
         }
         finally
         {
@@ -1263,17 +1500,17 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     public boolean setFocusedROI(ROI roi)
     {
-        // faster .contain()
-        final HashSet<ROI> listRoi = getROISet();
+        final ROISnapshot snapshot = getROISnapshot();
+        final ROI focused = snapshot.getFocused();
 
         beginUpdate();
         try
         {
-            for (ROI currentRoi : listRoi)
-                if (currentRoi != roi)
-                    currentRoi.internalUnfocus();
+            // only one ROI can be focused
+            if ((focused != null) && (focused != roi))
+                focused.internalUnfocus();
 
-            if (listRoi.contains(roi))
+            if (snapshot.set.contains(roi))
             {
                 roi.internalFocus();
                 return true;
@@ -1314,6 +1551,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
         synchronized (rois)
         {
             rois.add(roi);
+            roiSnapshot = null;
         }
         // add listener to ROI
         roi.addListener(this);
@@ -1359,6 +1597,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
             synchronized (rois)
             {
                 rois.remove(roi);
+                roiSnapshot = null;
             }
             // remove listener
             roi.removeListener(this);
@@ -1375,57 +1614,161 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
     }
 
     /**
-     * Remove all ROI from the sequence.
+     * Add the specified collection of ROI to the sequence.<br>
+     * This is much faster than adding ROI one by one as only one event is sent for all added ROI.
+     * 
+     * @param roiList
+     *        ROI to attach to the sequence
+     * @param canUndo
+     *        If true the action can be canceled by the undo manager (a single edit is created).
+     * @return true if at least one ROI has been added
      */
-    public void removeAllROI()
+    public boolean addROIs(Collection<? extends ROI> roiList, boolean canUndo)
     {
-        removeAllROI(false);
+        final ArrayList<ROI> added = new ArrayList<ROI>();
+
+        synchronized (rois)
+        {
+            for (ROI roi : roiList)
+                if ((roi != null) && rois.add(roi))
+                    added.add(roi);
+            if (!added.isEmpty())
+                roiSnapshot = null;
+        }
+
+        if (added.isEmpty())
+            return false;
+
+        // add listener to ROI
+        for (ROI roi : added)
+            roi.addListener(this);
+
+        // single ROI --> keep event precise
+        final ROI singleROI = (added.size() == 1) ? added.get(0) : null;
+
+        // notify roi(s) added
+        roiChanged(singleROI, SequenceEventType.ADDED);
+
+        // then add ROI painters to sequence
+        final ArrayList<Painter> addedPainters = new ArrayList<Painter>(added.size());
+
+        synchronized (painters)
+        {
+            for (ROI roi : added)
+            {
+                final Painter painter = roi.getPainter();
+
+                if (painters.add(painter))
+                {
+                    addedPainters.add(painter);
+                    if (painter instanceof Overlay)
+                        ((Overlay) painter).addOverlayListener(this);
+                }
+            }
+        }
+
+        // notify painter(s) added
+        if (!addedPainters.isEmpty())
+            painterChanged((addedPainters.size() == 1) ? addedPainters.get(0) : null, SequenceEventType.ADDED);
+
+        if (canUndo)
+            undoManager.addEdit((singleROI != null) ? new ROIAdd(this, singleROI) : new ROIAddAll(this, added));
+
+        return true;
     }
 
     /**
-     * Remove all ROI from the sequence.
+     * Remove the specified collection of ROI from the sequence.<br>
+     * This is much faster than removing ROI one by one as only one event is sent for all removed
+     * ROI.
      * 
+     * @param roiList
+     *        ROI to detach from the sequence
      * @param canUndo
-     *        If true the action can be canceled by the undo manager.
+     *        If true the action can be canceled by the undo manager (a single edit is created).
+     * @return true if at least one ROI has been removed
      */
-    public void removeAllROI(boolean canUndo)
+    public boolean removeROIs(Collection<? extends ROI> roiList, boolean canUndo)
     {
-        if (!rois.isEmpty())
+        final ArrayList<ROI> removed = new ArrayList<ROI>();
+
+        synchronized (rois)
         {
-            final ArrayList<ROI> allROIs = getROIs();
+            for (ROI roi : roiList)
+                if ((roi != null) && rois.contains(roi))
+                    removed.add(roi);
+        }
+
+        if (removed.isEmpty())
+            return false;
+
+        final ArrayList<Painter> removedPainters = new ArrayList<Painter>(removed.size());
 
-            synchronized (painters)
+        synchronized (painters)
+        {
+            // remove associated painters first
+            for (ROI roi : removed)
             {
-                // remove associated painters first
-                for (ROI roi : allROIs)
-                {
-                    final Painter painter = roi.getPainter();
+                final Painter painter = roi.getPainter();
 
-                    painters.remove(painter);
+                if (painters.remove(painter))
+                {
+                    removedPainters.add(painter);
                     if (painter instanceof Overlay)
                         ((Overlay) painter).removeOverlayListener(this);
                 }
             }
+        }
 
-            // notify painters / overlays removed
-            painterChanged(null, SequenceEventType.REMOVED);
+        // notify painter(s) / overlay(s) removed
+        if (!removedPainters.isEmpty())
+            painterChanged((removedPainters.size() == 1) ? removedPainters.get(0) : null,
+                    SequenceEventType.REMOVED);
 
-            synchronized (rois)
-            {
-                // clear list
-                rois.clear();
-            }
+        synchronized (rois)
+        {
+            for (ROI roi : removed)
+                rois.remove(roi);
+            roiSnapshot = null;
+        }
 
-            // remove listeners
-            for (ROI roi : allROIs)
-                roi.removeListener(this);
+        // remove listeners
+        for (ROI roi : removed)
+            roi.removeListener(this);
 
-            // notify roi removed
-            roiChanged(null, SequenceEventType.REMOVED);
+        // single ROI --> keep event precise
+        final ROI singleROI = (removed.size() == 1) ? removed.get(0) : null;
 
-            if (canUndo)
-                undoManager.addEdit(new ROIRemoveAll(this, allROIs));
-        }
+        // notify roi(s) removed
+        roiChanged(singleROI, SequenceEventType.REMOVED);
+
+        if (canUndo)
+            undoManager.addEdit((singleROI != null) ? new ROIRemove(this, singleROI) : new ROIRemoveAll(this,
+                    removed));
+
+        return true;
+    }
+
+    /**
+     * Remove all ROI from the sequence.
+     */
+    public void removeAllROI()
+    {
+        removeAllROI(false);
+    }
+
+    /**
+     * Remove all ROI from the sequence.
+     * 
+     * @param canUndo
+     *        If true the action can be canceled by the undo manager.
+     */
+    public void removeAllROI(boolean canUndo)
+    {
+        final List<ROI> all = getROISnapshot().all;
+
+        if (!all.isEmpty())
+            removeROIs(all, canUndo);
     }
 
     /**
@@ -5156,7 +5499,15 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
      */
     private void dataChanged(IcyBufferedImage image, SequenceEventType type)
     {
-        updater.changed(new SequenceEvent(this, SequenceEventSourceType.SEQUENCE_DATA, image, type, 0));
+        dataChanged(image, type, null);
+    }
+
+    /**
+     * data has changed in the specified region of the image
+     */
+    private void dataChanged(IcyBufferedImage image, SequenceEventType type, Rectangle region)
+    {
+        updater.changed(new SequenceEvent(this, SequenceEventSourceType.SEQUENCE_DATA, image, type, 0, region));
     }
 
     @Override
@@ -5200,7 +5551,7 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
 
             case DATA_CHANGED:
                 // image data changed
-                dataChanged(image, SequenceEventType.CHANGED);
+                dataChanged(image, SequenceEventType.CHANGED, e.getRegion());
                 break;
         }
     }
@@ -5208,6 +5559,8 @@ public class Sequence implements SequenceModel, IcyColorModelListener, IcyBuffer
     @Override
     public void roiChanged(ROIEvent event)
     {
+        // snapshot caches depending on ROI state are validated against the global ROI versions
+        // (updated by the ROI setters as events can be deferred)
         // notify the ROI has changed
         roiChanged(event.getSource(), SequenceEventType.CHANGED);
     }
@@ -12,6 +12,8 @@ import icy.roi.ROI3D;
 import icy.roi.ROI4D;
 import icy.roi.ROI5D;
 import icy.type.DataIterator;
+import icy.type.DataSpan;
+import icy.type.DataSpanIterator;
 import icy.type.DataType;
 
 import java.awt.Rectangle;
@@ -22,12 +24,13 @@ import java.util.NoSuchElementException;
  * This class permit to use simple iterator to read / write <code>Sequence</code> data<br>
  * as double in XYCZT <i>([T[Z[C[Y[X}}]]])</i> dimension order.<br>
  * Whatever is the internal {@link DataType} data is returned and set as double.<br>
+ * Data can also be accessed by contiguous runs with {@link #nextSpan()}.<br>
  * <b>If the sequence size or type is modified during iteration the iterator
  * becomes invalid and can causes exception to happen.</b>
  * 
  * @author Stephane
  */
-public class SequenceDataIterator implements DataIterator
+public class SequenceDataIterator implements DataIterator, DataSpanIterator
 {
     protected final Sequence sequence;
     protected final ROI roi;
@@ -46,6 +49,13 @@ public class SequenceDataIterator implements DataIterator
     protected BooleanMask2D maskXY;
     protected ImageDataIterator imageIterator;
 
+    /**
+     * span internals
+     */
+    protected int spanZ, spanT;
+    protected boolean spanDone;
+    protected ImageDataIterator spanImageIterator;
+
     /**
      * Create a new SequenceData iterator to iterate data through the specified dimensions
      * (inclusive).
@@ -318,16 +328,83 @@ public class SequenceDataIterator implements DataIterator
      */
     protected boolean prepareDataXYC()
     {
-        final IcyBufferedImage img = sequence.getImage(t, z);
+        imageIterator = createImageIterator(sequence.getImage(t, z));
+
+        return imageIterator.done();
+    }
 
+    /**
+     * Create the XYC iterator for the specified image.
+     */
+    protected ImageDataIterator createImageIterator(IcyBufferedImage img)
+    {
         if (maskXY != null)
-            imageIterator = new ImageDataIterator(img, maskXY, startC, endC);
+            return new ImageDataIterator(img, maskXY, startC, endC);
         else if (roi != null)
-            imageIterator = new ImageDataIterator(img, roi);
-        else
-            imageIterator = new ImageDataIterator(img, startX, endX, startY, endY, startC, endC);
+            return new ImageDataIterator(img, roi);
 
-        return imageIterator.done();
+        return new ImageDataIterator(img, startX, endX, startY, endY, startC, endC);
+    }
+
+    @Override
+    public void resetSpan()
+    {
+        spanDone = (sequence == null) || (startT > endT) || (startZ > endZ);
+
+        if (!spanDone)
+        {
+            spanT = startT;
+            spanZ = startZ;
+
+            spanImageIterator = createImageIterator(sequence.getImage(spanT, spanZ));
+            spanImageIterator.resetSpan();
+        }
+    }
+
+    /**
+     * Returns the next contiguous run of data (see {@link ImageDataIterator#nextSpan()}).
+     */
+    @Override
+    public DataSpan nextSpan()
+    {
+        // not yet initialized
+        if (spanImageIterator == null)
+        {
+            resetSpan();
+
+            // nothing to iterate
+            if (spanImageIterator == null)
+                return null;
+        }
+
+        while (!spanDone)
+        {
+            final DataSpan result = spanImageIterator.nextSpan();
+
+            if (result != null)
+            {
+                result.z = spanZ;
+                result.t = spanT;
+
+                return result;
+            }
+
+            if (++spanZ > endZ)
+            {
+                spanZ = startZ;
+
+                if (++spanT > endT)
+                    spanDone = true;
+            }
+
+            if (!spanDone)
+            {
+                spanImageIterator = createImageIterator(sequence.getImage(spanT, spanZ));
+                spanImageIterator.resetSpan();
+            }
+        }
+
+        return null;
     }
 
     @Override
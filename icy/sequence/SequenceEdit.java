@@ -3,14 +3,23 @@
  */
 package icy.sequence;
 
+import icy.file.FileUtil;
+import icy.image.IcyBufferedImage;
 import icy.roi.ROI;
+import icy.type.collection.array.ByteArrayConvert;
 import icy.undo.IcyUndoableEdit;
+import icy.util.ZipUtil;
 
 import java.awt.Image;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
 
 /**
  * Base sequence edit container
@@ -140,6 +149,59 @@ public class SequenceEdit extends IcyUndoableEdit
         }
     }
 
+    /**
+     * Multiple ROI add Sequence edit event
+     * 
+     * @author Stephane
+     */
+    public static class ROIAddAll extends SequenceEdit
+    {
+        Sequence sequence;
+
+        public ROIAddAll(Sequence sequence, List<ROI> source)
+        {
+            super(source);
+
+            this.sequence = sequence;
+        }
+
+        @SuppressWarnings("unchecked")
+        public List<ROI> getROIs()
+        {
+            return (List<ROI>) getSource();
+        }
+
+        @Override
+        public void undo() throws CannotUndoException
+        {
+            super.undo();
+
+            sequence.removeROIs(getROIs(), false);
+        }
+
+        @Override
+        public void redo() throws CannotRedoException
+        {
+            super.redo();
+
+            sequence.addROIs(getROIs(), false);
+        }
+
+        @Override
+        public void die()
+        {
+            super.die();
+
+            sequence = null;
+        }
+
+        @Override
+        public String getPresentationName()
+        {
+            return "ROI(s) added";
+        }
+    }
+
     /**
      * ROI remove Sequence edit event
      * 
@@ -167,11 +229,255 @@ public class SequenceEdit extends IcyUndoableEdit
         {
             super.undo();
 
+            sequence.addROIs(getROIs(), false);
+        }
+
+        @Override
+        public void redo() throws CannotRedoException
+        {
+            super.redo();
+
+            sequence.removeROIs(getROIs(), false);
+        }
+
+        @Override
+        public void die()
+        {
+            super.die();
+
+            sequence = null;
+        }
+
+        @Override
+        public String getPresentationName()
+        {
+            return "All ROI removed";
+        }
+    }
+
+    /**
+     * Image data Sequence edit event.<br>
+     * Create it <b>before</b> modifying the image data of the region then call {@link #commit()}
+     * once modifications are done: only the compressed difference (XOR + deflate) between the
+     * original and the modified data is kept. Old edits can be spilled to a scratch file by the
+     * undo manager when the memory limit is reached.<br>
+     * An operation modifying several images creates one edit per image and commits them with
+     * {@link #commit(boolean)} so they are undone / redone as a single edit.
+     * 
+     * @author Stephane
+     */
+    public static class DataEdit extends SequenceEdit
+    {
+        Sequence sequence;
+        final int t;
+        final int z;
+        final Rectangle region;
+        final String name;
+
+        /**
+         * original data (only until commit)
+         */
+        byte[] original;
+        /**
+         * packed XOR delta (null when spilled)
+         */
+        byte[] delta;
+        File scratch;
+        /**
+         * next images modified by the same operation
+         */
+        final List<DataEdit> merged;
+        boolean merge;
+
+        /**
+         * @param sequence
+         *        sequence we will modify
+         * @param t
+         *        T position of the modified image
+         * @param z
+         *        Z position of the modified image
+         * @param region
+         *        region of the image which will be modified (null means whole image)
+         * @param name
+         *        name of the operation (used for presentation)
+         */
+        public DataEdit(Sequence sequence, int t, int z, Rectangle region, String name)
+        {
+            super(sequence);
+
+            this.sequence = sequence;
+            this.t = t;
+            this.z = z;
+            this.name = name;
+            merged = new ArrayList<DataEdit>();
+            merge = false;
+
+            final IcyBufferedImage image = sequence.getImage(t, z);
+
+            if (image == null)
+                throw new IllegalArgumentException("No image at position T=" + t + " Z=" + z);
+
+            if (region == null)
+                this.region = image.getBounds();
+            else
+            {
+                final Rectangle intersect = region.intersection(image.getBounds());
+
+                // region outside the image --> nothing to record (intersection size can be negative)
+                if (intersect.isEmpty())
+                    this.region = new Rectangle();
+                else
+                    this.region = intersect;
+            }
+
+            original = getRegionData(image);
+        }
+
+        /**
+         * Computes the compressed delta with the current data and adds the edit to the sequence
+         * undo manager.
+         */
+        public void commit()
+        {
+            commit(false);
+        }
+
+        /**
+         * Computes the compressed delta with the current data and adds the edit to the sequence
+         * undo manager.<br>
+         * If <code>merge</code> is true the edit is merged in the previous data edit of the
+         * sequence (same operation on another image) if any.<br>
+         * Nothing is recorded if the edit region doesn't intersect the image.
+         */
+        public void commit(boolean merge)
+        {
+            if (original == null)
+                throw new IllegalStateException("Edit already committed");
+
+            // empty region --> no data modified
+            if (region.isEmpty())
+            {
+                original = null;
+                return;
+            }
+
+            final IcyBufferedImage image = getImage();
+            final byte[] data = getRegionData(image);
+
+            for (int i = 0; i < data.length; i++)
+                data[i] ^= original[i];
+
+            original = null;
+            delta = ZipUtil.pack(data);
+            this.merge = merge;
+
+            sequence.getUndoManager().addEdit(this);
+        }
+
+        IcyBufferedImage getImage()
+        {
+            final IcyBufferedImage result = sequence.getImage(t, z);
+
+            if ((result == null) || !result.getBounds().contains(region))
+                throw new IllegalStateException("Image at position T=" + t + " Z=" + z + " has been modified");
+
+            return result;
+        }
+
+        int getRowByteLength(IcyBufferedImage image)
+        {
+            return region.width * image.getDataType_().getSize();
+        }
+
+        byte[] getRegionData(IcyBufferedImage image)
+        {
+            final int rowBytes = getRowByteLength(image);
+            final byte[] result = new byte[image.getSizeC() * region.height * rowBytes];
+            int off = 0;
+
+            for (int c = 0; c < image.getSizeC(); c++)
+            {
+                final Object data = image.getDataXY(c);
+
+                for (int y = region.y; y < region.y + region.height; y++)
+                {
+                    ByteArrayConvert.toByteArray(data, image.getOffset(region.x, y), result, off, rowBytes, false);
+                    off += rowBytes;
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * XOR the delta on current data so we switch from original to modified data or
+         * conversely.
+         */
+        void apply()
+        {
+            final IcyBufferedImage image;
+            final byte[] bytes;
+
+            try
+            {
+                image = getImage();
+                bytes = ZipUtil.unpack(getDelta());
+            }
+            catch (Exception e)
+            {
+                throw new CannotUndoException();
+            }
+
+            final byte[] data = getRegionData(image);
+
+            if (data.length != bytes.length)
+                throw new CannotUndoException();
+
+            for (int i = 0; i < data.length; i++)
+                data[i] ^= bytes[i];
+
+            final int rowBytes = getRowByteLength(image);
+            int off = 0;
+
+            for (int c = 0; c < image.getSizeC(); c++)
+            {
+                final Object dest = image.getDataXY(c);
+
+                for (int y = region.y; y < region.y + region.height; y++)
+                {
+                    ByteArrayConvert.byteArrayTo(data, off, dest, image.getOffset(region.x, y), rowBytes, false);
+                    off += rowBytes;
+                }
+
+                image.dataChanged(region, c);
+            }
+        }
+
+        byte[] getDelta() throws IOException
+        {
+            if (delta != null)
+                return delta;
+
+            // spilled data are not kept in memory
+            final byte[] result = FileUtil.load(scratch, false);
+
+            if (result == null)
+                throw new IOException("Cannot read " + scratch);
+
+            return result;
+        }
+
+        /**
+         * Apply the delta of this edit and merged ones.
+         */
+        void applyAll()
+        {
             sequence.beginUpdate();
             try
             {
-                for (ROI roi : getROIs())
-                    sequence.addROI(roi, false);
+                apply();
+                for (DataEdit edit : merged)
+                    edit.apply();
             }
             finally
             {
@@ -179,20 +485,100 @@ public class SequenceEdit extends IcyUndoableEdit
             }
         }
 
+        @Override
+        public boolean addEdit(UndoableEdit anEdit)
+        {
+            if (!(anEdit instanceof DataEdit))
+                return false;
+
+            final DataEdit edit = (DataEdit) anEdit;
+
+            if (!edit.merge || (edit.sequence != sequence) || !canUndo())
+                return false;
+
+            merged.add(edit);
+
+            return true;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException
+        {
+            super.undo();
+
+            applyAll();
+        }
+
         @Override
         public void redo() throws CannotRedoException
         {
             super.redo();
 
-            sequence.beginUpdate();
             try
             {
-                for (ROI roi : getROIs())
-                    sequence.removeROI(roi, false);
+                applyAll();
             }
-            finally
+            catch (CannotUndoException e)
             {
-                sequence.endUpdate();
+                throw new CannotRedoException();
+            }
+        }
+
+        @Override
+        public long getSize()
+        {
+            long result = DEFAULT_SIZE;
+
+            if (original != null)
+                result += original.length;
+            if (delta != null)
+                result += delta.length;
+            for (DataEdit edit : merged)
+                result += edit.getSize();
+
+            return result;
+        }
+
+        @Override
+        public boolean spill()
+        {
+            boolean result = false;
+
+            for (DataEdit edit : merged)
+                result |= edit.spill();
+
+            return spillDelta() || result;
+        }
+
+        /**
+         * Write the delta in a scratch file (deleted when the edit dies or at exit).
+         */
+        boolean spillDelta()
+        {
+            if ((delta == null) || (scratch != null))
+                return false;
+
+            try
+            {
+                final File file = File.createTempFile("icy_undo", ".dat");
+
+                // edits still alive at exit are not released
+                file.deleteOnExit();
+
+                if (!FileUtil.save(file, delta, false))
+                {
+                    file.delete();
+                    return false;
+                }
+
+                scratch = file;
+                delta = null;
+
+                return true;
+            }
+            catch (IOException e)
+            {
+                return false;
             }
         }
 
@@ -202,13 +588,27 @@ public class SequenceEdit extends IcyUndoableEdit
             super.die();
 
             sequence = null;
+            original = null;
+            delta = null;
+
+            if (scratch != null)
+            {
+                scratch.delete();
+                scratch = null;
+            }
+
+            for (DataEdit edit : merged)
+                edit.die();
+            merged.clear();
         }
 
         @Override
         public String getPresentationName()
         {
-            return "All ROI removed";
+            if (name != null)
+                return name;
+
+            return "Image data changed";
         }
     }
-
 }
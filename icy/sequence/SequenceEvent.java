@@ -12,6 +12,8 @@ package icy.sequence;
 import icy.common.EventHierarchicalChecker;
 import icy.util.StringUtil;
 
+import java.awt.Rectangle;
+
 public class SequenceEvent implements EventHierarchicalChecker
 {
     public enum SequenceEventSourceType
@@ -29,6 +31,7 @@ public class SequenceEvent implements EventHierarchicalChecker
     private SequenceEventType type;
     private Object source;
     private int param;
+    private Rectangle region;
 
     public SequenceEvent(Sequence sequence, SequenceEventSourceType sourceType)
     {
@@ -57,6 +60,12 @@ public class SequenceEvent implements EventHierarchicalChecker
 
     public SequenceEvent(Sequence sequence, SequenceEventSourceType sourceType, Object source, SequenceEventType type,
             int param)
+    {
+        this(sequence, sourceType, source, type, param, null);
+    }
+
+    public SequenceEvent(Sequence sequence, SequenceEventSourceType sourceType, Object source, SequenceEventType type,
+            int param, Rectangle region)
     {
         super();
 
@@ -65,6 +74,7 @@ public class SequenceEvent implements EventHierarchicalChecker
         this.source = source;
         this.type = type;
         this.param = param;
+        this.region = region;
     }
 
     /**
@@ -143,6 +153,16 @@ public class SequenceEvent implements EventHierarchicalChecker
         return param;
     }
 
+    /**
+     * Modified XY region of the source image when <code>sourceType</code> is
+     * <code>SEQUENCE_DATA</code>.<br>
+     * A <code>null</code> value means the whole image (or several images) may have changed.
+     */
+    public Rectangle getRegion()
+    {
+        return region;
+    }
+
     /**
      * Collapse event
      */
@@ -170,6 +190,11 @@ public class SequenceEvent implements EventHierarchicalChecker
                         type = SequenceEventType.CHANGED;
                     if (e.getSource() != source)
                         source = null;
+                    // merge modified regions (only meaningful for a single image)
+                    if ((source == null) || (region == null) || (e.getRegion() == null))
+                        region = null;
+                    else
+                        region = region.union(e.getRegion());
                     return true;
 
                 case SEQUENCE_PAINTER:
@@ -19,25 +19,39 @@
 package icy.sequence;
 
 import icy.file.FileUtil;
-import icy.file.xml.XMLPersistent;
+import icy.file.xml.XMLStreamPersistent;
 import icy.roi.ROI;
 import icy.system.IcyExceptionHandler;
 import icy.util.StringUtil;
 import icy.util.XMLUtil;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 /**
  * @author Stephane
  */
-public class SequencePersistent implements XMLPersistent
+public class SequencePersistent implements XMLStreamPersistent
 {
+    /**
+     * XML file size from which the file is read as a stream instead of a DOM document
+     */
+    public final static long STREAM_THRESHOLD = 1024 * 1024;
+
     private final static String ID_NAME = "name";
 
     private final static String ROOT_META = "meta";
@@ -89,23 +103,30 @@ public class SequencePersistent implements XMLPersistent
             // load xml file into document
             if ((xmlFilename != null) && FileUtil.exists(xmlFilename))
             {
-                document = XMLUtil.loadDocument(xmlFilename, true);
-
-                if (document == null)
+                // large file (many ROIs) --> stream it
+                if (new File(xmlFilename).length() >= STREAM_THRESHOLD)
                 {
-                    // rename problematic file
-                    FileUtil.copy(xmlFilename, xmlFilename + ".bak", true, false);
-
-                    System.err.println("Error while loading Sequence XML persistent data.");
-                    System.err.println("The faulty file '" + xmlFilename + "' has been saved as '" + xmlFilename
-                            + ".bak'");
+                    if (loadXMLStream(xmlFilename))
+                        return true;
+                }
+                else
+                {
+                    document = XMLUtil.loadDocument(xmlFilename, true);
 
-                    document = XMLUtil.createDocument(true);
-                    return false;
+                    // load data from XML document
+                    if (document != null)
+                        return loadFromXML(document.getDocumentElement());
                 }
 
-                // load data from XML document
-                return loadFromXML(document.getDocumentElement());
+                // rename problematic file
+                FileUtil.copy(xmlFilename, xmlFilename + ".bak", true, false);
+
+                System.err.println("Error while loading Sequence XML persistent data.");
+                System.err.println("The faulty file '" + xmlFilename + "' has been saved as '" + xmlFilename
+                        + ".bak'");
+
+                document = XMLUtil.createDocument(true);
+                return false;
             }
         }
         catch (Exception e)
@@ -117,6 +138,55 @@ public class SequencePersistent implements XMLPersistent
         return true;
     }
 
+    /**
+     * Load XML persistent data from specified file without building the whole document.<br>
+     * Return false if the file cannot be read.
+     */
+    private boolean loadXMLStream(String xmlFilename) throws IOException
+    {
+        final InputStream input = new BufferedInputStream(new FileInputStream(xmlFilename));
+
+        try
+        {
+            final XMLStreamReader reader = XMLUtil.createStreamReader(input);
+
+            try
+            {
+                // go to root element
+                if (!XMLUtil.nextElement(reader))
+                    return false;
+
+                final List<ROI> rois = new ArrayList<ROI>();
+                final Document doc = readFromXML(reader, rois);
+
+                if (doc == null)
+                    return false;
+
+                // read until the document end so trailing errors are reported before any change
+                while (reader.hasNext())
+                    reader.next();
+
+                loadFromXML(doc, rois);
+
+                return true;
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            System.err.println("XMLUtil.loadDocument('" + xmlFilename + "') error :");
+            IcyExceptionHandler.showErrorMessage(e, false);
+            return false;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
     /**
      * Save XML persistent data.<br>
      * Return true if XML data has been correctly saved.
@@ -167,6 +237,77 @@ public class SequencePersistent implements XMLPersistent
         return true;
     }
 
+    /**
+     * Load data from a XML stream (reader should be on the root element start).<br>
+     * ROIs are decoded on the fly (and concurrently) while other nodes are kept in the attached
+     * XML document (see {@link #getNode(String)}).<br>
+     * The sequence is modified only once the whole root element has been successfully read.
+     */
+    @Override
+    public boolean loadFromXML(XMLStreamReader reader) throws XMLStreamException
+    {
+        final List<ROI> rois = new ArrayList<ROI>();
+        final Document doc = readFromXML(reader, rois);
+
+        if (doc == null)
+            return false;
+
+        loadFromXML(doc, rois);
+
+        return true;
+    }
+
+    /**
+     * Read the root element from the XML stream into a new document (ROIs excepted, they are
+     * decoded into the specified list).<br>
+     * Returns null if the element is not a sequence persistent root element or is incomplete.
+     */
+    private Document readFromXML(XMLStreamReader reader, List<ROI> rois) throws XMLStreamException
+    {
+        // not a sequence persistent document
+        if (!XMLUtil.NODE_ROOT_NAME.equals(reader.getLocalName()))
+            return null;
+
+        final Document doc = XMLUtil.createDocument(true);
+        final Element root = doc.getDocumentElement();
+
+        while (XMLUtil.nextElement(reader))
+        {
+            // ROIs are not kept in document, they are rebuilt on save
+            if (ROOT_ROIS.equals(reader.getLocalName()))
+                rois.addAll(ROI.getROIsFromXML(reader));
+            else
+                root.appendChild(XMLUtil.readElement(reader, doc));
+        }
+
+        // root element not closed
+        if (reader.getEventType() != XMLStreamConstants.END_ELEMENT)
+            return null;
+
+        return doc;
+    }
+
+    /**
+     * Apply data read from a XML stream to the sequence.
+     */
+    private void loadFromXML(Document doc, List<ROI> rois)
+    {
+        final Element root = doc.getDocumentElement();
+
+        document = doc;
+
+        final String name = XMLUtil.getElementValue(root, ID_NAME, "");
+
+        // set name only if not empty
+        if (!StringUtil.isEmpty(name))
+            sequence.setName(name);
+
+        loadMetaDataFromXML(root);
+
+        // add to sequence
+        sequence.addROIs(rois, false);
+    }
+
     private void loadMetaDataFromXML(Node node)
     {
         final Node nodeMeta = XMLUtil.getElement(node, ROOT_META);
@@ -189,8 +330,7 @@ public class SequencePersistent implements XMLPersistent
         final List<ROI> rois = ROI.getROIsFromXML(XMLUtil.getElement(node, ROOT_ROIS));
 
         // add to sequence
-        for (ROI roi : rois)
-            sequence.addROI(roi);
+        sequence.addROIs(rois, false);
     }
 
     @Override
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.sequence;
+
+import icy.common.listener.ProgressListener;
+import icy.image.IcyBufferedImage;
+import icy.math.ArrayMathExecutor;
+import icy.math.ArrayMathExecutor.RangeTask;
+import icy.sequence.PlaneExecutor.PlaneTask;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
+import icy.util.OMEUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import loci.formats.ome.OMEXMLMetadataImpl;
+
+/**
+ * Intensity projection of a {@link Sequence} along the Z, T or C dimension.<br>
+ * Input planes are read directly from the sequence (no stack copy) and reduced one after the other
+ * in accumulators. When the result has several planes they are computed concurrently through
+ * {@link PlaneExecutor}, a single output plane is computed by row bands processed concurrently
+ * instead (only one level of parallelism is used).
+ *
+ * @author Stephane
+ */
+public class SequenceProjection
+{
+    public static enum ProjectionType
+    {
+        MAX, MIN, MEAN, SUM, STD, MEDIAN;
+
+        @Override
+        public String toString()
+        {
+            return name().toLowerCase();
+        }
+
+        /**
+         * Returns the data type of the projection result for the specified source data type.<br>
+         * MAX, MIN and MEDIAN keep the source data type, SUM uses DOUBLE while MEAN and STD use
+         * FLOAT.
+         */
+        public DataType getResultDataType(DataType source)
+        {
+            switch (this)
+            {
+                case SUM:
+                    return DataType.DOUBLE;
+
+                case MEAN:
+                case STD:
+                    return (source == DataType.DOUBLE) ? DataType.DOUBLE : DataType.FLOAT;
+
+                default:
+                    return source;
+            }
+        }
+    }
+
+    /**
+     * Maximum number of values buffered by a band for the median projection
+     */
+    public static final int MEDIAN_MAX_VALUES = 1 << 20;
+
+    /**
+     * Compute the projection of the source sequence along the specified dimension.<br>
+     * The result keeps the source metadata (pixel size, time interval, channel names...) and has
+     * a size of 1 in the projected dimension.
+     *
+     * @param source
+     *        source sequence
+     * @param dim
+     *        projected dimension ({@link DimensionId#Z}, {@link DimensionId#T} or
+     *        {@link DimensionId#C})
+     * @param type
+     *        projection type
+     * @param pl
+     *        ProgressListener to indicate processing progress (can be null).
+     * @return the projection sequence or null if the process has been canceled
+     * @throws IllegalArgumentException
+     *         if the dimension can't be projected
+     */
+    public static Sequence project(final Sequence source, final DimensionId dim, final ProjectionType type,
+            ProgressListener pl) throws IllegalArgumentException
+    {
+        if ((dim != DimensionId.Z) && (dim != DimensionId.T) && (dim != DimensionId.C))
+            throw new IllegalArgumentException("SequenceProjection.project: cannot project along " + dim
+                    + " dimension.");
+
+        final int sizeX = source.getSizeX();
+        final int sizeY = source.getSizeY();
+        final int sizeC = source.getSizeC();
+        final int sizeZ = source.getSizeZ();
+        final int sizeT = source.getSizeT();
+        final int outSizeC = (dim == DimensionId.C) ? 1 : sizeC;
+        final int outSizeZ = (dim == DimensionId.Z) ? 1 : sizeZ;
+        final int outSizeT = (dim == DimensionId.T) ? 1 : sizeT;
+        final DataType dataType = type.getResultDataType(source.getDataType_());
+        final Sequence result = new Sequence(OMEUtil.createOMEMetadata(source.getMetadata()));
+        // several output planes --> computed concurrently, so each plane is computed serially
+        final boolean parallel = (outSizeT * outSizeZ) == 1;
+
+        final boolean completed = PlaneExecutor.execute(result, outSizeT, outSizeZ, new PlaneTask()
+        {
+            @Override
+            public IcyBufferedImage compute(int t, int z)
+            {
+                final IcyBufferedImage image = new IcyBufferedImage(sizeX, sizeY, outSizeC, dataType);
+
+                for (int c = 0; c < outSizeC; c++)
+                    project(getInputs(source, dim, t, z, c), source.isSignedDataType(), type, image.getDataXY(c),
+                            dataType.isSigned(), sizeX, sizeY, parallel);
+
+                image.dataChanged();
+
+                return image;
+            }
+        }, pl);
+
+        if (!completed)
+            return null;
+
+        // metadata copied from source --> fix type and dimensions
+        final OMEXMLMetadataImpl metadata = result.getMetadata();
+
+        metadata.setPixelsType(dataType.toPixelType(), 0);
+        metadata.setPixelsSizeC(OMEUtil.getPositiveInteger(outSizeC), 0);
+        metadata.setPixelsSizeZ(OMEUtil.getPositiveInteger(outSizeZ), 0);
+        metadata.setPixelsSizeT(OMEUtil.getPositiveInteger(outSizeT), 0);
+        if (dim == DimensionId.C)
+            MetaDataUtil.setNumChannel(metadata, 0, 1);
+
+        // keep calibration
+        result.setPixelSizeX(source.getPixelSizeX());
+        result.setPixelSizeY(source.getPixelSizeY());
+        result.setPixelSizeZ(source.getPixelSizeZ());
+        result.setTimeInterval(source.getTimeInterval());
+        if (dim == DimensionId.C)
+            result.setChannelName(0, type.toString());
+
+        result.setName(source.getName() + " (" + type + " " + dim + " projection)");
+
+        return result;
+    }
+
+    /**
+     * Compute the projection of the source sequence along the specified dimension (see
+     * {@link #project(Sequence, DimensionId, ProjectionType, ProgressListener)}).
+     */
+    public static Sequence project(Sequence source, DimensionId dim, ProjectionType type)
+    {
+        return project(source, dim, type, null);
+    }
+
+    /**
+     * Returns data arrays of the planes to project for the specified output position.
+     */
+    private static Object[] getInputs(Sequence source, DimensionId dim, int t, int z, int c)
+    {
+        final List<Object> result = new ArrayList<Object>();
+
+        switch (dim)
+        {
+            case Z:
+                for (int i = 0; i < source.getSizeZ(t); i++)
+                    addInput(result, source.getImage(t, i), c);
+                break;
+
+            case T:
+                for (int i = 0; i < source.getSizeT(); i++)
+                    addInput(result, source.getImage(i, z), c);
+                break;
+
+            default:
+                final IcyBufferedImage image = source.getImage(t, z);
+
+                if (image != null)
+                    for (int i = 0; i < image.getSizeC(); i++)
+                        addInput(result, image, i);
+                break;
+        }
+
+        return result.toArray();
+    }
+
+    private static void addInput(List<Object> inputs, IcyBufferedImage image, int c)
+    {
+        if (image != null)
+            inputs.add(image.getDataXY(c));
+    }
+
+    /**
+     * Project the input data arrays into the output data array.<br>
+     * If <code>parallel</code> is true rows are processed by bands in parallel.
+     */
+    static void project(final Object[] inputs, final boolean signed, final ProjectionType type, final Object output,
+            final boolean outSigned, final int sizeX, int sizeY, boolean parallel)
+    {
+        // nothing to project (output stays 0 filled)
+        if (inputs.length == 0)
+            return;
+
+        if (!parallel)
+        {
+            final int size = sizeX * sizeY;
+
+            // by chunks to limit accumulators size
+            for (int offset = 0; offset < size; offset += ArrayMathExecutor.MIN_CHUNK_SIZE)
+                project(inputs, signed, type, output, outSigned, offset,
+                        Math.min(ArrayMathExecutor.MIN_CHUNK_SIZE, size - offset));
+
+            return;
+        }
+
+        ArrayMathExecutor.execute(sizeY, sizeX, new RangeTask<Object>()
+        {
+            @Override
+            public Object compute(int from, int to)
+            {
+                project(inputs, signed, type, output, outSigned, from * sizeX, (to - from) * sizeX);
+
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Project the [offset, offset + len[ range of inputs.
+     */
+    private static void project(Object[] inputs, boolean signed, ProjectionType type, Object output,
+            boolean outSigned, int offset, int len)
+    {
+        if (type == ProjectionType.MEDIAN)
+            median(inputs, signed, output, outSigned, offset, len);
+        else
+            reduce(inputs, signed, type, output, outSigned, offset, len);
+    }
+
+    /**
+     * Reduce the [offset, offset + len[ range of inputs with the specified projection (except
+     * median).
+     */
+    private static void reduce(Object[] inputs, boolean signed, ProjectionType type, Object output,
+            boolean outSigned, int offset, int len)
+    {
+        final double[] values = new double[len];
+        final double[] acc = new double[len];
+        final double[] acc2 = (type == ProjectionType.STD) ? new double[len] : null;
+
+        // start from first plane
+        Array1DUtil.arrayToDoubleArray(inputs[0], offset, acc, 0, len, signed);
+
+        for (int k = 1; k < inputs.length; k++)
+        {
+            Array1DUtil.arrayToDoubleArray(inputs[k], offset, values, 0, len, signed);
+
+            switch (type)
+            {
+                case MAX:
+                    for (int i = 0; i < len; i++)
+                        if (values[i] > acc[i])
+                            acc[i] = values[i];
+                    break;
+
+                case MIN:
+                    for (int i = 0; i < len; i++)
+                        if (values[i] < acc[i])
+                            acc[i] = values[i];
+                    break;
+
+                case STD:
+                {
+                    // Welford online variance (acc = mean, acc2 = sum of squared deviations)
+                    final double n = k + 1;
+
+                    for (int i = 0; i < len; i++)
+                    {
+                        final double delta = values[i] - acc[i];
+
+                        acc[i] += delta / n;
+                        acc2[i] += delta * (values[i] - acc[i]);
+                    }
+                    break;
+                }
+
+                default:
+                    for (int i = 0; i < len; i++)
+                        acc[i] += values[i];
+                    break;
+            }
+        }
+
+        switch (type)
+        {
+            case MEAN:
+                for (int i = 0; i < len; i++)
+                    acc[i] /= inputs.length;
+                break;
+
+            case STD:
+                for (int i = 0; i < len; i++)
+                    acc[i] = Math.sqrt(acc2[i] / inputs.length);
+                break;
+
+            default:
+                break;
+        }
+
+        Array1DUtil.doubleArrayToSafeArray(acc, 0, output, offset, len, outSigned);
+    }
+
+    /**
+     * Median of the [offset, offset + len[ range of inputs.<br>
+     * The range is processed by chunks so at most {@link #MEDIAN_MAX_VALUES} values are buffered.
+     */
+    private static void median(Object[] inputs, boolean signed, Object output, boolean outSigned, int offset,
+            int len)
+    {
+        final int n = inputs.length;
+        final int chunk = Math.max(1, Math.min(len, MEDIAN_MAX_VALUES / n));
+        final double[] line = new double[chunk];
+        final double[] values = new double[chunk * n];
+        final double[] result = new double[chunk];
+
+        for (int start = 0; start < len; start += chunk)
+        {
+            final int size = Math.min(chunk, len - start);
+
+            // gather values of each pixel contiguously
+            for (int k = 0; k < n; k++)
+            {
+                Array1DUtil.arrayToDoubleArray(inputs[k], offset + start, line, 0, size, signed);
+
+                for (int i = 0, v = k; i < size; i++, v += n)
+                    values[v] = line[i];
+            }
+
+            for (int i = 0, v = 0; i < size; i++, v += n)
+            {
+                Arrays.sort(values, v, v + n);
+
+                if ((n & 1) == 1)
+                    result[i] = values[v + (n / 2)];
+                else
+                    result[i] = (values[v + (n / 2) - 1] + values[v + (n / 2)]) / 2d;
+            }
+
+            Array1DUtil.doubleArrayToSafeArray(result, 0, output, offset + start, size, outSigned);
+        }
+    }
+}
@@ -22,19 +22,26 @@ import icy.common.listener.ProgressListener;
 import icy.image.IcyBufferedImage;
 import icy.image.IcyBufferedImageUtil;
 import icy.image.IcyBufferedImageUtil.FilterType;
+import icy.image.ImageResampler;
+import icy.math.ArrayMathExecutor;
+import icy.math.ArrayMathExecutor.RangeTask;
 import icy.math.Scaler;
 import icy.roi.ROI;
 import icy.roi.ROI2D;
 import icy.roi.ROI3D;
 import icy.roi.ROI4D;
 import icy.roi.ROI5D;
+import icy.sequence.PlaneExecutor.PlaneTask;
+import icy.sequence.SequenceProjection.ProjectionType;
 import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
 import icy.type.rectangle.Rectangle3D;
 import icy.type.rectangle.Rectangle4D;
 import icy.type.rectangle.Rectangle5D;
 import icy.util.OMEUtil;
 import icy.util.StringUtil;
 
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -1086,9 +1093,10 @@ public class SequenceUtil
      *        Images are scaled to all fit in the same XY dimension.
      * @param pl
      *        ProgressListener to indicate processing progress.
+     * @return the concatenated sequence (null if the operation has been canceled)
      */
-    public static Sequence concatC(Sequence[] sequences, int[] channels, boolean fillEmpty, boolean rescale,
-            ProgressListener pl)
+    public static Sequence concatC(final Sequence[] sequences, final int[] channels, final boolean fillEmpty,
+            final boolean rescale, ProgressListener pl)
     {
         final int sizeX = getMaxDim(sequences, DimensionId.X);
         final int sizeY = getMaxDim(sequences, DimensionId.Y);
@@ -1097,20 +1105,15 @@ public class SequenceUtil
 
         final Sequence result = new Sequence("C Merge");
 
-        int ind = 0;
-        for (int t = 0; t < sizeT; t++)
+        if (!PlaneExecutor.execute(result, sizeT, sizeZ, new PlaneTask()
         {
-            for (int z = 0; z < sizeZ; z++)
+            @Override
+            public IcyBufferedImage compute(int t, int z)
             {
-                if (pl != null)
-                    pl.notifyProgress(ind, sizeT * sizeZ);
-
-                result.setImage(t, z,
-                        MergeCHelper.getImage(sequences, channels, sizeX, sizeY, t, z, fillEmpty, rescale));
-
-                ind++;
+                return MergeCHelper.getImage(sequences, channels, sizeX, sizeY, t, z, fillEmpty, rescale);
             }
-        }
+        }, pl))
+            return null;
 
         int c = 0;
         for (Sequence seq : sequences)
@@ -1189,9 +1192,10 @@ public class SequenceUtil
      *        Images are scaled to all fit in the same XY dimension.
      * @param pl
      *        ProgressListener to indicate processing progress.
+     * @return the concatenated sequence (null if the operation has been canceled)
      */
-    public static Sequence concatZ(Sequence[] sequences, boolean interlaced, boolean fillEmpty, boolean rescale,
-            ProgressListener pl)
+    public static Sequence concatZ(final Sequence[] sequences, final boolean interlaced, final boolean fillEmpty,
+            final boolean rescale, ProgressListener pl)
     {
         final int sizeX = getMaxDim(sequences, DimensionId.X);
         final int sizeY = getMaxDim(sequences, DimensionId.Y);
@@ -1204,20 +1208,16 @@ public class SequenceUtil
 
         final Sequence result = new Sequence("Z Merge");
 
-        int ind = 0;
-        for (int t = 0; t < sizeT; t++)
+        if (!PlaneExecutor.execute(result, sizeT, sizeZ, new PlaneTask()
         {
-            for (int z = 0; z < sizeZ; z++)
+            @Override
+            public IcyBufferedImage compute(int t, int z)
             {
-                if (pl != null)
-                    pl.notifyProgress(ind, sizeT * sizeZ);
-
-                result.setImage(t, z, IcyBufferedImageUtil.getCopy(MergeZHelper.getImage(sequences, sizeX, sizeY,
-                        sizeC, t, z, interlaced, fillEmpty, rescale)));
-
-                ind++;
+                return IcyBufferedImageUtil.getCopy(MergeZHelper.getImage(sequences, sizeX, sizeY, sizeC, t, z,
+                        interlaced, fillEmpty, rescale));
             }
-        }
+        }, pl))
+            return null;
 
         return result;
     }
@@ -1268,9 +1268,10 @@ public class SequenceUtil
      *        Images are scaled to all fit in the same XY dimension.
      * @param pl
      *        ProgressListener to indicate processing progress.
+     * @return the concatenated sequence (null if the operation has been canceled)
      */
-    public static Sequence concatT(Sequence[] sequences, boolean interlaced, boolean fillEmpty, boolean rescale,
-            ProgressListener pl)
+    public static Sequence concatT(final Sequence[] sequences, final boolean interlaced, final boolean fillEmpty,
+            final boolean rescale, ProgressListener pl)
     {
         final int sizeX = getMaxDim(sequences, DimensionId.X);
         final int sizeY = getMaxDim(sequences, DimensionId.Y);
@@ -1283,20 +1284,16 @@ public class SequenceUtil
 
         final Sequence result = new Sequence("T Merge");
 
-        int ind = 0;
-        for (int t = 0; t < sizeT; t++)
+        if (!PlaneExecutor.execute(result, sizeT, sizeZ, new PlaneTask()
         {
-            for (int z = 0; z < sizeZ; z++)
+            @Override
+            public IcyBufferedImage compute(int t, int z)
             {
-                if (pl != null)
-                    pl.notifyProgress(ind, sizeT * sizeZ);
-
-                result.setImage(t, z, IcyBufferedImageUtil.getCopy(MergeTHelper.getImage(sequences, sizeX, sizeY,
-                        sizeC, t, z, interlaced, fillEmpty, rescale)));
-
-                ind++;
+                return IcyBufferedImageUtil.getCopy(MergeTHelper.getImage(sequences, sizeX, sizeY, sizeC, t, z,
+                        interlaced, fillEmpty, rescale));
             }
-        }
+        }, pl))
+            return null;
 
         return result;
     }
@@ -1341,37 +1338,40 @@ public class SequenceUtil
      *        New Z size of the sequence
      * @param newSizeT
      *        New T size of the sequence
+     * @param pl
+     *        ProgressListener to indicate processing progress.
      */
-    public static void adjustZT(Sequence sequence, int newSizeZ, int newSizeT, boolean reverseOrder)
+    public static void adjustZT(Sequence sequence, final int newSizeZ, final int newSizeT,
+            final boolean reverseOrder, ProgressListener pl)
     {
         final int sizeZ = sequence.getSizeZ();
         final int sizeT = sequence.getSizeT();
 
+        final Sequence source = sequence;
         final Sequence tmp = new Sequence();
 
-        tmp.beginUpdate();
-        sequence.beginUpdate();
-        try
+        // planes are reordered in a temporary sequence so a canceled operation leaves the sequence
+        // unchanged
+        if (!PlaneExecutor.execute(tmp, newSizeT, newSizeZ, new PlaneTask()
         {
-            try
+            @Override
+            public IcyBufferedImage compute(int t, int z)
             {
-                for (int t = 0; t < sizeT; t++)
-                {
-                    for (int z = 0; z < sizeZ; z++)
-                    {
-                        tmp.setImage(t, z, sequence.getImage(t, z));
-                        sequence.removeImage(t, z);
-                    }
-                }
-            }
-            finally
-            {
-                tmp.endUpdate();
+                return AdjustZTHelper.getImage(source, t, z, newSizeZ, newSizeT, reverseOrder);
             }
+        }, pl))
+            return;
+
+        sequence.beginUpdate();
+        try
+        {
+            for (int t = 0; t < sizeT; t++)
+                for (int z = 0; z < sizeZ; z++)
+                    sequence.removeImage(t, z);
 
             for (int t = 0; t < newSizeT; t++)
                 for (int z = 0; z < newSizeZ; z++)
-                    sequence.setImage(t, z, AdjustZTHelper.getImage(tmp, t, z, newSizeZ, newSizeT, reverseOrder));
+                    sequence.setImage(t, z, tmp.getImage(t, z));
         }
         finally
         {
@@ -1379,6 +1379,52 @@ public class SequenceUtil
         }
     }
 
+    /**
+     * Adjust Z and T dimension of the sequence.
+     * 
+     * @param reverseOrder
+     *        Means that images are T-Z ordered instead of Z-T ordered
+     * @param newSizeZ
+     *        New Z size of the sequence
+     * @param newSizeT
+     *        New T size of the sequence
+     */
+    public static void adjustZT(Sequence sequence, int newSizeZ, int newSizeT, boolean reverseOrder)
+    {
+        adjustZT(sequence, newSizeZ, newSizeT, reverseOrder, null);
+    }
+
+    /**
+     * Compute the intensity projection (max, min, mean, sum, std or median) of the source
+     * sequence along the specified dimension (Z, T or C).<br>
+     * The result is a new sequence which keeps the source metadata and calibration.
+     * 
+     * @param source
+     *        source sequence
+     * @param dim
+     *        projected dimension (Z, T or C)
+     * @param type
+     *        projection type
+     * @param pl
+     *        ProgressListener to indicate processing progress.
+     * @return the projection sequence or null if the process has been canceled
+     * @see SequenceProjection
+     */
+    public static Sequence getProjection(Sequence source, DimensionId dim, ProjectionType type, ProgressListener pl)
+    {
+        return SequenceProjection.project(source, dim, type, pl);
+    }
+
+    /**
+     * Compute the intensity projection (max, min, mean, sum, std or median) of the source
+     * sequence along the specified dimension (Z, T or C).<br>
+     * The result is a new sequence which keeps the source metadata and calibration.
+     */
+    public static Sequence getProjection(Sequence source, DimensionId dim, ProjectionType type)
+    {
+        return getProjection(source, dim, type, null);
+    }
+
     /**
      * Build a new single channel sequence (grey) from the specified channel of the source sequence.
      * 
@@ -1484,6 +1530,63 @@ public class SequenceUtil
         return outSequence;
     }
 
+    /**
+     * Build a view of the specified channels of the source sequence.<br>
+     * No pixel data is copied: view images share the source channel data and are updated when the
+     * source changes (see {@link SequenceView}).
+     * 
+     * @param source
+     *        Source sequence
+     * @param channels
+     *        Channel indexes to extract from the source sequence.
+     */
+    public static SequenceView extractChannelsView(Sequence source, int... channels)
+    {
+        final SequenceView result = new SequenceView(source, null, channels, 0, source.getSizeZ(), 0,
+                source.getSizeT());
+
+        if (channels.length == 1)
+            result.setName(source.getName() + " (" + source.getChannelName(channels[0]) + ")");
+
+        return result;
+    }
+
+    /**
+     * Build a view of the specified Z slice of the source sequence (see {@link SequenceView}).
+     */
+    public static SequenceView extractSliceView(Sequence source, int z)
+    {
+        final SequenceView result = new SequenceView(source, null, getAllChannels(source), z, 1, 0,
+                source.getSizeT());
+
+        result.setName(source.getName() + " (slice " + z + ")");
+
+        return result;
+    }
+
+    /**
+     * Build a view of the specified T frame of the source sequence (see {@link SequenceView}).
+     */
+    public static SequenceView extractFrameView(Sequence source, int t)
+    {
+        final SequenceView result = new SequenceView(source, null, getAllChannels(source), 0, source.getSizeZ(), t,
+                1);
+
+        result.setName(source.getName() + " (frame " + t + ")");
+
+        return result;
+    }
+
+    private static int[] getAllChannels(Sequence source)
+    {
+        final int[] result = new int[source.getSizeC()];
+
+        for (int c = 0; c < result.length; c++)
+            result[c] = c;
+
+        return result;
+    }
+
     /**
      * Build a new sequence by extracting the specified Z slice from the source sequence.
      * 
@@ -1555,12 +1658,15 @@ public class SequenceUtil
      * @param useDataBounds
      *        Only used when <code>rescale</code> parameter is true.<br>
      *        Specify if we use the data bounds for rescaling instead of data type bounds.
-     * @return converted sequence
+     * @param pl
+     *        ProgressListener to indicate processing progress.
+     * @return converted sequence (null if the operation has been canceled)
      */
-    public static Sequence convertToType(Sequence source, DataType dataType, boolean rescale, boolean useDataBounds)
+    public static Sequence convertToType(Sequence source, DataType dataType, boolean rescale, boolean useDataBounds,
+            ProgressListener pl)
     {
         if (!rescale)
-            return convertToType(source, dataType, null);
+            return convertToType(source, dataType, null, false, pl);
 
         // convert with rescale
         final double boundsSrc[];
@@ -1573,7 +1679,27 @@ public class SequenceUtil
 
         // use scaler to scale data
         return convertToType(source, dataType,
-                new Scaler(boundsSrc[0], boundsSrc[1], boundsDst[0], boundsDst[1], false));
+                new Scaler(boundsSrc[0], boundsSrc[1], boundsDst[0], boundsDst[1], false), false, pl);
+    }
+
+    /**
+     * Converts the source sequence to the specified data type.<br>
+     * This method returns a new sequence (the source sequence is not modified).
+     * 
+     * @param source
+     *        Source sequence to convert
+     * @param dataType
+     *        Data type wanted
+     * @param rescale
+     *        Indicate if we want to scale data value according to data (or data type) range
+     * @param useDataBounds
+     *        Only used when <code>rescale</code> parameter is true.<br>
+     *        Specify if we use the data bounds for rescaling instead of data type bounds.
+     * @return converted sequence
+     */
+    public static Sequence convertToType(Sequence source, DataType dataType, boolean rescale, boolean useDataBounds)
+    {
+        return convertToType(source, dataType, rescale, useDataBounds, null);
     }
 
     /**
@@ -1607,38 +1733,77 @@ public class SequenceUtil
      */
     public static Sequence convertToType(Sequence source, DataType dataType, Scaler scaler)
     {
-        final Sequence output = new Sequence(OMEUtil.createOMEMetadata(source.getMetadata()));
+        return convertToType(source, dataType, scaler, false, null);
+    }
 
-        output.beginUpdate();
-        try
+    /**
+     * Converts the source sequence to the specified data type.<br>
+     * Planes are converted concurrently.
+     * 
+     * @param source
+     *        Source sequence to convert
+     * @param dataType
+     *        data type wanted.
+     * @param scaler
+     *        scaler for scaling internal data during conversion.
+     * @param inPlace
+     *        If true and the source sequence already has the wanted data type then the scaled data
+     *        is stored back in the source images and the source sequence is returned. Each plane
+     *        is written back as soon as it is scaled so only a few plane copies are kept in memory
+     *        (see {@link PlaneExecutor#getMaxPending()}), a canceled operation leaves the source
+     *        sequence partially scaled.<br>
+     *        Otherwise a new sequence is returned and the source sequence is not modified.
+     * @param pl
+     *        ProgressListener to indicate processing progress.
+     * @return converted sequence (null if the operation has been canceled)
+     */
+    public static Sequence convertToType(final Sequence source, final DataType dataType, final Scaler scaler,
+            boolean inPlace, ProgressListener pl)
+    {
+        if (inPlace && (source.getDataType_() == dataType))
         {
-            for (int t = 0; t < source.getSizeT(); t++)
+            // nothing to do
+            if ((scaler == null) || scaler.isNull())
+                return source;
+
+            if (!PlaneExecutor.execute(source, source, new PlaneTask()
             {
-                for (int z = 0; z < source.getSizeZ(); z++)
+                @Override
+                public IcyBufferedImage compute(int t, int z)
                 {
-                    final IcyBufferedImage converted = IcyBufferedImageUtil.convertToType(source.getImage(t, z),
-                            dataType, scaler);
+                    final IcyBufferedImage image = source.getImage(t, z);
 
-                    // FIXME : why we did that ??
-                    // this is not a good idea to force bounds when rescale = false
+                    if (image == null)
+                        return null;
 
-                    // set bounds manually for the converted image
-                    // for (int c = 0; c < getSizeC(); c++)
-                    // {
-                    // converted.setComponentBounds(c, boundsDst);
-                    // converted.setComponentUserBounds(c, boundsDst);
-                    // }
+                    final IcyBufferedImage result = IcyBufferedImageUtil.convertToType(image, dataType, scaler);
 
-                    output.setImage(t, z, converted);
+                    // same data type --> direct copy in source data, the data changed event is fired
+                    // by the executor from the calling thread
+                    for (int c = 0; c < image.getSizeC(); c++)
+                        Array1DUtil.arrayToArray(result.getDataXY(c), image.getDataXY(c), dataType.isSigned());
+
+                    return image;
                 }
-            }
+            }, pl))
+                return null;
 
-            output.setName(source.getName() + " (" + output.getDataType_() + ")");
+            return source;
         }
-        finally
+
+        final Sequence output = new Sequence(OMEUtil.createOMEMetadata(source.getMetadata()));
+
+        if (!PlaneExecutor.execute(output, source, new PlaneTask()
         {
-            output.endUpdate();
-        }
+            @Override
+            public IcyBufferedImage compute(int t, int z)
+            {
+                return IcyBufferedImageUtil.convertToType(source.getImage(t, z), dataType, scaler);
+            }
+        }, pl))
+            return null;
+
+        output.setName(source.getName() + " (" + output.getDataType_() + ")");
 
         return output;
     }
@@ -1659,20 +1824,94 @@ public class SequenceUtil
      * @param filterType
      *        filter method used for scale (used only if resizeContent is true)
      */
-    public static Sequence scale(Sequence source, int width, int height, boolean resizeContent, int xAlign, int yAlign,
-            FilterType filterType)
+    public static Sequence scale(Sequence source, final int width, final int height, final boolean resizeContent,
+            final int xAlign, final int yAlign, final FilterType filterType)
     {
         final int sizeT = source.getSizeT();
         final int sizeZ = source.getSizeZ();
         final Sequence result = new Sequence(OMEUtil.createOMEMetadata(source.getMetadata()));
+        final IcyBufferedImage[] images = new IcyBufferedImage[sizeT * sizeZ];
+
+        for (int t = 0; t < sizeT; t++)
+            for (int z = 0; z < sizeZ; z++)
+                images[(t * sizeZ) + z] = source.getImage(t, z);
+
+        // planes are resized in parallel (each plane is resampled row-parallel when alone)
+        ArrayMathExecutor.execute(images.length, width * height, new RangeTask<Object>()
+        {
+            @Override
+            public Object compute(int from, int to)
+            {
+                for (int i = from; i < to; i++)
+                    images[i] = IcyBufferedImageUtil.scale(images[i], width, height, resizeContent, xAlign, yAlign,
+                            filterType);
+
+                return null;
+            }
+        });
 
         result.beginUpdate();
         try
         {
             for (int t = 0; t < sizeT; t++)
                 for (int z = 0; z < sizeZ; z++)
-                    result.setImage(t, z, IcyBufferedImageUtil.scale(source.getImage(t, z), width, height,
-                            resizeContent, xAlign, yAlign, filterType));
+                    result.setImage(t, z, images[(t * sizeZ) + z]);
+        }
+        finally
+        {
+            result.endUpdate();
+        }
+
+        result.setName(source.getName() + " (resized)");
+
+        return result;
+    }
+
+    /**
+     * Return a copy of the sequence resampled to the specified XYZ size with the specified filter
+     * (anisotropic 3D resampling).<br>
+     * Pixel sizes of the result are adjusted so the physical extent of the volume is preserved.
+     * 
+     * @param source
+     *        source sequence
+     * @param width
+     *        wanted width
+     * @param height
+     *        wanted height
+     * @param depth
+     *        wanted number of Z slices
+     * @param filterType
+     *        filter method used for resampling in XY and Z
+     */
+    public static Sequence scale(Sequence source, int width, int height, int depth, FilterType filterType)
+    {
+        final int sizeT = source.getSizeT();
+        final int sizeZ = source.getSizeZ();
+        final Sequence resized = scale(source, width, height, filterType);
+
+        // no Z resampling needed
+        if ((depth == sizeZ) || (sizeZ == 0))
+        {
+            if ((width != source.getSizeX()) || (height != source.getSizeY()))
+                setScaledPixelSize(resized, source, width, height, depth);
+            return resized;
+        }
+
+        final Sequence result = new Sequence(OMEUtil.createOMEMetadata(source.getMetadata()));
+
+        result.beginUpdate();
+        try
+        {
+            for (int t = 0; t < sizeT; t++)
+            {
+                final IcyBufferedImage[] planes = ImageResampler.resampleZ(resized.getImages(t).toArray(
+                        new IcyBufferedImage[sizeZ]), depth, filterType);
+
+                for (int z = 0; z < planes.length; z++)
+                    result.setImage(t, z, planes[z]);
+            }
+
+            setScaledPixelSize(result, source, width, height, depth);
         }
         finally
         {
@@ -1684,6 +1923,39 @@ public class SequenceUtil
         return result;
     }
 
+    /**
+     * Return a copy of the sequence resampled along Z so its voxels become isotropic (Z pixel size
+     * equals X pixel size).<br>
+     * XY dimensions are not modified.
+     * 
+     * @param source
+     *        source sequence
+     * @param filterType
+     *        filter method used for resampling along Z
+     */
+    public static Sequence getIsotropic(Sequence source, FilterType filterType)
+    {
+        final double psx = source.getPixelSizeX();
+        final double psz = source.getPixelSizeZ();
+        final int sizeZ = source.getSizeZ();
+        final int depth;
+
+        if ((psx > 0d) && (psz > 0d))
+            depth = Math.max(1, (int) Math.round((sizeZ * psz) / psx));
+        else
+            depth = sizeZ;
+
+        return scale(source, source.getSizeX(), source.getSizeY(), depth, filterType);
+    }
+
+    private static void setScaledPixelSize(Sequence result, Sequence source, int width, int height, int depth)
+    {
+        result.setPixelSizeX((source.getPixelSizeX() * source.getSizeX()) / width);
+        result.setPixelSizeY((source.getPixelSizeY() * source.getSizeY()) / height);
+        if (depth > 0)
+            result.setPixelSizeZ((source.getPixelSizeZ() * source.getSizeZ()) / depth);
+    }
+
     /**
      * Return a copy of the sequence with specified size.<br>
      * By default the FilterType.BILINEAR is used as filter method if resizeContent is true
@@ -1762,6 +2034,28 @@ public class SequenceUtil
         return result;
     }
 
+    /**
+     * Creates a view on a sub part of the source sequence from the specified coordinates and
+     * dimensions (see {@link SequenceView}).<br>
+     * Pixel data are shared with the source sequence unless a XY sub region is specified (cropped
+     * planes are copied).
+     */
+    public static SequenceView getSubSequenceView(Sequence source, int startX, int startY, int startC, int startZ,
+            int startT, int sizeX, int sizeY, int sizeC, int sizeZ, int sizeT)
+    {
+        final int[] channels = new int[sizeC];
+
+        for (int c = 0; c < sizeC; c++)
+            channels[c] = startC + c;
+
+        final SequenceView result = new SequenceView(source, new Rectangle(startX, startY, sizeX, sizeY), channels,
+                startZ, sizeZ, startT, sizeT);
+
+        result.setName(source.getName() + " (crop)");
+
+        return result;
+    }
+
     /**
      * Creates a new sequence which is a sub part of the source sequence from the specified
      * coordinates and dimensions.
@@ -1930,30 +2224,41 @@ public class SequenceUtil
     }
 
     /**
-     * Creates and return a copy of the sequence.
+     * Creates and return a copy of the sequence.<br>
+     * Planes are copied concurrently.
+     * 
+     * @param source
+     *        source sequence
+     * @param pl
+     *        ProgressListener to indicate processing progress.
+     * @return the copy (null if the operation has been canceled)
      */
-    public static Sequence getCopy(Sequence source)
+    public static Sequence getCopy(final Sequence source, ProgressListener pl)
     {
         final Sequence result = new Sequence(OMEUtil.createOMEMetadata(source.getMetadata()));
-        final int sizeT = source.getSizeT();
-        final int sizeZ = source.getSizeZ();
 
-        for (int t = 0; t < sizeT; t++)
+        if (!PlaneExecutor.execute(result, source, new PlaneTask()
         {
-            for (int z = 0; z < sizeZ; z++)
+            @Override
+            public IcyBufferedImage compute(int t, int z)
             {
-                final IcyBufferedImage img = source.getImage(t, z);
-
-                if (img != null)
-                    result.setImage(t, z, IcyBufferedImageUtil.getCopy(img));
-                else
-                    source.setImage(t, z, null);
+                // empty position are kept empty
+                return IcyBufferedImageUtil.getCopy(source.getImage(t, z));
             }
-        }
+        }, pl))
+            return null;
 
         result.setName(source.getName() + " (copy)");
 
         return result;
     }
 
+    /**
+     * Creates and return a copy of the sequence.
+     */
+    public static Sequence getCopy(Sequence source)
+    {
+        return getCopy(source, null);
+    }
+
 }
@@ -0,0 +1,690 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.sequence;
+
+import icy.image.IcyBufferedImage;
+import icy.image.IcyBufferedImageUtil;
+import icy.sequence.SequenceEvent.SequenceEventType;
+import icy.util.OMEUtil;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Sequence whose images are windows onto the images of a parent sequence (channel subset, Z / T
+ * range and XY sub region).<br>
+ * When no XY sub region is used the view images directly share the parent channel arrays so
+ * building the view doesn't copy any pixel data (a cropped plane has to be copied as image data
+ * are stored in full width arrays).<br>
+ * View images are updated when the parent sequence changes.<br>
+ * Planes returned by {@link #getImage(int, int)} can share data with the parent so they are copied
+ * on write: their data setters (and data iterators) detach the plane from its parent and write to
+ * the detached copy, which is then returned by {@link #getImage(int, int)}. Methods returning a
+ * direct reference to the view data ({@link #getDataXY(int, int, int)},
+ * {@link #getDataXYC(int, int)}, ...) detach the planes in the same way, as does setting an image
+ * in the view.<br>
+ * Arrays obtained directly from an attached plane (<code>getImage(t, z).getDataXY(c)</code>,
+ * raster, data spans) are the parent data and must only be read, use
+ * {@link #getWritableImage(int, int)} to write them.
+ * 
+ * @author Stephane
+ */
+public class SequenceView extends Sequence implements SequenceListener
+{
+    private final Sequence parent;
+    private final Rectangle region;
+    private final int[] channels;
+    private final int startZ;
+    private final int startT;
+    private final int sizeZ;
+    private final int sizeT;
+
+    /**
+     * planes which don't follow the parent anymore
+     */
+    private final boolean[][] detached;
+    /**
+     * parent images the attached planes have been built from
+     */
+    private final IcyBufferedImage[][] sources;
+    /**
+     * internal
+     */
+    private boolean internalSet;
+
+    /**
+     * Attached view plane: data are read directly (possibly shared with the parent image) while
+     * data setters detach the plane and are forwarded to the detached copy.
+     */
+    private class ViewPlane extends IcyBufferedImage
+    {
+        final int t;
+        final int z;
+
+        ViewPlane(IcyBufferedImage source, int[] sourceChannels, int t, int z)
+        {
+            super(source, sourceChannels);
+
+            this.t = t;
+            this.z = z;
+        }
+
+        @Override
+        protected IcyBufferedImage getWritableImage()
+        {
+            final IcyBufferedImage result = SequenceView.this.getWritableImage(t, z);
+
+            // plane removed from the view in the meantime
+            if ((result == null) || (result instanceof ViewPlane))
+                throw new IllegalStateException("View plane (t=" + t + ", z=" + z + ") is not available anymore.");
+
+            return result;
+        }
+
+        @Override
+        public void setDataXY(int c, Object values)
+        {
+            getWritableImage().setDataXY(c, values);
+        }
+
+        @Override
+        public void setDataC(int x, int y, Object values)
+        {
+            getWritableImage().setDataC(x, y, values);
+        }
+
+        @Override
+        public void setDataXYAsByte(int c, byte[] values)
+        {
+            getWritableImage().setDataXYAsByte(c, values);
+        }
+
+        @Override
+        public void setDataXYAsShort(int c, short[] values)
+        {
+            getWritableImage().setDataXYAsShort(c, values);
+        }
+
+        @Override
+        public void setDataXYAsInt(int c, int[] values)
+        {
+            getWritableImage().setDataXYAsInt(c, values);
+        }
+
+        @Override
+        public void setDataXYAsFloat(int c, float[] values)
+        {
+            getWritableImage().setDataXYAsFloat(c, values);
+        }
+
+        @Override
+        public void setDataXYAsDouble(int c, double[] values)
+        {
+            getWritableImage().setDataXYAsDouble(c, values);
+        }
+
+        @Override
+        public void setDataCAsByte(int x, int y, byte[] values)
+        {
+            getWritableImage().setDataCAsByte(x, y, values);
+        }
+
+        @Override
+        public void setDataCAsShort(int x, int y, short[] values)
+        {
+            getWritableImage().setDataCAsShort(x, y, values);
+        }
+
+        @Override
+        public void setDataCAsInt(int x, int y, int[] values)
+        {
+            getWritableImage().setDataCAsInt(x, y, values);
+        }
+
+        @Override
+        public void setDataCAsFloat(int x, int y, float[] values)
+        {
+            getWritableImage().setDataCAsFloat(x, y, values);
+        }
+
+        @Override
+        public void setDataCAsDouble(int x, int y, double[] values)
+        {
+            getWritableImage().setDataCAsDouble(x, y, values);
+        }
+
+        @Override
+        public void setData(int x, int y, int c, double value)
+        {
+            getWritableImage().setData(x, y, c, value);
+        }
+
+        @Override
+        public void setDataAsByte(int x, int y, int c, byte value)
+        {
+            getWritableImage().setDataAsByte(x, y, c, value);
+        }
+
+        @Override
+        public void setDataAsShort(int x, int y, int c, short value)
+        {
+            getWritableImage().setDataAsShort(x, y, c, value);
+        }
+
+        @Override
+        public void setDataAsInt(int x, int y, int c, int value)
+        {
+            getWritableImage().setDataAsInt(x, y, c, value);
+        }
+
+        @Override
+        public void setDataAsFloat(int x, int y, int c, float value)
+        {
+            getWritableImage().setDataAsFloat(x, y, c, value);
+        }
+
+        @Override
+        public void setDataAsDouble(int x, int y, int c, double value)
+        {
+            getWritableImage().setDataAsDouble(x, y, c, value);
+        }
+
+        @Override
+        public void copyData(IcyBufferedImage srcImage, Rectangle srcRect, Point dstPt, int srcChannel, int dstChannel)
+        {
+            getWritableImage().copyData(srcImage, srcRect, dstPt, srcChannel, dstChannel);
+        }
+
+        @Override
+        public void copyData(IcyBufferedImage srcImage, Rectangle srcRect, Point dstPt)
+        {
+            getWritableImage().copyData(srcImage, srcRect, dstPt);
+        }
+
+        @Override
+        public void copyData(BufferedImage srcImage, int srcChannel, int dstChannel)
+        {
+            getWritableImage().copyData(srcImage, srcChannel, dstChannel);
+        }
+
+        @Override
+        public void copyData(BufferedImage srcImage)
+        {
+            getWritableImage().copyData(srcImage);
+        }
+
+        @Override
+        public void setRawData(int c, byte[] data, int offset, int step, boolean little)
+        {
+            getWritableImage().setRawData(c, data, offset, step, little);
+        }
+
+        @Override
+        public void setRawData(int c, byte[] data, int offset, boolean little)
+        {
+            getWritableImage().setRawData(c, data, offset, little);
+        }
+
+        @Override
+        public void setRawData(int c, byte[] data, boolean little)
+        {
+            getWritableImage().setRawData(c, data, little);
+        }
+
+        @Override
+        public void setRawData(byte[] data, int offset, boolean little, boolean interleaved)
+        {
+            getWritableImage().setRawData(data, offset, little, interleaved);
+        }
+
+        @Override
+        public void setRawData(byte[] data, boolean little, boolean interleaved)
+        {
+            getWritableImage().setRawData(data, little, interleaved);
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void translate(int dx, int dy, int channel)
+        {
+            getWritableImage().translate(dx, dy, channel);
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void translate(int dx, int dy)
+        {
+            getWritableImage().translate(dx, dy);
+        }
+    }
+
+    /**
+     * Create a view on the specified part of the parent sequence.
+     * 
+     * @param parent
+     *        parent sequence
+     * @param region
+     *        XY region of parent images (null for whole image)
+     * @param channels
+     *        parent channels used by the view
+     * @param startZ
+     *        first Z slice of parent sequence
+     * @param sizeZ
+     *        number of Z slices
+     * @param startT
+     *        first T frame of parent sequence
+     * @param sizeT
+     *        number of T frames
+     */
+    public SequenceView(Sequence parent, Rectangle region, int[] channels, int startZ, int sizeZ, int startT,
+            int sizeT)
+    {
+        super(OMEUtil.createOMEMetadata(parent.getMetadata()), parent.getName() + " (view)");
+
+        this.parent = parent;
+        // whole image region ? --> use shared data
+        if ((region != null) && region.contains(parent.getBounds()))
+            this.region = null;
+        else
+            this.region = region;
+        this.channels = channels.clone();
+        this.startZ = startZ;
+        this.sizeZ = sizeZ;
+        this.startT = startT;
+        this.sizeT = sizeT;
+
+        detached = new boolean[sizeT][sizeZ];
+        sources = new IcyBufferedImage[sizeT][sizeZ];
+        internalSet = false;
+
+        refresh();
+
+        for (int c = 0; c < channels.length; c++)
+            setChannelName(c, parent.getChannelName(channels[c]));
+
+        // don't prevent the view to be released
+        parent.addListener(new WeakSequenceListener(this));
+    }
+
+    /**
+     * Returns the parent sequence.
+     */
+    public Sequence getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * Returns the parent channels used by this view.
+     */
+    public int[] getChannels()
+    {
+        return channels.clone();
+    }
+
+    /**
+     * Returns the XY region of parent images used by this view (null if whole image).
+     */
+    public Rectangle getRegion()
+    {
+        return (region == null) ? null : new Rectangle(region);
+    }
+
+    /**
+     * Returns true if the specified plane has been detached from the parent sequence.
+     */
+    public boolean isDetached(int t, int z)
+    {
+        return isInside(t, z) && detached[t][z];
+    }
+
+    /**
+     * Returns the image at the specified position for writing.<br>
+     * The plane is detached from the parent sequence (its data are copied) on first call so
+     * modifications don't affect the parent.
+     */
+    public IcyBufferedImage getWritableImage(int t, int z)
+    {
+        final IcyBufferedImage image = getImage(t, z);
+
+        if ((image == null) || !isInside(t, z) || detached[t][z])
+            return image;
+
+        // attached planes are copy on write view planes
+        final IcyBufferedImage result = IcyBufferedImageUtil.getCopy(image);
+
+        result.getIcyColorModel().getIcyColorSpace().copyColormaps(image.getIcyColorModel().getIcyColorSpace());
+        internalSetImage(t, z, result);
+
+        detached[t][z] = true;
+        sources[t][z] = null;
+
+        return result;
+    }
+
+    @Override
+    public void setImage(int t, int z, BufferedImage image) throws IllegalArgumentException
+    {
+        super.setImage(t, z, image);
+
+        // image set from outside --> the plane doesn't follow parent anymore
+        if (!internalSet && isInside(t, z))
+        {
+            detached[t][z] = true;
+            sources[t][z] = null;
+        }
+    }
+
+    @Override
+    public Object getDataXYC(int t, int z)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYC();
+
+        return null;
+    }
+
+    @Override
+    public Object getDataXY(int t, int z, int c)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXY(c);
+
+        return null;
+    }
+
+    @Override
+    public byte[][] getDataXYCAsByte(int t, int z)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYCAsByte();
+
+        return null;
+    }
+
+    @Override
+    public short[][] getDataXYCAsShort(int t, int z)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYCAsShort();
+
+        return null;
+    }
+
+    @Override
+    public int[][] getDataXYCAsInt(int t, int z)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYCAsInt();
+
+        return null;
+    }
+
+    @Override
+    public float[][] getDataXYCAsFloat(int t, int z)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYCAsFloat();
+
+        return null;
+    }
+
+    @Override
+    public double[][] getDataXYCAsDouble(int t, int z)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYCAsDouble();
+
+        return null;
+    }
+
+    @Override
+    public byte[] getDataXYAsByte(int t, int z, int c)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYAsByte(c);
+
+        return null;
+    }
+
+    @Override
+    public short[] getDataXYAsShort(int t, int z, int c)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYAsShort(c);
+
+        return null;
+    }
+
+    @Override
+    public int[] getDataXYAsInt(int t, int z, int c)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYAsInt(c);
+
+        return null;
+    }
+
+    @Override
+    public float[] getDataXYAsFloat(int t, int z, int c)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYAsFloat(c);
+
+        return null;
+    }
+
+    @Override
+    public double[] getDataXYAsDouble(int t, int z, int c)
+    {
+        final IcyBufferedImage img = getWritableImage(t, z);
+
+        if (img != null)
+            return img.getDataXYAsDouble(c);
+
+        return null;
+    }
+
+    private void internalSetImage(int t, int z, IcyBufferedImage image)
+    {
+        internalSet = true;
+        try
+        {
+            setImage(t, z, image);
+        }
+        finally
+        {
+            internalSet = false;
+        }
+    }
+
+    private boolean isInside(int t, int z)
+    {
+        return (t >= 0) && (t < sizeT) && (z >= 0) && (z < sizeZ);
+    }
+
+    /**
+     * Build the view plane from the specified parent image
+     */
+    private IcyBufferedImage createPlane(IcyBufferedImage image, int t, int z)
+    {
+        // parent image or channel missing
+        if (image == null)
+            return null;
+        for (int c : channels)
+            if (c >= image.getSizeC())
+                return null;
+
+        // share parent channel data (colormaps and bounds are kept)
+        if (region == null)
+            return new ViewPlane(image, channels, t, z);
+
+        // XY crop need a copy
+        final IcyBufferedImage view = IcyBufferedImage.createChannelView(image, channels);
+        final IcyBufferedImage crop = IcyBufferedImageUtil.getSubImage(view, region.x, region.y, 0, region.width,
+                region.height, channels.length);
+        final int[] cropChannels = new int[channels.length];
+
+        crop.getIcyColorModel().getIcyColorSpace().copyColormaps(view.getIcyColorModel().getIcyColorSpace());
+        for (int c = 0; c < cropChannels.length; c++)
+            cropChannels[c] = c;
+
+        // writes are still detached so they are not lost on the next parent change
+        return new ViewPlane(crop, cropChannels, t, z);
+    }
+
+    /**
+     * Build the view plane from the specified parent image
+     */
+    private void setPlane(int t, int z, IcyBufferedImage parentImage)
+    {
+        internalSetImage(t, z, createPlane(parentImage, t, z));
+        sources[t][z] = parentImage;
+    }
+
+    /**
+     * Returns true if the view plane still shares data with the specified parent image
+     */
+    private boolean isSharing(IcyBufferedImage viewImage, IcyBufferedImage parentImage)
+    {
+        if ((region != null) || (viewImage == null) || (parentImage == null))
+            return false;
+
+        for (int c = 0; c < channels.length; c++)
+            if (viewImage.getDataXY(c) != parentImage.getDataXY(channels[c]))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Rebuild all attached planes from the parent sequence.
+     */
+    public void refresh()
+    {
+        beginUpdate();
+        try
+        {
+            for (int t = 0; t < sizeT; t++)
+                for (int z = 0; z < sizeZ; z++)
+                    if (!detached[t][z])
+                        setPlane(t, z, parent.getImage(startT + t, startZ + z));
+        }
+        finally
+        {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Update the attached plane after a parent data change.<br>
+     * The plane is only rebuilt if its parent image has been replaced (added or removed image) or
+     * if its data changed and the plane doesn't share them.
+     */
+    private void updatePlane(int t, int z, boolean changed, IcyBufferedImage changedImage, Rectangle changedRegion)
+    {
+        final IcyBufferedImage parentImage = parent.getImage(startT + t, startZ + z);
+
+        if (sources[t][z] != parentImage)
+            setPlane(t, z, parentImage);
+        else if (changed && (parentImage != null) && ((changedImage == null) || (changedImage == parentImage)))
+        {
+            final IcyBufferedImage viewImage = getImage(t, z);
+
+            // data are shared, just forward the change
+            if (isSharing(viewImage, parentImage))
+                viewImage.dataChanged(changedRegion, -1);
+            else
+                setPlane(t, z, parentImage);
+        }
+    }
+
+    /**
+     * Parent data changed (changedImage is null for a global change).<br>
+     * <code>changed</code> is false when images have only been added or removed.
+     */
+    private void parentDataChanged(IcyBufferedImage changedImage, boolean changed, Rectangle changedRegion)
+    {
+        beginUpdate();
+        try
+        {
+            for (int t = 0; t < sizeT; t++)
+                for (int z = 0; z < sizeZ; z++)
+                    if (!detached[t][z])
+                        updatePlane(t, z, changed, changedImage, changedRegion);
+        }
+        finally
+        {
+            endUpdate();
+        }
+    }
+
+    @Override
+    public void sequenceChanged(SequenceEvent event)
+    {
+        switch (event.getSourceType())
+        {
+            case SEQUENCE_DATA:
+                final IcyBufferedImage source = (IcyBufferedImage) event.getSource();
+
+                if (source == null)
+                    parentDataChanged(null, true, null);
+                else
+                    // ADDED / REMOVED only replace planes, CHANGED also updates planes of the image
+                    parentDataChanged(source, event.getType() == SequenceEventType.CHANGED, event.getRegion());
+                break;
+
+            case SEQUENCE_TYPE:
+                refresh();
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void sequenceClosed(Sequence sequence)
+    {
+        // nothing to do, view planes keep their data
+    }
+}
@@ -22,40 +22,150 @@ import icy.util.StringUtil;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.swing.event.EventListenerList;
 
+/**
+ * Swimming pool: shared storage of objects between plugins.<br>
+ * Objects are indexed by name (sorted map so prefix searches are ranges) and by type so queries
+ * don't need to scan the whole pool. Reads are lock free and iteration over
+ * {@link #getObjectsView()} does not need any copy. Multiple objects added or removed in one call
+ * are notified with a single event.<br>
+ * A maximum size can be set (see {@link #setMaxSize(int)}) so oldest objects are automatically
+ * discarded in long running sessions.
+ */
 public class SwimmingPool
 {
-    private final ArrayList<SwimmingObject> objects;
+    /**
+     * Objects sorted by adding order
+     */
+    private static class OrderedObjects extends ConcurrentSkipListMap<Long, SwimmingObject>
+    {
+        private static final long serialVersionUID = -4405338424574716137L;
+    }
+
+    /**
+     * type key used for null objects
+     */
+    private static final Class<?> NULL_TYPE = Void.class;
+
+    /**
+     * all objects in adding order
+     */
+    private final ConcurrentSkipListMap<Long, SwimmingObject> objects;
+    /**
+     * object --> adding order
+     */
+    private final ConcurrentMap<SwimmingObject, Long> orders;
+    /**
+     * name index
+     */
+    private final ConcurrentSkipListMap<String, OrderedObjects> nameIndex;
+    /**
+     * type index (exact object class)
+     */
+    private final ConcurrentMap<Class<?>, OrderedObjects> typeIndex;
+
     private final EventListenerList listeners;
 
+    private long nextOrder;
+    private int maxSize;
+
     public SwimmingPool()
     {
-        objects = new ArrayList<SwimmingObject>();
+        objects = new ConcurrentSkipListMap<Long, SwimmingObject>();
+        orders = new ConcurrentHashMap<SwimmingObject, Long>();
+        nameIndex = new ConcurrentSkipListMap<String, OrderedObjects>();
+        typeIndex = new ConcurrentHashMap<Class<?>, OrderedObjects>();
         listeners = new EventListenerList();
+        nextOrder = 0;
+        maxSize = 0;
+    }
+
+    /**
+     * Returns the maximum number of object retained by the swimming pool (0 means unlimited).
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of object retained by the swimming pool (0 means unlimited).<br>
+     * When the limit is exceeded the oldest objects are removed.
+     */
+    public void setMaxSize(int value)
+    {
+        final List<SwimmingObject> removed;
+
+        synchronized (this)
+        {
+            maxSize = Math.max(0, value);
+            removed = trimToMaxSize();
+        }
+
+        fireRemoved(removed);
+    }
+
+    /**
+     * Returns the number of object in the swimming pool.
+     */
+    public int getCount()
+    {
+        return orders.size();
     }
 
     public void add(SwimmingObject object)
     {
         if (object != null)
-        {
-            synchronized (objects)
-            {
-                objects.add(object);
-            }
+            addAll(Collections.singletonList(object));
+    }
 
-            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_ADDED, object));
+    /**
+     * Add all the specified objects to the swimming pool (single event is sent).<br>
+     * Objects already present in the swimming pool are ignored.
+     */
+    public void addAll(Collection<SwimmingObject> sos)
+    {
+        final LinkedHashSet<SwimmingObject> added = new LinkedHashSet<SwimmingObject>();
+        final List<SwimmingObject> removed = new ArrayList<SwimmingObject>();
+
+        synchronized (this)
+        {
+            for (SwimmingObject so : sos)
+                if ((so != null) && internalAdd(so))
+                    added.add(so);
+
+            // retention policy may have removed some of the added objects, they were never
+            // announced so they are not notified at all
+            for (SwimmingObject so : trimToMaxSize())
+                if (!added.remove(so))
+                    removed.add(so);
         }
+
+        fireRemoved(removed);
+        if (!added.isEmpty())
+            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_ADDED,
+                    new ArrayList<SwimmingObject>(added)));
     }
 
     public void remove(SwimmingObject object)
     {
         final boolean b;
 
-        synchronized (objects)
+        synchronized (this)
         {
-            b = objects.remove(object);
+            b = internalRemove(object);
         }
 
         if (b)
@@ -64,18 +174,19 @@ public class SwimmingPool
 
     public void removeAll()
     {
-        final boolean b;
+        final List<SwimmingObject> removed;
 
-        synchronized (objects)
+        synchronized (this)
         {
-            b = !objects.isEmpty();
+            removed = new ArrayList<SwimmingObject>(objects.values());
 
-            if (b)
-                objects.clear();
+            objects.clear();
+            orders.clear();
+            nameIndex.clear();
+            typeIndex.clear();
         }
 
-        if (b)
-            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_REMOVED, null));
+        fireRemoved(removed);
     }
 
     /**
@@ -83,15 +194,7 @@ public class SwimmingPool
      */
     public void removeAll(Collection<SwimmingObject> sos)
     {
-        final boolean b;
-
-        synchronized (objects)
-        {
-            b = objects.removeAll(sos);
-        }
-
-        if (b)
-            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_REMOVED, null));
+        fireRemoved(internalRemoveAll(sos));
     }
 
     /**
@@ -99,35 +202,7 @@ public class SwimmingPool
      */
     public void removeAll(String name, boolean startWith)
     {
-        boolean b = false;
-
-        synchronized (objects)
-        {
-            for (int i = objects.size() - 1; i >= 0; i--)
-            {
-                final SwimmingObject so = objects.get(i);
-
-                if (so != null)
-                {
-                    if (startWith)
-                    {
-                        if (so.getName().startsWith(name))
-                        {
-                            objects.remove(i);
-                            b = true;
-                        }
-                    }
-                    else if (StringUtil.equals(name, so.getName()))
-                    {
-                        objects.remove(i);
-                        b = true;
-                    }
-                }
-            }
-        }
-
-        if (b)
-            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_REMOVED, null));
+        fireRemoved(popObjects(name, startWith, false));
     }
 
     /**
@@ -135,29 +210,7 @@ public class SwimmingPool
      */
     public void removeAll(Class<?> objectType)
     {
-        boolean b = false;
-
-        synchronized (objects)
-        {
-            for (int i = objects.size() - 1; i >= 0; i--)
-            {
-                final SwimmingObject so = objects.get(i);
-
-                if (so != null)
-                {
-                    final Object obj = so.getObject();
-
-                    if ((obj != null) && objectType.isAssignableFrom(obj.getClass()))
-                    {
-                        objects.remove(i);
-                        b = true;
-                    }
-                }
-            }
-        }
-
-        if (b)
-            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_REMOVED, null));
+        fireRemoved(popObjects(objectType, false));
     }
 
     /**
@@ -165,7 +218,17 @@ public class SwimmingPool
      */
     public ArrayList<SwimmingObject> getObjects()
     {
-        return new ArrayList<SwimmingObject>(objects);
+        return new ArrayList<SwimmingObject>(objects.values());
+    }
+
+    /**
+     * Return an unmodifiable live view of all objects of the swimming pool (in adding order).<br>
+     * Iterating over it does not require any copy and never throws
+     * <code>ConcurrentModificationException</code>.
+     */
+    public Collection<SwimmingObject> getObjectsView()
+    {
+        return Collections.unmodifiableCollection(objects.values());
     }
 
     /**
@@ -173,26 +236,7 @@ public class SwimmingPool
      */
     public ArrayList<SwimmingObject> getObjects(String name, boolean startWith)
     {
-        final ArrayList<SwimmingObject> result = new ArrayList<SwimmingObject>();
-
-        synchronized (objects)
-        {
-            for (SwimmingObject so : objects)
-            {
-                if (so != null)
-                {
-                    if (startWith)
-                    {
-                        if (so.getName().startsWith(name))
-                            result.add(so);
-                    }
-                    else if (StringUtil.equals(name, so.getName()))
-                        result.add(so);
-                }
-            }
-        }
-
-        return result;
+        return merge(getNameMaps(name, startWith));
     }
 
     /**
@@ -200,23 +244,7 @@ public class SwimmingPool
      */
     public ArrayList<SwimmingObject> getObjects(Class<?> objectType)
     {
-        final ArrayList<SwimmingObject> result = new ArrayList<SwimmingObject>();
-
-        synchronized (objects)
-        {
-            for (SwimmingObject so : objects)
-            {
-                if (so != null)
-                {
-                    final Object obj = so.getObject();
-
-                    if ((obj != null) && objectType.isAssignableFrom(obj.getClass()))
-                        result.add(so);
-                }
-            }
-        }
-
-        return result;
+        return merge(getTypeMaps(objectType));
     }
 
     /**
@@ -224,62 +252,44 @@ public class SwimmingPool
      */
     public ArrayList<SwimmingObject> popObjects(String name, boolean startWith)
     {
-        final ArrayList<SwimmingObject> result = new ArrayList<SwimmingObject>();
+        return popObjects(name, startWith, true);
+    }
 
-        synchronized (objects)
+    /**
+     * Return and remove objects of specified class type
+     */
+    public ArrayList<SwimmingObject> popObjects(Class<?> objectType)
+    {
+        return popObjects(objectType, true);
+    }
+
+    private ArrayList<SwimmingObject> popObjects(String name, boolean startWith, boolean notify)
+    {
+        final ArrayList<SwimmingObject> result;
+
+        synchronized (this)
         {
-            for (int i = objects.size() - 1; i >= 0; i--)
-            {
-                final SwimmingObject so = objects.get(i);
-
-                if (so != null)
-                {
-                    if (startWith)
-                    {
-                        if (so.getName().startsWith(name))
-                        {
-                            result.add(so);
-                            objects.remove(i);
-                        }
-                    }
-                    else if (StringUtil.equals(name, so.getName()))
-                    {
-                        result.add(so);
-                        objects.remove(i);
-                    }
-                }
-            }
+            result = internalRemoveAll(getObjects(name, startWith));
         }
 
+        if (notify)
+            fireRemoved(result);
+
         return result;
     }
 
-    /**
-     * Return and remove objects of specified class type
-     */
-    public ArrayList<SwimmingObject> popObjects(Class<?> objectType)
+    private ArrayList<SwimmingObject> popObjects(Class<?> objectType, boolean notify)
     {
-        final ArrayList<SwimmingObject> result = new ArrayList<SwimmingObject>();
+        final ArrayList<SwimmingObject> result;
 
-        synchronized (objects)
+        synchronized (this)
         {
-            for (int i = objects.size() - 1; i >= 0; i--)
-            {
-                final SwimmingObject so = objects.get(i);
-
-                if (so != null)
-                {
-                    final Object obj = so.getObject();
-
-                    if ((obj != null) && objectType.isAssignableFrom(obj.getClass()))
-                    {
-                        result.add(so);
-                        objects.remove(i);
-                    }
-                }
-            }
+            result = internalRemoveAll(getObjects(objectType));
         }
 
+        if (notify)
+            fireRemoved(result);
+
         return result;
     }
 
@@ -289,22 +299,9 @@ public class SwimmingPool
      */
     public boolean hasObjects(String name, boolean startWith)
     {
-        synchronized (objects)
-        {
-            for (SwimmingObject so : objects)
-            {
-                if (so != null)
-                {
-                    if (startWith)
-                    {
-                        if (so.getName().startsWith(name))
-                            return true;
-                    }
-                    else if (StringUtil.equals(name, so.getName()))
-                        return true;
-                }
-            }
-        }
+        for (Map<Long, SwimmingObject> map : getNameMaps(name, startWith))
+            if (!map.isEmpty())
+                return true;
 
         return false;
     }
@@ -314,19 +311,9 @@ public class SwimmingPool
      */
     public boolean hasObjects(Class<?> objectType)
     {
-        synchronized (objects)
-        {
-            for (SwimmingObject so : objects)
-            {
-                if (so != null)
-                {
-                    final Object obj = so.getObject();
-
-                    if ((obj != null) && objectType.isAssignableFrom(obj.getClass()))
-                        return true;
-                }
-            }
-        }
+        for (Map<Long, SwimmingObject> map : getTypeMaps(objectType))
+            if (!map.isEmpty())
+                return true;
 
         return false;
     }
@@ -339,22 +326,8 @@ public class SwimmingPool
     {
         int result = 0;
 
-        synchronized (objects)
-        {
-            for (SwimmingObject so : objects)
-            {
-                if (so != null)
-                {
-                    if (startWith)
-                    {
-                        if (so.getName().startsWith(name))
-                            result++;
-                    }
-                    else if (StringUtil.equals(name, so.getName()))
-                        result++;
-                }
-            }
-        }
+        for (Map<Long, SwimmingObject> map : getNameMaps(name, startWith))
+            result += map.size();
 
         return result;
     }
@@ -366,31 +339,200 @@ public class SwimmingPool
     {
         int result = 0;
 
-        synchronized (objects)
+        for (Map<Long, SwimmingObject> map : getTypeMaps(objectType))
+            result += map.size();
+
+        return result;
+    }
+
+    public void addListener(SwimmingPoolListener listener)
+    {
+        listeners.add(SwimmingPoolListener.class, listener);
+    }
+
+    public void removeListener(SwimmingPoolListener listener)
+    {
+        listeners.remove(SwimmingPoolListener.class, listener);
+    }
+
+    private static Class<?> getType(SwimmingObject so)
+    {
+        final Object obj = so.getObject();
+
+        if (obj == null)
+            return NULL_TYPE;
+
+        return obj.getClass();
+    }
+
+    private static String getName(SwimmingObject so)
+    {
+        return StringUtil.getValue(so.getName(), "");
+    }
+
+    /**
+     * Returns index maps for the specified name (or name prefix).
+     */
+    private List<OrderedObjects> getNameMaps(String name, boolean startWith)
+    {
+        final List<OrderedObjects> result = new ArrayList<OrderedObjects>();
+
+        if (name == null)
+            return result;
+
+        if (startWith)
         {
-            for (SwimmingObject so : objects)
+            // all names starting with prefix are contiguous in the sorted map
+            final ConcurrentNavigableMap<String, OrderedObjects> tail = nameIndex.tailMap(name, true);
+
+            for (Entry<String, OrderedObjects> entry : tail.entrySet())
             {
-                if (so != null)
-                {
-                    final Object obj = so.getObject();
+                if (!entry.getKey().startsWith(name))
+                    break;
 
-                    if ((obj != null) && objectType.isAssignableFrom(obj.getClass()))
-                        result++;
-                }
+                result.add(entry.getValue());
             }
         }
+        else
+        {
+            final OrderedObjects map = nameIndex.get(name);
+
+            if (map != null)
+                result.add(map);
+        }
 
         return result;
     }
 
-    public void addListener(SwimmingPoolListener listener)
+    /**
+     * Returns index maps for all types assignable to the specified type.
+     */
+    private List<OrderedObjects> getTypeMaps(Class<?> objectType)
     {
-        listeners.add(SwimmingPoolListener.class, listener);
+        final List<OrderedObjects> result = new ArrayList<OrderedObjects>();
+
+        for (Entry<Class<?>, OrderedObjects> entry : typeIndex.entrySet())
+        {
+            final Class<?> type = entry.getKey();
+
+            if ((type != NULL_TYPE) && objectType.isAssignableFrom(type))
+                result.add(entry.getValue());
+        }
+
+        return result;
     }
 
-    public void removeListener(SwimmingPoolListener listener)
+    /**
+     * Merge index maps content in adding order.
+     */
+    private static ArrayList<SwimmingObject> merge(List<OrderedObjects> maps)
     {
-        listeners.remove(SwimmingPoolListener.class, listener);
+        if (maps.size() == 1)
+            return new ArrayList<SwimmingObject>(maps.get(0).values());
+
+        final TreeMap<Long, SwimmingObject> result = new TreeMap<Long, SwimmingObject>();
+
+        for (Map<Long, SwimmingObject> map : maps)
+            result.putAll(map);
+
+        return new ArrayList<SwimmingObject>(result.values());
+    }
+
+    private static <K> void addToIndex(Map<K, OrderedObjects> index, K key, Long order, SwimmingObject so)
+    {
+        OrderedObjects entries = index.get(key);
+
+        if (entries == null)
+        {
+            entries = new OrderedObjects();
+            index.put(key, entries);
+        }
+
+        entries.put(order, so);
+    }
+
+    private static <K> void removeFromIndex(Map<K, OrderedObjects> index, K key, Long order)
+    {
+        final OrderedObjects entries = index.get(key);
+
+        if (entries != null)
+        {
+            entries.remove(order);
+            if (entries.isEmpty())
+                index.remove(key);
+        }
+    }
+
+    // should be called inside synchronized (this)
+    private boolean internalAdd(SwimmingObject so)
+    {
+        if (orders.containsKey(so))
+            return false;
+
+        final Long order = Long.valueOf(nextOrder++);
+
+        orders.put(so, order);
+        objects.put(order, so);
+        addToIndex(nameIndex, getName(so), order, so);
+        addToIndex(typeIndex, getType(so), order, so);
+
+        return true;
+    }
+
+    // should be called inside synchronized (this)
+    private boolean internalRemove(SwimmingObject so)
+    {
+        if (so == null)
+            return false;
+
+        final Long order = orders.remove(so);
+
+        if (order == null)
+            return false;
+
+        objects.remove(order);
+        removeFromIndex(nameIndex, getName(so), order);
+        removeFromIndex(typeIndex, getType(so), order);
+
+        return true;
+    }
+
+    private synchronized ArrayList<SwimmingObject> internalRemoveAll(Collection<SwimmingObject> sos)
+    {
+        final ArrayList<SwimmingObject> result = new ArrayList<SwimmingObject>(sos.size());
+
+        for (SwimmingObject so : sos)
+            if (internalRemove(so))
+                result.add(so);
+
+        return result;
+    }
+
+    // should be called inside synchronized (this)
+    private List<SwimmingObject> trimToMaxSize()
+    {
+        final List<SwimmingObject> result = new ArrayList<SwimmingObject>();
+
+        if (maxSize > 0)
+        {
+            while (orders.size() > maxSize)
+            {
+                final Entry<Long, SwimmingObject> eldest = objects.firstEntry();
+
+                if ((eldest == null) || !internalRemove(eldest.getValue()))
+                    break;
+
+                result.add(eldest.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    private void fireRemoved(List<SwimmingObject> removed)
+    {
+        if (!removed.isEmpty())
+            fireSwimmingPoolEvent(new SwimmingPoolEvent(SwimmingPoolEventType.ELEMENT_REMOVED, removed));
     }
 
     private void fireSwimmingPoolEvent(SwimmingPoolEvent swimmingPoolEvent)
@@ -18,20 +18,49 @@
  */
 package icy.swimmingPool;
 
+import java.util.Collections;
+import java.util.List;
+
 public class SwimmingPoolEvent
 {
-    private final SwimmingObject result;
+    private final List<SwimmingObject> results;
     private final SwimmingPoolEventType type;
 
-    public SwimmingPoolEvent(SwimmingPoolEventType type, SwimmingObject result)
+    /**
+     * Create an event for several objects added or removed at once.
+     */
+    public SwimmingPoolEvent(SwimmingPoolEventType type, List<SwimmingObject> results)
     {
-        this.result = result;
+        this.results = Collections.unmodifiableList(results);
         this.type = type;
     }
 
+    public SwimmingPoolEvent(SwimmingPoolEventType type, SwimmingObject result)
+    {
+        this(type, (result != null) ? Collections.singletonList(result) : Collections.<SwimmingObject> emptyList());
+    }
+
+    /**
+     * Returns the object concerned by the event.<br>
+     * For an event concerning several objects this returns the last added or removed object, use
+     * {@link #getResults()} to get all of them.
+     */
     public SwimmingObject getResult()
     {
-        return result;
+        final int size = results.size();
+
+        if (size > 0)
+            return results.get(size - 1);
+
+        return null;
+    }
+
+    /**
+     * Returns all objects concerned by the event.
+     */
+    public List<SwimmingObject> getResults()
+    {
+        return results;
     }
 
     public SwimmingPoolEventType getType()
@@ -28,6 +28,8 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -79,7 +81,8 @@ public class SwimmingPoolViewer implements SwimmingPoolListener
 
     			@Override
     			public void run() {					
-    				mainPanel.add(new SwimmingPoolElementPanel(swimmingPoolEvent.getResult()));
+    				for (SwimmingObject result : swimmingPoolEvent.getResults())
+    					mainPanel.add(new SwimmingPoolElementPanel(result));
     				mainPanel.revalidate();
     			}
     		} );
@@ -90,18 +93,17 @@ public class SwimmingPoolViewer implements SwimmingPoolListener
 
     			@Override
     			public void run() {					
-    				for (int i = 0; i < mainPanel.getComponents().length; i++)
+    				final Set<SwimmingObject> removed = new HashSet<SwimmingObject>(swimmingPoolEvent.getResults());
+
+    				for (int i = mainPanel.getComponentCount() - 1; i >= 0; i--)
     				{
     					SwimmingPoolElementPanel spep = (SwimmingPoolElementPanel) mainPanel.getComponent(i);
-    					if (spep.result == swimmingPoolEvent.getResult())
-    					{
-    						mainPanel.remove(spep);
-    						mainFrame.revalidate();
-    						// FIXME : why this is needed ?
-    						mainFrame.repaint();
-    						break;
-    					}
+    					if (removed.contains(spep.result))
+    						mainPanel.remove(i);
     				}
+    				mainFrame.revalidate();
+    				// FIXME : why this is needed ?
+    				mainFrame.repaint();
     			}
     		} );
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free counter metric.
+ * 
+ * @author Stephane
+ */
+public class CounterMetric extends Metric
+{
+    private final AtomicLong count;
+
+    public CounterMetric(String name)
+    {
+        super(name);
+
+        count = new AtomicLong(0L);
+    }
+
+    /**
+     * Increment the counter by one.
+     */
+    public void inc()
+    {
+        if (MetricsRegistry.isEnabled())
+            count.incrementAndGet();
+    }
+
+    /**
+     * Add the specified value to the counter.
+     */
+    public void add(long value)
+    {
+        if (MetricsRegistry.isEnabled())
+            count.addAndGet(value);
+    }
+
+    @Override
+    public String getType()
+    {
+        return "counter";
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    @Override
+    public void reset()
+    {
+        count.set(0L);
+    }
+
+    @Override
+    public String toCSV()
+    {
+        return MetricsRegistry.escapeCSV(name) + "," + getType() + "," + getCount() + ",,,,,,";
+    }
+
+    @Override
+    public String toJSON()
+    {
+        return "{\"name\":" + MetricsRegistry.escapeJSON(name) + ",\"type\":\"" + getType() + "\",\"count\":"
+                + getCount() + "}";
+    }
+}
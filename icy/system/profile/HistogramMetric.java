@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram metric.<br>
+ * Values are accumulated in power of 2 buckets so percentiles are approximated (by upper
+ * bucket bound) while count, sum, minimum and maximum are exact.<br>
+ * Only positive values are supported (negative values are clamped to 0).
+ * 
+ * @author Stephane
+ */
+public class HistogramMetric extends Metric
+{
+    private static final int NUM_BUCKET = 64;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    public HistogramMetric(String name)
+    {
+        super(name);
+
+        buckets = new AtomicLongArray(NUM_BUCKET);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        min = new AtomicLong();
+        max = new AtomicLong();
+
+        reset();
+    }
+
+    /**
+     * Record the specified value.
+     */
+    public void record(long value)
+    {
+        if (!MetricsRegistry.isEnabled())
+            return;
+
+        final long v = Math.max(0L, value);
+
+        // bucket index is the bit length of the value
+        buckets.incrementAndGet(NUM_BUCKET - Long.numberOfLeadingZeros(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+
+        long cur;
+
+        cur = min.get();
+        while ((v < cur) && !min.compareAndSet(cur, v))
+            cur = min.get();
+        cur = max.get();
+        while ((v > cur) && !max.compareAndSet(cur, v))
+            cur = max.get();
+    }
+
+    @Override
+    public String getType()
+    {
+        return "histogram";
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Return the sum of recorded values.
+     */
+    public long getSum()
+    {
+        return sum.get();
+    }
+
+    /**
+     * Return the minimum recorded value (0 if empty).
+     */
+    public long getMin()
+    {
+        if (getCount() == 0)
+            return 0L;
+
+        return min.get();
+    }
+
+    /**
+     * Return the maximum recorded value (0 if empty).
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Return the mean of recorded values.
+     */
+    public double getMean()
+    {
+        final long cnt = getCount();
+
+        if (cnt == 0)
+            return 0d;
+
+        return (double) getSum() / (double) cnt;
+    }
+
+    /**
+     * Return approximated percentile value.
+     * 
+     * @param p
+     *        percentile in [0..1] range
+     */
+    public long getPercentile(double p)
+    {
+        final long cnt = getCount();
+
+        if (cnt == 0)
+            return 0L;
+
+        final long rank = (long) Math.ceil(Math.max(0d, Math.min(1d, p)) * cnt);
+        long acc = 0;
+
+        for (int i = 0; i < NUM_BUCKET; i++)
+        {
+            acc += buckets.get(i);
+
+            if (acc >= rank)
+            {
+                // upper bound of bucket, limited to max value
+                final long bound = (i == 0) ? 0L : ((i >= 63) ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(bound, getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < NUM_BUCKET; i++)
+            buckets.set(i, 0L);
+        count.set(0L);
+        sum.set(0L);
+        min.set(Long.MAX_VALUE);
+        max.set(0L);
+    }
+
+    @Override
+    public String toCSV()
+    {
+        return MetricsRegistry.escapeCSV(name) + "," + getType() + "," + getCount() + "," + getSum() + ","
+                + getMin() + "," + getMax() + "," + getMean() + "," + getPercentile(0.5d) + ","
+                + getPercentile(0.99d);
+    }
+
+    @Override
+    public String toJSON()
+    {
+        return "{\"name\":" + MetricsRegistry.escapeJSON(name) + ",\"type\":\"" + getType() + "\",\"count\":"
+                + getCount() + ",\"sum\":" + getSum() + ",\"min\":" + getMin() + ",\"max\":" + getMax()
+                + ",\"mean\":" + getMean() + ",\"p50\":" + getPercentile(0.5d) + ",\"p99\":"
+                + getPercentile(0.99d) + "}";
+    }
+}
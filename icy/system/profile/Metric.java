@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+/**
+ * Base class for performance metrics (see {@link MetricsRegistry}).
+ * 
+ * @author Stephane
+ */
+public abstract class Metric
+{
+    protected final String name;
+
+    public Metric(String name)
+    {
+        super();
+
+        this.name = name;
+    }
+
+    /**
+     * @return the metric name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Return the metric type name ("counter", "timer"...)
+     */
+    public abstract String getType();
+
+    /**
+     * Return the number of recorded events.
+     */
+    public abstract long getCount();
+
+    /**
+     * Reset the metric.
+     */
+    public abstract void reset();
+
+    /**
+     * Return the metric values as a CSV line.<br>
+     * Field order is given by {@link MetricsRegistry#CSV_HEADER}.
+     */
+    public abstract String toCSV();
+
+    /**
+     * Return the metric values as a JSON object.
+     */
+    public abstract String toJSON();
+
+    @Override
+    public String toString()
+    {
+        return name + " (" + getType() + ") : " + getCount();
+    }
+}
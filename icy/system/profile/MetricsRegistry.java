@@ -0,0 +1,236 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+import icy.file.FileUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Kernel wide performance metrics registry.<br>
+ * Metrics are identified by their name and created on first access, they use lock free storage
+ * so they can be updated from any thread with a very low overhead.<br>
+ * Registered metrics can be exported in CSV or JSON format for offline comparison.
+ * 
+ * @author Stephane
+ */
+public class MetricsRegistry
+{
+    /**
+     * CSV header for {@link #toCSV()} export.
+     */
+    public static final String CSV_HEADER = "name,type,count,sum,min,max,mean,p50,p99";
+
+    private static final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+
+    private static volatile boolean enabled = true;
+
+    /**
+     * Return true if metrics recording is enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable metrics recording.
+     */
+    public static void setEnabled(boolean value)
+    {
+        enabled = value;
+    }
+
+    private static Metric register(Metric metric)
+    {
+        final Metric result = metrics.putIfAbsent(metric.getName(), metric);
+
+        if (result == null)
+            return metric;
+
+        return result;
+    }
+
+    /**
+     * Throws an {@link IllegalArgumentException} if the registered metric is not of the requested
+     * type (metric names are shared by all metric types).
+     */
+    private static Metric checkType(Metric metric, Class<? extends Metric> type)
+    {
+        if (!type.isInstance(metric))
+            throw new IllegalArgumentException("Metric '" + metric.getName() + "' is already registered as a "
+                    + metric.getClass().getSimpleName() + ", not a " + type.getSimpleName());
+
+        return metric;
+    }
+
+    /**
+     * Get the counter metric with specified name (created if needed).
+     * 
+     * @throws IllegalArgumentException
+     *         if a metric of another type is already registered with this name
+     */
+    public static CounterMetric getCounter(String name)
+    {
+        Metric result = metrics.get(name);
+
+        if (result == null)
+            result = register(new CounterMetric(name));
+
+        return (CounterMetric) checkType(result, CounterMetric.class);
+    }
+
+    /**
+     * Get the timer metric with specified name (created if needed).
+     * 
+     * @throws IllegalArgumentException
+     *         if a metric of another type is already registered with this name
+     */
+    public static TimerMetric getTimer(String name)
+    {
+        Metric result = metrics.get(name);
+
+        if (result == null)
+            result = register(new TimerMetric(name));
+
+        return (TimerMetric) checkType(result, TimerMetric.class);
+    }
+
+    /**
+     * Get the histogram metric with specified name (created if needed, a timer is also a
+     * histogram).
+     * 
+     * @throws IllegalArgumentException
+     *         if a metric of another type is already registered with this name
+     */
+    public static HistogramMetric getHistogram(String name)
+    {
+        Metric result = metrics.get(name);
+
+        if (result == null)
+            result = register(new HistogramMetric(name));
+
+        return (HistogramMetric) checkType(result, HistogramMetric.class);
+    }
+
+    /**
+     * Return all registered metrics sorted by name.
+     */
+    public static List<Metric> getMetrics()
+    {
+        final List<Metric> result = new ArrayList<Metric>(metrics.values());
+
+        Collections.sort(result, new Comparator<Metric>()
+        {
+            @Override
+            public int compare(Metric m1, Metric m2)
+            {
+                return m1.getName().compareTo(m2.getName());
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Reset all registered metrics.
+     */
+    public static void reset()
+    {
+        for (Metric metric : metrics.values())
+            metric.reset();
+    }
+
+    /**
+     * Return all metrics in CSV format.
+     */
+    public static String toCSV()
+    {
+        final StringBuilder result = new StringBuilder();
+
+        result.append(CSV_HEADER);
+        result.append('\n');
+        for (Metric metric : getMetrics())
+        {
+            result.append(metric.toCSV());
+            result.append('\n');
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Return all metrics in JSON format.
+     */
+    public static String toJSON()
+    {
+        final StringBuilder result = new StringBuilder();
+        boolean first = true;
+
+        result.append("{\"time\":");
+        result.append(System.currentTimeMillis());
+        result.append(",\"metrics\":[");
+        for (Metric metric : getMetrics())
+        {
+            if (!first)
+                result.append(',');
+            result.append('\n');
+            result.append(metric.toJSON());
+            first = false;
+        }
+        result.append("\n]}\n");
+
+        return result.toString();
+    }
+
+    /**
+     * Export all metrics to the specified file in CSV format.
+     */
+    public static boolean exportCSV(File file)
+    {
+        return FileUtil.save(file, toCSV().getBytes(), true);
+    }
+
+    /**
+     * Export all metrics to the specified file in JSON format.
+     */
+    public static boolean exportJSON(File file)
+    {
+        return FileUtil.save(file, toJSON().getBytes(), true);
+    }
+
+    static String escapeCSV(String value)
+    {
+        if ((value.indexOf(',') != -1) || (value.indexOf('"') != -1))
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+
+        return value;
+    }
+
+    static String escapeJSON(String value)
+    {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
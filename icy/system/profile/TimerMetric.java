@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+/**
+ * Lock free timer metric (durations are recorded in nanoseconds).<br>
+ * Typical use :<br>
+ * 
+ * <pre>
+ * final long start = timer.start();
+ * try
+ * {
+ *     ...
+ * }
+ * finally
+ * {
+ *     timer.stop(start);
+ * }
+ * </pre>
+ * 
+ * @author Stephane
+ */
+public class TimerMetric extends HistogramMetric
+{
+    public TimerMetric(String name)
+    {
+        super(name);
+    }
+
+    /**
+     * Return start time to give to {@link #stop(long)} (0 if metrics are disabled).
+     */
+    public long start()
+    {
+        if (MetricsRegistry.isEnabled())
+            return System.nanoTime();
+
+        return 0L;
+    }
+
+    /**
+     * Record elapsed time since specified start time (as returned by {@link #start()}).
+     */
+    public void stop(long startTime)
+    {
+        if (startTime != 0L)
+            record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Return the total recorded time in milli second.
+     */
+    public double getTotalMs()
+    {
+        return getSum() / 1000000d;
+    }
+
+    /**
+     * Return the mean recorded time in milli second.
+     */
+    public double getMeanMs()
+    {
+        return getMean() / 1000000d;
+    }
+
+    @Override
+    public String getType()
+    {
+        return "timer";
+    }
+}
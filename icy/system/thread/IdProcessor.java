@@ -59,18 +59,17 @@ public class IdProcessor extends Processor
     }
 
     /**
-     * Add a task to processor
+     * Add a task to processor.<br>
+     * Any waiting task with the same id is replaced.
      */
     @Override
-    public synchronized boolean addTask(Runnable task, boolean onAWTEventThread, int id)
+    public boolean addTask(Runnable task, boolean onAWTEventThread, int id)
     {
         if (task == null)
             return false;
 
-        // we remove pending task if any
-        removeFirstWaitingTask(id);
-
-        if (!super.addTask(task, onAWTEventThread, id))
+        // the id is the coalescing key (pending one is replaced)
+        if (submitTask(task, onAWTEventThread, id, Integer.valueOf(id), DEFAULT_TASK_PRIORITY) == null)
         {
             if (!Icy.isExiting())
             {
@@ -56,17 +56,16 @@ public class InstanceProcessor extends Processor
 
     /**
      * Add a task to the processor.<br>
+     * Any waiting execution of the same task instance is replaced.
      */
     @Override
-    public synchronized boolean addTask(Runnable task, boolean onAWTEventThread, int id)
+    public boolean addTask(Runnable task, boolean onAWTEventThread, int id)
     {
         if (task == null)
             return false;
 
-        // we remove pending task if any
-        removeFirstWaitingTask(task);
-
-        if (!super.addTask(task, onAWTEventThread, id))
+        // the task instance is the coalescing key (pending one is replaced)
+        if (submitTask(task, onAWTEventThread, id, task, DEFAULT_TASK_PRIORITY) == null)
         {
             if (!Icy.isExiting())
             {
@@ -19,72 +19,333 @@
 package icy.system.thread;
 
 import icy.system.SystemUtil;
+import icy.system.profile.CounterMetric;
+import icy.system.profile.MetricsRegistry;
+import icy.system.profile.TimerMetric;
 
 import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.event.EventListenerList;
 
 /**
+ * Task processor.<br>
+ * Waiting tasks are ordered by task priority then by submission order. Tasks can be submitted
+ * with a coalescing key (see {@link #submitTask(Runnable, boolean, int, Object, int)}): only the
+ * latest waiting task of a given key is kept and tasks of a same key never execute concurrently,
+ * both in constant time. The returned {@link Runner} acts as a cancellation token.<br>
+ * Processors execute their tasks on shared pools: each processor keeps its own waiting queue and
+ * executes at most <code>maxProcessing</code> tasks at once. Tasks which may block (I/O, waiting
+ * for other tasks...) run on an unbounded blocking pool, this is the default. Processors doing only
+ * computation should use {@link #setBlockingTasks(boolean)} so they run on the compute pool,
+ * bounded to {@link #SHARED_MAX_THREADS} threads. The inherited <code>ThreadPoolExecutor</code>
+ * never creates any thread.
+ * 
  * @author stephane
  */
 public class Processor extends ThreadPoolExecutor
 {
     public static final int DEFAULT_MAX_WAITING = 1024;
     public static final int DEFAULT_MAX_PROCESSING = SystemUtil.getAvailableProcessors() * 2;
+    /**
+     * Maximum number of threads of the compute pool shared by computation processors
+     */
+    public static final int SHARED_MAX_THREADS = Math.max(32, SystemUtil.getAvailableProcessors() * 4);
 
-    public interface ProcessorEventListener extends EventListener
+    private static final TimerMetric taskTimer = MetricsRegistry.getTimer("Processor.task");
+    private static final CounterMetric rejectedCounter = MetricsRegistry.getCounter("Processor.rejected");
+    private static final CounterMetric coalescedCounter = MetricsRegistry.getCounter("Processor.coalesced");
+
+    private static final AtomicLong sequenceGenerator = new AtomicLong();
+    private static final ThreadLocal<Runner> currentRunner = new ThreadLocal<Runner>();
+
+    /**
+     * pool executing tasks of computation processors
+     */
+    private static final ThreadPoolExecutor sharedExecutor;
+    /**
+     * pool executing tasks of processors whose tasks may block (threads are created on demand,
+     * each processor still executes at most <code>maxProcessing</code> tasks at once)
+     */
+    private static final ThreadPoolExecutor blockingExecutor;
+
+    static
     {
-        public void processDone(Processor source, Runnable runnable);
+        sharedExecutor = new ThreadPoolExecutor(SHARED_MAX_THREADS, SHARED_MAX_THREADS, 2L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new PoolThreadFactory("Processor pool "));
+        sharedExecutor.allowCoreThreadTimeOut(true);
+        blockingExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 2L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new PoolThreadFactory("Processor blocking pool "));
     }
 
-    class ProcessorThreadFactory implements ThreadFactory
+    private static class PoolThreadFactory implements ThreadFactory
     {
+        private final String name;
+        private final AtomicInteger count;
+
+        PoolThreadFactory(String name)
+        {
+            super();
+
+            this.name = name;
+            count = new AtomicInteger();
+        }
+
         @Override
         public Thread newThread(Runnable r)
         {
-            final Thread result = new Thread(r, defaultThreadName);
+            return new Thread(r, name + count.incrementAndGet());
+        }
+    }
+
+    /**
+     * Returns the number of threads of the compute pool.
+     */
+    public static int getSharedPoolSize()
+    {
+        return sharedExecutor.getPoolSize();
+    }
+
+    /**
+     * Returns the number of threads of the blocking pool.
+     */
+    public static int getBlockingPoolSize()
+    {
+        return blockingExecutor.getPoolSize();
+    }
 
-            result.setPriority(priority);
+    /**
+     * Returns the task being executed by the current thread (null if the current thread is not a
+     * processor thread).<br>
+     * Long tasks can check {@link Runner#isCancelled()} on it to stop early.
+     */
+    public static Runner getCurrentTask()
+    {
+        return currentRunner.get();
+    }
 
-            return result;
+    /**
+     * Returns true if the task executed by the current thread has been cancelled.
+     */
+    public static boolean isCurrentTaskCancelled()
+    {
+        final Runner runner = currentRunner.get();
+
+        return (runner != null) && runner.isCancelled();
+    }
+
+    /**
+     * Coalescing state of a task key.
+     */
+    private static class KeyState
+    {
+        /**
+         * latest submitted task for this key (not yet started)
+         */
+        Runner waiting;
+        /**
+         * a task of this key is currently executing
+         */
+        boolean running;
+        /**
+         * an execution slot is present in the queue for this key
+         */
+        boolean queued;
+    }
+
+    public interface ProcessorEventListener extends EventListener
+    {
+        public void processDone(Processor source, Runnable runnable);
+    }
+
+    /**
+     * Executes one waiting task of the processor on the shared pool.
+     */
+    class Worker implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            try
+            {
+                final Runner runner = (Runner) getQueue().poll();
+
+                if (runner != null)
+                    runTask(runner);
+            }
+            finally
+            {
+                synchronized (slotLock)
+                {
+                    processing--;
+                    slotLock.notifyAll();
+                }
+
+                // next task goes back in the shared queue so processors are served in turn
+                dispatch();
+            }
         }
     }
 
-    protected class Runner implements Runnable
+    public class Runner implements Runnable, Comparable<Runner>
     {
         private final Runnable task;
         private final boolean onEventThread;
         private final int id;
+        private final Object key;
+        private final int taskPriority;
+        private final long sequence;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        /**
+         * task effectively executed when this runner acts as a key slot
+         */
+        Runner executed;
+        /**
+         * queued execution slot of this runner (itself or the one of the task it replaced)
+         */
+        Runner slot;
 
-        public Runner(Runnable task, boolean onEventThread, int id)
+        public Runner(Runnable task, boolean onEventThread, int id, Object key, int taskPriority)
         {
             super();
 
             this.task = task;
             this.onEventThread = onEventThread;
             this.id = id;
+            this.key = key;
+            this.taskPriority = taskPriority;
+            sequence = sequenceGenerator.getAndIncrement();
+            cancelled = false;
+            done = false;
+            executed = null;
+            slot = this;
+        }
+
+        public Runner(Runnable task, boolean onEventThread, int id)
+        {
+            this(task, onEventThread, id, null, DEFAULT_TASK_PRIORITY);
         }
 
         @Override
         public void run()
         {
-            if (task != null)
+            // queued runner is only an execution slot for the latest task of the key
+            if (key != null)
             {
-                if (onEventThread)
-                    ThreadUtil.invokeNow(task);
-                else
-                    task.run();
+                final Runner actual = acquireKey(key);
+
+                try
+                {
+                    executed = actual;
+                    if (actual != null)
+                        actual.execute();
+                }
+                finally
+                {
+                    releaseKey(key);
+                }
+            }
+            else
+            {
+                executed = this;
+                execute();
             }
         }
 
+        void execute()
+        {
+            if ((task != null) && !cancelled)
+            {
+                final long start = taskTimer.start();
+                final Runner previous = currentRunner.get();
+
+                currentRunner.set(this);
+                try
+                {
+                    if (onEventThread)
+                        ThreadUtil.invokeNow(task);
+                    else
+                        task.run();
+                }
+                finally
+                {
+                    currentRunner.set(previous);
+                    taskTimer.stop(start);
+                }
+            }
+
+            done = true;
+        }
+
+        /**
+         * Cancel the task: it won't be executed if not yet started, a running task can check
+         * {@link Processor#isCurrentTaskCancelled()} to stop early.
+         */
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        /**
+         * @return true if the task has been cancelled
+         */
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+
+        /**
+         * @return true if the task has been executed (or skipped because of cancellation)
+         */
+        public boolean isDone()
+        {
+            return done;
+        }
+
+        /**
+         * @return the coalescing key (null if none)
+         */
+        public Object getKey()
+        {
+            return key;
+        }
+
+        /**
+         * @return the task priority
+         */
+        public int getTaskPriority()
+        {
+            return taskPriority;
+        }
+
+        @Override
+        public int compareTo(Runner o)
+        {
+            // higher priority first
+            if (taskPriority != o.taskPriority)
+                return (taskPriority > o.taskPriority) ? -1 : 1;
+            // then FIFO
+            if (sequence != o.sequence)
+                return (sequence < o.sequence) ? -1 : 1;
+
+            return 0;
+        }
+
         /**
          * @return the id
          */
@@ -117,11 +378,24 @@ public class Processor extends ThreadPoolExecutor
      */
     public final static int MAX_PRIORITY = Thread.MAX_PRIORITY;
 
+    /**
+     * Default priority of tasks in the waiting queue (higher priority tasks are executed first).
+     */
+    public final static int DEFAULT_TASK_PRIORITY = NORM_PRIORITY;
+
     /**
      * parameters
      */
     int priority;
     String defaultThreadName;
+    final int maxWaiting;
+    int maxProcessing;
+    volatile boolean blockingTasks;
+
+    /**
+     * coalescing keys
+     */
+    private final Map<Object, KeyState> keyStates;
 
     /**
      * listeners
@@ -133,6 +407,13 @@ public class Processor extends ThreadPoolExecutor
      */
     private Runner waitingExecution;
     private long lastAdd;
+    /**
+     * number of shared pool slots in use (guarded by slotLock)
+     */
+    private int processing;
+    private final Object slotLock;
+    private final AtomicInteger active;
+    private volatile boolean shutdown;
 
     /**
      * Create a new Processor with specified number of maximum waiting and processing tasks.<br>
@@ -145,15 +426,21 @@ public class Processor extends ThreadPoolExecutor
      */
     public Processor(int maxWaiting, int maxProcessing, int priority)
     {
-        super(maxProcessing, maxProcessing, 1000L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(maxWaiting));
-
-        setThreadFactory(new ProcessorThreadFactory());
-        allowCoreThreadTimeOut(true);
-        setKeepAliveTime(2, TimeUnit.SECONDS);
+        // tasks are executed on the shared pool, the inherited pool only holds the waiting queue
+        super(0, 1, 1000L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(Math.max(1,
+                Math.min(maxWaiting, 64))));
 
         this.priority = priority;
+        this.maxWaiting = maxWaiting;
+        this.maxProcessing = Math.max(1, maxProcessing);
         defaultThreadName = "Processor";
         listeners = new EventListenerList();
+        keyStates = new HashMap<Object, KeyState>();
+        slotLock = new Object();
+        active = new AtomicInteger();
+        processing = 0;
+        shutdown = false;
+        blockingTasks = true;
 
         waitingExecution = null;
     }
@@ -199,21 +486,287 @@ public class Processor extends ThreadPoolExecutor
      * Add a task to the processor.
      */
     public boolean addTask(Runnable task, boolean onEventThread, int id)
+    {
+        return enqueue(new Runner(task, onEventThread, id));
+    }
+
+    /**
+     * Submit a task to the processor and returns its handle (which can be used to cancel it) or
+     * null if the task has been rejected.<br>
+     * If <code>key</code> is not null the task replaces any waiting task of the same key and is
+     * never executed concurrently with another task of the same key.
+     * 
+     * @param task
+     *        task to execute
+     * @param onEventThread
+     *        execute the task on the AWT event dispatch thread
+     * @param id
+     *        task id
+     * @param key
+     *        coalescing key (null for none)
+     * @param taskPriority
+     *        priority in the waiting queue (higher priority tasks are executed first)
+     */
+    public Runner submitTask(Runnable task, boolean onEventThread, int id, Object key, int taskPriority)
+    {
+        final Runner runner = new Runner(task, onEventThread, id, key, taskPriority);
+
+        if (key == null)
+            return enqueue(runner) ? runner : null;
+
+        final Runner slot;
+
+        synchronized (keyStates)
+        {
+            KeyState state = keyStates.get(key);
+
+            if (state == null)
+            {
+                state = new KeyState();
+                keyStates.put(key, state);
+            }
+
+            // replace the waiting task, its execution slot will run this one instead
+            if (state.waiting != null)
+            {
+                state.waiting.cancel();
+                runner.slot = state.waiting.slot;
+                state.waiting = runner;
+                coalescedCounter.inc();
+                return runner;
+            }
+
+            state.waiting = runner;
+
+            // will be queued when current execution is done
+            if (state.running)
+                return runner;
+
+            state.queued = true;
+            slot = runner;
+        }
+
+        if (!enqueue(slot))
+        {
+            synchronized (keyStates)
+            {
+                final KeyState state = keyStates.get(key);
+
+                if (state != null)
+                {
+                    state.waiting = null;
+                    state.queued = false;
+                    if (!state.running)
+                        keyStates.remove(key);
+                }
+            }
+
+            return null;
+        }
+
+        return runner;
+    }
+
+    /**
+     * Returns true if a task with the specified coalescing key is waiting for execution.
+     */
+    public boolean hasWaitingKey(Object key)
+    {
+        synchronized (keyStates)
+        {
+            final KeyState state = keyStates.get(key);
+
+            return (state != null) && (state.waiting != null) && !state.waiting.isCancelled();
+        }
+    }
+
+    /**
+     * Returns true if a task with the specified coalescing key is executing.
+     */
+    public boolean isKeyRunning(Object key)
+    {
+        synchronized (keyStates)
+        {
+            final KeyState state = keyStates.get(key);
+
+            return (state != null) && state.running;
+        }
+    }
+
+    Runner acquireKey(Object key)
+    {
+        synchronized (keyStates)
+        {
+            final KeyState state = keyStates.get(key);
+
+            if (state == null)
+                return null;
+
+            final Runner result = state.waiting;
+
+            state.waiting = null;
+            state.queued = false;
+            state.running = true;
+
+            return result;
+        }
+    }
+
+    void releaseKey(Object key)
+    {
+        final Runner next;
+
+        synchronized (keyStates)
+        {
+            final KeyState state = keyStates.get(key);
+
+            if (state == null)
+                return;
+
+            state.running = false;
+
+            if ((state.waiting == null) || state.queued)
+            {
+                if (state.waiting == null)
+                    keyStates.remove(key);
+                return;
+            }
+
+            // a new task has been submitted meanwhile
+            state.queued = true;
+            next = state.waiting;
+            next.slot = next;
+        }
+
+        if (!enqueue(next))
+        {
+            synchronized (keyStates)
+            {
+                keyStates.remove(key);
+            }
+        }
+    }
+
+    private boolean enqueue(Runner runner)
     {
         try
         {
-            final Runner runner = new Runner(task, onEventThread, id);
             execute(runner);
             waitingExecution = runner;
+            lastAdd = System.currentTimeMillis();
         }
         catch (RejectedExecutionException E)
         {
+            rejectedCounter.inc();
             return false;
         }
 
         return true;
     }
 
+    @Override
+    public void execute(Runnable command)
+    {
+        // queue only accepts runners (needed for ordering)
+        final Runner runner;
+
+        if (command instanceof Runner)
+            runner = (Runner) command;
+        else
+            runner = new Runner(command, false, -1);
+
+        // enforce the waiting queue bound
+        if (shutdown || (getQueue().size() >= maxWaiting))
+        {
+            getRejectedExecutionHandler().rejectedExecution(runner, this);
+            return;
+        }
+
+        getQueue().offer(runner);
+        dispatch();
+    }
+
+    /**
+     * Request a shared pool thread if a task is waiting and we can execute one more task.
+     */
+    void dispatch()
+    {
+        synchronized (slotLock)
+        {
+            if ((processing >= maxProcessing) || getQueue().isEmpty())
+                return;
+
+            processing++;
+        }
+
+        if (blockingTasks)
+            blockingExecutor.execute(new Worker());
+        else
+            sharedExecutor.execute(new Worker());
+    }
+
+    /**
+     * Returns true if tasks of this processor may block (default), they then run on the blocking
+     * pool instead of the bounded compute pool.
+     */
+    public boolean isBlockingTasks()
+    {
+        return blockingTasks;
+    }
+
+    /**
+     * Set to false if tasks of this processor only do computation (no I/O, never wait for other
+     * tasks) so they run on the bounded compute pool.
+     */
+    public void setBlockingTasks(boolean value)
+    {
+        blockingTasks = value;
+    }
+
+    /**
+     * Execute the task from a shared pool thread (thread name and priority are the processor
+     * ones during execution).
+     */
+    void runTask(Runner runner)
+    {
+        final Thread thread = Thread.currentThread();
+        final String threadName = thread.getName();
+        final int threadPriority = thread.getPriority();
+        Throwable thrown = null;
+
+        thread.setName(defaultThreadName);
+        thread.setPriority(priority);
+        active.incrementAndGet();
+        try
+        {
+            beforeExecute(thread, runner);
+            try
+            {
+                runner.run();
+            }
+            catch (RuntimeException e)
+            {
+                thrown = e;
+                throw e;
+            }
+            catch (Error e)
+            {
+                thrown = e;
+                throw e;
+            }
+            finally
+            {
+                afterExecute(runner, thrown);
+            }
+        }
+        finally
+        {
+            active.decrementAndGet();
+            thread.setName(threadName);
+            thread.setPriority(threadPriority);
+        }
+    }
+
     /**
      * Add a task to the processor.
      */
@@ -233,11 +786,182 @@ public class Processor extends ThreadPoolExecutor
     @Override
     public boolean remove(Runnable task)
     {
+        // a keyed task is queued through the slot of the first task it replaced
+        final Runnable slot = (task instanceof Runner) ? ((Runner) task).slot : task;
+
         // don't forget to remove the reference here
-        if (waitingExecution == task)
+        if (waitingExecution == slot)
             waitingExecution = null;
 
-        return super.remove(task);
+        final boolean result = getQueue().remove(slot);
+
+        if ((task instanceof Runner) && (((Runner) task).getKey() != null))
+        {
+            final Object key = ((Runner) task).getKey();
+
+            synchronized (keyStates)
+            {
+                final KeyState state = keyStates.get(key);
+
+                // removed a key execution slot (or the task waits for the end of the running
+                // one) --> discard the waiting task of this key
+                if ((state != null) && (result ? state.queued : ((state.waiting == task) && !state.queued)))
+                {
+                    if (state.waiting != null)
+                        state.waiting.cancel();
+                    state.waiting = null;
+                    state.queued = false;
+                    if (!state.running)
+                        keyStates.remove(key);
+
+                    return true;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of tasks currently executing.
+     */
+    @Override
+    public int getActiveCount()
+    {
+        return active.get();
+    }
+
+    /**
+     * Returns the number of shared pool threads currently used by this processor.
+     */
+    @Override
+    public int getPoolSize()
+    {
+        synchronized (slotLock)
+        {
+            return processing;
+        }
+    }
+
+    /**
+     * Returns the maximum number of tasks executed at once.
+     */
+    @Override
+    public int getMaximumPoolSize()
+    {
+        return maxProcessing;
+    }
+
+    /**
+     * Sets the maximum number of tasks executed at once.
+     */
+    @Override
+    public void setMaximumPoolSize(int maximumPoolSize)
+    {
+        synchronized (slotLock)
+        {
+            maxProcessing = Math.max(1, maximumPoolSize);
+        }
+
+        dispatch();
+    }
+
+    @Override
+    public int getCorePoolSize()
+    {
+        return maxProcessing;
+    }
+
+    /**
+     * Same as {@link #setMaximumPoolSize(int)} (threads belong to the shared pool).
+     */
+    @Override
+    public void setCorePoolSize(int corePoolSize)
+    {
+        setMaximumPoolSize(corePoolSize);
+    }
+
+    @Override
+    public boolean prestartCoreThread()
+    {
+        // threads belong to the shared pool
+        return false;
+    }
+
+    @Override
+    public int prestartAllCoreThreads()
+    {
+        // threads belong to the shared pool
+        return 0;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        shutdown = true;
+
+        synchronized (slotLock)
+        {
+            slotLock.notifyAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        final List<Runnable> result = new ArrayList<Runnable>();
+
+        shutdown();
+        getQueue().drainTo(result);
+
+        synchronized (slotLock)
+        {
+            slotLock.notifyAll();
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminating()
+    {
+        return shutdown && !isTerminated();
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        synchronized (slotLock)
+        {
+            return shutdown && (processing == 0) && getQueue().isEmpty();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        final long end = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (slotLock)
+        {
+            while (!isTerminated())
+            {
+                final long remaining = end - System.nanoTime();
+
+                if (remaining <= 0)
+                    return false;
+
+                TimeUnit.NANOSECONDS.timedWait(slotLock, remaining);
+            }
+        }
+
+        return true;
     }
 
     /**
@@ -299,7 +1023,7 @@ public class Processor extends ThreadPoolExecutor
      */
     public int getFreeSlotNumber()
     {
-        return getQueue().remainingCapacity();
+        return Math.max(0, maxWaiting - getQueue().size());
     }
 
     /**
@@ -311,16 +1035,39 @@ public class Processor extends ThreadPoolExecutor
     }
 
     /**
-     * Return waiting tasks
+     * Return waiting tasks (for keyed tasks this is the latest submitted task, not the one whose
+     * execution slot is queued).
      */
     public Runner[] getWaitingTasks()
     {
         final BlockingQueue<Runnable> q = getQueue();
+        final List<Runner> result = new ArrayList<Runner>(q.size());
 
-        synchronized (q)
+        synchronized (keyStates)
         {
-            return q.toArray(new Runner[0]);
+            for (Object o : q.toArray())
+            {
+                final Runner runner = (Runner) o;
+                final Object key = runner.getKey();
+
+                if (key == null)
+                    result.add(runner);
+                else
+                {
+                    final KeyState state = keyStates.get(key);
+
+                    if ((state != null) && state.queued && (state.waiting != null))
+                        result.add(state.waiting);
+                }
+            }
+
+            // keyed tasks waiting for the end of the running one (not yet queued)
+            for (KeyState state : keyStates.values())
+                if ((state.waiting != null) && !state.queued)
+                    result.add(state.waiting);
         }
+
+        return result.toArray(new Runner[result.size()]);
     }
 
     /**
@@ -505,6 +1252,25 @@ public class Processor extends ThreadPoolExecutor
     {
         waitingExecution = null;
 
+        synchronized (keyStates)
+        {
+            // cancel keyed tasks, their slots may be already taken by a worker
+            for (Iterator<KeyState> it = keyStates.values().iterator(); it.hasNext();)
+            {
+                final KeyState state = it.next();
+
+                if (state.waiting != null)
+                {
+                    state.waiting.cancel();
+                    state.waiting = null;
+                }
+
+                state.queued = false;
+                if (!state.running)
+                    it.remove();
+            }
+        }
+
         synchronized (getQueue())
         {
             // remove all tasks
@@ -595,8 +1361,11 @@ public class Processor extends ThreadPoolExecutor
     {
         super.afterExecute(r, t);
 
+        final Runner executed = ((Runner) r).executed;
+
         // notify we just achieved a process
-        fireDoneEvent(((Runner) r).getTask());
+        if (executed != null)
+            fireDoneEvent(executed.getTask());
     }
 
     @Override
@@ -33,21 +33,18 @@ public class ThreadUtil
 {
     private static final Processor bgProcessor = new Processor(Processor.DEFAULT_MAX_WAITING,
             Processor.DEFAULT_MAX_PROCESSING, Processor.MIN_PRIORITY);
-    private static final InstanceProcessor[] instanceProcessors = new InstanceProcessor[Processor.DEFAULT_MAX_PROCESSING];
+    /**
+     * single tasks have their own processor so they don't wait behind long background tasks,
+     * they are coalesced on their instance
+     */
+    private static final Processor bgSingleProcessor = new Processor(Processor.DEFAULT_MAX_WAITING,
+            Processor.DEFAULT_MAX_PROCESSING, Processor.NORM_PRIORITY);
 
     static
     {
         bgProcessor.setDefaultThreadName("Background processor");
         bgProcessor.setKeepAliveTime(3, TimeUnit.SECONDS);
-
-        // instance processors initialization
-        for (int i = 0; i < instanceProcessors.length; i++)
-        {
-            instanceProcessors[i] = new InstanceProcessor();
-            instanceProcessors[i].setDefaultThreadName("Background single processor " + (i + 1));
-            // we want the processor to stay alive
-            instanceProcessors[i].setKeepAliveTime(1, TimeUnit.DAYS);
-        }
+        bgSingleProcessor.setDefaultThreadName("Background single processor");
     }
 
     /**
@@ -154,8 +151,7 @@ public class ThreadUtil
     public static void shutdown()
     {
         bgProcessor.shutdown();
-        for (InstanceProcessor ip : instanceProcessors)
-            ip.shutdown();
+        bgSingleProcessor.shutdown();
     }
 
     /**
@@ -163,11 +159,7 @@ public class ThreadUtil
      */
     public static boolean isShutdownAndTerminated()
     {
-        for (InstanceProcessor ip : instanceProcessors)
-            if (!ip.isTerminated())
-                return false;
-
-        return bgProcessor.isTerminated();
+        return bgProcessor.isTerminated() && bgSingleProcessor.isTerminated();
     }
 
     /**
@@ -176,7 +168,7 @@ public class ThreadUtil
      */
     public static boolean bgRun(Runnable runnable, boolean onEventThread)
     {
-        return bgProcessor.addTask(runnable, onEventThread);
+        return bgProcessor.submitTask(runnable, onEventThread, -1, null, MIN_PRIORITY) != null;
     }
 
     /**
@@ -205,12 +197,11 @@ public class ThreadUtil
      */
     public static boolean bgRunSingle(Runnable runnable, boolean onEventThread)
     {
-        final InstanceProcessor p = getInstanceProcessor(runnable);
-
-        if (p.hasWaitingTasks(runnable))
+        if (bgSingleProcessor.hasWaitingKey(runnable))
             return false;
 
-        return p.addTask(runnable, onEventThread);
+        // runnable instance is the coalescing key so it never runs concurrently with itself
+        return bgSingleProcessor.submitTask(runnable, onEventThread, -1, runnable, NORM_PRIORITY) != null;
     }
 
     /**
@@ -224,15 +215,6 @@ public class ThreadUtil
         return bgRunSingle(runnable, false);
     }
 
-    /**
-     * Retrieve the instance processor to use for specified runnable.
-     */
-    private static InstanceProcessor getInstanceProcessor(Runnable runnable)
-    {
-        // get processor index from the hash code
-        return instanceProcessors[runnable.hashCode() % instanceProcessors.length];
-    }
-
     /**
      * Return true if the specified runnable is waiting to be processed in background processing.
      */
@@ -247,7 +229,7 @@ public class ThreadUtil
      */
     public static boolean hasWaitingBgSingleTask(Runnable runnable)
     {
-        return getInstanceProcessor(runnable).hasWaitingTasks(runnable);
+        return bgSingleProcessor.hasWaitingKey(runnable);
     }
 
     /**
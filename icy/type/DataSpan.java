@@ -0,0 +1,53 @@
+/**
+ * 
+ */
+package icy.type;
+
+/**
+ * Contiguous run of data elements.<br>
+ * A span describes <code>length</code> consecutive elements of the typed primitive array
+ * <code>data</code> starting at <code>offset</code>, first element being located at the
+ * (<code>x</code>, <code>y</code>, <code>c</code>, <code>z</code>, <code>t</code>) position.<br>
+ * Spans are returned by {@link DataSpanIterator} and are reused by the iterator so they should
+ * not be kept after the next call.
+ * 
+ * @author Stephane
+ */
+public class DataSpan
+{
+    /**
+     * primitive data array (byte[], short[], int[], long[], float[] or double[])
+     */
+    public Object data;
+    /**
+     * data type of the array
+     */
+    public DataType dataType;
+    /**
+     * offset of first element in array
+     */
+    public int offset;
+    /**
+     * number of element
+     */
+    public int length;
+    /**
+     * position of first element
+     */
+    public int x, y, c, z, t;
+
+    public DataSpan()
+    {
+        super();
+
+        data = null;
+        dataType = DataType.UNDEFINED;
+        offset = 0;
+        length = 0;
+        x = 0;
+        y = 0;
+        c = 0;
+        z = 0;
+        t = 0;
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * 
+ */
+package icy.type;
+
+/**
+ * Data span iterator interface.<br>
+ * This interface provides bulk access to data as contiguous runs ({@link DataSpan}) so
+ * consumers can process whole runs with tight typed loops instead of a virtual call per
+ * element.<br>
+ * Span iteration is independent from the per element {@link DataIterator} position.<br>
+ * When data are modified through a span the owner image should be notified
+ * (<code>IcyBufferedImage.dataChanged()</code>).
+ * 
+ * @author Stephane
+ */
+public interface DataSpanIterator
+{
+    /**
+     * Reset span iteration to the first span.
+     */
+    public void resetSpan();
+
+    /**
+     * Returns the next span or <code>null</code> if there is no more span.<br>
+     * The returned object is reused by next calls.
+     */
+    public DataSpan nextSpan();
+}
@@ -24,6 +24,15 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
      */
     private static final long serialVersionUID = 3080107472163005941L;
 
+    /**
+     * Default memory limit (in bytes) for edits
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = 256L * 1024L * 1024L;
+    /**
+     * Default edit count limit (memory limit is the main bound)
+     */
+    public static final int DEFAULT_LIMIT = 1000;
+
     /**
      * owner of UndoManager
      */
@@ -45,6 +54,15 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
      */
     protected int indexOfNextAdd;
     protected int limit;
+    protected long memoryLimit;
+    /**
+     * memory retained by edits (kept up to date on each change)
+     */
+    protected long memorySize;
+    /**
+     * number of oldest edits already asked to spill their data
+     */
+    protected int spillIndex;
 
     public IcyUndoManager(Object owner)
     {
@@ -54,7 +72,10 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
         this.owner = owner;
         listeners = new EventListenerList();
         indexOfNextAdd = 0;
-        limit = 100;
+        limit = DEFAULT_LIMIT;
+        memoryLimit = DEFAULT_MEMORY_LIMIT;
+        memorySize = 0L;
+        spillIndex = 0;
         edits.ensureCapacity(limit);
     }
 
@@ -80,6 +101,40 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
         return limit;
     }
 
+    /**
+     * Returns the maximum amount of memory (in bytes) edits of this {@code UndoManager} can retain.
+     * A value less than 0 indicates memory is not limited.
+     * 
+     * @see #setMemoryLimit(long)
+     */
+    public synchronized long getMemoryLimit()
+    {
+        return memoryLimit;
+    }
+
+    /**
+     * Sets the maximum amount of memory (in bytes) edits of this <code>UndoManager</code> can
+     * retain. A value less than 0 indicates memory is not limited.<br>
+     * When the limit is exceeded old edits are first asked to spill their data out of memory
+     * (see {@link IcyUndoableEdit#spill()}) then discarded if needed.<br>
+     * The default is {@link #DEFAULT_MEMORY_LIMIT}.
+     */
+    public synchronized void setMemoryLimit(long value)
+    {
+        memoryLimit = value;
+        trimForLimit();
+    }
+
+    /**
+     * Returns the amount of memory (in bytes) currently retained by edits.
+     * 
+     * @see IcyUndoableEdit#getSize()
+     */
+    public synchronized long getMemorySize()
+    {
+        return memorySize;
+    }
+
     /**
      * Empties the undo manager sending each edit a <code>die</code> message
      * in the process.
@@ -101,6 +156,8 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
     {
         edits.clear();
         indexOfNextAdd = 0;
+        memorySize = 0L;
+        spillIndex = 0;
     }
 
     /**
@@ -145,6 +202,37 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
                 trimEdits(0, keepFrom - 1);
             }
         }
+
+        trimForMemoryLimit();
+    }
+
+    /**
+     * Reduces the memory retained by queued edits to the memory limit.<br>
+     * Old edits are spilled out of memory first (the last done edit is kept in memory), then
+     * discarded from the oldest one while the last edit is always kept.
+     */
+    protected void trimForMemoryLimit()
+    {
+        if (memoryLimit < 0)
+            return;
+
+        // spill from the oldest edit not yet spilled
+        while ((memorySize > memoryLimit) && (spillIndex < (indexOfNextAdd - 1)))
+        {
+            final IcyUndoableEdit edit = edits.get(spillIndex++);
+            final long editSize = edit.getSize();
+
+            if (edit.spill())
+                memorySize += edit.getSize() - editSize;
+        }
+
+        // then evict oldest undoable edits
+        while ((memorySize > memoryLimit) && (indexOfNextAdd > 1))
+            trimEdits(0, 0);
+
+        // and finally edits which can be redone
+        while ((memorySize > memoryLimit) && (edits.size() > Math.max(1, indexOfNextAdd)))
+            trimEdits(edits.size() - 1, edits.size() - 1);
     }
 
     /**
@@ -166,11 +254,20 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
             {
                 for (int i = to; from <= i; i--)
                 {
-                    edits.get(i).die();
+                    final IcyUndoableEdit edit = edits.get(i);
+
+                    // size before die() as it releases edit data
+                    memorySize -= edit.getSize();
+                    edit.die();
                     edits.remove(i);
                 }
             }
 
+            if (spillIndex > to)
+                spillIndex -= to - from + 1;
+            else if (spillIndex > from)
+                spillIndex = from;
+
             if (indexOfNextAdd > to)
                 indexOfNextAdd -= to - from + 1;
             else if (indexOfNextAdd >= from)
@@ -182,7 +279,7 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
      * Sets the maximum number of edits this <code>UndoManager</code> holds. A value less than 0
      * indicates the number of edits is not limited. If edits need to be discarded
      * to shrink the limit, <code>die</code> will be invoked on them in the reverse
-     * order they were added. The default is 100.
+     * order they were added. The default is {@link #DEFAULT_LIMIT}.
      * 
      * @param l
      *        the new limit
@@ -442,15 +539,33 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
         // one. If it won't, give the new one a chance to absorb
         // the last one.
         if (last == null)
+        {
             edits.add(anEdit);
-        else if (!last.addEdit(anEdit))
+            memorySize += anEdit.getSize();
+        }
+        else
         {
+            final long lastSize = last.getSize();
+
+            if (last.addEdit(anEdit))
+            {
+                memorySize += last.getSize() - lastSize;
+                // absorbed data may need to be spilled
+                spillIndex = Math.min(spillIndex, edits.size() - 1);
+            }
             // try to replace current edit
-            if (anEdit.replaceEdit(last))
+            else if (anEdit.replaceEdit(last))
+            {
                 edits.set(edits.size() - 1, anEdit);
+                memorySize += anEdit.getSize() - lastSize;
+                spillIndex = Math.min(spillIndex, edits.size() - 1);
+            }
             else
+            {
                 // simply add the new edit
                 edits.add(anEdit);
+                memorySize += anEdit.getSize();
+            }
         }
 
         // make sure the indexOfNextAdd is pointed at the right place
@@ -679,7 +794,7 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
      * Discard edits from specified source by sending each edit a <code>die</code> message
      * in the process.
      */
-    public void discardEdits(Object source)
+    public synchronized void discardEdits(Object source)
     {
         synchronized (edits)
         {
@@ -692,13 +807,19 @@ public class IcyUndoManager extends AbstractUndoableEdit implements IcyUndoableE
                 // keep valid edits
                 for (int i = lastIndex + 1; i < edits.size(); i++)
                     validEdits.add(edits.get(i));
+                // release discarded ones (scratch files...)
+                for (int i = lastIndex; i >= 0; i--)
+                    edits.get(i).die();
 
                 // remove all edits
                 clear();
 
                 // add valid edits
                 for (IcyUndoableEdit edit : validEdits)
+                {
                     edits.add(edit);
+                    memorySize += edit.getSize();
+                }
 
                 // make sure the indexOfNextAdd is pointed at the right place
                 indexOfNextAdd = edits.size();
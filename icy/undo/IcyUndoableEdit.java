@@ -21,6 +21,11 @@ public abstract class IcyUndoableEdit implements UndoableEdit
 {
     private static final IcyIcon DEFAULT_ICON = new IcyIcon(ResourceUtil.ICON_LIGHTING, 16);
 
+    /**
+     * Default memory size reported by an edit (object headers and references)
+     */
+    public static final long DEFAULT_SIZE = 64L;
+
     /**
      * Source of the UndoableEdit
      */
@@ -217,6 +222,28 @@ public abstract class IcyUndoableEdit implements UndoableEdit
         return true;
     }
 
+    /**
+     * Returns the approximate amount of memory (in bytes) retained by this edit.<br>
+     * Used by {@link IcyUndoManager} to limit history by memory instead of edit count.<br>
+     * Edits keeping large data (pixels for instance) should override this method, the default
+     * implementation returns {@link #DEFAULT_SIZE}.
+     */
+    public long getSize()
+    {
+        return DEFAULT_SIZE;
+    }
+
+    /**
+     * Requests the edit to move its retained data out of memory (to a scratch file for instance)
+     * so it remains undoable at a lower memory cost.<br>
+     * Returns <code>true</code> if memory has been released, the default implementation does
+     * nothing and returns <code>false</code>.
+     */
+    public boolean spill()
+    {
+        return false;
+    }
+
     /**
      * This default implementation returns "". Used by <code>getUndoPresentationName</code> and
      * <code>getRedoPresentationName</code> to
@@ -19,23 +19,35 @@
 package icy.util;
 
 import icy.file.FileUtil;
+import icy.math.ArrayMathExecutor;
 import icy.network.AuthenticationInfo;
 import icy.network.NetworkUtil;
 import icy.network.URLUtil;
 import icy.system.IcyExceptionHandler;
+import icy.system.SystemUtil;
 import icy.type.DataType;
 import icy.type.collection.array.ArrayUtil;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
@@ -54,8 +66,34 @@ import org.xml.sax.InputSource;
 
 public class XMLUtil
 {
+    /**
+     * Decode an element read from a XML stream (see
+     * {@link XMLUtil#decodeElements(XMLStreamReader, String, ElementDecoder)}).
+     */
+    public static abstract class ElementDecoder<T>
+    {
+        /**
+         * Create the object for the specified element, returns null to ignore it.<br>
+         * This method is called from the reading thread in document order.
+         */
+        public abstract T create(Element element);
+
+        /**
+         * Decode the specified element into the object returned by {@link #create(Element)}.<br>
+         * Note that this method is called concurrently from several threads (each element belongs
+         * to its own document so they can be accessed concurrently).
+         */
+        public abstract void decode(T object, Element element);
+    }
+
     public static final String NODE_ROOT_NAME = "root";
 
+    /**
+     * Number of elements decoded at once by a single thread in
+     * {@link #decodeElements(XMLStreamReader, String, ElementDecoder)}
+     */
+    public static final int DECODE_BATCH_SIZE = 256;
+
     private static final String ATTR_NAME_NAME = "name";
     private static final String ATTR_VALUE_NAME = "value";
 
@@ -69,6 +107,12 @@ public class XMLUtil
     // static transformer
     private static Transformer transformer = null;
 
+    // static streaming reader factory
+    private static XMLInputFactory inputFactory = null;
+
+    // maximum number of batches decoded ahead
+    private static final int MAX_PENDING_DECODE = SystemUtil.getAvailableProcessors() * 2;
+
     private static synchronized void initFactories()
     {
         // initialize static factories
@@ -76,6 +120,12 @@ public class XMLUtil
             docBuilderFactory = DocumentBuilderFactory.newInstance();
         if (transformerFactory == null)
             transformerFactory = TransformerFactory.newInstance();
+        if (inputFactory == null)
+        {
+            inputFactory = XMLInputFactory.newInstance();
+            // return text in a single event (as the DOM parser does)
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        }
     }
 
     private static synchronized void init()
@@ -361,6 +411,293 @@ public class XMLUtil
         return null;
     }
 
+    /**
+     * Load XML Document from specified InputStream (stream is closed after loading).<br>
+     * Return null if no document can be loaded.
+     */
+    public static Document loadDocument(InputStream input, boolean showError)
+    {
+        if (input == null)
+            return null;
+
+        final DocumentBuilder builder = createDocumentBuilder();
+
+        try
+        {
+            if (builder != null)
+                return builder.parse(input);
+        }
+        catch (Exception e)
+        {
+            if (showError)
+            {
+                System.err.println("XMLUtil.loadDocument(InputStream) error :");
+                IcyExceptionHandler.showErrorMessage(e, false);
+            }
+        }
+        finally
+        {
+            try
+            {
+                input.close();
+            }
+            catch (IOException e)
+            {
+                // ignore
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Create a streaming (pull) XML reader on the specified input stream.<br>
+     * Unlike {@link #loadDocument(InputStream, boolean)} the document is never entirely built in
+     * memory so this should be used to load large documents. The reader is positioned at document
+     * start, use {@link #nextElement(XMLStreamReader)} to walk elements.<br>
+     * Note that closing the reader doesn't close the input stream.
+     */
+    public static synchronized XMLStreamReader createStreamReader(InputStream input) throws XMLStreamException
+    {
+        initFactories();
+
+        return inputFactory.createXMLStreamReader(input);
+    }
+
+    /**
+     * Move the reader to the next element at the current level.<br>
+     * If the reader is on the start of an element it moves to the start of its first child
+     * element, if it is on the end of an element it moves to the start of its next sibling.<br>
+     * Returns false (reader is then on the parent element end) when there is no more element.
+     * <br>
+     * Each child element should be consumed with {@link #skipElement(XMLStreamReader)},
+     * {@link #readElement(XMLStreamReader, Document)} or a nested <code>nextElement</code> loop
+     * so the reader ends on the child element end.
+     * 
+     * <pre>
+     * while (XMLUtil.nextElement(reader))
+     * {
+     *     if (reader.getLocalName().equals(&quot;roi&quot;))
+     *         ...
+     *     else
+     *         XMLUtil.skipElement(reader);
+     * }
+     * </pre>
+     */
+    public static boolean nextElement(XMLStreamReader reader) throws XMLStreamException
+    {
+        while (reader.hasNext())
+        {
+            switch (reader.next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+
+                case XMLStreamConstants.END_ELEMENT:
+                case XMLStreamConstants.END_DOCUMENT:
+                    return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip the current element (reader should be on the element start).<br>
+     * The reader ends on the element end.
+     */
+    public static void skipElement(XMLStreamReader reader) throws XMLStreamException
+    {
+        int depth = 1;
+
+        while ((depth > 0) && reader.hasNext())
+        {
+            switch (reader.next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Read the current element (reader should be on the element start) and all its content as a
+     * DOM element of the specified document.<br>
+     * The element is not attached to the document and the reader ends on the element end.<br>
+     * This is used to decode a small part of a large document with the DOM based methods.
+     */
+    public static Element readElement(XMLStreamReader reader, Document doc) throws XMLStreamException
+    {
+        final Element result = createElement(reader, doc);
+        Node current = result;
+        int depth = 1;
+
+        while ((depth > 0) && reader.hasNext())
+        {
+            switch (reader.next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    final Element element = createElement(reader, doc);
+
+                    current.appendChild(element);
+                    current = element;
+                    depth++;
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    current = current.getParentNode();
+                    depth--;
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    current.appendChild(doc.createTextNode(reader.getText()));
+                    break;
+
+                case XMLStreamConstants.CDATA:
+                    current.appendChild(doc.createCDATASection(reader.getText()));
+                    break;
+
+                case XMLStreamConstants.COMMENT:
+                    current.appendChild(doc.createComment(reader.getText()));
+                    break;
+            }
+        }
+
+        return result;
+    }
+
+    private static String getQualifiedName(String prefix, String localName)
+    {
+        if (StringUtil.isEmpty(prefix))
+            return localName;
+
+        return prefix + ":" + localName;
+    }
+
+    private static Element createElement(XMLStreamReader reader, Document doc)
+    {
+        final Element result = doc.createElement(getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+        // namespace declarations are not reported as attributes
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            final String prefix = reader.getNamespacePrefix(i);
+
+            result.setAttribute(StringUtil.isEmpty(prefix) ? "xmlns" : "xmlns:" + prefix, reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+            result.setAttribute(getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+
+        return result;
+    }
+
+    /**
+     * Read and decode all child elements of specified name of the current element (reader should
+     * be on the element start), other child elements are skipped.<br>
+     * Elements are read one by one from the stream (the whole document is never built). Objects
+     * are created from the reading thread in document order (see
+     * {@link ElementDecoder#create(Element)}) then decoded concurrently on the shared compute pool
+     * ({@link ArrayMathExecutor}) by batch of {@link #DECODE_BATCH_SIZE} elements. Only a bounded
+     * number of batches are pending so memory use doesn't depend on the number of elements.<br>
+     * Returns decoded objects in document order (null created objects are ignored), the reader
+     * ends on the element end.
+     */
+    public static <T> List<T> decodeElements(XMLStreamReader reader, String name, ElementDecoder<T> elementDecoder)
+            throws XMLStreamException
+    {
+        final List<T> result = new ArrayList<T>();
+        final LinkedList<Future<List<T>>> pending = new LinkedList<Future<List<T>>>();
+
+        try
+        {
+            List<T> objects = new ArrayList<T>(DECODE_BATCH_SIZE);
+            List<Element> elements = new ArrayList<Element>(DECODE_BATCH_SIZE);
+            Document doc = createDocument(false);
+
+            while (nextElement(reader))
+            {
+                if (!name.equals(reader.getLocalName()))
+                {
+                    skipElement(reader);
+                    continue;
+                }
+
+                final Element element = readElement(reader, doc);
+                final T object = elementDecoder.create(element);
+
+                if (object == null)
+                    continue;
+
+                objects.add(object);
+                elements.add(element);
+
+                if (objects.size() >= DECODE_BATCH_SIZE)
+                {
+                    // limit memory usage
+                    if (pending.size() >= MAX_PENDING_DECODE)
+                        result.addAll(ArrayMathExecutor.getResult(pending.removeFirst()));
+
+                    pending.add(submitDecode(objects, elements, elementDecoder));
+
+                    // each batch uses its own document so they can be decoded concurrently
+                    objects = new ArrayList<T>(DECODE_BATCH_SIZE);
+                    elements = new ArrayList<Element>(DECODE_BATCH_SIZE);
+                    doc = createDocument(false);
+                }
+            }
+
+            // last batch
+            if (!objects.isEmpty())
+                pending.add(submitDecode(objects, elements, elementDecoder));
+
+            while (!pending.isEmpty())
+                result.addAll(ArrayMathExecutor.getResult(pending.removeFirst()));
+        }
+        finally
+        {
+            // error --> don't decode remaining batches
+            for (Future<List<T>> future : pending)
+                ArrayMathExecutor.cancel(future);
+        }
+
+        return result;
+    }
+
+    private static <T> Future<List<T>> submitDecode(final List<T> objects, final List<Element> elements,
+            final ElementDecoder<T> elementDecoder)
+    {
+        final Callable<List<T>> task = new Callable<List<T>>()
+        {
+            @Override
+            public List<T> call() throws Exception
+            {
+                for (int i = 0; i < objects.size(); i++)
+                    elementDecoder.decode(objects.get(i), elements.get(i));
+
+                return objects;
+            }
+        };
+
+        // nested call from a worker thread --> decode it here
+        if (ArrayMathExecutor.isWorkerThread())
+        {
+            final FutureTask<List<T>> future = new FutureTask<List<T>>(task);
+
+            future.run();
+
+            return future;
+        }
+
+        return ArrayMathExecutor.submit(task);
+    }
+
     /**
      * Save the specified XML Document to specified filename.<br>
      * Return false if an error occurred.
@@ -29,12 +29,12 @@ import icy.plugin.PluginDescriptor;
 import icy.plugin.PluginInstaller;
 import icy.plugin.PluginLoader;
 import icy.preferences.WorkspaceLocalPreferences;
-import icy.system.thread.ThreadUtil;
 import icy.util.StringUtil;
 import icy.workspace.Workspace.TaskDefinition.BandDefinition.ItemDefinition;
 
 import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.swing.event.EventListenerList;
 
@@ -99,6 +99,10 @@ public class WorkspaceInstaller implements Runnable
      */
     private static final WorkspaceInstaller instance = new WorkspaceInstaller();
 
+    /**
+     * installer thread wake up signal
+     */
+    private final LinkedBlockingQueue<Object> requests;
     /**
      * workspace to install FIFO
      */
@@ -129,6 +133,7 @@ public class WorkspaceInstaller implements Runnable
     {
         super();
 
+        requests = new LinkedBlockingQueue<Object>();
         installFIFO = new ArrayList<WorkspaceInstallInfo>();
         removeFIFO = new ArrayList<WorkspaceInstallInfo>();
 
@@ -162,6 +167,8 @@ public class WorkspaceInstaller implements Runnable
             {
                 instance.installFIFO.add(new WorkspaceInstallInfo(workspace, showConfirm));
             }
+
+            instance.wakeUp();
         }
     }
 
@@ -231,6 +238,8 @@ public class WorkspaceInstaller implements Runnable
             {
                 instance.removeFIFO.add(new WorkspaceInstallInfo(workspace, showConfirm));
             }
+
+            instance.wakeUp();
         }
     }
 
@@ -273,6 +282,14 @@ public class WorkspaceInstaller implements Runnable
         return isWaitingForDesinstall(workspace);
     }
 
+    /**
+     * Wake up the installer thread
+     */
+    private void wakeUp()
+    {
+        requests.offer(Boolean.TRUE);
+    }
+
     @Override
     public void run()
     {
@@ -282,6 +299,19 @@ public class WorkspaceInstaller implements Runnable
             boolean result;
             WorkspaceInstallInfo installInfo = null;
 
+            // wait for request
+            try
+            {
+                requests.take();
+            }
+            catch (InterruptedException e)
+            {
+                continue;
+            }
+
+            // requests are processed per batch
+            requests.clear();
+
             // process installations
             empty = installFIFO.isEmpty();
 
@@ -343,8 +373,6 @@ public class WorkspaceInstaller implements Runnable
                     deinstalling = false;
                 }
             }
-
-            ThreadUtil.sleep(200);
         }
     }
 
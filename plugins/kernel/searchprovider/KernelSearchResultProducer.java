@@ -11,6 +11,9 @@ import icy.gui.menu.action.RoiActions;
 import icy.gui.menu.action.SequenceOperationActions;
 import icy.gui.menu.action.WindowActions;
 import icy.resource.icon.IcyIcon;
+import icy.search.SearchIndex;
+import icy.search.SearchIndex.Match;
+import icy.search.SearchIndex.Query;
 import icy.search.SearchResult;
 import icy.search.SearchResultConsumer;
 import icy.search.SearchResultProducer;
@@ -151,7 +154,14 @@ public class KernelSearchResultProducer extends SearchResultProducer
         }
     }
 
+    /**
+     * Index scores
+     */
+    private static final int DESCRIPTION_SCORE = 16;
+    private static final int LONG_DESCRIPTION_SCORE = 10;
+
     private static List<IcyAbstractAction> actions = null;
+    private static SearchIndex<IcyAbstractAction> index = null;
 
     private static synchronized void initActions()
     {
@@ -167,9 +177,22 @@ public class KernelSearchResultProducer extends SearchResultProducer
             actions.addAll(SequenceOperationActions.getAllActions());
             actions.addAll(RoiActions.getAllActions());
             actions.addAll(WindowActions.getAllActions());
+
+            // kernel actions never change so index is built once
+            index = new SearchIndex<IcyAbstractAction>();
+            for (IcyAbstractAction action : actions)
+            {
+                index.add(action, action.getDescription(), DESCRIPTION_SCORE);
+                index.add(action, action.getLongDescription(), LONG_DESCRIPTION_SCORE);
+            }
         }
     }
 
+    /**
+     * Last search (used to refine search while typing)
+     */
+    private Query<IcyAbstractAction> lastQuery = null;
+
     @Override
     public int getOrder()
     {
@@ -198,20 +221,18 @@ public class KernelSearchResultProducer extends SearchResultProducer
         if (hasWaitingSearch())
             return;
 
+        final Query<IcyAbstractAction> query = index.search(words, 0, lastQuery);
         final ArrayList<SearchResult> tmpResults = new ArrayList<SearchResult>();
-        final boolean shortSearch = (words.length == 1) && (words[0].length() <= 2);
 
-        for (IcyAbstractAction action : actions)
+        lastQuery = query;
+
+        for (Match<IcyAbstractAction> match : query.getBestMatches(SearchIndex.DEFAULT_MAX_RESULTS))
         {
             // abort
             if (hasWaitingSearch())
                 return;
 
-            // action match filter
-            final int prio = searchInAction(action, words, shortSearch);
-
-            if (prio > 0)
-                tmpResults.add(new KernelSearchResult(this, action, words, prio));
+            tmpResults.add(new KernelSearchResult(this, match.getItem(), words, match.getScore()));
         }
 
         results = tmpResults;
@@ -4,6 +4,11 @@ import icy.gui.plugin.PluginDetailPanel;
 import icy.plugin.PluginDescriptor;
 import icy.plugin.PluginLauncher;
 import icy.plugin.PluginLoader;
+import icy.plugin.PluginLoader.PluginLoaderEvent;
+import icy.plugin.PluginLoader.PluginLoaderListener;
+import icy.search.SearchIndex;
+import icy.search.SearchIndex.Match;
+import icy.search.SearchIndex.Query;
 import icy.search.SearchResult;
 import icy.search.SearchResultConsumer;
 import icy.search.SearchResultProducer;
@@ -47,6 +52,47 @@ public class LocalPluginSearchResultProducer extends SearchResultProducer
         }
     }
     
+    /**
+     * Installed plugins index (shared by all producers), rebuilt when plugins are reloaded
+     */
+    private static final SearchIndex<PluginDescriptor> index = new SearchIndex<PluginDescriptor>();
+    private static boolean indexValid = false;
+    private static boolean listening = false;
+
+    private static synchronized void initIndex()
+    {
+        if (!listening)
+        {
+            PluginLoader.addListener(new PluginLoaderListener()
+            {
+                @Override
+                public void pluginLoaderChanged(PluginLoaderEvent e)
+                {
+                    invalidIndex();
+                }
+            });
+            listening = true;
+        }
+
+        if (!indexValid)
+        {
+            index.clear();
+            for (PluginDescriptor plugin : PluginLoader.getPlugins())
+                PluginSearchResultProducerHelper.indexPlugin(index, plugin);
+            indexValid = true;
+        }
+    }
+
+    static synchronized void invalidIndex()
+    {
+        indexValid = false;
+    }
+
+    /**
+     * Last search (used to refine search while typing)
+     */
+    private Query<PluginDescriptor> lastQuery = null;
+
     @Override
     public int getOrder()
     {
@@ -70,19 +116,28 @@ public class LocalPluginSearchResultProducer extends SearchResultProducer
     @Override
     public void doSearch(String[] words, SearchResultConsumer consumer)
     {
+        // ensure index is up to date
+        initIndex();
+
+        if (hasWaitingSearch())
+            return;
+
         final boolean shortSearch = PluginSearchResultProducerHelper.getShortSearch(words);
+        final Query<PluginDescriptor> query = index.search(words,
+                shortSearch ? PluginSearchResultProducerHelper.NAME_SCORE : 0, lastQuery);
+
+        lastQuery = query;
 
         final ArrayList<SearchResult> tmpResults = new ArrayList<SearchResult>();
 
-        for (PluginDescriptor plugin : PluginLoader.getPlugins())
+        for (Match<PluginDescriptor> match : query.getBestMatches(SearchIndex.DEFAULT_MAX_RESULTS))
         {
             if (hasWaitingSearch())
                 return;
 
-            final int prio = PluginSearchResultProducerHelper.searchInPlugin(plugin, words, shortSearch);
+            final PluginDescriptor plugin = match.getItem();
 
-            if (prio > 0)
-                tmpResults.add(new LocalPluginResult(this, plugin, plugin.getDescription(), words, prio));
+            tmpResults.add(new LocalPluginResult(this, plugin, plugin.getDescription(), words, match.getScore()));
         }
 
         results = tmpResults;
@@ -1,12 +1,42 @@
 package plugins.kernel.searchprovider;
 
 import icy.plugin.PluginDescriptor;
+import icy.search.SearchIndex;
 
 /**
  * @author Stephane
  */
 public class PluginSearchResultProducerHelper
 {
+    /**
+     * Index scores (plugin name start > name word > description > author)
+     */
+    static final int NAME_START_SCORE = 20;
+    static final int NAME_SCORE = 18;
+    static final int DESCRIPTION_SCORE = 10;
+    static final int AUTHOR_SCORE = 8;
+
+    /**
+     * Add the plugin name, description and author to the specified index.
+     */
+    static void indexPlugin(SearchIndex<PluginDescriptor> index, PluginDescriptor plugin)
+    {
+        if (plugin.getPluginClass() != null)
+        {
+            // we don't want abstract nor interface plugin in results list
+            if (plugin.isAbstract() || plugin.isInterface())
+                return;
+        }
+
+        final String[] nameWords = SearchIndex.tokenize(plugin.getName());
+
+        for (int i = 0; i < nameWords.length; i++)
+            index.add(plugin, nameWords[i], (i == 0) ? NAME_START_SCORE : NAME_SCORE);
+
+        index.add(plugin, plugin.getDescription(), DESCRIPTION_SCORE);
+        index.add(plugin, plugin.getAuthor(), AUTHOR_SCORE);
+    }
+
     static boolean getShortSearch(String[] words)
     {
         return (words.length == 1) && (words[0].length() <= 2);
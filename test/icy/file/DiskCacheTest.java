@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link DiskCache} tests (LRU eviction, temporary files shared between cache instances).
+ *
+ * @author Stephane
+ */
+public class DiskCacheTest
+{
+    private static final String EXTENSION = ".test";
+
+    private File cacheDir;
+    private DiskCache cache;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        cacheDir = File.createTempFile("diskcache", "");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+
+        cache = new DiskCache(cacheDir, EXTENSION, 1024L * 1024L);
+    }
+
+    @After
+    public void tearDown()
+    {
+        final File[] files = cacheDir.listFiles();
+
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        cacheDir.delete();
+    }
+
+    private void put(DiskCache target, String key, int size) throws IOException
+    {
+        final File tmp = target.createTempFile(key);
+        final FileOutputStream out = new FileOutputStream(tmp);
+
+        try
+        {
+            out.write(new byte[size]);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        target.commit(key, tmp);
+    }
+
+    @Test
+    public void testPutGet() throws IOException
+    {
+        final String key = DiskCache.getKey("entry");
+
+        assertNull(cache.get(key));
+        put(cache, key, 100);
+
+        final File file = cache.get(key);
+
+        assertNotNull(file);
+        assertEquals(100L, file.length());
+        assertEquals(100L, cache.getSize());
+        // only the entry remains
+        assertEquals(1, cacheDir.listFiles().length);
+
+        cache.remove(key);
+        assertNull(cache.get(key));
+        assertEquals(0L, cache.getSize());
+    }
+
+    @Test
+    public void testLRUOrder() throws IOException
+    {
+        put(cache, "a", 100);
+        put(cache, "b", 100);
+        cache.setMaxSize(250L);
+
+        // "a" becomes the most recently used
+        assertNotNull(cache.get("a"));
+        put(cache, "c", 100);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+    }
+
+    @Test
+    public void testConcurrentInstances() throws IOException
+    {
+        // two instances (as two Icy processes) sharing the same directory
+        final DiskCache other = new DiskCache(cacheDir, EXTENSION, 1024L * 1024L);
+        final File tmp1 = cache.createTempFile("key");
+        final File tmp2 = other.createTempFile("key");
+
+        assertFalse(tmp1.equals(tmp2));
+
+        // pending write of the other instance should survive index building
+        cache.setDirectory(cacheDir);
+        cache.getSize();
+        assertTrue(tmp2.exists());
+
+        tmp1.delete();
+        tmp2.delete();
+    }
+
+    @Test
+    public void testInitKeepsRecentTemporaryFiles() throws IOException
+    {
+        final File recent = new File(cacheDir, "recent" + DiskCache.TEMP_EXTENSION);
+        final File old = new File(cacheDir, "old" + DiskCache.TEMP_EXTENSION);
+
+        recent.createNewFile();
+        old.createNewFile();
+        old.setLastModified(System.currentTimeMillis() - (2 * DiskCache.TEMP_MAX_AGE));
+
+        cache.getSize();
+
+        assertTrue(recent.exists());
+        assertFalse(old.exists());
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import icy.file.ThumbnailCache.Entry;
+import icy.file.ThumbnailCache.SeriesInfo;
+import icy.type.DataType;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ThumbnailCache} tests (LRU eviction, temporary files and entry invalidation).
+ * 
+ * @author Stephane
+ */
+public class ThumbnailCacheTest
+{
+    private File cacheDir;
+    private final List<File> sources = new ArrayList<File>();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        cacheDir = File.createTempFile("thumbcache", "");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+
+        ThumbnailCache.setCacheDirectory(cacheDir);
+        ThumbnailCache.setMaxSize(ThumbnailCache.DEFAULT_MAX_SIZE);
+    }
+
+    @After
+    public void tearDown()
+    {
+        ThumbnailCache.clear();
+
+        final File[] files = cacheDir.listFiles();
+
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        cacheDir.delete();
+
+        for (File file : sources)
+            file.delete();
+
+        ThumbnailCache.setCacheDirectory(new File(ThumbnailCache.CACHE_PATH));
+    }
+
+    private String createSource(String content) throws IOException
+    {
+        final File file = File.createTempFile("source", ".tif");
+        final FileOutputStream out = new FileOutputStream(file);
+
+        try
+        {
+            out.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+
+        sources.add(file);
+
+        return file.getAbsolutePath();
+    }
+
+    private static Entry createEntry()
+    {
+        return new Entry("TIFF", new SeriesInfo[] {new SeriesInfo("image", 512, 256, 3, 4, 2, DataType.UBYTE, null)});
+    }
+
+    @Test
+    public void testPutGet() throws IOException
+    {
+        final String path = createSource("a");
+
+        assertNull(ThumbnailCache.get(path));
+        ThumbnailCache.put(path, createEntry());
+
+        final Entry entry = ThumbnailCache.get(path);
+
+        assertNotNull(entry);
+        assertEquals("TIFF", entry.format);
+        assertEquals(1, entry.series.length);
+        assertEquals(512, entry.series[0].sizeX);
+        assertEquals(DataType.UBYTE, entry.series[0].dataType);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException
+    {
+        final String path1 = createSource("1");
+        final String path2 = createSource("2");
+        final String path3 = createSource("3");
+
+        ThumbnailCache.put(path1, createEntry());
+        final long entrySize = ThumbnailCache.getSize();
+        ThumbnailCache.put(path2, createEntry());
+
+        // room for 2 entries only
+        ThumbnailCache.setMaxSize((entrySize * 2) + (entrySize / 2));
+
+        // access first entry so the second one is now the least recently used
+        assertNotNull(ThumbnailCache.get(path1));
+
+        ThumbnailCache.put(path3, createEntry());
+
+        assertNotNull(ThumbnailCache.get(path1));
+        assertNull(ThumbnailCache.get(path2));
+        assertNotNull(ThumbnailCache.get(path3));
+        assertTrue(ThumbnailCache.getSize() <= ThumbnailCache.getMaxSize());
+    }
+
+    @Test
+    public void testNoTemporaryFileLeft() throws IOException
+    {
+        for (int i = 0; i < 10; i++)
+            ThumbnailCache.put(createSource(Integer.toString(i)), createEntry());
+
+        for (File file : cacheDir.listFiles())
+            assertTrue(file.getName(), file.getName().endsWith(ThumbnailCache.CACHE_EXTENSION));
+    }
+
+    @Test
+    public void testConcurrentPut() throws Exception
+    {
+        final String path = createSource("concurrent");
+        final Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int n = 0; n < 20; n++)
+                        ThumbnailCache.put(path, createEntry());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertNotNull(ThumbnailCache.get(path));
+        assertEquals(1, cacheDir.listFiles().length);
+    }
+
+    @Test
+    public void testInitKeepsRecentTemporaryFiles() throws IOException
+    {
+        final File recent = new File(cacheDir, "recent" + ThumbnailCache.TEMP_EXTENSION);
+        final File old = new File(cacheDir, "old" + ThumbnailCache.TEMP_EXTENSION);
+
+        recent.createNewFile();
+        old.createNewFile();
+        old.setLastModified(System.currentTimeMillis() - (2 * ThumbnailCache.TEMP_MAX_AGE));
+
+        // rebuild index from directory content
+        ThumbnailCache.setCacheDirectory(cacheDir);
+        ThumbnailCache.getSize();
+
+        // may be written by another thread or instance
+        assertTrue(recent.exists());
+        assertFalse(old.exists());
+
+        recent.delete();
+    }
+
+    @Test
+    public void testModifiedFileIsNotCached() throws IOException
+    {
+        final String path = createSource("before");
+
+        ThumbnailCache.put(path, createEntry());
+        assertNotNull(ThumbnailCache.get(path));
+
+        final FileOutputStream out = new FileOutputStream(path, true);
+
+        try
+        {
+            out.write("after".getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+
+        assertNull(ThumbnailCache.get(path));
+    }
+}
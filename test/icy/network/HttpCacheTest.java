@@ -0,0 +1,233 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.network;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link HttpCache} tests against a local HTTP server (revalidation, offline fallback and LRU
+ * eviction).
+ *
+ * @author Stephane
+ */
+public class HttpCacheTest
+{
+    /**
+     * Served resource
+     */
+    static class Resource
+    {
+        final String eTag;
+        final byte[] data;
+
+        Resource(String eTag, String content)
+        {
+            super();
+
+            this.eTag = eTag;
+            this.data = content.getBytes();
+        }
+    }
+
+    private File cacheDir;
+    private HttpServer server;
+    final Map<String, Resource> resources = new HashMap<String, Resource>();
+    final AtomicInteger fullResponses = new AtomicInteger();
+    final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        cacheDir = File.createTempFile("httpcache", "");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+
+        HttpCache.setCacheDirectory(cacheDir);
+        HttpCache.setMaxSize(HttpCache.DEFAULT_MAX_SIZE);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                final Resource resource;
+
+                synchronized (resources)
+                {
+                    resource = resources.get(exchange.getRequestURI().getPath());
+                }
+
+                try
+                {
+                    if (resource == null)
+                    {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+
+                    if ((resource.eTag != null)
+                            && resource.eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                    {
+                        notModifiedResponses.incrementAndGet();
+                        exchange.sendResponseHeaders(304, -1);
+                        return;
+                    }
+
+                    if (resource.eTag != null)
+                        exchange.getResponseHeaders().set("ETag", resource.eTag);
+
+                    fullResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(200, resource.data.length);
+
+                    final OutputStream out = exchange.getResponseBody();
+                    out.write(resource.data);
+                    out.close();
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (server != null)
+            server.stop(0);
+
+        HttpCache.clear();
+
+        final File[] files = cacheDir.listFiles();
+
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        cacheDir.delete();
+
+        HttpCache.setCacheDirectory(new File(HttpCache.CACHE_PATH));
+    }
+
+    private URL serve(String path, String eTag, String content) throws IOException
+    {
+        synchronized (resources)
+        {
+            resources.put(path, new Resource(eTag, content));
+        }
+
+        return new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+    }
+
+    @Test
+    public void testRevalidation() throws IOException
+    {
+        final URL url = serve("/a", "\"v1\"", "first");
+
+        assertArrayEquals("first".getBytes(), HttpCache.download(url, null, false));
+        assertArrayEquals("first".getBytes(), HttpCache.download(url, null, false));
+
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    public void testModified() throws IOException
+    {
+        final URL url = serve("/a", "\"v1\"", "first");
+
+        assertArrayEquals("first".getBytes(), HttpCache.download(url, null, false));
+
+        serve("/a", "\"v2\"", "second");
+
+        assertArrayEquals("second".getBytes(), HttpCache.download(url, null, false));
+        assertEquals("\"v2\"", HttpCache.get(url).eTag);
+        assertEquals(2, fullResponses.get());
+    }
+
+    @Test
+    public void testServerUnreachable() throws IOException
+    {
+        final URL url = serve("/a", "\"v1\"", "first");
+
+        assertArrayEquals("first".getBytes(), HttpCache.download(url, null, false));
+
+        server.stop(0);
+        server = null;
+
+        assertArrayEquals("first".getBytes(), HttpCache.download(url, null, false));
+    }
+
+    @Test
+    public void testNoValidator() throws IOException
+    {
+        final URL url = serve("/a", null, "first");
+
+        assertArrayEquals("first".getBytes(), HttpCache.download(url, null, false));
+        // can't be revalidated --> not stored
+        assertNull(HttpCache.get(url));
+        assertEquals(0L, HttpCache.getSize());
+    }
+
+    @Test
+    public void testLRUOrder() throws IOException
+    {
+        final URL urlA = serve("/a", "\"a\"", "resource A");
+        final URL urlB = serve("/b", "\"b\"", "resource B");
+        final URL urlC = serve("/c", "\"c\"", "resource C");
+
+        HttpCache.download(urlA, null, false);
+        final long entrySize = HttpCache.getSize();
+        HttpCache.download(urlB, null, false);
+
+        // room for 2 entries only
+        HttpCache.setMaxSize((entrySize * 2) + (entrySize / 2));
+
+        // access A so B is now the least recently used entry
+        assertNotNull(HttpCache.get(urlA));
+
+        HttpCache.download(urlC, null, false);
+
+        assertNotNull(HttpCache.get(urlA));
+        assertNull(HttpCache.get(urlB));
+        assertNotNull(HttpCache.get(urlC));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.roi;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link ROI2DShape#getBooleanMask(int, int, int, int, boolean)} for whole shape and
+ * partial windows, and the cached mask invalidation when the ROI changes.
+ * 
+ * @author Stephane
+ */
+public class ROI2DShapeTest
+{
+    private static boolean[] getReferenceMask(Shape shape, int x, int y, int w, int h, boolean inclusive)
+    {
+        final boolean[] result = new boolean[w * h];
+        int offset = 0;
+
+        for (int j = 0; j < h; j++)
+        {
+            for (int i = 0; i < w; i++)
+            {
+                result[offset] = shape.contains(x + i, y + j, 1, 1);
+                if (inclusive)
+                    result[offset] |= shape.intersects(x + i, y + j, 1, 1);
+                offset++;
+            }
+        }
+
+        return result;
+    }
+
+    private static void checkMask(ROI2DShape roi, Rectangle region)
+    {
+        for (boolean inclusive : new boolean[] {false, true})
+            assertArrayEquals(region + " (inclusive=" + inclusive + ")",
+                    getReferenceMask(roi.getShape(), region.x, region.y, region.width, region.height, inclusive),
+                    roi.getBooleanMask(region.x, region.y, region.width, region.height, inclusive));
+    }
+
+    private static void checkWindows(ROI2DShape roi)
+    {
+        final Rectangle bounds = roi.getBounds();
+
+        // partial windows (rasterized alone)
+        checkMask(roi, new Rectangle(bounds.x + 3, bounds.y + 2, bounds.width / 2, bounds.height / 3));
+        checkMask(roi, new Rectangle(bounds.x - 5, bounds.y + (bounds.height / 2), bounds.width / 2, 7));
+        checkMask(roi, new Rectangle(bounds.x + bounds.width + 2, bounds.y, 10, 10));
+        // whole shape (cached)
+        bounds.grow(3, 3);
+        checkMask(roi, bounds);
+        // partial windows again (now from the cached mask)
+        checkMask(roi, new Rectangle(bounds.x + 3, bounds.y + 2, bounds.width / 2, bounds.height / 3));
+        checkMask(roi, new Rectangle(bounds.x - 5, bounds.y + (bounds.height / 2), bounds.width / 2, 7));
+    }
+
+    @Test
+    public void testEllipseWindows()
+    {
+        checkWindows(new ROI2DEllipse(new Rectangle2D.Double(10.3, 20.6, 57.2, 33.9)));
+    }
+
+    @Test
+    public void testRectangleWindows()
+    {
+        checkWindows(new ROI2DRectangle(new Rectangle2D.Double(4.5, 7, 40.25, 21.5)));
+    }
+
+    @Test
+    public void testCacheInvalidation()
+    {
+        final ROI2DEllipse roi = new ROI2DEllipse(new Rectangle2D.Double(10.3, 20.6, 57.2, 33.9));
+        final Rectangle region = new Rectangle(0, 0, 120, 120);
+
+        // build the cached masks
+        checkMask(roi, region);
+
+        // roiChanged() rebuilds the shape and discards the cached masks
+        roi.setBounds2D(new Rectangle2D.Double(35.7, 41.2, 30.4, 52.1));
+        checkMask(roi, region);
+        checkWindows(roi);
+
+        roi.translate(-12.5, 3.25);
+        checkMask(roi, region);
+    }
+}
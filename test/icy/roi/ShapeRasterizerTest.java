@@ -0,0 +1,247 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.roi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link ShapeRasterizer} masks against the per pixel <code>contains</code> /
+ * <code>intersects</code> tests (default {@link ROI2D#getBooleanMask(int, int, int, int, boolean)}
+ * implementation).
+ * 
+ * @author Stephane
+ */
+public class ShapeRasterizerTest
+{
+    private static final int RANDOM_SHAPES = 200;
+
+    /**
+     * Per pixel reference mask
+     */
+    private static boolean[] getReferenceMask(Shape shape, int x, int y, int w, int h, boolean inclusive)
+    {
+        final boolean[] result = new boolean[w * h];
+        int offset = 0;
+
+        for (int j = 0; j < h; j++)
+        {
+            for (int i = 0; i < w; i++)
+            {
+                result[offset] = shape.contains(x + i, y + j, 1, 1);
+                if (inclusive)
+                    result[offset] |= shape.intersects(x + i, y + j, 1, 1);
+                offset++;
+            }
+        }
+
+        return result;
+    }
+
+    private static void checkMask(Shape shape)
+    {
+        final Rectangle bounds = shape.getBounds();
+
+        // include pixels only touching the shape
+        bounds.grow(2, 2);
+
+        for (boolean inclusive : new boolean[] {false, true})
+        {
+            assertArrayEquals(shape + " (inclusive=" + inclusive + ")",
+                    getReferenceMask(shape, bounds.x, bounds.y, bounds.width, bounds.height, inclusive),
+                    ShapeRasterizer.getBooleanMask(shape, bounds.x, bounds.y, bounds.width, bounds.height,
+                            inclusive));
+        }
+    }
+
+    /**
+     * Curves are flattened so pixels almost tangent to the outline may differ from the reference,
+     * check that differences are rare and only on pixels touching the outline.
+     */
+    private static void checkCurveMask(Shape shape)
+    {
+        final Rectangle bounds = shape.getBounds();
+
+        bounds.grow(2, 2);
+
+        for (boolean inclusive : new boolean[] {false, true})
+        {
+            final boolean[] reference = getReferenceMask(shape, bounds.x, bounds.y, bounds.width, bounds.height,
+                    inclusive);
+            final boolean[] mask = ShapeRasterizer.getBooleanMask(shape, bounds.x, bounds.y, bounds.width,
+                    bounds.height, inclusive);
+            int border = 0;
+            int diff = 0;
+
+            for (int j = 0; j < bounds.height; j++)
+            {
+                for (int i = 0; i < bounds.width; i++)
+                {
+                    final int offset = (j * bounds.width) + i;
+                    final boolean onOutline = shape.intersects(bounds.x + i, bounds.y + j, 1, 1)
+                            && !shape.contains(bounds.x + i, bounds.y + j, 1, 1);
+
+                    if (onOutline)
+                        border++;
+
+                    if (mask[offset] != reference[offset])
+                    {
+                        assertTrue(shape + " (inclusive=" + inclusive + ") differs at " + (bounds.x + i) + ","
+                                + (bounds.y + j), onOutline);
+                        diff++;
+                    }
+                }
+            }
+
+            // at most 1% of the outline pixels (a couple for small shapes)
+            assertTrue(shape + " (inclusive=" + inclusive + ") " + diff + " pixels differ on " + border,
+                    diff <= Math.max(2, border / 100));
+        }
+    }
+
+    private static double getCoord(Random random, double max)
+    {
+        final double result = random.nextDouble() * max;
+
+        // integer coordinates produce shapes lying on pixel borders and corners
+        if (random.nextBoolean())
+            return Math.round(result);
+
+        return result;
+    }
+
+    @Test
+    public void testRandomPolygons()
+    {
+        final Random random = new Random(1);
+
+        for (int n = 0; n < RANDOM_SHAPES; n++)
+        {
+            final Path2D path = new Path2D.Double(random.nextBoolean() ? Path2D.WIND_EVEN_ODD
+                    : Path2D.WIND_NON_ZERO);
+            final int numPoints = 3 + random.nextInt(8);
+
+            path.moveTo(getCoord(random, 60), getCoord(random, 60));
+            for (int i = 1; i < numPoints; i++)
+                path.lineTo(getCoord(random, 60), getCoord(random, 60));
+            path.closePath();
+
+            checkMask(path);
+        }
+    }
+
+    @Test
+    public void testRandomRectangles()
+    {
+        final Random random = new Random(2);
+
+        for (int n = 0; n < RANDOM_SHAPES; n++)
+            checkMask(new Rectangle2D.Double(getCoord(random, 40), getCoord(random, 40), getCoord(random, 30),
+                    getCoord(random, 30)));
+    }
+
+    @Test
+    public void testRandomEllipses()
+    {
+        final Random random = new Random(4);
+
+        for (int n = 0; n < RANDOM_SHAPES; n++)
+            checkMask(new Ellipse2D.Double(getCoord(random, 40), getCoord(random, 40), getCoord(random, 30),
+                    getCoord(random, 30)));
+    }
+
+    @Test
+    public void testRandomCurves()
+    {
+        final Random random = new Random(5);
+
+        // curves are flattened by the rasterizer
+        for (int n = 0; n < RANDOM_SHAPES; n++)
+        {
+            final Path2D path = new Path2D.Double(random.nextBoolean() ? Path2D.WIND_EVEN_ODD
+                    : Path2D.WIND_NON_ZERO);
+
+            path.moveTo(getCoord(random, 60), getCoord(random, 60));
+            path.quadTo(getCoord(random, 60), getCoord(random, 60), getCoord(random, 60), getCoord(random, 60));
+            path.curveTo(getCoord(random, 60), getCoord(random, 60), getCoord(random, 60), getCoord(random, 60),
+                    getCoord(random, 60), getCoord(random, 60));
+            path.closePath();
+
+            checkCurveMask(path);
+        }
+    }
+
+    @Test
+    public void testIntegerPolygon()
+    {
+        checkMask(new Polygon(new int[] {2, 20, 12, 30, 4}, new int[] {3, 1, 10, 25, 18}, 5));
+    }
+
+    @Test
+    public void testRandomLines()
+    {
+        final Random random = new Random(3);
+
+        for (int n = 0; n < RANDOM_SHAPES; n++)
+            checkMask(new Line2D.Double(getCoord(random, 50), getCoord(random, 50), getCoord(random, 50),
+                    getCoord(random, 50)));
+    }
+
+    @Test
+    public void testLineEnds()
+    {
+        // end and corner pixels of a diagonal
+        checkMask(new Line2D.Double(1, 1, 8, 8));
+        checkMask(new Line2D.Double(8, 1, 1, 8));
+        // lines on pixel borders
+        checkMask(new Line2D.Double(2, 5, 12, 5));
+        checkMask(new Line2D.Double(5, 2, 5, 12));
+        checkMask(new Line2D.Double(2.5, 5.5, 12.5, 5.5));
+    }
+
+    @Test
+    public void testPoints()
+    {
+        // ROI2DPoint shape is a zero length line
+        checkMask(new Line2D.Double(4, 4, 4, 4));
+        checkMask(new Line2D.Double(4.5, 4.5, 4.5, 4.5));
+        checkMask(new Line2D.Double(4, 4.5, 4, 4.5));
+    }
+
+    @Test
+    public void testSubRegion()
+    {
+        final Shape shape = new Polygon(new int[] {2, 20, 12, 30, 4}, new int[] {3, 1, 10, 25, 18}, 5);
+
+        for (boolean inclusive : new boolean[] {false, true})
+            assertArrayEquals(getReferenceMask(shape, 5, 7, 13, 9, inclusive),
+                    ShapeRasterizer.getBooleanMask(shape, 5, 7, 13, 9, inclusive));
+    }
+}
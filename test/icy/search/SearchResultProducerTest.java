@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import icy.system.thread.ThreadUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * {@link SearchResultProducer} tests (search replacement and cancellation).
+ * 
+ * @author Stephane
+ */
+public class SearchResultProducerTest
+{
+    /**
+     * Slow producer which stops as soon as another search is waiting.
+     */
+    static class TestProducer extends SearchResultProducer
+    {
+        final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public String getName()
+        {
+            return "Test";
+        }
+
+        @Override
+        public void doSearch(String[] words, SearchResultConsumer consumer)
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                if (hasWaitingSearch())
+                    return;
+
+                ThreadUtil.sleep(1);
+            }
+
+            completed.add(words[0]);
+        }
+    }
+
+    static final SearchResultConsumer consumer = new SearchResultConsumer()
+    {
+        @Override
+        public void resultChanged(SearchResultProducer producer, SearchResult result)
+        {
+            //
+        }
+
+        @Override
+        public void resultsChanged(SearchResultProducer producer)
+        {
+            //
+        }
+
+        @Override
+        public void searchCompleted(SearchResultProducer producer)
+        {
+            //
+        }
+    };
+
+    @Test
+    public void testSingleSearch()
+    {
+        final TestProducer producer = new TestProducer();
+
+        producer.search(new String[] {"single"}, consumer);
+        producer.waitSearchComplete();
+
+        assertEquals(Collections.singletonList("single"), producer.completed);
+        assertFalse(producer.hasWaitingSearch());
+    }
+
+    @Test
+    public void testSuccessiveSearches()
+    {
+        final TestProducer producer = new TestProducer();
+
+        // typing quickly: most searches are replaced before they start or canceled while running
+        for (int i = 0; i < 100; i++)
+            producer.search(new String[] {"query" + i}, consumer);
+        producer.waitSearchComplete();
+
+        assertFalse(producer.completed.isEmpty());
+        // last search is always completed
+        assertEquals("query99", producer.completed.get(producer.completed.size() - 1));
+        assertFalse(producer.hasWaitingSearch());
+
+        // later searches still work
+        for (int n = 0; n < 5; n++)
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                producer.search(new String[] {"next" + n + "-" + i}, consumer);
+                ThreadUtil.sleep(i % 3);
+            }
+            producer.waitSearchComplete();
+
+            assertEquals("next" + n + "-9", producer.completed.get(producer.completed.size() - 1));
+        }
+
+        assertTrue(producer.completed.size() < 150);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.sequence;
+
+import static org.junit.Assert.assertEquals;
+
+import icy.sequence.SequenceProjection.ProjectionType;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link SequenceProjection} array projection (serial and by parallel row bands) against a
+ * naive per pixel reference.
+ *
+ * @author Stephane
+ */
+public class SequenceProjectionTest
+{
+    // large enough to be processed by several chunks / bands
+    private static final int SIZE_X = 600;
+    private static final int SIZE_Y = 500;
+
+    private static final DataType[] DATA_TYPES = {DataType.UBYTE, DataType.BYTE, DataType.USHORT, DataType.SHORT,
+            DataType.UINT, DataType.INT, DataType.FLOAT, DataType.DOUBLE};
+
+    private final Random random = new Random(0x1C7);
+
+    private Object createInput(DataType dataType, int len)
+    {
+        final double[] values = new double[len];
+        final double min = dataType.isFloat() ? -1000d : dataType.getMinValue();
+        final double max = dataType.isFloat() ? 1000d : dataType.getMaxValue();
+
+        for (int i = 0; i < len; i++)
+            values[i] = min + (random.nextDouble() * (max - min));
+
+        return Array1DUtil.doubleArrayToSafeArray(values, Array1DUtil.createArray(dataType, len),
+                dataType.isSigned());
+    }
+
+    /**
+     * Per pixel reference projection (two pass standard deviation, full sort median).
+     */
+    private static double[] getReference(Object[] inputs, boolean signed, ProjectionType type, int len)
+    {
+        final int n = inputs.length;
+        final double[][] data = new double[n][];
+        final double[] result = new double[len];
+        final double[] values = new double[n];
+
+        for (int k = 0; k < n; k++)
+            data[k] = Array1DUtil.arrayToDoubleArray(inputs[k], signed);
+
+        for (int i = 0; i < len; i++)
+        {
+            double sum = 0d;
+
+            for (int k = 0; k < n; k++)
+            {
+                values[k] = data[k][i];
+                sum += values[k];
+            }
+
+            Arrays.sort(values);
+
+            switch (type)
+            {
+                case MAX:
+                    result[i] = values[n - 1];
+                    break;
+
+                case MIN:
+                    result[i] = values[0];
+                    break;
+
+                case MEAN:
+                    result[i] = sum / n;
+                    break;
+
+                case SUM:
+                    result[i] = sum;
+                    break;
+
+                case STD:
+                {
+                    final double mean = sum / n;
+                    double var = 0d;
+
+                    for (int k = 0; k < n; k++)
+                        var += (values[k] - mean) * (values[k] - mean);
+
+                    result[i] = Math.sqrt(var / n);
+                    break;
+                }
+
+                case MEDIAN:
+                    if ((n & 1) == 1)
+                        result[i] = values[n / 2];
+                    else
+                        result[i] = (values[(n / 2) - 1] + values[n / 2]) / 2d;
+                    break;
+            }
+        }
+
+        return result;
+    }
+
+    private void checkProjection(DataType dataType, int numInput)
+    {
+        final int len = SIZE_X * SIZE_Y;
+        final Object[] inputs = new Object[numInput];
+
+        for (int k = 0; k < numInput; k++)
+            inputs[k] = createInput(dataType, len);
+
+        for (ProjectionType type : ProjectionType.values())
+        {
+            final DataType outType = type.getResultDataType(dataType);
+            // reference converted the same way to the output type
+            final double[] expected = Array1DUtil.arrayToDoubleArray(
+                    Array1DUtil.doubleArrayToSafeArray(getReference(inputs, dataType.isSigned(), type, len),
+                            Array1DUtil.createArray(outType, len), outType.isSigned()), outType.isSigned());
+
+            for (boolean parallel : new boolean[] {false, true})
+            {
+                final Object output = Array1DUtil.createArray(outType, len);
+
+                SequenceProjection.project(inputs, dataType.isSigned(), type, output, outType.isSigned(), SIZE_X,
+                        SIZE_Y, parallel);
+
+                final double[] result = Array1DUtil.arrayToDoubleArray(output, outType.isSigned());
+                final String message = type + " of " + numInput + " " + dataType + " (parallel=" + parallel + ")";
+                // online variance and float rounding may differ slightly
+                final double tolerance = outType.isFloat() ? 1e-5d : 0d;
+
+                for (int i = 0; i < len; i++)
+                    assertEquals(message, expected[i], result[i], tolerance * Math.max(1d, Math.abs(expected[i])));
+            }
+        }
+    }
+
+    @Test
+    public void testOddInputs()
+    {
+        for (DataType dataType : DATA_TYPES)
+            checkProjection(dataType, 7);
+    }
+
+    @Test
+    public void testEvenInputs()
+    {
+        for (DataType dataType : DATA_TYPES)
+            checkProjection(dataType, 6);
+    }
+
+    @Test
+    public void testSingleInput()
+    {
+        for (DataType dataType : DATA_TYPES)
+            checkProjection(dataType, 1);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ *
+ * This file is part of ICY.
+ *
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.sequence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import icy.image.IcyBufferedImage;
+import icy.image.ImageDataIterator;
+import icy.type.DataType;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Checks that writes done on {@link SequenceView} planes never reach the parent sequence.
+ *
+ * @author Stephane
+ */
+public class SequenceViewTest
+{
+    private static final int SIZE_X = 32;
+    private static final int SIZE_Y = 24;
+    private static final int SIZE_C = 3;
+
+    private static Sequence createParent()
+    {
+        final Sequence result = new Sequence("parent");
+
+        for (int z = 0; z < 2; z++)
+        {
+            final IcyBufferedImage image = new IcyBufferedImage(SIZE_X, SIZE_Y, SIZE_C, DataType.UBYTE);
+
+            for (int c = 0; c < SIZE_C; c++)
+                Arrays.fill(image.getDataXYAsByte(c), (byte) (10 + c));
+
+            result.setImage(0, z, image);
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks the parent still has its initial data.
+     */
+    private static void checkParent(Sequence parent)
+    {
+        for (int z = 0; z < 2; z++)
+        {
+            for (int c = 0; c < SIZE_C; c++)
+            {
+                final byte[] expected = new byte[SIZE_X * SIZE_Y];
+
+                Arrays.fill(expected, (byte) (10 + c));
+                assertArrayEquals("parent z=" + z + " c=" + c, expected, parent.getImage(0, z).getDataXYAsByte(c));
+            }
+        }
+    }
+
+    private static SequenceView createView(Sequence parent, Rectangle region)
+    {
+        return new SequenceView(parent, region, new int[] {2, 0}, 0, 2, 0, 1);
+    }
+
+    @Test
+    public void testSharedRead()
+    {
+        final Sequence parent = createParent();
+        final SequenceView view = createView(parent, null);
+
+        // attached planes share the parent data
+        assertTrue(view.getImage(0, 0).getDataXYAsByte(0) == parent.getImage(0, 0).getDataXYAsByte(2));
+        assertFalse(view.isDetached(0, 0));
+        assertEquals(12d, view.getImage(0, 1).getData(3, 4, 0), 0d);
+        assertEquals(10d, view.getImage(0, 1).getData(3, 4, 1), 0d);
+    }
+
+    @Test
+    public void testImageSetters()
+    {
+        for (Rectangle region : new Rectangle[] {null, new Rectangle(4, 2, 20, 16)})
+        {
+            final Sequence parent = createParent();
+            final SequenceView view = createView(parent, region);
+            final IcyBufferedImage plane = view.getImage(0, 0);
+            final byte[] values = new byte[plane.getSizeX() * plane.getSizeY()];
+
+            Arrays.fill(values, (byte) 99);
+            plane.setDataXY(0, values);
+            plane.setData(1, 1, 1, 77d);
+
+            checkParent(parent);
+            assertTrue(view.isDetached(0, 0));
+            assertArrayEquals(values, view.getImage(0, 0).getDataXYAsByte(0));
+            assertEquals(77d, view.getImage(0, 0).getData(1, 1, 1), 0d);
+            // other plane still attached
+            assertFalse(view.isDetached(0, 1));
+        }
+    }
+
+    @Test
+    public void testImageIterator()
+    {
+        final Sequence parent = createParent();
+        final SequenceView view = createView(parent, null);
+        final ImageDataIterator it = new ImageDataIterator(view.getImage(0, 1), 0, SIZE_X - 1, 0, SIZE_Y - 1, 0, 1);
+
+        while (!it.done())
+        {
+            it.set(55d);
+            it.next();
+        }
+
+        checkParent(parent);
+        assertTrue(view.isDetached(0, 1));
+        assertEquals(55d, view.getImage(0, 1).getData(5, 6, 0), 0d);
+        assertEquals(55d, view.getImage(0, 1).getData(5, 6, 1), 0d);
+    }
+
+    @Test
+    public void testSequenceIterator()
+    {
+        final Sequence parent = createParent();
+        final SequenceView view = createView(parent, null);
+        final SequenceDataIterator it = new SequenceDataIterator(view);
+
+        while (!it.done())
+        {
+            it.set(it.get() + 1d);
+            it.next();
+        }
+
+        checkParent(parent);
+
+        for (int z = 0; z < 2; z++)
+        {
+            assertEquals(13d, view.getImage(0, z).getData(7, 8, 0), 0d);
+            assertEquals(11d, view.getImage(0, z).getData(7, 8, 1), 0d);
+        }
+    }
+}
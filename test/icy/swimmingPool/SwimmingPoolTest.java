@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.swimmingPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwimmingPool} tests (indexes, batched events and retention).
+ * 
+ * @author Stephane
+ */
+public class SwimmingPoolTest
+{
+    private SwimmingPool pool;
+    private List<SwimmingPoolEvent> events;
+
+    @Before
+    public void setUp()
+    {
+        pool = new SwimmingPool();
+        events = new ArrayList<SwimmingPoolEvent>();
+        pool.addListener(new SwimmingPoolListener()
+        {
+            @Override
+            public void swimmingPoolChangeEvent(SwimmingPoolEvent event)
+            {
+                events.add(event);
+            }
+        });
+    }
+
+    private static List<SwimmingObject> createObjects(String name, int count)
+    {
+        final List<SwimmingObject> result = new ArrayList<SwimmingObject>();
+
+        for (int i = 0; i < count; i++)
+            result.add(new SwimmingObject(Integer.valueOf(i), name + i));
+
+        return result;
+    }
+
+    @Test
+    public void testAddAllSingleEvent()
+    {
+        final List<SwimmingObject> objects = createObjects("obj", 10);
+
+        pool.addAll(objects);
+
+        assertEquals(1, events.size());
+        assertEquals(SwimmingPoolEventType.ELEMENT_ADDED, events.get(0).getType());
+        assertEquals(objects, events.get(0).getResults());
+        assertSame(objects.get(9), events.get(0).getResult());
+        assertEquals(10, pool.getCount());
+
+        // already present objects are ignored
+        pool.addAll(objects);
+        assertEquals(1, events.size());
+        assertEquals(10, pool.getCount());
+    }
+
+    @Test
+    public void testRemoveAllResult()
+    {
+        final List<SwimmingObject> objects = createObjects("obj", 5);
+
+        pool.addAll(objects);
+        events.clear();
+        pool.removeAll(objects);
+
+        assertEquals(1, events.size());
+        assertEquals(SwimmingPoolEventType.ELEMENT_REMOVED, events.get(0).getType());
+        assertEquals(objects, events.get(0).getResults());
+        // a multi objects removed event still has a representative result
+        assertNotNull(events.get(0).getResult());
+        assertEquals(0, pool.getCount());
+    }
+
+    @Test
+    public void testQueries()
+    {
+        pool.addAll(createObjects("a", 3));
+        pool.addAll(createObjects("ab", 2));
+        pool.add(new SwimmingObject("text", "b"));
+
+        assertEquals(5, pool.getCount("a", true));
+        assertEquals(1, pool.getCount("a0", false));
+        assertEquals(5, pool.getCount(Integer.class));
+        assertEquals(6, pool.getCount(Object.class));
+        assertTrue(pool.hasObjects(String.class));
+        assertFalse(pool.hasObjects("c", true));
+
+        final List<SwimmingObject> popped = pool.popObjects("ab", true);
+
+        assertEquals(2, popped.size());
+        assertEquals(4, pool.getCount());
+        assertEquals(3, pool.getCount(Integer.class));
+    }
+
+    @Test
+    public void testMaxSizeOnAdd()
+    {
+        pool.setMaxSize(4);
+        pool.addAll(createObjects("first", 2));
+        events.clear();
+
+        final List<SwimmingObject> objects = createObjects("second", 6);
+
+        pool.addAll(objects);
+
+        assertEquals(4, pool.getCount());
+        // 2 previous objects discarded then the 4 remaining new ones added
+        assertEquals(2, events.size());
+        assertEquals(SwimmingPoolEventType.ELEMENT_REMOVED, events.get(0).getType());
+        assertEquals(2, events.get(0).getResults().size());
+        for (SwimmingObject so : events.get(0).getResults())
+            assertTrue(so.getName().startsWith("first"));
+        // objects trimmed in the same batch are never announced
+        assertEquals(SwimmingPoolEventType.ELEMENT_ADDED, events.get(1).getType());
+        assertEquals(objects.subList(2, 6), events.get(1).getResults());
+    }
+
+    @Test
+    public void testMaxSizeOnSet()
+    {
+        final List<SwimmingObject> objects = createObjects("obj", 6);
+
+        pool.addAll(objects);
+        events.clear();
+        pool.setMaxSize(2);
+
+        assertEquals(2, pool.getCount());
+        assertEquals(1, events.size());
+        assertEquals(objects.subList(0, 4), events.get(0).getResults());
+        assertEquals(objects.subList(4, 6), pool.getObjects());
+    }
+}
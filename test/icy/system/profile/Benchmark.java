@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Micro benchmark base class.<br>
+ * A benchmark is prepared with {@link #setup()}, then {@link #run()} is executed for a number
+ * of warmup iterations (to let the JIT compile the hot paths) followed by measured iterations.
+ * Results are returned as a {@link BenchmarkResult}.<br>
+ * {@link #run()} should return a value depending on the computation so the JIT cannot
+ * eliminate it.
+ * 
+ * @author Stephane
+ */
+public abstract class Benchmark
+{
+    public static class BenchmarkResult
+    {
+        public final String name;
+        public final String params;
+        public final long[] times;
+
+        public BenchmarkResult(String name, String params, long[] times)
+        {
+            super();
+
+            this.name = name;
+            this.params = params;
+            this.times = times;
+        }
+
+        /**
+         * Return mean time in nano second.
+         */
+        public double getMean()
+        {
+            if (times.length == 0)
+                return 0d;
+
+            double result = 0d;
+            for (long t : times)
+                result += t;
+
+            return result / times.length;
+        }
+
+        /**
+         * Return standard deviation of time in nano second.
+         */
+        public double getStd()
+        {
+            if (times.length < 2)
+                return 0d;
+
+            final double mean = getMean();
+            double result = 0d;
+            for (long t : times)
+                result += (t - mean) * (t - mean);
+
+            return Math.sqrt(result / (times.length - 1));
+        }
+
+        /**
+         * Return minimum time in nano second.
+         */
+        public long getMin()
+        {
+            long result = Long.MAX_VALUE;
+            for (long t : times)
+                result = Math.min(result, t);
+
+            return (times.length == 0) ? 0L : result;
+        }
+
+        /**
+         * Return median time in nano second.
+         */
+        public long getMedian()
+        {
+            if (times.length == 0)
+                return 0L;
+
+            final long[] sorted = times.clone();
+            Arrays.sort(sorted);
+
+            return sorted[sorted.length / 2];
+        }
+
+        public String toJSON()
+        {
+            return "{\"benchmark\":" + MetricsRegistry.escapeJSON(name) + ",\"params\":"
+                    + MetricsRegistry.escapeJSON(params) + ",\"iterations\":" + times.length + ",\"meanNs\":"
+                    + getMean() + ",\"stdNs\":" + getStd() + ",\"minNs\":" + getMin() + ",\"medianNs\":"
+                    + getMedian() + "}";
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%-40s %-24s %12.3f ms  +/- %9.3f  (min %.3f)", name, params, getMean() / 1000000d,
+                    getStd() / 1000000d, getMin() / 1000000d);
+        }
+    }
+
+    /**
+     * used to consume benchmark results (avoid dead code elimination)
+     */
+    static volatile double sink;
+
+    protected final String name;
+    protected final String params;
+
+    public Benchmark(String name, String params)
+    {
+        super();
+
+        this.name = name;
+        this.params = params;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the parameters description
+     */
+    public String getParams()
+    {
+        return params;
+    }
+
+    /**
+     * Prepare data for the benchmark (not measured).
+     */
+    public void setup()
+    {
+        // nothing by default
+    }
+
+    /**
+     * Execute one benchmark operation (measured).
+     */
+    public abstract double run();
+
+    /**
+     * Release data (not measured).
+     */
+    public void tearDown()
+    {
+        // nothing by default
+    }
+
+    /**
+     * Execute the benchmark and return result.
+     */
+    public BenchmarkResult execute(int warmup, int iterations)
+    {
+        setup();
+        try
+        {
+            double acc = 0d;
+
+            for (int i = 0; i < warmup; i++)
+                acc += run();
+
+            final long[] times = new long[iterations];
+
+            for (int i = 0; i < iterations; i++)
+            {
+                final long start = System.nanoTime();
+                acc += run();
+                times[i] = System.nanoTime() - start;
+            }
+
+            sink = acc;
+
+            return new BenchmarkResult(name, params, times);
+        }
+        finally
+        {
+            tearDown();
+        }
+    }
+
+    /**
+     * Execute all specified benchmarks and return results.<br>
+     * Benchmarks which cannot be executed (out of memory) are reported on error output and
+     * ignored.
+     */
+    public static List<BenchmarkResult> execute(List<Benchmark> benchmarks, int warmup, int iterations,
+            boolean verbose)
+    {
+        final List<BenchmarkResult> result = new ArrayList<BenchmarkResult>();
+
+        for (Benchmark benchmark : benchmarks)
+        {
+            try
+            {
+                final BenchmarkResult res = benchmark.execute(warmup, iterations);
+
+                if (verbose)
+                    System.out.println(res);
+
+                result.add(res);
+            }
+            catch (OutOfMemoryError e)
+            {
+                System.err.println(benchmark.getName() + " " + benchmark.getParams() + " : not enough memory, skipped");
+            }
+
+            // release memory between benchmarks
+            System.gc();
+        }
+
+        return result;
+    }
+
+    /**
+     * Return benchmark results in JSON format.
+     */
+    public static String toJSON(List<BenchmarkResult> results)
+    {
+        final StringBuilder sb = new StringBuilder();
+        boolean first = true;
+
+        sb.append("{\"time\":");
+        sb.append(System.currentTimeMillis());
+        sb.append(",\"java\":");
+        sb.append(MetricsRegistry.escapeJSON(System.getProperty("java.version")));
+        sb.append(",\"processors\":");
+        sb.append(Runtime.getRuntime().availableProcessors());
+        sb.append(",\"results\":[");
+        for (BenchmarkResult res : results)
+        {
+            if (!first)
+                sb.append(',');
+            sb.append('\n');
+            sb.append(res.toJSON());
+            first = false;
+        }
+        sb.append("\n]}\n");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2010, 2011 Institut Pasteur.
+ * 
+ * This file is part of ICY.
+ * 
+ * ICY is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ICY is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with ICY. If not, see <http://www.gnu.org/licenses/>.
+ */
+package icy.system.profile;
+
+import icy.file.FileUtil;
+import icy.image.IcyBufferedImage;
+import icy.image.colorspace.IcyColorSpace;
+import icy.math.ArrayMath;
+import icy.math.Scaler;
+import icy.roi.BooleanMask2D;
+import icy.sequence.Sequence;
+import icy.sequence.SequenceDataIterator;
+import icy.system.profile.Benchmark.BenchmarkResult;
+import icy.type.DataType;
+import icy.type.collection.array.Array1DUtil;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark suite for the image data core (array conversion, array math, scaler, ARGB
+ * conversion, boolean mask algebra and data iterators).<br>
+ * <br>
+ * Command line usage (from the compiled test tree) :<br>
+ * <code>java -cp icy.jar:test-classes:lib/* icy.system.profile.DataCoreBenchmark [options]</code><br>
+ * <code>-size 512,2048,8192</code> : plane sizes (plane is size x size)<br>
+ * <code>-type ubyte,ushort,float</code> : data types (all data types by default)<br>
+ * <code>-filter text</code> : only run benchmarks whose name contains text<br>
+ * <code>-warmup n</code> : number of warmup iterations (default 5)<br>
+ * <code>-iter n</code> : number of measured iterations (default 10)<br>
+ * <code>-out file.json</code> : save results in JSON format<br>
+ * <br>
+ * Random data are generated from a fixed seed so runs are reproducible.
+ * 
+ * @author Stephane
+ */
+public class DataCoreBenchmark
+{
+    private static final long SEED = 1234567L;
+
+    static final DataType[] ALL_TYPES = {DataType.UBYTE, DataType.BYTE, DataType.USHORT, DataType.SHORT,
+            DataType.UINT, DataType.INT, DataType.FLOAT, DataType.DOUBLE};
+
+    /**
+     * Create an array of specified type and size filled with reproducible random values.
+     */
+    static Object createRandomArray(DataType dataType, int len, long seed)
+    {
+        final Random random = new Random(seed);
+        final double[] values = new double[len];
+        final double min = dataType.isFloat() ? 0d : Math.max(dataType.getMinValue(), -1000000d);
+        final double max = dataType.isFloat() ? 1000d : Math.min(dataType.getMaxValue(), 1000000d);
+        final double delta = max - min;
+
+        for (int i = 0; i < len; i++)
+            values[i] = min + (random.nextDouble() * delta);
+
+        return Array1DUtil.doubleArrayToSafeArray(values, Array1DUtil.createArray(dataType, len), dataType.isSigned());
+    }
+
+    static String getParams(DataType dataType, int size)
+    {
+        if (dataType == null)
+            return size + "x" + size;
+
+        return dataType.name().toLowerCase() + " " + size + "x" + size;
+    }
+
+    /**
+     * Build the list of data core benchmarks for specified sizes and data types.
+     */
+    public static List<Benchmark> getBenchmarks(int[] sizes, DataType[] dataTypes)
+    {
+        final List<Benchmark> result = new ArrayList<Benchmark>();
+
+        for (final int size : sizes)
+        {
+            final int len = size * size;
+
+            for (final DataType dataType : dataTypes)
+            {
+                final boolean signed = dataType.isSigned();
+                final String params = getParams(dataType, size);
+
+                result.add(new Benchmark("Array1DUtil.arrayToDoubleArray", params)
+                {
+                    Object in;
+                    double[] out;
+
+                    @Override
+                    public void setup()
+                    {
+                        in = createRandomArray(dataType, len, SEED);
+                        out = new double[len];
+                    }
+
+                    @Override
+                    public double run()
+                    {
+                        return Array1DUtil.arrayToDoubleArray(in, out, signed)[len - 1];
+                    }
+
+                    @Override
+                    public void tearDown()
+                    {
+                        in = null;
+                        out = null;
+                    }
+                });
+
+                result.add(new Benchmark("Array1DUtil.arrayToArray(float)", params)
+                {
+                    Object in;
+                    float[] out;
+
+                    @Override
+                    public void setup()
+                    {
+                        in = createRandomArray(dataType, len, SEED);
+                        out = new float[len];
+                    }
+
+                    @Override
+                    public double run()
+                    {
+                        Array1DUtil.arrayToArray(in, out, signed);
+                        return out[len - 1];
+                    }
+
+                    @Override
+                    public void tearDown()
+                    {
+                        in = null;
+                        out = null;
+                    }
+                });
+
+                result.add(new Benchmark("ArrayMath.add", params)
+                {
+                    Object in1;
+                    Object in2;
+                    Object out;
+
+                    @Override
+                    public void setup()
+                    {
+                        in1 = createRandomArray(dataType, len, SEED);
+                        in2 = createRandomArray(dataType, len, SEED + 1);
+                        out = Array1DUtil.createArray(dataType, len);
+                    }
+
+                    @Override
+                    public double run()
+                    {
+                        ArrayMath.add(in1, in2, out);
+                        return Array1DUtil.getValue(out, len - 1, signed);
+                    }
+
+                    @Override
+                    public void tearDown()
+                    {
+                        in1 = null;
+                        in2 = null;
+                        out = null;
+                    }
+                });
+
+                result.add(new Benchmark("ArrayMath.max", params)
+                {
+                    Object in;
+
+                    @Override
+                    public void setup()
+                    {
+                        in = createRandomArray(dataType, len, SEED);
+                    }
+
+                    @Override
+                    public double run()
+                    {
+                        return ArrayMath.max(in, signed);
+                    }
+
+                    @Override
+                    public void tearDown()
+                    {
+                        in = null;
+                    }
+                });
+
+                result.add(new Benchmark("Scaler.scale(int[])", params)
+                {
+                    Object in;
+                    int[] out;
+                    Scaler scaler;
+
+                    @Override
+                    public void setup()
+                    {
+                        in = createRandomArray(dataType, len, SEED);
+                        out = new int[len];
+                        scaler = new Scaler(ArrayMath.min(in, signed), ArrayMath.max(in, signed), 0, 255,
+                                !dataType.isFloat());
+                    }
+
+                    @Override
+                    public double run()
+                    {
+                        scaler.scale(in, out, signed);
+                        return out[len - 1];
+                    }
+
+                    @Override
+                    public void tearDown()
+                    {
+                        in = null;
+                        out = null;
+                    }
+                });
+
+                result.add(new Benchmark("SequenceDataIterator", params)
+                {
+                    Sequence sequence;
+
+                    @Override
+                    public void setup()
+                    {
+                        sequence = new Sequence(new IcyBufferedImage(size, size, createRandomArray(dataType, len,
+                                SEED), signed));
+                    }
+
+                    @Override
+                    public double run()
+                    {
+                        final SequenceDataIterator it = new SequenceDataIterator(sequence);
+                        double sum = 0d;
+
+                        while (!it.done())
+                        {
+                            sum += it.get();
+                            it.next();
+                        }
+
+                        return sum;
+                    }
+
+                    @Override
+                    public void tearDown()
+                    {
+                        sequence = null;
+                    }
+                });
+            }
+
+            final String params = getParams(null, size);
+
+            result.add(new Benchmark("ArrayMath.mean/std", params)
+            {
+                double[] in;
+
+                @Override
+                public void setup()
+                {
+                    in = (double[]) createRandomArray(DataType.DOUBLE, len, SEED);
+                }
+
+                @Override
+                public double run()
+                {
+                    return ArrayMath.mean(in) + ArrayMath.std(in, true);
+                }
+
+                @Override
+                public void tearDown()
+                {
+                    in = null;
+                }
+            });
+
+            result.add(new Benchmark("ArrayMath.median", params)
+            {
+                double[] in;
+
+                @Override
+                public void setup()
+                {
+                    in = (double[]) createRandomArray(DataType.DOUBLE, len, SEED);
+                }
+
+                @Override
+                public double run()
+                {
+                    return ArrayMath.median(in, true);
+                }
+
+                @Override
+                public void tearDown()
+                {
+                    in = null;
+                }
+            });
+
+            result.add(new Benchmark("IcyColorSpace.fillARGBBuffer", params)
+            {
+                IcyColorSpace colorSpace;
+                int[][] in;
+                int[] out;
+
+                @Override
+                public void setup()
+                {
+                    final Random random = new Random(SEED);
+
+                    colorSpace = new IcyColorSpace(3);
+                    in = new int[3][len];
+                    for (int c = 0; c < 3; c++)
+                        for (int i = 0; i < len; i++)
+                            in[c][i] = random.nextInt(256);
+                    out = new int[len];
+                }
+
+                @Override
+                public double run()
+                {
+                    colorSpace.fillARGBBuffer(in, out);
+                    return out[len - 1];
+                }
+
+                @Override
+                public void tearDown()
+                {
+                    colorSpace = null;
+                    in = null;
+                    out = null;
+                }
+            });
+
+            result.add(new Benchmark("BooleanMask2D.union/intersect", params)
+            {
+                BooleanMask2D mask1;
+                BooleanMask2D mask2;
+
+                @Override
+                public void setup()
+                {
+                    final Random random = new Random(SEED);
+                    final int half = size / 2;
+                    final boolean[] m1 = new boolean[len];
+                    final boolean[] m2 = new boolean[len];
+
+                    for (int i = 0; i < len; i++)
+                    {
+                        m1[i] = random.nextBoolean();
+                        m2[i] = random.nextBoolean();
+                    }
+
+                    // overlapping masks
+                    mask1 = new BooleanMask2D(new Rectangle(0, 0, size, size), m1);
+                    mask2 = new BooleanMask2D(new Rectangle(half, half, size, size), m2);
+                }
+
+                @Override
+                public double run()
+                {
+                    return BooleanMask2D.getUnionBooleanMask(mask1, mask2).mask.length
+                            + BooleanMask2D.getIntersectBooleanMask(mask1, mask2).mask.length;
+                }
+
+                @Override
+                public void tearDown()
+                {
+                    mask1 = null;
+                    mask2 = null;
+                }
+            });
+        }
+
+        return result;
+    }
+
+    private static int[] parseSizes(String value)
+    {
+        final String[] items = value.split(",");
+        final int[] result = new int[items.length];
+
+        for (int i = 0; i < items.length; i++)
+            result[i] = Integer.parseInt(items[i].trim());
+
+        return result;
+    }
+
+    private static DataType[] parseTypes(String value)
+    {
+        final List<DataType> result = new ArrayList<DataType>();
+
+        for (String item : value.split(","))
+        {
+            try
+            {
+                result.add(DataType.valueOf(item.trim().toUpperCase()));
+            }
+            catch (IllegalArgumentException e)
+            {
+                System.err.println("Unknown data type : " + item);
+            }
+        }
+
+        return result.toArray(new DataType[result.size()]);
+    }
+
+    public static void main(String[] args)
+    {
+        int[] sizes = {512, 2048, 8192};
+        DataType[] dataTypes = ALL_TYPES;
+        String filter = null;
+        String output = null;
+        int warmup = 5;
+        int iterations = 10;
+
+        for (int i = 0; i < args.length - 1; i += 2)
+        {
+            final String option = args[i];
+            final String value = args[i + 1];
+
+            if (option.equals("-size"))
+                sizes = parseSizes(value);
+            else if (option.equals("-type"))
+                dataTypes = parseTypes(value);
+            else if (option.equals("-filter"))
+                filter = value;
+            else if (option.equals("-warmup"))
+                warmup = Integer.parseInt(value);
+            else if (option.equals("-iter"))
+                iterations = Integer.parseInt(value);
+            else if (option.equals("-out"))
+                output = value;
+            else
+                System.err.println("Unknown option : " + option);
+        }
+
+        final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+        for (Benchmark benchmark : getBenchmarks(sizes, dataTypes))
+            if ((filter == null) || benchmark.getName().contains(filter))
+                benchmarks.add(benchmark);
+
+        final List<BenchmarkResult> results = Benchmark.execute(benchmarks, warmup, iterations, true);
+
+        if (output != null)
+            FileUtil.save(new File(output), Benchmark.toJSON(results).getBytes(), true);
+    }
+}